@@ -0,0 +1,83 @@
+package com.example.savings.config;
+
+import com.example.savings.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many (deliberately slow) password hashes run at once, so a burst of logins or sign-ups
+ * cannot occupy every request thread with hashing. A hash runs on the calling thread if one of
+ * the permits is free; otherwise the call fails at once with a {@link TooManyRequestsException}.
+ * Nothing waits for a permit, so a saturated encoder costs a request thread no more than the
+ * time to refuse it.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder delegate;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int maxConcurrent, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.rejected = Counter.builder("security.password.hash.rejected")
+                .description("Password hashes refused because every hashing permit was taken")
+                .register(meterRegistry);
+        Gauge.builder("security.password.hash.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Password hashes in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Time one encode on the calling thread and log it with the throughput it allows, so the
+     * cost factor can be tuned for the hardware the application runs on.
+     */
+    public void logCalibration(String description) {
+        delegate.encode("calibration");
+        long start = System.nanoTime();
+        delegate.encode("calibration");
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info("{} takes {} ms per hash; {} concurrent hashes allow about {} logins per second",
+                description, millis, maxConcurrent, maxConcurrent * 1000 / millis);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Supplier<T> hash) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many sign-in attempts are being processed; try again shortly",
+                    RETRY_AFTER_SECONDS);
+        }
+        try {
+            return hash.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
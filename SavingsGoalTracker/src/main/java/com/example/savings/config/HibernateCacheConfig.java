@@ -0,0 +1,80 @@
+package com.example.savings.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process Caffeine regions for the Hibernate second-level cache.
+ *
+ * Each region's TTL and size can be overridden with {@code cache.regions.<region>.ttl-seconds}
+ * and {@code cache.regions.<region>.max-entries}. Hibernate is set to fail on a region that is
+ * not created here, so a misspelt region name shows up at startup.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    private static final String USERS = "users";
+    private static final String BANK_ACCOUNTS = "bank_accounts";
+    private static final String SAVINGS_RULES = "savings_rules";
+    private static final String USER_QUERIES = "user_queries";
+    private static final String SAVINGS_RULE_QUERIES = "savings_rule_queries";
+
+    private static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    /**
+     * A cache manager owned by this application context rather than the provider's JVM-wide
+     * default, so each context in a JVM has its own regions and closing one leaves the others'
+     * caches open.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment environment) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("savings-hibernate-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        createRegion(cacheManager, environment, USERS, 600, 10_000);
+        createRegion(cacheManager, environment, BANK_ACCOUNTS, 300, 10_000);
+        createRegion(cacheManager, environment, SAVINGS_RULES, 600, 10_000);
+        createRegion(cacheManager, environment, USER_QUERIES, 600, 10_000);
+        createRegion(cacheManager, environment, SAVINGS_RULE_QUERIES, 300, 1_000);
+        createRegion(cacheManager, environment, DEFAULT_QUERY_RESULTS, 300, 1_000);
+        // Query results are only valid while the timestamps they were cached against are still
+        // known, so this region must never expire or evict
+        cacheManager.createCache(UPDATE_TIMESTAMPS, regionConfiguration(OptionalLong.empty(), OptionalLong.empty()));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private void createRegion(CacheManager cacheManager, Environment environment, String region,
+                              long defaultTtlSeconds, long defaultMaxEntries) {
+        long ttlSeconds = environment.getProperty("cache.regions." + region + ".ttl-seconds", Long.class, defaultTtlSeconds);
+        long maxEntries = environment.getProperty("cache.regions." + region + ".max-entries", Long.class, defaultMaxEntries);
+        cacheManager.createCache(region, regionConfiguration(
+                OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)), OptionalLong.of(maxEntries)));
+    }
+
+    private CaffeineConfiguration<Object, Object> regionConfiguration(OptionalLong expireAfterWriteNanos, OptionalLong maxEntries) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setExpireAfterWrite(expireAfterWriteNanos);
+        configuration.setMaximumSize(maxEntries);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -12,10 +12,14 @@ import org.springframework.stereotype.Component;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
+    // The user's id and authorities travel in the token so requests need no user lookup
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
 
     @Value("${app.jwt.secret}")
     private String jwtSecret;
@@ -27,12 +31,34 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(authentication.getName())
                 .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
-                .compact();
+                .setExpiration(expiryDate);
+        if (authentication.getPrincipal() instanceof AuthenticatedUser) {
+            builder.claim(USER_ID_CLAIM, ((AuthenticatedUser) authentication.getPrincipal()).getId());
+        }
+        builder.claim(ROLES_CLAIM, authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+
+        return builder.signWith(SignatureAlgorithm.HS512, jwtSecret).compact();
+    }
+
+    /**
+     * The principal described by verified {@code claims}, or null for tokens issued before they
+     * carried the user's id.
+     */
+    public AuthenticatedUser getPrincipal(Claims claims) {
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            return null;
+        }
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        Collection<GrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toList());
+        return new AuthenticatedUser(userId, claims.getSubject(), null, authorities);
     }
 
     public String getUsernameFromJWT(String token) {
@@ -44,6 +70,18 @@ public class JwtTokenProvider {
         return claims.getSubject();
     }
 
+    /**
+     * Parse the token and check its signature and expiry once, returning its claims, or null if
+     * it is not a valid token.
+     */
+    public Claims parseClaims(String authToken) {
+        try {
+            return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken).getBody();
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
     public boolean validateToken(String authToken) {
         try {
             Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
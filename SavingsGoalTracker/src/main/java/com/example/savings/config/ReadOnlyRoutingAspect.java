@@ -0,0 +1,41 @@
+package com.example.savings.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes {@code @Transactional(readOnly = true)} service methods to a read replica when they
+ * start a new transaction. Read-only methods called from inside a read-write transaction
+ * stay on the primary so they see that transaction's writes.
+ *
+ * Ordered ahead of the transaction advisor (lowest precedence) so it can tell whether a
+ * transaction is already open.
+ */
+@Aspect
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+public class ReadOnlyRoutingAspect {
+
+    @Around("within(com.example.savings.service..*) && @annotation(transactional)")
+    public Object routeReadOnly(ProceedingJoinPoint joinPoint, Transactional transactional) throws Throwable {
+        if (!transactional.readOnly()
+                || ReadOnlyRoutingContext.isReadOnly()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        ReadOnlyRoutingContext.markReadOnly();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadOnlyRoutingContext.clear();
+        }
+    }
+}
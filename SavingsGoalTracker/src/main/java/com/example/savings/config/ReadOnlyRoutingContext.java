@@ -0,0 +1,24 @@
+package com.example.savings.config;
+
+/**
+ * Marks the current thread as running an outermost read-only service transaction,
+ * which {@link ReadWriteRoutingDataSource} may serve from a read replica.
+ */
+public final class ReadOnlyRoutingContext {
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private ReadOnlyRoutingContext() {
+    }
+
+    static void markReadOnly() {
+        READ_ONLY.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        READ_ONLY.remove();
+    }
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() != null;
+    }
+}
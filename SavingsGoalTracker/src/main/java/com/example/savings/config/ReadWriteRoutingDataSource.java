@@ -0,0 +1,40 @@
+package com.example.savings.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends connections for read-only service transactions to a healthy replica and everything
+ * else to the primary. Must be wrapped in a LazyConnectionDataSourceProxy so the routing
+ * decision is made at the first statement, after the transaction has been set up.
+ * Owns its target pools and closes them when the context shuts down.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!ReadOnlyRoutingContext.isReadOnly()) {
+            return PRIMARY;
+        }
+        String replica = replicaLagMonitor.nextHealthyReplica();
+        return replica != null ? replica : PRIMARY;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource target : getResolvedDataSources().values()) {
+            if (target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
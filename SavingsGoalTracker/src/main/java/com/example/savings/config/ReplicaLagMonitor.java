@@ -0,0 +1,74 @@
+package com.example.savings.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically measures replication lag on each replica and keeps the list of replicas
+ * that are within the allowed lag. Reads fall back to the primary when none are.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final Map<String, DataSource> replicaDataSources;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicaDataSources, String lagQuery, double maxLagSeconds) {
+        this.replicaDataSources = Map.copyOf(replicaDataSources);
+        replicaDataSources.forEach((key, dataSource) -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.setQueryTimeout(2);
+            replicas.put(key, jdbcTemplate);
+        });
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        List<String> healthy = new ArrayList<>();
+        for (Map.Entry<String, JdbcTemplate> replica : replicas.entrySet()) {
+            try {
+                Double lagSeconds = replica.getValue().queryForObject(lagQuery, Double.class);
+                if (lagSeconds != null && lagSeconds <= maxLagSeconds) {
+                    healthy.add(replica.getKey());
+                } else {
+                    logger.warn("Replica {} is {}s behind the primary; routing its reads to the primary",
+                        replica.getKey(), lagSeconds);
+                }
+            } catch (Exception e) {
+                logger.warn("Replica {} lag check failed: {}", replica.getKey(), e.getMessage());
+            }
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    public Map<String, DataSource> getReplicaDataSources() {
+        return replicaDataSources;
+    }
+
+    /**
+     * Round-robin over the replicas that passed the last lag check, or null if none did.
+     */
+    public String nextHealthyReplica() {
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.savings.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.example.savings.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bearer tokens that were already verified, with the principal they resolved to. A token is
+ * parsed and its signature checked once; later requests with the same token skip that and the
+ * check that its user still exists.
+ *
+ * Entries are keyed by the token's SHA-256 hash, so tokens themselves are not kept in memory, and
+ * live until the token expires but no longer than {@code jwt.cache.max-ttl-seconds}. The cap
+ * bounds how long a deleted user's tokens stay usable on another instance. Hit and miss counts are
+ * published as {@code cache.gets{cache=jwt.verified.tokens}}, and the hit rate as
+ * {@code jwt.verified.tokens.hit.rate}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${jwt.cache.max-ttl-seconds:300}")
+    private long maxTtlSeconds;
+
+    private Cache<String, VerifiedToken> tokens;
+
+    @PostConstruct
+    public void init() {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        tokens = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                    long untilExpiry = TimeUnit.MILLISECONDS.toNanos(token.expiresAtMillis - System.currentTimeMillis());
+                    return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, token, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "jwt.verified.tokens");
+        Gauge.builder("jwt.verified.tokens.hit.rate", tokens, cache -> cache.stats().hitRate())
+            .description("Share of authenticated requests whose token was already verified")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The principal for a valid, unexpired token, or null if the token is invalid or its user no
+     * longer exists.
+     */
+    public AuthenticatedUser resolve(String token) {
+        String key = hash(token);
+        VerifiedToken cached = tokens.getIfPresent(key);
+        if (cached != null && cached.expiresAtMillis > System.currentTimeMillis()) {
+            return cached.principal;
+        }
+
+        Claims claims = tokenProvider.parseClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        AuthenticatedUser principal = tokenProvider.getPrincipal(claims);
+        if (principal != null) {
+            // The token describes the user already; only make sure they have not been deleted.
+            // The second-level users cache normally answers this without a query.
+            if (userRepository.findById(principal.getId()).isEmpty()) {
+                return null;
+            }
+        } else {
+            // Tokens issued before they carried the user's id
+            AuthenticatedUser user = (AuthenticatedUser) customUserDetailsService.loadUserByUsername(claims.getSubject());
+            // The request only needs the id, name and authorities; keep the password hash out of the cache
+            principal = new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getAuthorities());
+        }
+        tokens.put(key, new VerifiedToken(principal, claims.getExpiration().getTime()));
+        return principal;
+    }
+
+    /**
+     * Forget every cached token of {@code username}, e.g. once the user has been deleted.
+     */
+    public void evictUser(String username) {
+        tokens.asMap().values().removeIf(token -> token.principal.getUsername().equals(username));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final AuthenticatedUser principal;
+        private final long expiresAtMillis;
+
+        private VerifiedToken(AuthenticatedUser principal, long expiresAtMillis) {
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.savings.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in virtual-thread mode, enabled with {@code app.threads.virtual=true}. On a JDK with
+ * virtual threads (21 or later), every Tomcat request and every task on Spring's application
+ * task executor (@Async methods and async MVC responses such as streamed exports) runs on a
+ * virtual thread of its own. A request blocked on the bank API or JDBC then no longer holds a
+ * platform thread, and bank calls made while serving a request run on that virtual thread too.
+ *
+ * The application is built for Java 17, so virtual threads are looked up reflectively. On an
+ * older runtime the setting is logged and ignored and the usual thread pools are kept.
+ *
+ * Anything that blocks inside a synchronized block pins the virtual thread to its carrier, which
+ * is why Tomcat is kept at 9.0.71 or later (older versions process each request while holding the
+ * socket's monitor). Requests must also not hold a JDBC connection while they wait on the bank,
+ * so set {@code spring.jpa.open-in-view=false} as well: with it on, each request keeps its
+ * connection until it completes, and once more requests are waiting than the pool has
+ * connections the rest time out.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService requestExecutor = newVirtualThreadExecutor("http-vt-");
+    private final ExecutorService taskExecutor = newVirtualThreadExecutor("task-vt-");
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (requestExecutor != null) {
+                protocolHandler.setExecutor(requestExecutor);
+            }
+        };
+    }
+
+    /**
+     * Replaces Boot's default application task executor, which otherwise would be a pool of
+     * platform threads configured from spring.task.execution.*.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        if (taskExecutor != null) {
+            return new TaskExecutorAdapter(taskExecutor);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void destroy() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+        if (taskExecutor != null) {
+            taskExecutor.shutdown();
+        }
+    }
+
+    /**
+     * An executor starting one virtual thread per task, named {@code prefix} plus a counter, or
+     * null when the runtime has no virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            logger.info("Running {}* tasks on virtual threads", prefix);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("app.threads.virtual is set but Java {} has no virtual threads; keeping platform threads for {}*",
+                Runtime.version().feature(), prefix);
+            return null;
+        }
+    }
+}
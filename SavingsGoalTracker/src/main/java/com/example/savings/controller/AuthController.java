@@ -1,11 +1,14 @@
 package com.example.savings.controller;
 
 import com.example.savings.config.JwtTokenProvider;
+import com.example.savings.exception.TooManyRequestsException;
 import com.example.savings.model.User;
+import com.example.savings.service.LoginThrottleService;
 import com.example.savings.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Map;
@@ -30,14 +34,31 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(
-                loginRequest.getUsername(),
-                loginRequest.getPassword()
-            )
-        );
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                              HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        // Refuse backed-off usernames and addresses before spending a password hash on them. The
+        // attempt counts as a failure unless authentication succeeds.
+        loginThrottleService.checkAllowed(loginRequest.getUsername(), address);
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                    loginRequest.getUsername(),
+                    loginRequest.getPassword()
+                )
+            );
+        } catch (InternalAuthenticationServiceException | TooManyRequestsException e) {
+            // Not a wrong password, e.g. every hashing permit was taken
+            loginThrottleService.cancelAttempt(loginRequest.getUsername(), address);
+            throw e;
+        }
+        loginThrottleService.recordSuccess(loginRequest.getUsername(), address);
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = tokenProvider.generateToken(authentication);
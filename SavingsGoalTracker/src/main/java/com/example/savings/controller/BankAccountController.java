@@ -1,15 +1,22 @@
 package com.example.savings.controller;
 
+import com.example.savings.config.AuthenticatedUser;
+import com.example.savings.exception.BadRequestException;
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankAccountSummary;
+import com.example.savings.model.BankImportResult;
 import com.example.savings.model.User;
 import com.example.savings.service.BankAccountService;
+import com.example.savings.service.BankTransactionImportService;
 import com.example.savings.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,22 +28,25 @@ public class BankAccountController {
     @Autowired
     private BankAccountService bankAccountService;
 
+    @Autowired
+    private BankTransactionImportService bankTransactionImportService;
+
     @Autowired
     private UserService userService;
 
     @GetMapping
-    public ResponseEntity<List<BankAccount>> getUserAccounts(Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
-        List<BankAccount> accounts = bankAccountService.getUserAccounts(user);
+    public ResponseEntity<List<BankAccountSummary>> getUserAccounts(AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+        List<BankAccountSummary> accounts = bankAccountService.getUserAccountSummaries(user);
         return ResponseEntity.ok(accounts);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getAccountById(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getAccountById(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<BankAccount> account = bankAccountService.findById(id);
-        if (account.isEmpty() || !account.get().getUser().getId().equals(user.getId())) {
+        Optional<BankAccountSummary> account = bankAccountService.findUserAccountSummary(id, user);
+        if (account.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
@@ -45,16 +55,16 @@ public class BankAccountController {
 
     @PostMapping
     public ResponseEntity<?> addBankAccount(@Valid @RequestBody BankAccount bankAccount,
-                                           Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                           AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
         BankAccount savedAccount = bankAccountService.addBankAccount(bankAccount, user);
-        return ResponseEntity.ok(savedAccount);
+        return ResponseEntity.ok(BankAccountSummary.from(savedAccount));
     }
 
     @PostMapping("/link")
     public ResponseEntity<?> linkBankAccount(@Valid @RequestBody LinkAccountRequest request,
-                                            Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                            AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         BankAccount linkedAccount = bankAccountService.linkBankAccount(
             request.getPublicToken(),
@@ -62,12 +72,12 @@ public class BankAccountController {
             user
         );
 
-        return ResponseEntity.ok(linkedAccount);
+        return ResponseEntity.ok(BankAccountSummary.from(linkedAccount));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteBankAccount(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> deleteBankAccount(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<BankAccount> account = bankAccountService.findById(id);
         if (account.isEmpty() || !account.get().getUser().getId().equals(user.getId())) {
@@ -84,8 +94,8 @@ public class BankAccountController {
     }
 
     @GetMapping("/{id}/balance")
-    public ResponseEntity<?> refreshAccountBalance(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> refreshAccountBalance(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<BankAccount> account = bankAccountService.findById(id);
         if (account.isEmpty() || !account.get().getUser().getId().equals(user.getId())) {
@@ -93,13 +103,44 @@ public class BankAccountController {
         }
 
         BankAccount refreshedAccount = bankAccountService.refreshAccountBalance(id);
-        return ResponseEntity.ok(refreshedAccount);
+        return ResponseEntity.ok(BankAccountSummary.from(refreshedAccount));
     }
 
-    private User getUserFromAuthentication(Authentication authentication) {
-        String username = authentication.getName();
-        return userService.findByUsername(username)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    @PostMapping("/{id}/transactions/import")
+    public ResponseEntity<?> importTransactions(@PathVariable Long id,
+                                                @RequestParam(defaultValue = "csv") String format,
+                                                InputStream body,
+                                                AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        Optional<BankAccount> account = bankAccountService.findById(id);
+        if (account.isEmpty() || !account.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        BankImportResult result;
+        if ("csv".equalsIgnoreCase(format)) {
+            result = bankTransactionImportService.importCsv(account.get(), body);
+        } else if ("ofx".equalsIgnoreCase(format)) {
+            result = bankTransactionImportService.importOfx(account.get(), body);
+        } else {
+            throw new BadRequestException("Unsupported import format: " + format);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/{id}/transactions/sync")
+    public ResponseEntity<?> syncTransactions(@PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        Optional<BankAccount> account = bankAccountService.findById(id);
+        if (account.isEmpty() || !account.get().getUser().getId().equals(user.getId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(bankTransactionImportService.importFromBankApi(account.get(), since));
     }
 
     // Request class for linking accounts
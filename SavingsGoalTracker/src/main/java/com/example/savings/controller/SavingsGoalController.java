@@ -1,17 +1,23 @@
 package com.example.savings.controller;
 
+import com.example.savings.config.AuthenticatedUser;
+import com.example.savings.model.LedgerEntry;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
-import com.example.savings.model.Transaction;
+import com.example.savings.model.SavingsGoalSummary;
+import com.example.savings.model.TransactionPage;
 import com.example.savings.model.User;
 import com.example.savings.service.SavingsGoalService;
+import com.example.savings.service.SavingsLedgerService;
 import com.example.savings.service.TransactionService;
 import com.example.savings.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,22 +32,25 @@ public class SavingsGoalController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private SavingsLedgerService savingsLedgerService;
+
     @Autowired
     private UserService userService;
 
     @GetMapping
-    public ResponseEntity<List<SavingsGoal>> getUserGoals(Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
-        List<SavingsGoal> goals = savingsGoalService.getUserSavingsGoals(user);
+    public ResponseEntity<List<SavingsGoalSummary>> getUserGoals(AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+        List<SavingsGoalSummary> goals = savingsGoalService.getUserGoalSummaries(user);
         return ResponseEntity.ok(goals);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getGoalById(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getGoalById(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsGoal> goal = savingsGoalService.findById(id);
-        if (goal.isEmpty() || !goal.get().getUser().getId().equals(user.getId())) {
+        Optional<SavingsGoalSummary> goal = savingsGoalService.findUserGoalSummary(id, user);
+        if (goal.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
@@ -50,8 +59,8 @@ public class SavingsGoalController {
 
     @PostMapping
     public ResponseEntity<?> createSavingsGoal(@Valid @RequestBody CreateGoalRequest request,
-                                              Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                              AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         SavingsGoal goal = new SavingsGoal();
         goal.setName(request.getName());
@@ -60,14 +69,14 @@ public class SavingsGoalController {
 
         SavingsGoal savedGoal = savingsGoalService.createSavingsGoal(goal, user, request.getDestinationAccountId());
 
-        return ResponseEntity.ok(savedGoal);
+        return ResponseEntity.ok(SavingsGoalSummary.from(savedGoal));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateSavingsGoal(@PathVariable Long id,
                                               @Valid @RequestBody UpdateGoalRequest request,
-                                              Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                              AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsGoal> goalOpt = savingsGoalService.findById(id);
         if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
@@ -90,12 +99,12 @@ public class SavingsGoalController {
 
         SavingsGoal updatedGoal = savingsGoalService.updateSavingsGoal(goal);
 
-        return ResponseEntity.ok(updatedGoal);
+        return ResponseEntity.ok(SavingsGoalSummary.from(updatedGoal));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteSavingsGoal(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> deleteSavingsGoal(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsGoal> goal = savingsGoalService.findById(id);
         if (goal.isEmpty() || !goal.get().getUser().getId().equals(user.getId())) {
@@ -112,10 +121,10 @@ public class SavingsGoalController {
     }
 
     @GetMapping("/{id}/progress")
-    public ResponseEntity<?> getGoalProgress(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getGoalProgress(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsGoal> goalOpt = savingsGoalService.findById(id);
+        Optional<SavingsGoal> goalOpt = savingsGoalService.findByIdReadOnly(id);
         if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
             return ResponseEntity.notFound().build();
         }
@@ -135,37 +144,67 @@ public class SavingsGoalController {
     }
 
     @GetMapping("/{id}/transactions")
-    public ResponseEntity<?> getGoalTransactions(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getGoalTransactions(@PathVariable Long id,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(required = false) String pageToken,
+                                                 AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsGoal> goalOpt = savingsGoalService.findById(id);
-        if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
+        if (!savingsGoalService.isOwnedBy(id, user)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        TransactionPage page = transactionService.getGoalTransactionPage(id, null, null, size, pageToken);
+
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<?> getGoalBalanceAt(@PathVariable Long id,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                              AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        if (!savingsGoalService.isOwnedBy(id, user)) {
             return ResponseEntity.notFound().build();
         }
 
-        List<Transaction> transactions = transactionService.getGoalTransactions(goalOpt.get());
+        Map<String, Object> response = new HashMap<>();
+        response.put("goalId", id);
+        response.put("at", at);
+        response.put("balance", savingsLedgerService.getBalanceAt(id, at));
 
-        return ResponseEntity.ok(transactions);
+        return ResponseEntity.ok(response);
     }
 
-    private User getUserFromAuthentication(Authentication authentication) {
-        String username = authentication.getName();
-        return userService.findByUsername(username)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    @GetMapping("/{id}/ledger")
+    public ResponseEntity<?> getGoalLedger(@PathVariable Long id,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                           AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        if (!savingsGoalService.isOwnedBy(id, user)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<LedgerEntry> entries = savingsLedgerService.getGoalEntries(id, start, end);
+
+        return ResponseEntity.ok(entries);
     }
 
     // Request classes
     public static class CreateGoalRequest {
         private String name;
-        private Double targetAmount;
+        private Money targetAmount;
         private java.time.LocalDate targetDate;
         private Long destinationAccountId;
 
         // Getters and setters
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
-        public Double getTargetAmount() { return targetAmount; }
-        public void setTargetAmount(Double targetAmount) { this.targetAmount = targetAmount; }
+        public Money getTargetAmount() { return targetAmount; }
+        public void setTargetAmount(Money targetAmount) { this.targetAmount = targetAmount; }
         public java.time.LocalDate getTargetDate() { return targetDate; }
         public void setTargetDate(java.time.LocalDate targetDate) { this.targetDate = targetDate; }
         public Long getDestinationAccountId() { return destinationAccountId; }
@@ -174,14 +213,14 @@ public class SavingsGoalController {
 
     public static class UpdateGoalRequest {
         private String name;
-        private Double targetAmount;
+        private Money targetAmount;
         private java.time.LocalDate targetDate;
 
         // Getters and setters
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
-        public Double getTargetAmount() { return targetAmount; }
-        public void setTargetAmount(Double targetAmount) { this.targetAmount = targetAmount; }
+        public Money getTargetAmount() { return targetAmount; }
+        public void setTargetAmount(Money targetAmount) { this.targetAmount = targetAmount; }
         public java.time.LocalDate getTargetDate() { return targetDate; }
         public void setTargetDate(java.time.LocalDate targetDate) { this.targetDate = targetDate; }
     }
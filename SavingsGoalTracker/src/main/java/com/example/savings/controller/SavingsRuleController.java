@@ -1,14 +1,16 @@
 package com.example.savings.controller;
 
+import com.example.savings.config.AuthenticatedUser;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
+import com.example.savings.model.SavingsRuleSummary;
 import com.example.savings.model.User;
 import com.example.savings.service.SavingsGoalService;
 import com.example.savings.service.SavingsRuleService;
 import com.example.savings.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -30,24 +32,23 @@ public class SavingsRuleController {
     private UserService userService;
 
     @GetMapping("/goal/{goalId}")
-    public ResponseEntity<?> getGoalRules(@PathVariable Long goalId, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getGoalRules(@PathVariable Long goalId, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsGoal> goalOpt = savingsGoalService.findById(goalId);
-        if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
+        if (!savingsGoalService.isOwnedBy(goalId, user)) {
             return ResponseEntity.notFound().build();
         }
 
-        List<SavingsRule> rules = savingsRuleService.getGoalSavingsRules(goalOpt.get());
+        List<SavingsRuleSummary> rules = savingsRuleService.getGoalRuleSummaries(goalId);
         return ResponseEntity.ok(rules);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getRuleById(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getRuleById(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsRule> ruleOpt = savingsRuleService.findById(id);
-        if (ruleOpt.isEmpty() || !ruleOpt.get().getSavingsGoal().getUser().getId().equals(user.getId())) {
+        Optional<SavingsRuleSummary> ruleOpt = savingsRuleService.findUserRuleSummary(id, user);
+        if (ruleOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
@@ -56,8 +57,8 @@ public class SavingsRuleController {
 
     @PostMapping
     public ResponseEntity<?> createSavingsRule(@Valid @RequestBody CreateRuleRequest request,
-                                              Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                              AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsGoal> goalOpt = savingsGoalService.findById(request.getSavingsGoalId());
         if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
@@ -78,14 +79,14 @@ public class SavingsRuleController {
             request.getSourceAccountId()
         );
 
-        return ResponseEntity.ok(savedRule);
+        return ResponseEntity.ok(SavingsRuleSummary.from(savedRule));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateSavingsRule(@PathVariable Long id,
                                               @Valid @RequestBody UpdateRuleRequest request,
-                                              Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                              AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsRule> ruleOpt = savingsRuleService.findById(id);
         if (ruleOpt.isEmpty() || !ruleOpt.get().getSavingsGoal().getUser().getId().equals(user.getId())) {
@@ -112,12 +113,12 @@ public class SavingsRuleController {
 
         SavingsRule updatedRule = savingsRuleService.updateSavingsRule(rule);
 
-        return ResponseEntity.ok(updatedRule);
+        return ResponseEntity.ok(SavingsRuleSummary.from(updatedRule));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteSavingsRule(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> deleteSavingsRule(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsRule> ruleOpt = savingsRuleService.findById(id);
         if (ruleOpt.isEmpty() || !ruleOpt.get().getSavingsGoal().getUser().getId().equals(user.getId())) {
@@ -134,8 +135,8 @@ public class SavingsRuleController {
     }
 
     @PutMapping("/{id}/toggle")
-    public ResponseEntity<?> toggleRuleStatus(@PathVariable Long id, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> toggleRuleStatus(@PathVariable Long id, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         Optional<SavingsRule> ruleOpt = savingsRuleService.findById(id);
         if (ruleOpt.isEmpty() || !ruleOpt.get().getSavingsGoal().getUser().getId().equals(user.getId())) {
@@ -152,19 +153,13 @@ public class SavingsRuleController {
         return ResponseEntity.ok(response);
     }
 
-    private User getUserFromAuthentication(Authentication authentication) {
-        String username = authentication.getName();
-        return userService.findByUsername(username)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-    }
-
     // Request classes
     public static class CreateRuleRequest {
         private String name;
         private String description;
         private SavingsRule.RuleType ruleType;
         private String ruleCondition;
-        private Double amount;
+        private Money amount;
         private Long savingsGoalId;
         private Long sourceAccountId;
 
@@ -177,8 +172,8 @@ public class SavingsRuleController {
         public void setRuleType(SavingsRule.RuleType ruleType) { this.ruleType = ruleType; }
         public String getRuleCondition() { return ruleCondition; }
         public void setRuleCondition(String ruleCondition) { this.ruleCondition = ruleCondition; }
-        public Double getAmount() { return amount; }
-        public void setAmount(Double amount) { this.amount = amount; }
+        public Money getAmount() { return amount; }
+        public void setAmount(Money amount) { this.amount = amount; }
         public Long getSavingsGoalId() { return savingsGoalId; }
         public void setSavingsGoalId(Long savingsGoalId) { this.savingsGoalId = savingsGoalId; }
         public Long getSourceAccountId() { return sourceAccountId; }
@@ -189,7 +184,7 @@ public class SavingsRuleController {
         private String name;
         private String description;
         private String ruleCondition;
-        private Double amount;
+        private Money amount;
 
         // Getters and setters
         public String getName() { return name; }
@@ -198,7 +193,7 @@ public class SavingsRuleController {
         public void setDescription(String description) { this.description = description; }
         public String getRuleCondition() { return ruleCondition; }
         public void setRuleCondition(String ruleCondition) { this.ruleCondition = ruleCondition; }
-        public Double getAmount() { return amount; }
-        public void setAmount(Double amount) { this.amount = amount; }
+        public Money getAmount() { return amount; }
+        public void setAmount(Money amount) { this.amount = amount; }
     }
 }
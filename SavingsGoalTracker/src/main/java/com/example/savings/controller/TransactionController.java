@@ -1,31 +1,58 @@
 package com.example.savings.controller;
 
+import com.example.savings.config.AuthenticatedUser;
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.model.ArchivedTransaction;
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionPage;
+import com.example.savings.model.TransactionSummary;
 import com.example.savings.model.User;
 import com.example.savings.service.BankAccountService;
+import com.example.savings.service.IdempotencyService;
 import com.example.savings.service.SavingsGoalService;
 import com.example.savings.service.SavingsRuleService;
+import com.example.savings.service.TransactionArchiveService;
+import com.example.savings.service.TransactionExportService;
+import com.example.savings.service.TransactionExportService.ExportFormat;
 import com.example.savings.service.TransactionService;
+import com.example.savings.service.TransactionStatusWatcher;
 import com.example.savings.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
+    // Retries carrying the same key are answered with the first request's response
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private TransactionService transactionService;
 
@@ -38,39 +65,170 @@ public class TransactionController {
     @Autowired
     private BankAccountService bankAccountService;
 
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TransactionStatusWatcher transactionStatusWatcher;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${transactions.status.max-wait-seconds:30}")
+    private int maxStatusWaitSeconds;
+
     @GetMapping("/goal/{goalId}")
-    public ResponseEntity<?> getGoalTransactions(@PathVariable Long goalId, Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    public ResponseEntity<?> getGoalTransactions(@PathVariable Long goalId,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(required = false) String pageToken,
+                                                 AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        Optional<SavingsGoal> goalOpt = savingsGoalService.findById(goalId);
-        if (goalOpt.isEmpty() || !goalOpt.get().getUser().getId().equals(user.getId())) {
+        if (!savingsGoalService.isOwnedBy(goalId, user)) {
             return ResponseEntity.notFound().build();
         }
 
-        List<Transaction> transactions = transactionService.getGoalTransactions(goalOpt.get());
-        return ResponseEntity.ok(transactions);
+        TransactionPage page = transactionService.getGoalTransactionPage(goalId, null, null, size, pageToken);
+        return ResponseEntity.ok(page);
     }
 
-    @GetMapping
-    public ResponseEntity<?> getTransactionsBetweenDates(
+    @GetMapping("/goal/{goalId}/archive")
+    public ResponseEntity<?> getArchivedGoalTransactions(
+            @PathVariable Long goalId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
-            Authentication authentication) {
+            AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
-        // In a real app, you would filter by user
-        User user = getUserFromAuthentication(authentication);
+        if (!savingsGoalService.isOwnedBy(goalId, user)) {
+            return ResponseEntity.notFound().build();
+        }
 
-        List<Transaction> transactions = transactionService.getTransactionsBetweenDates(start, end);
+        List<ArchivedTransaction> transactions = transactionArchiveService.findGoalTransactions(goalId, start, end);
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long goalId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        if (goalId != null && !savingsGoalService.isOwnedBy(goalId, user)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+
+        String fileName = "transactions." + exportFormat.name().toLowerCase(Locale.ROOT) + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == ExportFormat.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out ->
+                transactionExportService.writeExport(user, goalId, start, end, exportFormat, gzip, out);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getTransactionsBetweenDates(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String pageToken,
+            AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
+
+        TransactionPage page = transactionService.getUserTransactionPage(user, start, end, size, pageToken);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * The transaction's current status. With {@code waitSeconds}, a PENDING transaction is held
+     * open (without a request thread) until it settles or the time is up, so clients need not
+     * poll in a loop. Responses carry an ETag that changes with the status; a matching
+     * If-None-Match gets 304 Not Modified.
+     */
+    @GetMapping("/{id:\\d+}")
+    public DeferredResult<ResponseEntity<?>> getTransactionStatus(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int waitSeconds,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            AuthenticatedUser currentUser) {
+        if (waitSeconds < 0 || waitSeconds > maxStatusWaitSeconds) {
+            throw new BadRequestException("waitSeconds must be between 0 and " + maxStatusWaitSeconds);
+        }
+
+        // Registered before the status is read, so a settlement in between still wakes this request
+        CompletableFuture<TransactionSummary> settlement =
+                waitSeconds > 0 ? transactionStatusWatcher.awaitSettlement(id) : null;
+        Optional<TransactionSummary> current;
+        try {
+            current = transactionService.findUserTransactionSummary(id, currentUser.getId());
+        } catch (RuntimeException e) {
+            if (settlement != null) {
+                transactionStatusWatcher.release(id, settlement);
+            }
+            throw e;
+        }
+
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds));
+        if (settlement != null && current.isPresent() && current.get().getStatus() == Transaction.TransactionStatus.PENDING) {
+            settlement.thenAccept(settled -> result.setResult(statusResponse(settled, ifNoneMatch)));
+            result.onTimeout(() -> result.setResult(statusResponse(current.get(), ifNoneMatch)));
+            // Settled, timed out or the client went away: this request is no longer waiting
+            result.onCompletion(() -> transactionStatusWatcher.release(id, settlement));
+            return result;
+        }
+        if (settlement != null) {
+            // Not found, or settled already: nothing to wait for
+            transactionStatusWatcher.release(id, settlement);
+        }
+        result.setResult(current.isEmpty() ? ResponseEntity.notFound().build() : statusResponse(current.get(), ifNoneMatch));
+        return result;
+    }
+
     @PostMapping("/manual")
     public ResponseEntity<?> createManualTransaction(@Valid @RequestBody CreateTransactionRequest request,
-                                                   Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+                                                   @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                   AuthenticatedUser currentUser) {
+        // Checked before the transfer is queued, not when the relay sends it to the bank
+        if (!request.getAmount().isPositive()) {
+            throw new BadRequestException("Amount must be positive");
+        }
+        return idempotencyService.execute(currentUser.getId(), idempotencyKey, "POST /api/transactions/manual", request,
+            () -> createManual(request, currentUser));
+    }
+
+    @PostMapping("/rule/{ruleId}")
+    public ResponseEntity<?> triggerRuleTransaction(@PathVariable Long ruleId,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                  AuthenticatedUser currentUser) {
+        return idempotencyService.execute(currentUser.getId(), idempotencyKey, "POST /api/transactions/rule", ruleId,
+            () -> triggerRule(ruleId, currentUser));
+    }
+
+    private ResponseEntity<?> createManual(CreateTransactionRequest request, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         // Verify goal belongs to user
         Optional<SavingsGoal> goalOpt = savingsGoalService.findById(request.getGoalId());
@@ -93,13 +251,11 @@ public class TransactionController {
             request.getDescription()
         );
 
-        return ResponseEntity.ok(transaction);
+        return accepted(transaction);
     }
 
-    @PostMapping("/rule/{ruleId}")
-    public ResponseEntity<?> triggerRuleTransaction(@PathVariable Long ruleId,
-                                                  Authentication authentication) {
-        User user = getUserFromAuthentication(authentication);
+    private ResponseEntity<?> triggerRule(Long ruleId, AuthenticatedUser currentUser) {
+        User user = userService.getReference(currentUser.getId());
 
         // Verify rule and associated goal belong to user
         Optional<SavingsRule> ruleOpt = savingsRuleService.findById(ruleId);
@@ -119,7 +275,7 @@ public class TransactionController {
                 "Manual trigger: " + rule.getName()
             );
 
-            return ResponseEntity.ok(transaction);
+            return accepted(transaction);
         } else {
             // For other rule types, we would need more complex logic
             // This is simplified for the example
@@ -129,17 +285,33 @@ public class TransactionController {
         }
     }
 
-    private User getUserFromAuthentication(Authentication authentication) {
-        String username = authentication.getName();
-        return userService.findByUsername(username)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * 202 Accepted for a transfer recorded as PENDING, pointing at its status. The outbox relay
+     * sends it to the bank in the background.
+     */
+    private ResponseEntity<?> accepted(Transaction transaction) {
+        URI statusUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/api/transactions/{id}")
+            .buildAndExpand(transaction.getId())
+            .toUri();
+        return ResponseEntity.accepted().location(statusUrl).body(TransactionSummary.from(transaction));
+    }
+
+    private static ResponseEntity<?> statusResponse(TransactionSummary summary, String ifNoneMatch) {
+        // A transaction only ever changes status, so the status identifies its representation
+        String etag = "\"" + summary.getId() + "-" + summary.getStatus() + "\"";
+        if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(etag::equals)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(summary);
     }
 
     // Request class
     public static class CreateTransactionRequest {
         private Long goalId;
         private Long sourceAccountId;
-        private Double amount;
+        @NotNull
+        private Money amount;
         private String description;
 
         // Getters and setters
@@ -147,8 +319,8 @@ public class TransactionController {
         public void setGoalId(Long goalId) { this.goalId = goalId; }
         public Long getSourceAccountId() { return sourceAccountId; }
         public void setSourceAccountId(Long sourceAccountId) { this.sourceAccountId = sourceAccountId; }
-        public Double getAmount() { return amount; }
-        public void setAmount(Double amount) { this.amount = amount; }
+        public Money getAmount() { return amount; }
+        public void setAmount(Money amount) { this.amount = amount; }
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
     }
@@ -0,0 +1,80 @@
+package com.example.savings.controller;
+
+import com.example.savings.config.AuthenticatedUser;
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.model.InboxMessage;
+import com.example.savings.model.User;
+import com.example.savings.service.InboxService;
+import com.example.savings.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/users")
+public class UserController {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private InboxService inboxService;
+
+    @GetMapping("/me/notification-preferences")
+    public ResponseEntity<?> getNotificationPreferences(AuthenticatedUser currentUser) {
+        User user = userService.getUser(currentUser.getId());
+        return ResponseEntity.ok(notificationPreferences(user));
+    }
+
+    @PutMapping("/me/notification-preferences")
+    public ResponseEntity<?> updateNotificationPreferences(@RequestBody NotificationPreferencesRequest request,
+                                                           AuthenticatedUser currentUser) {
+        User user = userService.getUser(currentUser.getId());
+
+        if (request.getRuleNotifications() == null) {
+            throw new BadRequestException("ruleNotifications must be one of IMMEDIATE, DIGEST or OFF");
+        }
+        user.setRuleNotificationMode(request.getRuleNotifications());
+        User savedUser = userService.saveUser(user);
+
+        return ResponseEntity.ok(notificationPreferences(savedUser));
+    }
+
+    @GetMapping("/me/inbox")
+    public ResponseEntity<?> getInbox(@RequestParam(defaultValue = "false") boolean unreadOnly,
+                                      @RequestParam(defaultValue = "50") int limit,
+                                      AuthenticatedUser currentUser) {
+        if (limit < 1 || limit > 200) {
+            throw new BadRequestException("limit must be between 1 and 200");
+        }
+        List<InboxMessage> messages = inboxService.getMessages(currentUser.getId(), unreadOnly, limit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("messages", messages);
+        response.put("unreadCount", inboxService.countUnread(currentUser.getId()));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/me/inbox/{id}/read")
+    public ResponseEntity<?> markInboxMessageRead(@PathVariable Long id, AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(inboxService.markRead(currentUser.getId(), id));
+    }
+
+    private Map<String, Object> notificationPreferences(User user) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("ruleNotifications", user.getRuleNotificationMode());
+        return response;
+    }
+
+    // Request class for updating notification preferences
+    public static class NotificationPreferencesRequest {
+        private User.NotificationMode ruleNotifications;
+
+        // Getters and setters
+        public User.NotificationMode getRuleNotifications() { return ruleNotifications; }
+        public void setRuleNotifications(User.NotificationMode ruleNotifications) { this.ruleNotifications = ruleNotifications; }
+    }
+}
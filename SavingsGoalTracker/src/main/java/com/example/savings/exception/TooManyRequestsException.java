@@ -0,0 +1,20 @@
+package com.example.savings.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /** How long the client should wait before trying again, sent as the Retry-After header. */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
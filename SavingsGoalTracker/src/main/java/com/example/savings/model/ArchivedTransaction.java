@@ -0,0 +1,23 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction read back from a compressed monthly archive rather than the live table.
+ */
+@Data
+@AllArgsConstructor
+public class ArchivedTransaction {
+    private Long id;
+    private Money amount;
+    private LocalDateTime timestamp;
+    private Long savingsGoalId;
+    private Long sourceAccountId;
+    private Long savingsRuleId;
+    private String description;
+    private String merchantName;
+    private Transaction.TransactionStatus status;
+}
@@ -1,10 +1,13 @@
 package com.example.savings.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import javax.persistence.*;
 
 @Data
 @Entity@Table(name = "bank_accounts")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bank_accounts")
 public class BankAccount {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,8 +25,8 @@ public class BankAccount {
   @Column(nullable = false)
   private String accountType;
 
-  @Column(nullable = false)
-  private Double balance;
+  @Column(name = "balance_cents", nullable = false)
+  private Money balance;
 
   @Column(nullable = false)
   private String accessToken;
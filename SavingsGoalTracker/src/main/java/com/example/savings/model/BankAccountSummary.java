@@ -0,0 +1,24 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Response view of a bank account. Leaves out the bank access token and the owning user.
+ */
+@Data
+@AllArgsConstructor
+public class BankAccountSummary {
+    private Long id;
+    private String accountName;
+    private String accountNumber;
+    private String bankName;
+    private String accountType;
+    private Money balance;
+    private String routingNumber;
+
+    public static BankAccountSummary from(BankAccount account) {
+        return new BankAccountSummary(account.getId(), account.getAccountName(), account.getAccountNumber(),
+                account.getBankName(), account.getAccountType(), account.getBalance(), account.getRoutingNumber());
+    }
+}
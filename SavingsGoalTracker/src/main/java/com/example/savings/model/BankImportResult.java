@@ -0,0 +1,20 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a bulk import of bank transactions into one account.
+ */
+@Data
+@AllArgsConstructor
+public class BankImportResult {
+    private Long accountId;
+    // Rows read from the source
+    private long received;
+    // Rows that were new and stored
+    private long inserted;
+    // Rows already stored, or repeated within the source
+    private long duplicates;
+    private long elapsedMillis;
+}
@@ -0,0 +1,20 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One account transaction as reported by the bank, before it is stored. Debits are negative.
+ */
+@Data
+@AllArgsConstructor
+public class BankTransactionRecord {
+    private String externalId;
+    private LocalDateTime timestamp;
+    private Money amount;
+    private String description;
+    private String merchantName;
+    private String category;
+}
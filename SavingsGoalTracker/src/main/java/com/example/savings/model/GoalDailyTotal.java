@@ -0,0 +1,38 @@
+package com.example.savings.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Rollup of completed savings transfers into a goal for a single day.
+ */
+@Data
+@Entity
+@Table(name = "goal_daily_totals")
+public class GoalDailyTotal {
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
+
+    @Column(nullable = false)
+    private Integer transactionCount;
+
+    @Data
+    @NoArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "savings_goal_id", nullable = false)
+        private Long savingsGoalId;
+
+        @Column(nullable = false)
+        private LocalDate totalDate;
+    }
+}
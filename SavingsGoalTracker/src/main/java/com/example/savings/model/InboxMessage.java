@@ -0,0 +1,40 @@
+package com.example.savings.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A notification shown in the user's in-app inbox.
+ */
+@Data
+@Entity
+@Table(name = "inbox_messages")
+public class InboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationEvent.Type notificationType;
+
+    private Long goalId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false, length = 100000)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime readAt;
+}
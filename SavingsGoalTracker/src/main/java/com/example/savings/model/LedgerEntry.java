@@ -0,0 +1,25 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One posting in the savings ledger. Entries are never changed once written.
+ */
+@Data
+@AllArgsConstructor
+public class LedgerEntry {
+    private long sequence;
+    private LocalDateTime postedAt;
+    private Long savingsGoalId;
+    private Long transactionId;
+    private Money amount;
+    private EntryType type;
+
+    public enum EntryType {
+        OPENING,   // Goal balance carried over when the ledger was first created
+        POSTING    // Completed savings transfer into the goal
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.savings.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable monetary amount stored as a whole number of cents.
+ *
+ * Arithmetic is exact; rounding only happens when converting from a floating point
+ * or decimal amount, or when applying a rate. Hot loops should work on the raw
+ * {@code long} cents via the static helpers and wrap the result once at the end.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final Money ZERO = new Money(0L);
+
+    private static final long BASIS_POINTS_PER_UNIT = 10_000L;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0L ? ZERO : new Money(cents);
+    }
+
+    public static Money of(double amount) {
+        return ofCents(toCents(amount));
+    }
+
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount.trim()));
+    }
+
+    /**
+     * Convert a floating point amount (e.g. from a bank API payload) to cents, rounding half-even.
+     */
+    public static long toCents(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Cents needed to round a purchase of the given (positive) size up to the next whole dollar.
+     */
+    public static long roundUpCents(long purchaseCents) {
+        long remainder = purchaseCents % 100L;
+        return remainder == 0L ? 0L : 100L - remainder;
+    }
+
+    /**
+     * Apply a rate expressed in basis points (1/100 of a percent) to a cent amount, rounding half-up.
+     */
+    public static long applyBasisPoints(long cents, long basisPoints) {
+        long product = Math.multiplyExact(cents, basisPoints);
+        long half = product < 0 ? -BASIS_POINTS_PER_UNIT / 2 : BASIS_POINTS_PER_UNIT / 2;
+        return (product + half) / BASIS_POINTS_PER_UNIT;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public Money abs() {
+        return cents < 0 ? negate() : this;
+    }
+
+    /**
+     * Scale this amount by a rate in basis points, e.g. 9000 for 90%.
+     */
+    public Money scaleByBasisPoints(long basisPoints) {
+        return ofCents(applyBasisPoints(cents, basisPoints));
+    }
+
+    /**
+     * Treat this amount as a percentage (10.00 meaning 10%) and apply it to the given base amount.
+     * A percentage with two decimals in cents is exactly a rate in basis points.
+     */
+    public Money percentageOf(Money base) {
+        return base.scaleByBasisPoints(cents);
+    }
+
+    /**
+     * This amount as a percentage of {@code whole}, e.g. progress towards a target.
+     */
+    public double percentOf(Money whole) {
+        return whole.cents == 0L ? 0.0 : (cents * 100.0) / whole.cents;
+    }
+
+    public boolean isPositive() {
+        return cents > 0L;
+    }
+
+    public boolean isNegative() {
+        return cents < 0L;
+    }
+
+    public boolean isZero() {
+        return cents == 0L;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        return cents == ((Money) o).cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
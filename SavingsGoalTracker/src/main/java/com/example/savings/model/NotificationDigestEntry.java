@@ -0,0 +1,40 @@
+package com.example.savings.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A triggered savings rule waiting to be reported in its user's next digest email. Rule and goal
+ * names are copied so the digest still reads correctly if they are renamed or deleted meanwhile.
+ */
+@Data
+@Entity
+@Table(name = "notification_digest_entries")
+public class NotificationDigestEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private String ruleName;
+
+    @Column(nullable = false)
+    private Long goalId;
+
+    @Column(nullable = false)
+    private String goalName;
+
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,28 @@
+package com.example.savings.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Something a user should hear about, handed to every notification channel. {@code data} holds
+ * the values the channels render it from, e.g. goal name and amounts.
+ */
+@Data
+public class NotificationEvent {
+    private final Type type;
+    private final User user;
+    // Goal the event is about, null for events covering several goals
+    private final Long goalId;
+    private final Map<String, Object> data;
+    private final LocalDateTime occurredAt;
+
+    public enum Type {
+        RULE_TRIGGERED,
+        SAVINGS_DIGEST,
+        GOAL_NEAR_COMPLETION,
+        GOAL_COMPLETED,
+        WEEKLY_REPORT
+    }
+}
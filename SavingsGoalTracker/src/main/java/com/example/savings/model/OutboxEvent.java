@@ -0,0 +1,46 @@
+package com.example.savings.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A side effect waiting to be delivered by the outbox relay, written in the same database
+ * transaction as the change it belongs to.
+ */
+@Data
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventType eventType;
+
+    // Id of the row the event is about, e.g. the transaction to transfer
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public enum EventType {
+        BANK_TRANSFER,
+        // A transfer whose outcome is unknown after its last attempt; settled from a lookup at the bank
+        TRANSFER_RECONCILIATION,
+        RULE_TRIGGERED_NOTIFICATION
+    }
+}
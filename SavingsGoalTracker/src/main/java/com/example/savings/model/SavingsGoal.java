@@ -17,11 +17,11 @@ public class SavingsGoal {
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false)
-    private Double targetAmount;
+    @Column(name = "target_amount_cents", nullable = false)
+    private Money targetAmount;
 
-    @Column(nullable = false)
-    private Double currentAmount;
+    @Column(name = "current_amount_cents", nullable = false)
+    private Money currentAmount;
 
     @Column(nullable = false)
     private LocalDate targetDate;
@@ -29,6 +29,11 @@ public class SavingsGoal {
     @Column(nullable = false)
     private LocalDate startDate;
 
+    // Bumped by every update, including settlements, which add to current_amount_cents in the database
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
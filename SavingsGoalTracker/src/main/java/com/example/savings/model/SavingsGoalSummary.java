@@ -0,0 +1,27 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Response view of a savings goal. Selected column by column so the user, account and
+ * collections on the entity are never loaded or serialized.
+ */
+@Data
+@AllArgsConstructor
+public class SavingsGoalSummary {
+    private Long id;
+    private String name;
+    private Money targetAmount;
+    private Money currentAmount;
+    private LocalDate targetDate;
+    private LocalDate startDate;
+    private Long destinationAccountId;
+
+    public static SavingsGoalSummary from(SavingsGoal goal) {
+        return new SavingsGoalSummary(goal.getId(), goal.getName(), goal.getTargetAmount(), goal.getCurrentAmount(),
+                goal.getTargetDate(), goal.getStartDate(), goal.getDestinationAccount().getId());
+    }
+}
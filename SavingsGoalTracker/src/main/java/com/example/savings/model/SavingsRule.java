@@ -1,11 +1,14 @@
 package com.example.savings.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import javax.persistence.*;
 
 @Data
 @Entity
 @Table(name = "savings_rules")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "savings_rules")
 public class SavingsRule {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,8 +27,11 @@ public class SavingsRule {
     @Column(nullable = false)
     private String ruleCondition;
 
-    @Column(nullable = false)
-    private Double amount;
+    /**
+     * Fixed amount to save, or for percentage rules the percentage itself (10.00 = 10%).
+     */
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
 
     @Column(nullable = false)
     private Boolean isActive;
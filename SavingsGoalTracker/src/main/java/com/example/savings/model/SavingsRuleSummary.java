@@ -0,0 +1,27 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Response view of a savings rule, with its goal and source account reduced to their ids.
+ */
+@Data
+@AllArgsConstructor
+public class SavingsRuleSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private SavingsRule.RuleType ruleType;
+    private String ruleCondition;
+    private Money amount;
+    private Boolean isActive;
+    private Long savingsGoalId;
+    private Long sourceAccountId;
+
+    public static SavingsRuleSummary from(SavingsRule rule) {
+        return new SavingsRuleSummary(rule.getId(), rule.getName(), rule.getDescription(), rule.getRuleType(),
+                rule.getRuleCondition(), rule.getAmount(), rule.getIsActive(), rule.getSavingsGoal().getId(),
+                rule.getSourceAccount().getId());
+    }
+}
@@ -12,8 +12,8 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
-    private Double amount;
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
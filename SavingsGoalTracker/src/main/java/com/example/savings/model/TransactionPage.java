@@ -0,0 +1,16 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of transaction history, newest first. {@code nextPageToken} is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionPage {
+    private List<TransactionSummary> transactions;
+    private String nextPageToken;
+}
@@ -0,0 +1,31 @@
+package com.example.savings.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response view of a transaction, with related entities reduced to their ids.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionSummary {
+    private Long id;
+    private Money amount;
+    private LocalDateTime timestamp;
+    private Long savingsGoalId;
+    private Long sourceAccountId;
+    private Long savingsRuleId;
+    private String description;
+    private String merchantName;
+    private Transaction.TransactionStatus status;
+
+    public static TransactionSummary from(Transaction transaction) {
+        SavingsRule rule = transaction.getSavingsRule();
+        return new TransactionSummary(transaction.getId(), transaction.getAmount(), transaction.getTimestamp(),
+                transaction.getSavingsGoal().getId(), transaction.getSourceAccount().getId(),
+                rule == null ? null : rule.getId(), transaction.getDescription(), transaction.getMerchantName(),
+                transaction.getStatus());
+    }
+}
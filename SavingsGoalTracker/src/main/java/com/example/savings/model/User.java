@@ -2,6 +2,8 @@ package com.example.savings.model;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
@@ -10,6 +12,7 @@ import java.util.function.Supplier;
 
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Data
 @NoArgsConstructor
 public class User {
@@ -32,6 +35,10 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private NotificationMode ruleNotificationMode = NotificationMode.DIGEST;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private List<BankAccount> bankAccounts;
 
@@ -45,4 +52,10 @@ public class User {
     public Optional<User> orElseThrow(Supplier<RuntimeException> exceptionSupplier) {
         return Optional.of(this);
     }
+
+    public enum NotificationMode {
+        IMMEDIATE,
+        DIGEST,
+        OFF
+    }
 }
@@ -0,0 +1,33 @@
+package com.example.savings.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+/**
+ * A system that receives savings events as batched HTTP POSTs.
+ */
+@Data
+@Entity
+@Table(name = "webhook_endpoints")
+public class WebhookEndpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 2000)
+    private String url;
+
+    // Used to sign each batch with HMAC-SHA256 when set
+    private String secret;
+
+    // Comma-separated NotificationEvent types to send, or null for all
+    private String eventTypes;
+
+    // Batches sent to this endpoint at the same time
+    @Column(nullable = false)
+    private Integer maxConcurrency;
+
+    @Column(nullable = false)
+    private Boolean enabled;
+}
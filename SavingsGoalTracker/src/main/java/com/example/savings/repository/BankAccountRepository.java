@@ -1,10 +1,23 @@
 package com.example.savings.repository;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankAccountSummary;
 import com.example.savings.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.Optional;
 
 public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
     List<BankAccount> findByUser(User user);
+
+    @Query("SELECT new com.example.savings.model.BankAccountSummary(a.id, a.accountName, a.accountNumber, a.bankName, " +
+            "a.accountType, a.balance, a.routingNumber) FROM BankAccount a WHERE a.user.id = :userId")
+    List<BankAccountSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.example.savings.model.BankAccountSummary(a.id, a.accountName, a.accountNumber, a.bankName, " +
+            "a.accountType, a.balance, a.routingNumber) FROM BankAccount a WHERE a.id = :id AND a.user.id = :userId")
+    Optional<BankAccountSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 }
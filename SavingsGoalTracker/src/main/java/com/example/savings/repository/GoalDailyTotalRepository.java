@@ -0,0 +1,33 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.GoalDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+
+@Repository
+public interface GoalDailyTotalRepository extends JpaRepository<GoalDailyTotal, GoalDailyTotal.Key> {
+    // Native writes declare the table they touch; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "goal_daily_totals"))
+    @Query(value = "UPDATE goal_daily_totals SET amount_cents = amount_cents + :cents, " +
+            "transaction_count = transaction_count + 1 " +
+            "WHERE savings_goal_id = :goalId AND total_date = :day", nativeQuery = true)
+    int addToDay(@Param("goalId") Long goalId, @Param("day") LocalDate day, @Param("cents") long cents);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "goal_daily_totals"))
+    @Query(value = "INSERT INTO goal_daily_totals (savings_goal_id, total_date, amount_cents, transaction_count) " +
+            "VALUES (:goalId, :day, :cents, 1)", nativeQuery = true)
+    int insertDay(@Param("goalId") Long goalId, @Param("day") LocalDate day, @Param("cents") long cents);
+
+    @Query(value = "SELECT COALESCE(SUM(amount_cents), 0) FROM goal_daily_totals " +
+            "WHERE savings_goal_id = :goalId AND total_date BETWEEN :start AND :end", nativeQuery = true)
+    long sumCentsBetween(@Param("goalId") Long goalId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+}
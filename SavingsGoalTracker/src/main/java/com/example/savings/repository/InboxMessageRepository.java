@@ -0,0 +1,20 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.InboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InboxMessageRepository extends JpaRepository<InboxMessage, Long> {
+    List<InboxMessage> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+
+    List<InboxMessage> findByUserIdAndReadAtIsNullOrderByIdDesc(Long userId, Pageable pageable);
+
+    long countByUserIdAndReadAtIsNull(Long userId);
+
+    Optional<InboxMessage> findByIdAndUserId(Long id, Long userId);
+}
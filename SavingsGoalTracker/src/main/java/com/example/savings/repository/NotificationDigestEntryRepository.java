@@ -0,0 +1,25 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.NotificationDigestEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationDigestEntryRepository extends JpaRepository<NotificationDigestEntry, Long> {
+    /**
+     * Users whose oldest waiting entry was created at or before {@code cutoff}, i.e. whose digest
+     * window has closed.
+     */
+    @Query("SELECT e.userId FROM NotificationDigestEntry e GROUP BY e.userId " +
+            "HAVING MIN(e.createdAt) <= :cutoff ORDER BY e.userId")
+    List<Long> findUsersDue(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    List<NotificationDigestEntry> findByUserIdInOrderById(Collection<Long> userIds);
+}
@@ -0,0 +1,52 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    @Query("SELECT e FROM OutboxEvent e WHERE e.nextAttemptAt <= :now ORDER BY e.id")
+    List<OutboxEvent> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Take an event for delivery until {@code leaseUntil}. Matching on the attempt count means only
+     * one relay wins when several instances read the same event.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id = :id AND e.attempts = :attempts")
+    int claim(@Param("id") Long id, @Param("attempts") Integer attempts, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Remove an event, but only while it still has the attempt count of the caller's claim; once
+     * another relay has claimed it again, that relay owns it.
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id = :id AND e.attempts = :attempts")
+    int deleteClaimed(@Param("id") Long id, @Param("attempts") Integer attempts);
+
+    /**
+     * Hand a claimed event back without counting the attempt, first offered again at {@code nextAttemptAt}.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts - 1, e.nextAttemptAt = :nextAttemptAt " +
+            "WHERE e.id = :id AND e.attempts = :attempts")
+    int defer(@Param("id") Long id, @Param("attempts") Integer attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Make an aggregate's events of one type due now.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.nextAttemptAt = :now " +
+            "WHERE e.eventType = :eventType AND e.aggregateId = :aggregateId AND e.nextAttemptAt > :now")
+    int makeDue(@Param("eventType") OutboxEvent.EventType eventType, @Param("aggregateId") Long aggregateId,
+                @Param("now") LocalDateTime now);
+}
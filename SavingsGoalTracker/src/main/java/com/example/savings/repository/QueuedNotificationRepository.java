@@ -0,0 +1,27 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.QueuedNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface QueuedNotificationRepository extends JpaRepository<QueuedNotification, Long> {
+    @Query("SELECT n FROM QueuedNotification n WHERE n.nextAttemptAt <= :now ORDER BY n.id")
+    List<QueuedNotification> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Take a notification for delivery until {@code leaseUntil}. Matching on the attempt count means
+     * only one worker wins when several instances read the same row.
+     */
+    @Modifying
+    @Query("UPDATE QueuedNotification n SET n.attempts = n.attempts + 1, n.nextAttemptAt = :leaseUntil " +
+            "WHERE n.id = :id AND n.attempts = :attempts")
+    int claim(@Param("id") Long id, @Param("attempts") Integer attempts, @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -1,10 +1,48 @@
 package com.example.savings.repository;
 
 import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.SavingsGoalSummary;
 import com.example.savings.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 public interface SavingsGoalRepository extends JpaRepository<SavingsGoal, Long> {
     List<SavingsGoal> findByUser(User user);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    @Query("SELECT g.id FROM SavingsGoal g WHERE g.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.example.savings.model.SavingsGoalSummary(g.id, g.name, g.targetAmount, g.currentAmount, " +
+            "g.targetDate, g.startDate, g.destinationAccount.id) FROM SavingsGoal g WHERE g.user.id = :userId")
+    List<SavingsGoalSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.example.savings.model.SavingsGoalSummary(g.id, g.name, g.targetAmount, g.currentAmount, " +
+            "g.targetDate, g.startDate, g.destinationAccount.id) FROM SavingsGoal g WHERE g.id = :id AND g.user.id = :userId")
+    Optional<SavingsGoalSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * Lock a goal's row until the caller's transaction ends; returns null if there is no such goal.
+     */
+    @Query(value = "SELECT id FROM savings_goals WHERE id = :goalId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("goalId") Long goalId);
+
+    /**
+     * Add to a goal's current amount in the database, so concurrent settlements cannot overwrite
+     * each other. Bumps the version, so edits made from an older copy of the goal fail. Holds the
+     * goal's row lock until the caller's transaction ends.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "savings_goals"))
+    @Query(value = "UPDATE savings_goals SET current_amount_cents = current_amount_cents + :cents, " +
+            "version = version + 1 WHERE id = :goalId", nativeQuery = true)
+    int addToCurrentAmount(@Param("goalId") Long goalId, @Param("cents") long cents);
 }
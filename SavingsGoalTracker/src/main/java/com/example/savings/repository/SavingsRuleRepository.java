@@ -2,23 +2,46 @@ package com.example.savings.repository;
 
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
+import com.example.savings.model.SavingsRuleSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SavingsRuleRepository extends JpaRepository<SavingsRule, Long> {
+    // Rule lookups are cached in the savings_rule_queries region and invalidated by any write to savings_rules
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "savings_rule_queries")})
     List<SavingsRule> findBySavingsGoal(SavingsGoal savingsGoal);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "savings_rule_queries")})
     List<SavingsRule> findByRuleConditionAndIsActive(String ruleCondition, boolean isActive);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "savings_rule_queries")})
     List<SavingsRule> findByRuleTypeAndIsActive(SavingsRule.RuleType ruleType, boolean isActive);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "savings_rule_queries")})
     List<SavingsRule> findByIsActiveTrue();
 
-    @Query("SELECT sr FROM SavingsRule sr JOIN sr.savingsGoal sg WHERE sg.currentAmount/sg.targetAmount >= :threshold AND sr.isActive = true")
+    @Query("SELECT new com.example.savings.model.SavingsRuleSummary(r.id, r.name, r.description, r.ruleType, " +
+            "r.ruleCondition, r.amount, r.isActive, r.savingsGoal.id, r.sourceAccount.id) " +
+            "FROM SavingsRule r WHERE r.savingsGoal.id = :goalId")
+    List<SavingsRuleSummary> findSummariesBySavingsGoalId(@Param("goalId") Long goalId);
+
+    @Query("SELECT new com.example.savings.model.SavingsRuleSummary(r.id, r.name, r.description, r.ruleType, " +
+            "r.ruleCondition, r.amount, r.isActive, r.savingsGoal.id, r.sourceAccount.id) " +
+            "FROM SavingsRule r WHERE r.id = :id AND r.savingsGoal.user.id = :userId")
+    Optional<SavingsRuleSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT sr FROM SavingsRule sr JOIN sr.savingsGoal sg WHERE sg.currentAmount * 1.0 / sg.targetAmount >= :threshold AND sr.isActive = true")
     List<SavingsRule> findActiveGoalsNearCompletion(@Param("threshold") double threshold);
 }
@@ -3,11 +3,18 @@ package com.example.savings.repository;
 import com.example.savings.model.BankAccount;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -20,4 +27,54 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             BankAccount sourceAccount, LocalDateTime startDate, LocalDateTime endDate);
 
     List<Transaction> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.sourceAccount JOIN FETCH t.savingsGoal g " +
+            "JOIN FETCH g.destinationAccount WHERE t.id = :id")
+    Optional<Transaction> findForTransfer(@Param("id") Long id);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.savingsGoal g JOIN FETCH g.user " +
+            "LEFT JOIN FETCH t.savingsRule WHERE t.id = :id")
+    Optional<Transaction> findForNotification(@Param("id") Long id);
+
+    @Query("SELECT new com.example.savings.model.TransactionSummary(t.id, t.amount, t.timestamp, t.savingsGoal.id, " +
+            "t.sourceAccount.id, t.savingsRule.id, t.description, t.merchantName, t.status) " +
+            "FROM Transaction t WHERE t.id = :id AND t.savingsGoal.user.id = :userId")
+    Optional<TransactionSummary> findSummaryByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * Summaries of those of the given transactions that are no longer PENDING.
+     */
+    @Query("SELECT new com.example.savings.model.TransactionSummary(t.id, t.amount, t.timestamp, t.savingsGoal.id, " +
+            "t.sourceAccount.id, t.savingsRule.id, t.description, t.merchantName, t.status) " +
+            "FROM Transaction t WHERE t.id IN :ids " +
+            "AND t.status <> com.example.savings.model.Transaction$TransactionStatus.PENDING")
+    List<TransactionSummary> findSettledSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset page of a goal's history, newest first: rows in [start, end] strictly before the
+     * (timestamp, id) cursor. Served by idx_transactions_goal_timestamp_id.
+     */
+    @Query("SELECT new com.example.savings.model.TransactionSummary(t.id, t.amount, t.timestamp, t.savingsGoal.id, " +
+            "t.sourceAccount.id, t.savingsRule.id, t.description, t.merchantName, t.status) " +
+            "FROM Transaction t WHERE t.savingsGoal.id = :goalId AND t.timestamp >= :start " +
+            "AND (t.timestamp < :beforeTimestamp OR (t.timestamp = :beforeTimestamp AND t.id < :beforeId)) " +
+            "ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionSummary> findGoalPageBefore(@Param("goalId") Long goalId,
+                                                @Param("start") LocalDateTime start,
+                                                @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                @Param("beforeId") Long beforeId,
+                                                Pageable limit);
+
+    /**
+     * Move a PENDING transaction to {@code status}. Matching on PENDING means only one of several
+     * concurrent settlements updates the row; the others get 0.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status WHERE t.id = :id " +
+            "AND t.status = com.example.savings.model.Transaction$TransactionStatus.PENDING")
+    int settle(@Param("id") Long id, @Param("status") Transaction.TransactionStatus status);
+
+    @Query(value = "SELECT COALESCE(SUM(amount_cents), 0) FROM transactions " +
+            "WHERE savings_goal_id = :goalId AND status = 'COMPLETED'", nativeQuery = true)
+    long sumCompletedCentsBySavingsGoalId(@Param("goalId") Long goalId);
 }
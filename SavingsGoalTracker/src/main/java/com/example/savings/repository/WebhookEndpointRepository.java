@@ -0,0 +1,12 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.WebhookEndpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WebhookEndpointRepository extends JpaRepository<WebhookEndpoint, Long> {
+    List<WebhookEndpoint> findByEnabledTrue();
+}
@@ -2,6 +2,8 @@ package com.example.savings.service;
 
 import com.example.savings.exception.ResourceNotFoundException;
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankAccountSummary;
+import com.example.savings.model.Money;
 import com.example.savings.model.Transaction;
 import com.example.savings.model.User;
 import com.example.savings.repository.BankAccountRepository;
@@ -9,6 +11,7 @@ import com.example.savings.repository.TransactionRepository;
 import com.example.savings.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.Valid;
 import java.time.LocalDateTime;
@@ -18,6 +21,8 @@ import java.util.stream.Collectors;
 
 @Service
 public class BankAccountService {
+    private static final long LARGE_DEPOSIT_CENTS = 100_00L;
+
     @Autowired
     private BankAccountRepository bankAccountRepository;
 
@@ -46,10 +51,21 @@ public class BankAccountService {
     }
 
     // Add this method to match what's being called
+    @Transactional(readOnly = true)
     public List<BankAccount> getUserAccounts(User user) {
         return bankAccountRepository.findByUser(user);
     }
 
+    @Transactional(readOnly = true)
+    public List<BankAccountSummary> getUserAccountSummaries(User user) {
+        return bankAccountRepository.findSummariesByUserId(user.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BankAccountSummary> findUserAccountSummary(Long id, User user) {
+        return bankAccountRepository.findSummaryByIdAndUserId(id, user.getId());
+    }
+
     public List<BankAccount> findAccountsByUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
@@ -101,7 +117,7 @@ public class BankAccountService {
     public List<Transaction> getRecentLargeDeposits(BankAccount account, LocalDateTime startDate, LocalDateTime endDate) {
         List<Transaction> transactions = getAccountTransactions(account, startDate, endDate);
         return transactions.stream()
-                .filter(t -> t.getAmount() > 0 && t.getAmount() >= 100) // Deposits over $100
+                .filter(t -> t.getAmount().getCents() >= LARGE_DEPOSIT_CENTS) // Deposits over $100
                 .collect(Collectors.toList());
     }
 
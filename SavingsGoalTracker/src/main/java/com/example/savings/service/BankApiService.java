@@ -1,6 +1,7 @@
 package com.example.savings.service;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,9 +9,12 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -34,9 +38,26 @@ public class BankApiService {
   @Value("${banking.api.baseurl}")
   private String baseUrl;
 
-  private final RestTemplate restTemplate = new RestTemplate();
+  @Value("${banking.api.connect-timeout-ms:5000}")
+  private int connectTimeoutMs;
 
-  public Double getAccountBalance(BankAccount account) {
+  @Value("${banking.api.read-timeout-ms:20000}")
+  private int readTimeoutMs;
+
+  private RestTemplate restTemplate;
+
+  /**
+   * Bounds every bank call, so the outbox relay's per-event lease can cover the longest one.
+   */
+  @PostConstruct
+  public void createRestTemplate() {
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(connectTimeoutMs);
+    requestFactory.setReadTimeout(readTimeoutMs);
+    restTemplate = new RestTemplate(requestFactory);
+  }
+
+  public Money getAccountBalance(BankAccount account) {
     try {
       String url = baseUrl + "/accounts/" + account.getAccountNumber() + "/balance";
       HttpHeaders headers = createAuthHeaders(account.getAccessToken());
@@ -48,24 +69,44 @@ public class BankApiService {
         Map<String, Object> responseBody = response.getBody();
         Map<String, Object> balanceData = (Map<String, Object>) responseBody.get("balance");
 
-        return Double.parseDouble(balanceData.get("available").toString());
+        return Money.parse(balanceData.get("available").toString());
     } catch (Exception e) {
       logger.error("Error fetching account balance", e);
       throw new RuntimeException("Failed to fetch account balance: " + e.getMessage());
     }
   }
 
-  public boolean transferFunds(BankAccount sourceAccount, BankAccount destinationAccount, Double amount) {
+  /**
+   * Outcome of a transfer looked up by its reference.
+   */
+  public enum TransferOutcome {
+    EXECUTED,   // The bank completed or accepted the transfer
+    REJECTED,   // The bank refused the transfer
+    NOT_FOUND   // The bank has no transfer with that reference
+  }
+
+  /**
+   * Transfer between two accounts. Retries must reuse the same {@code idempotencyKey} so the bank
+   * executes the transfer at most once; the key is also sent as the transfer's reference, so its
+   * outcome can be looked up with {@link #lookupTransfer}.
+   *
+   * @return true if the bank executed or accepted the transfer, false if it definitively rejected it
+   * @throws RuntimeException if the outcome is unknown, e.g. after a timeout or a server error
+   */
+  public boolean transferFunds(BankAccount sourceAccount, BankAccount destinationAccount, Money amount,
+                               String idempotencyKey) {
     try {
       String url = baseUrl + "/transfers";
 
       HttpHeaders headers = createAuthHeaders(sourceAccount.getAccessToken());
+      headers.set("Idempotency-Key", idempotencyKey);
 
       Map<String, Object> requestBody = new HashMap<>();
       requestBody.put("Source_amount_id", sourceAccount.getAccountNumber());
       requestBody.put("destination_account_id", destinationAccount.getAccountNumber());
-      requestBody.put("amount", amount);
+      requestBody.put("amount", amount.toBigDecimal());
       requestBody.put("currency", "USD");
+      requestBody.put("reference", idempotencyKey);
 
       HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
@@ -76,12 +117,53 @@ public class BankApiService {
         String status = (String) responseBody.get("status");
 
         return "completed".equals(status) || "pending".equals(status);
+    } catch (HttpClientErrorException e) {
+      if (isDefinitiveRejection(e)) {
+        logger.warn("Bank rejected transfer {}: {} {}", idempotencyKey, e.getRawStatusCode(), e.getStatusText());
+        return false;
+      }
+      logger.error("Error transferring funds", e);
+      throw new RuntimeException("Failed to transfer funds: " + e.getMessage());
     } catch (Exception e) {
       logger.error("Error transferring funds", e);
       throw new RuntimeException("Failed to transfer funds: " + e.getMessage());
     }
   }
 
+  /**
+   * Look up a transfer by the reference it was sent with.
+   *
+   * @throws RuntimeException if the bank could not be asked
+   */
+  public TransferOutcome lookupTransfer(BankAccount sourceAccount, String reference) {
+    try {
+      String url = baseUrl + "/transfers?reference=" + reference;
+
+      HttpHeaders headers = createAuthHeaders(sourceAccount.getAccessToken());
+      HttpEntity<String> entity = new HttpEntity<>(headers);
+
+      ResponseEntity<Map> response = restTemplate.exchange(
+        url, HttpMethod.GET, entity, Map.class);
+
+      String status = (String) response.getBody().get("status");
+      return "completed".equals(status) || "pending".equals(status) ? TransferOutcome.EXECUTED : TransferOutcome.REJECTED;
+    } catch (HttpClientErrorException.NotFound e) {
+      return TransferOutcome.NOT_FOUND;
+    } catch (Exception e) {
+      logger.error("Error looking up transfer {}", reference, e);
+      throw new RuntimeException("Failed to look up transfer: " + e.getMessage());
+    }
+  }
+
+  /**
+   * A client error means the bank refused the request, except for statuses that say it may still
+   * be processed: request timeout, conflict with an in-flight request, and rate limiting.
+   */
+  private static boolean isDefinitiveRejection(HttpClientErrorException e) {
+    int status = e.getRawStatusCode();
+    return status != 408 && status != 409 && status != 425 && status != 429;
+  }
+
   public List<Map<String, Object>> getTransactionsSince(BankAccount account, LocalDateTime startDate) {
     try {
       String formattedDate = startDate.format(DateTimeFormatter.ISO_DATE_TIME);
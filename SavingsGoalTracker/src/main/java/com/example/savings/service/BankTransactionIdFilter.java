@@ -0,0 +1,254 @@
+package com.example.savings.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-account Bloom filters over the external ids in bank_transactions, so an import can tell most
+ * new transactions apart from ones it already has without asking the database. Filters are
+ * persisted under {@code bank-import.id-filter.directory} and checked against the database on
+ * startup; a filter whose id count no longer matches its account's rows is rebuilt.
+ *
+ * A filter that misses ids (for example rows written by another instance) only costs the import
+ * extra merge work: the merge itself still skips ids the account already has.
+ */
+@Service
+public class BankTransactionIdFilter {
+    private static final Logger logger = LoggerFactory.getLogger(BankTransactionIdFilter.class);
+    private static final String FILE_PREFIX = "account-";
+    private static final String FILE_SUFFIX = ".bloom";
+    private static final long MIN_CAPACITY = 1024;
+    private static final int REBUILD_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank-import.id-filter.directory:./id-filters}")
+    private String filterDirectory;
+
+    @Value("${bank-import.id-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final Map<Long, ExternalIdBloomFilter> filters = new ConcurrentHashMap<>();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong possibleDuplicates = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("bank.import.id.filter.memory", filters,
+                f -> f.values().stream().mapToLong(ExternalIdBloomFilter::memoryBytes).sum())
+            .baseUnit("bytes")
+            .description("Memory held by the bank transaction id filters")
+            .register(meterRegistry);
+        Gauge.builder("bank.import.id.filter.false.positive.rate", this, BankTransactionIdFilter::observedFalsePositiveRate)
+            .description("Share of new transaction ids the filters reported as possible duplicates")
+            .register(meterRegistry);
+        Gauge.builder("bank.import.id.filter.expected.false.positive.rate", filters,
+                f -> f.values().stream().mapToDouble(ExternalIdBloomFilter::expectedFalsePositiveRate).max().orElse(0))
+            .description("Highest false-positive rate predicted for any filter at its current fill")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the persisted filters, rebuilding the ones that are missing or out of date - runs once
+     * the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() throws IOException {
+        Path directory = Paths.get(filterDirectory);
+        Files.createDirectories(directory);
+
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT source_account_id, COUNT(*) FROM bank_transactions GROUP BY source_account_id",
+            rs -> {
+                counts.put(rs.getLong(1), rs.getLong(2));
+            });
+
+        int rebuilt = 0;
+        for (Map.Entry<Long, Long> account : counts.entrySet()) {
+            ExternalIdBloomFilter filter = readFilter(account.getKey());
+            if (filter == null || filter.count() != account.getValue() || filter.count() > filter.capacity()) {
+                filter = rebuild(account.getKey());
+                rebuilt++;
+            }
+            filters.put(account.getKey(), filter);
+        }
+        deleteUnusedFiles(directory, counts);
+        persist();
+
+        logger.info("Loaded bank transaction id filters for {} accounts ({} rebuilt), {} bytes",
+            filters.size(), rebuilt, filters.values().stream().mapToLong(ExternalIdBloomFilter::memoryBytes).sum());
+    }
+
+    /**
+     * The account's filter, rebuilt first if it no longer covers every id the account has or has
+     * outgrown its capacity.
+     */
+    ExternalIdBloomFilter filterFor(long accountId) {
+        Long count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM bank_transactions WHERE source_account_id = ?", Long.class, accountId);
+        ExternalIdBloomFilter filter = filters.get(accountId);
+        if (filter == null || filter.count() != count || filter.count() > filter.capacity()) {
+            filter = rebuild(accountId);
+            filters.put(accountId, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Add staged ids to the filter once the import's transaction commits. Every staged id is in
+     * bank_transactions afterwards, whether this import inserted it or it was already there.
+     */
+    void recordAfterCommit(ExternalIdBloomFilter filter, long[] hashes, int size, long inserted) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int i = 0; i < size; i++) {
+                    filter.put(hashes[i]);
+                }
+                filter.addCount(inserted);
+            }
+        });
+    }
+
+    /**
+     * Count the outcome of an import's filter checks: ids checked, ids the filter reported as
+     * possible duplicates, and how many of those the database confirmed.
+     */
+    void recordLookups(long checked, long possible, long confirmedDuplicates) {
+        lookups.addAndGet(checked);
+        possibleDuplicates.addAndGet(possible);
+        falsePositives.addAndGet(possible - confirmedDuplicates);
+    }
+
+    /**
+     * Write filters changed since they were last written - runs every minute
+     */
+    @Scheduled(fixedDelayString = "${bank-import.id-filter.persist-interval-ms:60000}")
+    public void persist() {
+        int written = 0;
+        for (ExternalIdBloomFilter filter : List.copyOf(filters.values())) {
+            if (!filter.isDirty()) {
+                continue;
+            }
+            try {
+                filter.writeTo(filterFile(filter.accountId()));
+                written++;
+            } catch (IOException e) {
+                logger.error("Failed to write bank transaction id filter: {}", e.getMessage(), e);
+            }
+        }
+        if (written > 0) {
+            logger.debug("Wrote {} bank transaction id filters; observed false-positive rate {}",
+                written, observedFalsePositiveRate());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        persist();
+    }
+
+    private ExternalIdBloomFilter rebuild(long accountId) {
+        long started = System.nanoTime();
+        ExternalIdBloomFilter[] filter = new ExternalIdBloomFilter[1];
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(REBUILD_FETCH_SIZE);
+        // A transaction is needed for PostgreSQL to stream with the fetch size
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Long count = cursor.queryForObject(
+                "SELECT COUNT(*) FROM bank_transactions WHERE source_account_id = ?", Long.class, accountId);
+            filter[0] = ExternalIdBloomFilter.create(accountId, Math.max(MIN_CAPACITY, count * 2), falsePositiveRate);
+            long[] added = {0L};
+            cursor.query("SELECT external_id FROM bank_transactions WHERE source_account_id = ?", rs -> {
+                filter[0].put(ExternalIdBloomFilter.hash(rs.getString(1)));
+                added[0]++;
+            }, accountId);
+            filter[0].addCount(added[0]);
+        });
+
+        logger.info("Rebuilt bank transaction id filter for account {}: {} ids, {} bytes, expected false-positive rate {}, {} ms",
+            accountId, filter[0].count(), filter[0].memoryBytes(), filter[0].expectedFalsePositiveRate(),
+            (System.nanoTime() - started) / 1_000_000);
+        return filter[0];
+    }
+
+    private ExternalIdBloomFilter readFilter(long accountId) {
+        Path file = filterFile(accountId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return ExternalIdBloomFilter.readFrom(file, accountId);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable bank transaction id filter {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteUnusedFiles(Path directory, Map<Long, Long> counts) throws IOException {
+        List<Path> unused;
+        try (Stream<Path> files = Files.list(directory)) {
+            unused = files.filter(file -> {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+                    return false;
+                }
+                try {
+                    return !counts.containsKey(Long.parseLong(
+                        name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }).collect(Collectors.toList());
+        }
+        for (Path file : unused) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private double observedFalsePositiveRate() {
+        long falsePositiveCount = falsePositives.get();
+        // Ids that were actually new: everything checked except the confirmed duplicates
+        long newIds = lookups.get() - (possibleDuplicates.get() - falsePositiveCount);
+        return newIds <= 0 ? 0 : (double) falsePositiveCount / newIds;
+    }
+
+    private Path filterFile(long accountId) {
+        return Paths.get(filterDirectory).resolve(FILE_PREFIX + accountId + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,675 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankImportResult;
+import com.example.savings.model.BankTransactionRecord;
+import com.example.savings.model.Money;
+import com.example.savings.util.CsvUtil;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bulk loads an account's transaction history from the bank API, a CSV file or an OFX file.
+ *
+ * Rows are streamed into bank_transactions_staging (with COPY on PostgreSQL, JDBC batches
+ * elsewhere) and then merged into bank_transactions in a single statement that skips transaction
+ * ids the account already has. Staging, merge and clean-up run in one database transaction, so an
+ * import is stored completely or not at all. On databases other than PostgreSQL, imports into the
+ * same account run one at a time.
+ *
+ * Records are screened with the account's {@link BankTransactionIdFilter} first, so re-syncing an
+ * overlapping period stages only the transactions the account does not have yet.
+ */
+@Service
+public class BankTransactionImportService {
+    private static final Logger logger = LoggerFactory.getLogger(BankTransactionImportService.class);
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int LOOKUP_BATCH_SIZE = 500;
+    private static final int COPY_CHUNK_ROWS = 50_000;
+
+    private static final String STAGING_COLUMNS =
+        "import_id, line_number, source_account_id, external_id, amount_cents, timestamp, description, merchant_name, category";
+
+    private static final String STAGING_INSERT =
+        "INSERT INTO bank_transactions_staging (" + STAGING_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // First occurrence of each transaction id in the import, unless the account already has it
+    private static final String POSTGRES_MERGE =
+        "INSERT INTO bank_transactions (source_account_id, external_id, amount_cents, timestamp, description, merchant_name, category) " +
+        "SELECT DISTINCT ON (external_id) source_account_id, external_id, amount_cents, timestamp, description, merchant_name, category " +
+        "FROM bank_transactions_staging WHERE import_id = ? ORDER BY external_id, line_number " +
+        "ON CONFLICT (source_account_id, external_id) DO NOTHING";
+
+    // Has no conflict handling, so imports into one account are serialized with ACCOUNT_LOCK
+    private static final String GENERIC_MERGE =
+        "INSERT INTO bank_transactions (source_account_id, external_id, amount_cents, timestamp, description, merchant_name, category) " +
+        "SELECT s.source_account_id, s.external_id, s.amount_cents, s.timestamp, s.description, s.merchant_name, s.category " +
+        "FROM bank_transactions_staging s WHERE s.import_id = ? " +
+        "AND s.line_number = (SELECT MIN(d.line_number) FROM bank_transactions_staging d " +
+        "WHERE d.import_id = s.import_id AND d.external_id = s.external_id) " +
+        "AND NOT EXISTS (SELECT 1 FROM bank_transactions b " +
+        "WHERE b.source_account_id = s.source_account_id AND b.external_id = s.external_id)";
+
+    private static final String ACCOUNT_LOCK = "SELECT id FROM bank_accounts WHERE id = ? FOR UPDATE";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BankApiService bankApiService;
+
+    @Autowired
+    private BankTransactionIdFilter bankTransactionIdFilter;
+
+    @Value("${bank-import.batch-size:5000}")
+    private int batchSize;
+
+    private volatile Boolean postgres;
+
+    /**
+     * Import everything the bank reports for the account since {@code since}.
+     */
+    public BankImportResult importFromBankApi(BankAccount account, LocalDateTime since) {
+        List<Map<String, Object>> transactions = bankApiService.getTransactionsSince(account, since);
+        Iterator<Map<String, Object>> rows = transactions == null
+            ? Collections.emptyIterator() : transactions.iterator();
+        return importRecords(account, new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public BankTransactionRecord next() {
+                return fromBankApi(rows.next());
+            }
+        });
+    }
+
+    /**
+     * Import a CSV file with a header row. Recognised columns (any order, case-insensitive):
+     * id / transaction_id / external_id, date / timestamp, amount (negative for debits),
+     * description, merchant / merchant_name, category.
+     */
+    public BankImportResult importCsv(BankAccount account, InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return importRecords(account, new CsvRecordIterator(reader));
+    }
+
+    /**
+     * Import the STMTTRN entries of an OFX 1.x (SGML) or 2.x (XML) statement.
+     */
+    public BankImportResult importOfx(BankAccount account, InputStream in) {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return importRecords(account, new OfxRecordIterator(reader));
+    }
+
+    private BankImportResult importRecords(BankAccount account, Iterator<BankTransactionRecord> records) {
+        long started = System.nanoTime();
+        String importId = UUID.randomUUID().toString();
+        boolean usePostgres = isPostgres();
+        ExternalIdBloomFilter filter = bankTransactionIdFilter.filterFor(account.getId());
+        NewRecordIterator newRecords = new NewRecordIterator(account.getId(), filter, records, usePostgres);
+
+        long inserted = new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.execute(
+            (ConnectionCallback<Long>) con -> {
+                if (usePostgres) {
+                    stageWithCopy(con, importId, account.getId(), newRecords);
+                } else {
+                    lockAccount(con, account.getId());
+                    stageWithBatches(con, importId, account.getId(), newRecords);
+                }
+                long mergedRows;
+                try (PreparedStatement merge = con.prepareStatement(usePostgres ? POSTGRES_MERGE : GENERIC_MERGE)) {
+                    merge.setString(1, importId);
+                    mergedRows = merge.executeUpdate();
+                }
+                try (PreparedStatement cleanup = con.prepareStatement(
+                        "DELETE FROM bank_transactions_staging WHERE import_id = ?")) {
+                    cleanup.setString(1, importId);
+                    cleanup.executeUpdate();
+                }
+                bankTransactionIdFilter.recordAfterCommit(filter, newRecords.stagedHashes, newRecords.staged, mergedRows);
+                return mergedRows;
+            }));
+        bankTransactionIdFilter.recordLookups(newRecords.received, newRecords.possibleDuplicates, newRecords.confirmedDuplicates);
+
+        long received = newRecords.received;
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        logger.info("Imported {} of {} bank transactions into account {} in {} ms ({} rows/s); "
+                + "{} possible duplicates looked up, {} were new",
+            inserted, received, account.getId(), elapsedMillis, received * 1000 / elapsedMillis,
+            newRecords.possibleDuplicates, newRecords.possibleDuplicates - newRecords.confirmedDuplicates);
+        return new BankImportResult(account.getId(), received, inserted, received - inserted, elapsedMillis);
+    }
+
+    /**
+     * Holds off other imports into the account until this one commits. Without it, two imports of
+     * the same new id both pass GENERIC_MERGE's NOT EXISTS and the second fails on the unique key.
+     */
+    private static void lockAccount(Connection con, long accountId) throws SQLException {
+        try (PreparedStatement lock = con.prepareStatement(ACCOUNT_LOCK)) {
+            lock.setLong(1, accountId);
+            lock.executeQuery().close();
+        }
+    }
+
+    private void stageWithBatches(Connection con, String importId, long accountId,
+                                  Iterator<BankTransactionRecord> records) throws SQLException {
+        long line = 0;
+        try (PreparedStatement insert = con.prepareStatement(STAGING_INSERT)) {
+            int pending = 0;
+            while (records.hasNext()) {
+                BankTransactionRecord record = records.next();
+                insert.setString(1, importId);
+                insert.setLong(2, ++line);
+                insert.setLong(3, accountId);
+                insert.setString(4, record.getExternalId());
+                insert.setLong(5, record.getAmount().getCents());
+                insert.setTimestamp(6, Timestamp.valueOf(record.getTimestamp()));
+                insert.setString(7, record.getDescription());
+                insert.setString(8, record.getMerchantName());
+                insert.setString(9, record.getCategory());
+                insert.addBatch();
+                if (++pending == batchSize) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Stages the records with one COPY per chunk of COPY_CHUNK_ROWS rows. Each chunk is
+     * read before its COPY starts: reading runs the iterator's duplicate lookups on this same
+     * connection, which cannot take other statements while a COPY is in progress.
+     */
+    private void stageWithCopy(Connection con, String importId, long accountId,
+                               Iterator<BankTransactionRecord> records) throws SQLException {
+        CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+        List<BankTransactionRecord> chunk = new ArrayList<>();
+        StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 4096);
+        long line = 0;
+        while (records.hasNext()) {
+            chunk.clear();
+            while (chunk.size() < COPY_CHUNK_ROWS && records.hasNext()) {
+                chunk.add(records.next());
+            }
+            CopyIn copyIn = copyManager.copyIn(
+                "COPY bank_transactions_staging (" + STAGING_COLUMNS + ") FROM STDIN WITH (FORMAT csv)");
+            try {
+                for (BankTransactionRecord record : chunk) {
+                    buffer.append(importId).append(',')
+                        .append(++line).append(',')
+                        .append(accountId).append(',');
+                    CsvUtil.appendField(buffer, record.getExternalId());
+                    buffer.append(',').append(record.getAmount().getCents())
+                        .append(',').append(record.getTimestamp()).append(',');
+                    CsvUtil.appendField(buffer, record.getDescription());
+                    buffer.append(',');
+                    CsvUtil.appendField(buffer, record.getMerchantName());
+                    buffer.append(',');
+                    CsvUtil.appendField(buffer, record.getCategory());
+                    buffer.append('\n');
+                    if (buffer.length() >= COPY_BUFFER_SIZE) {
+                        writeToCopy(copyIn, buffer);
+                    }
+                }
+                writeToCopy(copyIn, buffer);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                buffer.setLength(0);
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    static BankTransactionRecord fromBankApi(Map<String, Object> transaction) {
+        Object id = transaction.containsKey("transaction_id") ? transaction.get("transaction_id") : transaction.get("id");
+        Object date = transaction.get("date");
+        Object amount = transaction.get("amount");
+        if (id == null || date == null || !(amount instanceof Number)) {
+            throw new BadRequestException("Bank transaction is missing its id, date or amount: " + transaction);
+        }
+
+        long cents = Money.toCents(((Number) amount).doubleValue());
+        if ("debit".equals(transaction.get("type"))) {
+            cents = -Math.abs(cents);
+        }
+        return new BankTransactionRecord(
+            id.toString(),
+            parseDate(date.toString()),
+            Money.ofCents(cents),
+            truncate((String) transaction.get("description")),
+            truncate((String) transaction.get("merchant")),
+            truncate((String) transaction.get("category")));
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        try {
+            return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid transaction date: " + value);
+        }
+    }
+
+    private static String truncate(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return trimmed.length() <= MAX_TEXT_LENGTH ? trimmed : trimmed.substring(0, MAX_TEXT_LENGTH);
+    }
+
+    /**
+     * Passes on the records whose ids the account does not have yet. Ids the filter has never seen
+     * go straight through; possible duplicates are checked against the database in batches.
+     */
+    private final class NewRecordIterator implements Iterator<BankTransactionRecord> {
+        private final long accountId;
+        private final ExternalIdBloomFilter filter;
+        private final Iterator<BankTransactionRecord> source;
+        private final boolean usePostgres;
+        private final ArrayDeque<BankTransactionRecord> ready = new ArrayDeque<>();
+        private final List<BankTransactionRecord> possible = new ArrayList<>();
+        private long[] stagedHashes = new long[1024];
+        private int staged;
+        private long received;
+        private long possibleDuplicates;
+        private long confirmedDuplicates;
+
+        private NewRecordIterator(long accountId, ExternalIdBloomFilter filter, Iterator<BankTransactionRecord> source,
+                                  boolean usePostgres) {
+            this.accountId = accountId;
+            this.filter = filter;
+            this.source = source;
+            this.usePostgres = usePostgres;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (ready.isEmpty() && (source.hasNext() || !possible.isEmpty())) {
+                if (!source.hasNext() || possible.size() == LOOKUP_BATCH_SIZE) {
+                    lookUpPossibleDuplicates();
+                    continue;
+                }
+                BankTransactionRecord record = source.next();
+                received++;
+                if (filter.mightContain(ExternalIdBloomFilter.hash(record.getExternalId()))) {
+                    possible.add(record);
+                } else {
+                    ready.add(record);
+                }
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public BankTransactionRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BankTransactionRecord record = ready.poll();
+            if (staged == stagedHashes.length) {
+                stagedHashes = Arrays.copyOf(stagedHashes, staged * 2);
+            }
+            stagedHashes[staged++] = ExternalIdBloomFilter.hash(record.getExternalId());
+            return record;
+        }
+
+        private void lookUpPossibleDuplicates() {
+            Set<String> ids = new HashSet<>();
+            for (BankTransactionRecord record : possible) {
+                ids.add(record.getExternalId());
+            }
+            Set<String> existing = jdbcTemplate.execute((ConnectionCallback<Set<String>>) con ->
+                usePostgres ? findExistingWithArray(con, ids) : findExistingOneByOne(con, ids));
+
+            for (BankTransactionRecord record : possible) {
+                if (existing.contains(record.getExternalId())) {
+                    confirmedDuplicates++;
+                } else {
+                    ready.add(record);
+                }
+            }
+            possibleDuplicates += possible.size();
+            possible.clear();
+        }
+
+        /** One index scan over the (source_account_id, external_id) key for the whole batch. */
+        private Set<String> findExistingWithArray(Connection con, Set<String> ids) throws SQLException {
+            Set<String> existing = new HashSet<>();
+            try (PreparedStatement lookup = con.prepareStatement(
+                    "SELECT external_id FROM bank_transactions WHERE source_account_id = ? AND external_id = ANY(?)")) {
+                lookup.setLong(1, accountId);
+                lookup.setArray(2, con.createArrayOf("varchar", ids.toArray()));
+                try (ResultSet rs = lookup.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1));
+                    }
+                }
+            }
+            return existing;
+        }
+
+        /**
+         * Point lookups on the unique key. H2 only uses the key's leading column for IN lists, so
+         * a single IN query would scan all of the account's rows.
+         */
+        private Set<String> findExistingOneByOne(Connection con, Set<String> ids) throws SQLException {
+            Set<String> existing = new HashSet<>();
+            try (PreparedStatement lookup = con.prepareStatement(
+                    "SELECT 1 FROM bank_transactions WHERE source_account_id = ? AND external_id = ?")) {
+                lookup.setLong(1, accountId);
+                for (String id : ids) {
+                    lookup.setString(2, id);
+                    try (ResultSet rs = lookup.executeQuery()) {
+                        if (rs.next()) {
+                            existing.add(id);
+                        }
+                    }
+                }
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Reads one record per line, so quoted fields may not contain line breaks.
+     */
+    static final class CsvRecordIterator implements Iterator<BankTransactionRecord> {
+        private final BufferedReader reader;
+        private int idColumn = -1;
+        private int dateColumn = -1;
+        private int amountColumn = -1;
+        private int descriptionColumn = -1;
+        private int merchantColumn = -1;
+        private int categoryColumn = -1;
+        private String nextLine;
+        private long lineNumber;
+
+        CsvRecordIterator(BufferedReader reader) {
+            this.reader = reader;
+            String header = readLine();
+            if (header == null) {
+                return;
+            }
+            List<String> columns = CsvUtil.parseLine(header.startsWith("﻿") ? header.substring(1) : header);
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i) == null ? "" : columns.get(i).trim().toLowerCase(Locale.ROOT);
+                switch (column) {
+                    case "id":
+                    case "transaction_id":
+                    case "external_id":
+                        idColumn = i;
+                        break;
+                    case "date":
+                    case "timestamp":
+                        dateColumn = i;
+                        break;
+                    case "amount":
+                        amountColumn = i;
+                        break;
+                    case "description":
+                        descriptionColumn = i;
+                        break;
+                    case "merchant":
+                    case "merchant_name":
+                        merchantColumn = i;
+                        break;
+                    case "category":
+                        categoryColumn = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (idColumn < 0 || dateColumn < 0 || amountColumn < 0) {
+                throw new BadRequestException("CSV header must include id, date and amount columns");
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public BankTransactionRecord next() {
+            if (nextLine == null) {
+                throw new NoSuchElementException();
+            }
+            List<String> fields = CsvUtil.parseLine(nextLine);
+            long line = lineNumber;
+            advance();
+
+            String id = field(fields, idColumn);
+            String date = field(fields, dateColumn);
+            String amount = field(fields, amountColumn);
+            if (id == null || date == null || amount == null) {
+                throw new BadRequestException("CSV line " + line + " is missing its id, date or amount");
+            }
+            Money parsedAmount;
+            try {
+                parsedAmount = Money.parse(amount);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("CSV line " + line + " has an invalid amount: " + amount);
+            }
+            return new BankTransactionRecord(id.trim(), parseDate(date.trim()), parsedAmount,
+                truncate(field(fields, descriptionColumn)), truncate(field(fields, merchantColumn)),
+                truncate(field(fields, categoryColumn)));
+        }
+
+        private void advance() {
+            do {
+                nextLine = readLine();
+            } while (nextLine != null && nextLine.isBlank());
+        }
+
+        private String readLine() {
+            try {
+                lineNumber++;
+                return reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+    }
+
+    /**
+     * Minimal OFX tokenizer: collects the leaf elements of each STMTTRN aggregate. Works for both
+     * SGML files, where leaf elements have no end tags, and XML files, where they do.
+     */
+    static final class OfxRecordIterator implements Iterator<BankTransactionRecord> {
+        private final Reader reader;
+        private final StringBuilder token = new StringBuilder();
+        private BankTransactionRecord next;
+        private int pushedBack = -1;
+
+        OfxRecordIterator(Reader reader) {
+            this.reader = reader;
+            next = readTransaction();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public BankTransactionRecord next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            BankTransactionRecord current = next;
+            next = readTransaction();
+            return current;
+        }
+
+        private BankTransactionRecord readTransaction() {
+            Map<String, String> fields = null;
+            String tag;
+            while ((tag = readTag()) != null) {
+                if ("STMTTRN".equals(tag)) {
+                    fields = new HashMap<>();
+                } else if ("/STMTTRN".equals(tag) && fields != null) {
+                    return toRecord(fields);
+                } else if (fields != null && !tag.startsWith("/")) {
+                    String value = readText();
+                    if (!value.isEmpty()) {
+                        fields.put(tag, value);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private BankTransactionRecord toRecord(Map<String, String> fields) {
+            String id = fields.get("FITID");
+            String posted = fields.get("DTPOSTED");
+            String amount = fields.get("TRNAMT");
+            if (id == null || posted == null || amount == null) {
+                throw new BadRequestException("OFX transaction is missing FITID, DTPOSTED or TRNAMT: " + fields);
+            }
+            Money parsedAmount;
+            try {
+                parsedAmount = Money.parse(amount);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("OFX transaction " + id + " has an invalid amount: " + amount);
+            }
+            String name = truncate(fields.get("NAME"));
+            String memo = truncate(fields.get("MEMO"));
+            return new BankTransactionRecord(id, parseOfxDate(posted), parsedAmount,
+                memo != null ? memo : name, name, null);
+        }
+
+        /** OFX dates are YYYYMMDD, optionally followed by HHMMSS, milliseconds and a zone. */
+        static LocalDateTime parseOfxDate(String value) {
+            try {
+                LocalDate date = LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8)));
+                if (value.length() >= 14 && Character.isDigit(value.charAt(8))) {
+                    return date.atTime(Integer.parseInt(value.substring(8, 10)),
+                        Integer.parseInt(value.substring(10, 12)), Integer.parseInt(value.substring(12, 14)));
+                }
+                return date.atStartOfDay();
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid OFX date: " + value);
+            }
+        }
+
+        /** The name of the next tag, upper-cased, or null at the end of the input. */
+        private String readTag() {
+            int c;
+            while ((c = read()) != -1 && c != '<') {
+                // Skip headers and text outside the elements we collect
+            }
+            if (c == -1) {
+                return null;
+            }
+            token.setLength(0);
+            while ((c = read()) != -1 && c != '>') {
+                token.append((char) c);
+            }
+            return token.toString().trim().toUpperCase(Locale.ROOT);
+        }
+
+        /** Text up to the next tag, with entities decoded. */
+        private String readText() {
+            token.setLength(0);
+            int c;
+            while ((c = read()) != -1 && c != '<') {
+                token.append((char) c);
+            }
+            if (c == '<') {
+                pushedBack = c;
+            }
+            return token.toString().trim()
+                .replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+        }
+
+        private int read() {
+            if (pushedBack != -1) {
+                int c = pushedBack;
+                pushedBack = -1;
+                return c;
+            }
+            try {
+                return reader.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+import com.example.savings.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+/**
+ * Renders each event with its email template and adds it to the notification queue, in the
+ * caller's transaction.
+ */
+@Service
+public class EmailNotificationChannel implements NotificationChannel {
+    private static final Logger logger = LoggerFactory.getLogger(EmailNotificationChannel.class);
+
+    @Autowired
+    private NotificationTemplates notificationTemplates;
+
+    @Autowired
+    private NotificationQueueService notificationQueueService;
+
+    @Override
+    public String getName() {
+        return "email";
+    }
+
+    @Override
+    public void publish(NotificationEvent event) {
+        User user = event.getUser();
+        if (user.getEmail() == null || user.getEmail().isEmpty()) {
+            logger.warn("Cannot email user ID {} - no email address", user.getId());
+            return;
+        }
+        NotificationTemplates.RenderedEmail email = notificationTemplates.render(templateName(event.getType()), event.getData());
+        notificationQueueService.enqueue(user.getEmail(), email.subject(), email.text(), email.html());
+    }
+
+    /** RULE_TRIGGERED is rendered from rule-triggered.txt and rule-triggered.html, and so on. */
+    static String templateName(NotificationEvent.Type type) {
+        return type.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.savings.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the bank transaction ids of one account. {@link #mightContain} never misses an
+ * id that was added, so a negative answer means the id is definitely new; a positive answer has to
+ * be confirmed against the database.
+ *
+ * Ids are reduced to one 64-bit hash, and the filter's bit positions are derived from its two
+ * halves (Kirsch-Mitzenmacher double hashing). Adds and lookups are lock-free.
+ *
+ * File layout (big-endian): magic, version, account id, id count, capacity, hash count, bit count,
+ * then the bit words.
+ */
+final class ExternalIdBloomFilter {
+    private static final int MAGIC = 0x49444246;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+
+    private final long accountId;
+    private final long capacity;
+    private final int hashCount;
+    private final long bitCount;
+    private final AtomicLongArray words;
+    // Ids in the account's bank_transactions rows that this filter covers
+    private final AtomicLong count;
+    private volatile boolean dirty;
+
+    private ExternalIdBloomFilter(long accountId, long count, long capacity, int hashCount, long bitCount) {
+        this.accountId = accountId;
+        this.count = new AtomicLong(count);
+        this.capacity = capacity;
+        this.hashCount = hashCount;
+        this.bitCount = bitCount;
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+    }
+
+    /**
+     * An empty filter sized so that {@code capacity} ids give a false-positive rate of about
+     * {@code falsePositiveRate}.
+     */
+    static ExternalIdBloomFilter create(long accountId, long capacity, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, (bits + 63) / 64 * 64);
+        int hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        return new ExternalIdBloomFilter(accountId, 0, capacity, hashes, bits);
+    }
+
+    static long hash(String externalId) {
+        // FNV-1a over the UTF-16 code units, finished with the MurmurHash3 64-bit mixer
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < externalId.length(); i++) {
+            h ^= externalId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    boolean mightContain(long hash) {
+        long h1 = hash & 0xffffffffL;
+        long h2 = hash >>> 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void put(long hash) {
+        long h1 = hash & 0xffffffffL;
+        long h2 = hash >>> 32;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                // Another thread changed the word; retry with its value
+            }
+        }
+        dirty = true;
+    }
+
+    void addCount(long added) {
+        count.addAndGet(added);
+        dirty = true;
+    }
+
+    long accountId() {
+        return accountId;
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /** False-positive rate predicted for the number of ids currently in the filter. */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * count.get() / bitCount), hashCount);
+    }
+
+    /**
+     * Write the filter to {@code target} through a temporary file, so a crash leaves either the old
+     * or the new file. Adds that race with the write are kept in memory and written next time.
+     */
+    void writeTo(Path target) throws IOException {
+        dirty = false;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + words.length() * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(accountId).putLong(count.get()).putLong(capacity)
+            .putInt(hashCount).putInt(0).putLong(bitCount);
+        for (int i = 0; i < words.length(); i++) {
+            buffer.putLong(words.get(i));
+        }
+        buffer.flip();
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read a filter written by {@link #writeTo}, or return null if the file is not a valid filter
+     * for the account.
+     */
+    static ExternalIdBloomFilter readFrom(Path source, long accountId) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(source));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != accountId) {
+            return null;
+        }
+        long count = buffer.getLong();
+        long capacity = buffer.getLong();
+        int hashCount = buffer.getInt();
+        buffer.getInt();
+        long bitCount = buffer.getLong();
+        if (capacity <= 0 || hashCount <= 0 || bitCount <= 0 || bitCount % 64 != 0
+                || buffer.remaining() != bitCount / 8) {
+            return null;
+        }
+
+        ExternalIdBloomFilter filter = new ExternalIdBloomFilter(accountId, count, capacity, hashCount, bitCount);
+        for (int i = 0; i < filter.words.length(); i++) {
+            filter.words.set(i, buffer.getLong());
+        }
+        return filter;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.repository.GoalDailyTotalRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import com.example.savings.util.DateUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Maintains the goal_daily_totals rollup and answers period totals from it.
+ */
+@Service
+public class GoalRollupService {
+    @Autowired
+    private GoalDailyTotalRepository goalDailyTotalRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    /**
+     * Add a settled transfer to the goal's total for that day. Must run inside the transaction
+     * that settles the transfer. Locks the goal row first, so concurrent settlements for the
+     * same goal cannot both take the insert path.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSettlement(SavingsGoal goal, LocalDate day, Money amount) {
+        savingsGoalRepository.lockById(goal.getId());
+        int updated = goalDailyTotalRepository.addToDay(goal.getId(), day, amount.getCents());
+        if (updated == 0) {
+            goalDailyTotalRepository.insertDay(goal.getId(), day, amount.getCents());
+        }
+    }
+
+    /**
+     * Total saved into a goal over a period ("week", "month", "quarter", "year") ending today.
+     */
+    @Transactional(readOnly = true)
+    public Money getTotalForPeriod(SavingsGoal goal, String period) {
+        LocalDate[] range = DateUtil.getDateRangeForPeriod(period);
+        return getTotalBetween(goal, range[0], range[1]);
+    }
+
+    @Transactional(readOnly = true)
+    public Money getTotalBetween(SavingsGoal goal, LocalDate start, LocalDate end) {
+        return Money.ofCents(goalDailyTotalRepository.sumCentsBetween(goal.getId(), start, end));
+    }
+}
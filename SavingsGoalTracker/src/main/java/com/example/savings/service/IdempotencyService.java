@@ -0,0 +1,392 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.exception.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per user and Idempotency-Key, and replays its response to retries.
+ *
+ * Keys are recorded in the idempotency_keys table. The first request claims its key as
+ * IN_PROGRESS, runs, and stores its response in the same database transaction as the work it
+ * did, so a transfer and the record that it happened commit together. Completed responses are
+ * also cached in memory, so most retries do not touch the database. A retry that arrives while
+ * the first request is still running waits for its result: on the same instance through the
+ * in-flight future, on another one by polling the row, for up to
+ * {@code idempotency.wait-seconds}. Only successful (2xx) responses are stored; after an error
+ * the key is released and the client may retry with it.
+ *
+ * While a request runs, its claim's created_at is refreshed every third of
+ * {@code idempotency.lease-seconds}. A claim that has not been refreshed for the lease is
+ * presumed abandoned (e.g. its instance died), but a retry only takes it over once it has waited
+ * out its own wait-seconds without the claim completing or being refreshed. The lease must still
+ * exceed the worst-case request time: a heartbeat that fails is only tried again at the next
+ * interval, and a request that outlives a lapsed claim can be run a second time.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // A claim not refreshed for this long is presumed abandoned (e.g. the instance died)
+    @Value("${idempotency.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${idempotency.wait-seconds:30}")
+    private long waitSeconds;
+
+    @Value("${idempotency.cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${idempotency.heartbeat-threads:4}")
+    private int heartbeatThreads;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService heartbeats;
+    private JdbcTemplate heartbeatJdbcTemplate;
+    private Cache<String, StoredResponse> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("IdempotencyHeartbeat-");
+        threadFactory.setDaemon(true);
+        heartbeats = Executors.newScheduledThreadPool(heartbeatThreads, threadFactory);
+        // A heartbeat stuck behind a row lock gives up by the time the next one is due, rather
+        // than holding a thread that every other claim's heartbeat is queued behind
+        heartbeatJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        heartbeatJdbcTemplate.setQueryTimeout((int) Math.max(1, leaseSeconds / 3));
+        completed = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(ttlHours))
+            .maximumSize(cacheSize)
+            .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * Run {@code action} unless this user already sent {@code key}, in which case the first
+     * request's response is returned (with an {@code Idempotent-Replayed: true} header). Without
+     * a key the action simply runs.
+     *
+     * @param operation identifies the endpoint, so one key cannot be replayed against another
+     * @param request   the request's parameters; a retry must send the same ones
+     * @throws BadRequestException if the key is malformed or was used for a different request
+     * @throws ConflictException   if the first request is still running after the wait
+     */
+    public ResponseEntity<?> execute(long userId, String key, String operation, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(operation, request);
+
+        StoredResponse stored = completed.getIfPresent(cacheKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            // The same key is being processed by another request thread on this instance
+            return replay(await(running), requestHash);
+        }
+
+        try {
+            StoredResponse earlier = claim(userId, key, requestHash);
+            if (earlier != null) {
+                completed.put(cacheKey, earlier);
+                mine.complete(earlier);
+                return replay(earlier, requestHash);
+            }
+
+            StoredResponse[] result = new StoredResponse[1];
+            ResponseEntity<?> response;
+            ScheduledFuture<?> heartbeat = startHeartbeat(userId, key, requestHash);
+            try {
+                response = transactionTemplate.execute(status -> {
+                    ResponseEntity<?> actionResponse = action.get();
+                    if (actionResponse.getStatusCode().is2xxSuccessful()) {
+                        result[0] = store(userId, key, requestHash, actionResponse);
+                    }
+                    return actionResponse;
+                });
+            } finally {
+                heartbeat.cancel(false);
+            }
+
+            if (result[0] == null) {
+                release(userId, key);
+                mine.complete(null);
+            } else {
+                completed.put(cacheKey, result[0]);
+                mine.complete(result[0]);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            release(userId, key);
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    /**
+     * Delete keys past their time to live - runs hourly
+     */
+    @Scheduled(cron = "0 15 * * * ?")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?",
+            Timestamp.valueOf(LocalDateTime.now()));
+        logger.info("Purged {} expired idempotency keys", purged);
+    }
+
+    /**
+     * Claim the key for this request. Returns null once claimed, or the stored response of an
+     * earlier request that completed with the key.
+     */
+    private StoredResponse claim(long userId, String key, String requestHash) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, status, "
+                        + "created_at, expires_at) VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?)",
+                    userId, key, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(now.plusHours(ttlHours)));
+                return null;
+            } catch (DuplicateKeyException e) {
+                // Claimed before; look at what happened to it
+            }
+
+            List<KeyRecord> records = jdbcTemplate.query("SELECT request_hash, status, response_status, "
+                    + "response_location, response_body, created_at, expires_at FROM idempotency_keys "
+                    + "WHERE user_id = ? AND idempotency_key = ?",
+                (rs, row) -> new KeyRecord(rs.getString(1), rs.getString(2),
+                    new StoredResponse(rs.getString(1), rs.getInt(3), rs.getString(4), rs.getString(5)),
+                    rs.getTimestamp(6).toLocalDateTime(), rs.getTimestamp(7).toLocalDateTime()),
+                userId, key);
+            if (records.isEmpty()) {
+                continue;
+            }
+            KeyRecord record = records.get(0);
+            if (record.expiresAt.isBefore(now)) {
+                delete(userId, key, record);
+                continue;
+            }
+            if (!record.requestHash.equals(requestHash)) {
+                throw new BadRequestException("Idempotency-Key was already used for a different request");
+            }
+            if ("COMPLETED".equals(record.status)) {
+                return record.response;
+            }
+
+            // Still running on another instance, unless it has stopped refreshing its claim
+            if (System.nanoTime() > deadline) {
+                if (record.createdAt.plusSeconds(leaseSeconds).isBefore(now)) {
+                    logger.warn("Taking over idempotency key for user {} abandoned since {}", userId, record.createdAt);
+                    delete(userId, key, record);
+                    continue;
+                }
+                throw new ConflictException("A request with this Idempotency-Key is still being processed");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("A request with this Idempotency-Key is still being processed");
+            }
+        }
+    }
+
+    /** Delete the record unless it has changed (been refreshed or re-claimed) since it was read. */
+    private void delete(long userId, String key, KeyRecord record) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? "
+            + "AND created_at = ?", userId, key, Timestamp.valueOf(record.createdAt));
+    }
+
+    /** Keep refreshing the claim's created_at, so waiting retries see it is still alive. */
+    private ScheduledFuture<?> startHeartbeat(long userId, String key, String requestHash) {
+        long intervalMillis = Math.max(1, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+        return heartbeats.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeatJdbcTemplate.update("UPDATE idempotency_keys SET created_at = ? WHERE user_id = ? "
+                        + "AND idempotency_key = ? AND request_hash = ? AND status = 'IN_PROGRESS'",
+                    Timestamp.valueOf(LocalDateTime.now()), userId, key, requestHash);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to refresh idempotency key for user {}: {}", userId, e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private StoredResponse store(long userId, String key, String requestHash, ResponseEntity<?> response) {
+        String body;
+        try {
+            body = response.getBody() == null ? null : objectMapper.writeValueAsString(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response for idempotency key", e);
+        }
+        URI location = response.getHeaders().getLocation();
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCodeValue(),
+            location == null ? null : location.toString(), body);
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = 'COMPLETED', response_status = ?, "
+                + "response_location = ?, response_body = ? WHERE user_id = ? AND idempotency_key = ?",
+            stored.status, stored.location, stored.body, userId, key);
+        return stored;
+    }
+
+    private void release(long userId, String key) {
+        try {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? "
+                + "AND status = 'IN_PROGRESS'", userId, key);
+        } catch (RuntimeException e) {
+            // The claim expires after the lease anyway
+            logger.warn("Failed to release idempotency key for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            StoredResponse stored = running.get(waitSeconds, TimeUnit.SECONDS);
+            if (stored == null) {
+                // The first request did not succeed and released the key
+                throw new ConflictException("The original request with this Idempotency-Key did not succeed; retry it");
+            }
+            return stored;
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (ExecutionException e) {
+            // The first request failed; this identical one would fail the same way
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw new BadRequestException("Idempotency-Key was already used for a different request");
+        }
+        meterRegistry.counter("idempotency.replayed").increment();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status)
+            .header("Idempotent-Replayed", "true");
+        if (stored.location != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location);
+        }
+        if (stored.body == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body);
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final int status;
+        private final String location;
+        private final String body;
+
+        private StoredResponse(String requestHash, int status, String location, String body) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.location = location;
+            this.body = body;
+        }
+    }
+
+    private static final class KeyRecord {
+        private final String requestHash;
+        private final String status;
+        private final StoredResponse response;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime expiresAt;
+
+        private KeyRecord(String requestHash, String status, StoredResponse response,
+                          LocalDateTime createdAt, LocalDateTime expiresAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.response = response;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
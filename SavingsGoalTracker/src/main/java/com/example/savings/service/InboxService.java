@@ -0,0 +1,73 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.ResourceNotFoundException;
+import com.example.savings.model.InboxMessage;
+import com.example.savings.model.NotificationEvent;
+import com.example.savings.repository.InboxMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The in-app inbox. As a notification channel it stores each event as a message, rendered with
+ * the same text template as the email, in the caller's transaction.
+ */
+@Service
+public class InboxService implements NotificationChannel {
+    @Autowired
+    private InboxMessageRepository inboxMessageRepository;
+
+    @Autowired
+    private NotificationTemplates notificationTemplates;
+
+    @Override
+    public String getName() {
+        return "inbox";
+    }
+
+    @Override
+    @Transactional
+    public void publish(NotificationEvent event) {
+        NotificationTemplates.RenderedEmail rendered = notificationTemplates.render(
+            EmailNotificationChannel.templateName(event.getType()), event.getData());
+
+        InboxMessage message = new InboxMessage();
+        message.setUserId(event.getUser().getId());
+        message.setNotificationType(event.getType());
+        message.setGoalId(event.getGoalId());
+        message.setTitle(rendered.subject());
+        message.setBody(rendered.text());
+        message.setCreatedAt(event.getOccurredAt());
+        inboxMessageRepository.save(message);
+    }
+
+    /**
+     * The user's newest messages, at most {@code limit} of them.
+     */
+    @Transactional(readOnly = true)
+    public List<InboxMessage> getMessages(Long userId, boolean unreadOnly, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return unreadOnly
+            ? inboxMessageRepository.findByUserIdAndReadAtIsNullOrderByIdDesc(userId, page)
+            : inboxMessageRepository.findByUserIdOrderByIdDesc(userId, page);
+    }
+
+    @Transactional(readOnly = true)
+    public long countUnread(Long userId) {
+        return inboxMessageRepository.countByUserIdAndReadAtIsNull(userId);
+    }
+
+    @Transactional
+    public InboxMessage markRead(Long userId, Long messageId) {
+        InboxMessage message = inboxMessageRepository.findByIdAndUserId(messageId, userId)
+            .orElseThrow(() -> new ResourceNotFoundException("Inbox message", "id", messageId));
+        if (message.getReadAt() == null) {
+            message.setReadAt(LocalDateTime.now());
+        }
+        return message;
+    }
+}
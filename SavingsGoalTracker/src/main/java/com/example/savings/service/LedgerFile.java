@@ -0,0 +1,256 @@
+package com.example.savings.service;
+
+import com.example.savings.model.LedgerEntry;
+import com.example.savings.model.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of fixed-width ledger records, memory-mapped in fixed-size segments.
+ *
+ * Record layout (48 bytes, big-endian): sequence, posted-at epoch millis, goal id, transaction id,
+ * amount in cents, entry type, and a CRC32C of the preceding 44 bytes. Sequences start at 1 and
+ * record {@code n} lives at byte offset {@code (n - 1) * 48}, so any record is one lookup away.
+ * Appends are single-writer; reads may run concurrently with appends.
+ */
+final class LedgerFile implements Closeable {
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKSUMMED_BYTES = 44;
+    private static final int RECORDS_PER_SEGMENT = 1 << 18;
+    private static final long SEGMENT_SIZE = (long) RECORD_SIZE * RECORDS_PER_SEGMENT;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    // Explicit locks rather than synchronized: append can map a new segment and force writes to
+    // disk, and a virtual thread blocked on I/O inside synchronized would pin its carrier thread
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private volatile long size;
+    private long forcedSize;
+    private long lastPostedAtMillis;
+    private long maxTransactionId;
+
+    LedgerFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Another LedgerFile in this JVM, e.g. a second application context, holds the lock
+            acquired = null;
+        }
+        lock = acquired;
+        if (lock == null) {
+            channel.close();
+            throw new IllegalStateException("Ledger file " + path + " is in use by another process or context");
+        }
+        long segmentCount = Math.max(1, (channel.size() + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(map(i));
+        }
+        recover();
+    }
+
+    /**
+     * Append a record and return its sequence. Posting times never go backwards: an earlier time
+     * than the previous record's is moved up to it, so the file stays ordered by time as well.
+     */
+    long append(LocalDateTime postedAt, long goalId, long transactionId, long amountCents,
+                LedgerEntry.EntryType type) throws IOException {
+        appendLock.lock();
+        try {
+            return appendLocked(postedAt, goalId, transactionId, amountCents, type);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long appendLocked(LocalDateTime postedAt, long goalId, long transactionId, long amountCents,
+                              LedgerEntry.EntryType type) throws IOException {
+        long index = size;
+        if (segmentIndex(index) == segments.size()) {
+            segments.add(map(segments.size()));
+        }
+        MappedByteBuffer segment = segments.get(segmentIndex(index));
+        int offset = offset(index);
+        long sequence = index + 1;
+        long postedAtMillis = Math.max(toMillis(postedAt), lastPostedAtMillis);
+
+        segment.putLong(offset, sequence);
+        segment.putLong(offset + 8, postedAtMillis);
+        segment.putLong(offset + 16, goalId);
+        segment.putLong(offset + 24, transactionId);
+        segment.putLong(offset + 32, amountCents);
+        segment.putInt(offset + 40, type.ordinal());
+        segment.putInt(offset + 44, checksum(segment, offset));
+
+        lastPostedAtMillis = postedAtMillis;
+        maxTransactionId = Math.max(maxTransactionId, transactionId);
+        size = sequence;
+        return sequence;
+    }
+
+    /**
+     * Flush every record appended so far to disk. Records are appended to the page cache only, so
+     * callers batch calls to this.
+     */
+    void force() {
+        long target = size;
+        forceLock.lock();
+        try {
+            if (target <= forcedSize) {
+                return;
+            }
+            for (long index = forcedSize; index < target; ) {
+                int segment = segmentIndex(index);
+                long segmentEnd = Math.min(target, (long) (segment + 1) * RECORDS_PER_SEGMENT);
+                int from = offset(index);
+                segments.get(segment).force(from, (int) (segmentEnd - index) * RECORD_SIZE);
+                index = segmentEnd;
+            }
+            forcedSize = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /** Number of records, which is also the sequence of the last one. */
+    long size() {
+        return size;
+    }
+
+    long unforced() {
+        forceLock.lock();
+        try {
+            return size - forcedSize;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    long maxTransactionId() {
+        appendLock.lock();
+        try {
+            return maxTransactionId;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long postedAtMillis(long sequence) {
+        return segments.get(segmentIndex(sequence - 1)).getLong(offset(sequence - 1) + 8);
+    }
+
+    long goalId(long sequence) {
+        return segments.get(segmentIndex(sequence - 1)).getLong(offset(sequence - 1) + 16);
+    }
+
+    long transactionId(long sequence) {
+        return segments.get(segmentIndex(sequence - 1)).getLong(offset(sequence - 1) + 24);
+    }
+
+    long amountCents(long sequence) {
+        return segments.get(segmentIndex(sequence - 1)).getLong(offset(sequence - 1) + 32);
+    }
+
+    LedgerEntry.EntryType type(long sequence) {
+        return LedgerEntry.EntryType.values()[segments.get(segmentIndex(sequence - 1)).getInt(offset(sequence - 1) + 40)];
+    }
+
+    LedgerEntry entry(long sequence) {
+        MappedByteBuffer segment = segments.get(segmentIndex(sequence - 1));
+        int offset = offset(sequence - 1);
+        long transactionId = segment.getLong(offset + 24);
+        return new LedgerEntry(
+            sequence,
+            toLocalDateTime(segment.getLong(offset + 8)),
+            segment.getLong(offset + 16),
+            transactionId == 0 ? null : transactionId,
+            Money.ofCents(segment.getLong(offset + 32)),
+            LedgerEntry.EntryType.values()[segment.getInt(offset + 40)]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        lock.release();
+        channel.close();
+    }
+
+    static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+            (int) Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Find the end of the valid records after a restart. Anything after the first record with a
+     * wrong sequence or checksum was torn by a crash and is cleared, so it can never reappear
+     * behind records appended later.
+     */
+    private void recover() {
+        long index = 0;
+        while (segmentIndex(index) < segments.size()) {
+            MappedByteBuffer segment = segments.get(segmentIndex(index));
+            int offset = offset(index);
+            if (segment.getLong(offset) != index + 1 || segment.getInt(offset + 44) != checksum(segment, offset)) {
+                break;
+            }
+            lastPostedAtMillis = segment.getLong(offset + 8);
+            maxTransactionId = Math.max(maxTransactionId, segment.getLong(offset + 24));
+            index++;
+        }
+        size = index;
+
+        long cleared = index;
+        while (segmentIndex(cleared) < segments.size()) {
+            MappedByteBuffer segment = segments.get(segmentIndex(cleared));
+            int offset = offset(cleared);
+            if (segment.getLong(offset) == 0) {
+                break;
+            }
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                segment.putLong(offset + i, 0L);
+            }
+            segment.force(offset, RECORD_SIZE);
+            cleared++;
+        }
+        forcedSize = index;
+    }
+
+    private MappedByteBuffer map(int segment) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, segment * SEGMENT_SIZE, SEGMENT_SIZE);
+    }
+
+    private static int segmentIndex(long index) {
+        return (int) (index / RECORDS_PER_SEGMENT);
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    private static int checksum(MappedByteBuffer segment, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(offset, CHECKSUMMED_BYTES));
+        return (int) crc.getValue();
+    }
+}
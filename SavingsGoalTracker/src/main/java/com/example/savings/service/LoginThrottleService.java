@@ -0,0 +1,159 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backs off repeated failed logins, per username and per client address. Each key gets a number
+ * of free attempts; after that every further failure blocks it for an exponentially growing
+ * time, from {@code security.login.backoff-base-seconds} up to
+ * {@code security.login.backoff-max-seconds}. Blocked attempts are refused before any password is
+ * hashed.
+ *
+ * An attempt counts as a failure from the moment it is allowed, so concurrent attempts cannot
+ * all pass the check before any of them has failed; a successful login takes its attempt back.
+ * Failures are forgotten {@code security.login.failure-window-minutes} after the last one, and a
+ * successful login clears its username's failures (but not its address's, so one valid account
+ * does not unlock an address trying many others).
+ */
+@Service
+public class LoginThrottleService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.login.username.free-attempts:5}")
+    private int usernameFreeAttempts;
+
+    @Value("${security.login.address.free-attempts:20}")
+    private int addressFreeAttempts;
+
+    @Value("${security.login.backoff-base-seconds:1}")
+    private long backoffBaseSeconds;
+
+    @Value("${security.login.backoff-max-seconds:900}")
+    private long backoffMaxSeconds;
+
+    @Value("${security.login.failure-window-minutes:30}")
+    private long failureWindowMinutes;
+
+    @Value("${security.login.tracked-keys:100000}")
+    private long trackedKeys;
+
+    private Cache<String, Failures> usernames;
+    private Cache<String, Failures> addresses;
+
+    @PostConstruct
+    public void init() {
+        usernames = newCache();
+        addresses = newCache();
+    }
+
+    /**
+     * Refuse the attempt if the username or the address is currently backed off, and otherwise
+     * count it against both until {@link #recordSuccess} says it succeeded.
+     *
+     * @throws TooManyRequestsException with the time until the attempt would be allowed
+     */
+    public void checkAllowed(String username, String address) {
+        long now = System.nanoTime();
+        long waitNanos = reserve(usernames, key(username), usernameFreeAttempts, now);
+        if (waitNanos > 0) {
+            waitNanos = Math.max(waitNanos, remaining(addresses, address, now));
+        } else {
+            waitNanos = reserve(addresses, address, addressFreeAttempts, now);
+            if (waitNanos > 0) {
+                release(usernames, key(username), usernameFreeAttempts, now);
+            }
+        }
+        if (waitNanos > 0) {
+            meterRegistry.counter("security.login.throttled").increment();
+            throw new TooManyRequestsException("Too many failed login attempts; try again later",
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    /** Clear the username's failures and take back the attempt reserved against the address. */
+    public void recordSuccess(String username, String address) {
+        usernames.invalidate(key(username));
+        release(addresses, address, addressFreeAttempts, System.nanoTime());
+    }
+
+    /** Take back an attempt that ended without a verdict on the password, e.g. a refused hash. */
+    public void cancelAttempt(String username, String address) {
+        long now = System.nanoTime();
+        release(usernames, key(username), usernameFreeAttempts, now);
+        release(addresses, address, addressFreeAttempts, now);
+    }
+
+    /** Count an attempt against the key unless it is backed off; returns the wait if it is. */
+    private long reserve(Cache<String, Failures> cache, String key, int freeAttempts, long now) {
+        long[] waitNanos = new long[1];
+        cache.asMap().compute(key, (k, failures) -> {
+            if (failures != null && failures.blockedUntil - now > 0) {
+                waitNanos[0] = failures.blockedUntil - now;
+                return failures;
+            }
+            return next(failures, freeAttempts, now);
+        });
+        return waitNanos[0];
+    }
+
+    private void release(Cache<String, Failures> cache, String key, int freeAttempts, long now) {
+        cache.asMap().computeIfPresent(key, (k, failures) -> {
+            int count = failures.count - 1;
+            if (count <= 0) {
+                return null;
+            }
+            // Undo the block the attempt set if it was the one that went past the free attempts
+            return new Failures(count, count <= freeAttempts ? now : failures.blockedUntil);
+        });
+    }
+
+    private Failures next(Failures failures, int freeAttempts, long now) {
+        int count = failures == null ? 1 : failures.count + 1;
+        if (count <= freeAttempts) {
+            return new Failures(count, now);
+        }
+        // Doubles with every failure past the free ones; the shift is capped so it cannot overflow
+        long backoffSeconds = Math.min(backoffMaxSeconds, backoffBaseSeconds << Math.min(count - freeAttempts - 1, 30));
+        return new Failures(count, now + TimeUnit.SECONDS.toNanos(backoffSeconds));
+    }
+
+    private static long remaining(Cache<String, Failures> cache, String key, long now) {
+        Failures failures = cache.getIfPresent(key);
+        return failures == null ? 0 : failures.blockedUntil - now;
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Cache<String, Failures> newCache() {
+        return Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(failureWindowMinutes))
+            .maximumSize(trackedKeys)
+            .build();
+    }
+
+    private static final class Failures {
+        private final int count;
+        // System.nanoTime() before which further attempts are refused
+        private final long blockedUntil;
+
+        private Failures(int count, long blockedUntil) {
+            this.count = count;
+            this.blockedUntil = blockedUntil;
+        }
+    }
+}
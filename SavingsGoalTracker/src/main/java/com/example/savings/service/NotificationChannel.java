@@ -0,0 +1,18 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+
+/**
+ * A way of telling users, or other systems, about a {@link NotificationEvent}. Every channel bean
+ * receives every event that {@link NotificationService} decides to send.
+ *
+ * {@link #publish} runs on the caller's thread, often inside the transaction that caused the
+ * event, so it must only record or queue the event. Anything slow, such as network calls, has to
+ * happen later on the channel's own threads, and only once the transaction has committed.
+ */
+public interface NotificationChannel {
+    /** Short name used in logs, e.g. "email". */
+    String getName();
+
+    void publish(NotificationEvent event);
+}
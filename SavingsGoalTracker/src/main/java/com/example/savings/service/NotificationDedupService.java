@@ -0,0 +1,152 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Remembers which goal notifications were sent, keyed by user, goal, notification type and
+ * period, so the daily and weekly checks do not repeat themselves. Records live in the
+ * notification_dedup table; the ones sent recently are also kept in memory, so the common
+ * repeat check does not touch the database.
+ */
+@Service
+public class NotificationDedupService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDedupService.class);
+
+    private static final String INSERT = "INSERT INTO notification_dedup "
+        + "(user_id, goal_id, notification_type, period_key, sent_at) VALUES (?, ?, ?, ?, ?)";
+
+    // Records of these are only needed until their period is over and are purged after that
+    private static final Set<NotificationEvent.Type> PERIODIC_TYPES = EnumSet.of(NotificationEvent.Type.WEEKLY_REPORT);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.dedup.cache-hours:192}")
+    private long cacheHours;
+
+    @Value("${notifications.dedup.cache-size:100000}")
+    private long cacheSize;
+
+    @Value("${notifications.dedup.retention-days:35}")
+    private long retentionDays;
+
+    private Cache<String, Boolean> recentlySent;
+    private volatile Boolean postgres;
+
+    @PostConstruct
+    public void init() {
+        recentlySent = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(cacheHours))
+            .maximumSize(cacheSize)
+            .build();
+    }
+
+    /**
+     * Whether this notification was already sent for the period. Repeats are counted as
+     * {@code notifications.deduplicated}.
+     */
+    public boolean wasSent(long userId, long goalId, NotificationEvent.Type type, String period) {
+        String key = key(userId, goalId, type, period);
+        boolean sent = recentlySent.getIfPresent(key) != null;
+        if (!sent) {
+            Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_dedup "
+                + "WHERE user_id = ? AND goal_id = ? AND notification_type = ? AND period_key = ?",
+                Integer.class, userId, goalId, type.name(), period);
+            sent = found != null && found > 0;
+            if (sent) {
+                recentlySent.put(key, Boolean.TRUE);
+            }
+        }
+        if (sent) {
+            meterRegistry.counter("notifications.deduplicated", "type", type.name()).increment();
+        }
+        return sent;
+    }
+
+    /**
+     * Record that this notification is being sent, in the caller's transaction. Returns false if
+     * it was recorded already, for example by another instance running the same check.
+     */
+    public boolean markSent(long userId, long goalId, NotificationEvent.Type type, String period) {
+        String key = key(userId, goalId, type, period);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        boolean inserted;
+        if (isPostgres()) {
+            // A unique violation would abort the caller's transaction on PostgreSQL
+            inserted = jdbcTemplate.update(INSERT + " ON CONFLICT DO NOTHING",
+                userId, goalId, type.name(), period, now) == 1;
+        } else {
+            try {
+                inserted = jdbcTemplate.update(INSERT, userId, goalId, type.name(), period, now) == 1;
+            } catch (DuplicateKeyException e) {
+                inserted = false;
+            }
+        }
+
+        if (!inserted) {
+            recentlySent.put(key, Boolean.TRUE);
+            meterRegistry.counter("notifications.deduplicated", "type", type.name()).increment();
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only remember it once the notification has actually been queued
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentlySent.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentlySent.put(key, Boolean.TRUE);
+        }
+        return inserted;
+    }
+
+    /**
+     * Delete records of periodic notifications whose period is long over - runs daily at 3:30 AM
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void purgeExpired() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays));
+        int purged = 0;
+        for (NotificationEvent.Type type : PERIODIC_TYPES) {
+            purged += jdbcTemplate.update(
+                "DELETE FROM notification_dedup WHERE notification_type = ? AND sent_at < ?", type.name(), cutoff);
+        }
+        logger.info("Purged {} notification dedup records older than {} days", purged, retentionDays);
+    }
+
+    private static String key(long userId, long goalId, NotificationEvent.Type type, String period) {
+        return userId + ":" + goalId + ":" + type.name() + ":" + period;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
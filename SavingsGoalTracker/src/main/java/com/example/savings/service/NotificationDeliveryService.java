@@ -0,0 +1,192 @@
+package com.example.savings.service;
+
+import com.example.savings.model.QueuedNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends queued emails on a fixed pool of delivery workers. Each worker takes a batch of due
+ * notifications and sends it through one SMTP connection. Callers only ever write to the queue, so
+ * a slow or unavailable mail server never holds up rule processing, and nothing is lost on restart:
+ * notifications a stopped worker had claimed are picked up again when their lease runs out.
+ */
+@Service
+public class NotificationDeliveryService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDeliveryService.class);
+    private static final long MAX_RETRY_DELAY_SECONDS = 6 * 3600;
+
+    @Autowired
+    private NotificationQueueService notificationQueueService;
+
+    @Autowired
+    private JavaMailSender emailSender;
+
+    @Value("${notifications.delivery.workers:4}")
+    private int workers;
+
+    @Value("${notifications.delivery.batch-size:50}")
+    private int batchSize;
+
+    @Value("${notifications.delivery.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${notifications.delivery.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    private ThreadPoolTaskExecutor workerPool;
+    private Semaphore idleWorkers;
+
+    @PostConstruct
+    public void start() {
+        workerPool = new ThreadPoolTaskExecutor();
+        workerPool.setCorePoolSize(workers);
+        workerPool.setMaxPoolSize(workers);
+        // Dispatch never has more batches out than workers; the queue only covers a worker that
+        // has released its permit but not yet returned to the pool
+        workerPool.setQueueCapacity(workers);
+        workerPool.setThreadNamePrefix("NotificationWorker-");
+        workerPool.setWaitForTasksToCompleteOnShutdown(true);
+        workerPool.setAwaitTerminationSeconds(30);
+        workerPool.initialize();
+        idleWorkers = new Semaphore(workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workerPool.shutdown();
+    }
+
+    /**
+     * Hand due notifications to idle delivery workers - runs every notifications.delivery.interval-ms
+     */
+    @Scheduled(fixedDelayString = "${notifications.delivery.interval-ms:1000}")
+    public void dispatch() {
+        while (idleWorkers.tryAcquire()) {
+            List<QueuedNotification> batch;
+            try {
+                batch = notificationQueueService.claimBatch(batchSize);
+            } catch (RuntimeException e) {
+                idleWorkers.release();
+                logger.error("Failed to claim queued notifications: {}", e.getMessage(), e);
+                return;
+            }
+            if (batch.isEmpty()) {
+                idleWorkers.release();
+                return;
+            }
+
+            try {
+                workerPool.execute(() -> {
+                    try {
+                        deliver(batch);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // Shutting down; the claimed notifications are retried once their lease runs out
+                idleWorkers.release();
+                return;
+            }
+        }
+    }
+
+    void deliver(List<QueuedNotification> batch) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        MimeMessage[] messages = new MimeMessage[batch.size()];
+        List<MimeMessage> sendable = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            messages[i] = emailSender.createMimeMessage();
+            try {
+                prepare(messages[i], batch.get(i));
+                sendable.add(messages[i]);
+            } catch (MessagingException e) {
+                failures.put(messages[i], e);
+            }
+        }
+
+        try {
+            if (!sendable.isEmpty()) {
+                emailSender.send(sendable.toArray(new MimeMessage[0]));
+            }
+        } catch (MailSendException e) {
+            failures.putAll(e.getFailedMessages());
+            if (e.getFailedMessages().isEmpty()) {
+                for (MimeMessage message : sendable) {
+                    failures.put(message, e);
+                }
+            }
+        } catch (MailException e) {
+            for (MimeMessage message : sendable) {
+                failures.put(message, e);
+            }
+        }
+
+        List<Long> finished = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            QueuedNotification notification = batch.get(i);
+            Exception failure = failures.get(messages[i]);
+            if (failure == null || !retry(notification, failure)) {
+                finished.add(notification.getId());
+            }
+        }
+        notificationQueueService.complete(finished);
+        logger.debug("Sent {} of {} queued notifications", batch.size() - failures.size(), batch.size());
+    }
+
+    /**
+     * A plain-text email, or a multipart/alternative one when the notification has an HTML body.
+     */
+    private static void prepare(MimeMessage message, QueuedNotification notification) throws MessagingException {
+        boolean html = notification.getHtmlBody() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, html, StandardCharsets.UTF_8.name());
+        helper.setTo(notification.getRecipient());
+        helper.setSubject(notification.getSubject());
+        if (html) {
+            helper.setText(notification.getBody(), notification.getHtmlBody());
+        } else {
+            helper.setText(notification.getBody());
+        }
+    }
+
+    /**
+     * Reschedule a failed notification with exponential backoff. Returns false once it has used up
+     * its attempts and should be dropped.
+     */
+    private boolean retry(QueuedNotification notification, Exception failure) {
+        if (notification.getAttempts() >= maxAttempts) {
+            logger.error("Giving up on notification {} to {} after {} attempts: {}", notification.getId(),
+                notification.getRecipient(), notification.getAttempts(), failure.getMessage());
+            return false;
+        }
+
+        long delaySeconds = Math.min(retryBaseSeconds << Math.min(notification.getAttempts() - 1, 20), MAX_RETRY_DELAY_SECONDS);
+        logger.warn("Notification {} failed on attempt {}, retrying in {}s: {}",
+            notification.getId(), notification.getAttempts(), delaySeconds, failure.getMessage());
+        notificationQueueService.reschedule(notification.getId(), LocalDateTime.now().plusSeconds(delaySeconds),
+            failure.getMessage());
+        return true;
+    }
+}
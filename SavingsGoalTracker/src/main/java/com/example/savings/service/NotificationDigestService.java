@@ -0,0 +1,142 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationDigestEntry;
+import com.example.savings.model.OutboxEvent;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.User;
+import com.example.savings.repository.NotificationDigestEntryRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import com.example.savings.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Collects rule-triggered notifications per user and sends them as one digest email once the
+ * user's digest window has passed, so a nightly run that triggers ten rules sends one email
+ * instead of ten. Users who chose immediate notifications still get one email per transfer.
+ */
+@Service
+public class NotificationDigestService {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    @Autowired
+    private NotificationDigestEntryRepository digestEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private NotificationRateLimiter notificationRateLimiter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${notifications.digest.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${notifications.digest.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * Handle a rule-triggered notification whose transfer has completed, according to the user's
+     * preference, and complete its outbox event in the same transaction. Immediate notifications
+     * over the user's rate limit are reported in the next digest instead. Nothing is sent if the
+     * relay no longer owns the event, since the relay that does will send it.
+     */
+    @Transactional
+    public void submit(Transaction transaction, OutboxEvent outboxEvent) {
+        if (!outboxService.complete(outboxEvent)) {
+            return;
+        }
+        User user = transaction.getSavingsGoal().getUser();
+        User.NotificationMode mode = user.getRuleNotificationMode();
+        if (mode == User.NotificationMode.IMMEDIATE && !notificationRateLimiter.tryAcquire(user.getId())) {
+            mode = User.NotificationMode.DIGEST;
+        }
+        switch (mode) {
+            case IMMEDIATE:
+                notificationService.sendSavingsRuleTriggeredNotification(user, transaction.getSavingsRule(), transaction);
+                break;
+            case DIGEST:
+                NotificationDigestEntry entry = new NotificationDigestEntry();
+                entry.setUserId(user.getId());
+                entry.setTransactionId(transaction.getId());
+                entry.setRuleName(transaction.getSavingsRule().getName());
+                entry.setGoalId(transaction.getSavingsGoal().getId());
+                entry.setGoalName(transaction.getSavingsGoal().getName());
+                entry.setAmount(transaction.getAmount());
+                entry.setCreatedAt(LocalDateTime.now());
+                digestEntryRepository.save(entry);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Send the digests whose window has closed - runs every notifications.digest.flush-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${notifications.digest.flush-interval-ms:60000}")
+    public void flushDueDigests() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(windowMinutes);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> userIds;
+        do {
+            try {
+                // Sent entries are deleted, so the next batch is always the first page again
+                userIds = transactionTemplate.execute(status -> {
+                    List<Long> due = digestEntryRepository.findUsersDue(cutoff, PageRequest.of(0, batchSize));
+                    sendDigests(due);
+                    return due;
+                });
+            } catch (RuntimeException e) {
+                logger.error("Failed to send savings digests, retrying later: {}", e.getMessage(), e);
+                return;
+            }
+        } while (userIds.size() == batchSize);
+    }
+
+    /**
+     * Queue one digest per user and delete the entries it covered, in the caller's transaction.
+     */
+    private void sendDigests(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<NotificationDigestEntry> entries = digestEntryRepository.findByUserIdInOrderById(userIds);
+        Map<Long, List<NotificationDigestEntry>> entriesByUser = entries.stream()
+            .collect(Collectors.groupingBy(NotificationDigestEntry::getUserId));
+        Set<Long> goalIds = entries.stream().map(NotificationDigestEntry::getGoalId).collect(Collectors.toSet());
+        Map<Long, SavingsGoal> goals = new HashMap<>();
+        savingsGoalRepository.findAllById(goalIds).forEach(goal -> goals.put(goal.getId(), goal));
+
+        notificationService.sendSavingsDigests(userRepository.findAllById(userIds), entriesByUser, goals);
+        digestEntryRepository.deleteAllByIdInBatch(
+            entries.stream().map(NotificationDigestEntry::getId).collect(Collectors.toList()));
+    }
+}
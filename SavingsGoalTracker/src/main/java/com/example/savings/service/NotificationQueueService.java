@@ -0,0 +1,86 @@
+package com.example.savings.service;
+
+import com.example.savings.model.QueuedNotification;
+import com.example.savings.repository.QueuedNotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage side of the outgoing email queue. Messages are written inside the caller's transaction
+ * when there is one, so an email exists exactly when the change it reports was committed.
+ * {@link NotificationDeliveryService} sends them.
+ */
+@Service
+public class NotificationQueueService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private QueuedNotificationRepository queuedNotificationRepository;
+
+    @Value("${notifications.delivery.lease-seconds:120}")
+    private long leaseSeconds;
+
+    /**
+     * Queue an email with a plain-text body and, if {@code htmlBody} is not null, an HTML version
+     * of it.
+     */
+    @Transactional
+    public void enqueue(String recipient, String subject, String body, String htmlBody) {
+        LocalDateTime now = LocalDateTime.now();
+        QueuedNotification notification = new QueuedNotification();
+        notification.setRecipient(recipient);
+        notification.setSubject(subject);
+        notification.setBody(body);
+        notification.setHtmlBody(htmlBody);
+        notification.setCreatedAt(now);
+        notification.setNextAttemptAt(now);
+        notification.setAttempts(0);
+        queuedNotificationRepository.save(notification);
+    }
+
+    /**
+     * Claim up to {@code batchSize} due notifications, oldest first. A claimed notification is not
+     * offered again until its lease runs out.
+     */
+    @Transactional
+    public List<QueuedNotification> claimBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+
+        List<QueuedNotification> claimed = new ArrayList<>();
+        for (QueuedNotification notification : queuedNotificationRepository.findDue(now, PageRequest.of(0, batchSize))) {
+            if (queuedNotificationRepository.claim(notification.getId(), notification.getAttempts(), leaseUntil) == 1) {
+                notification.setAttempts(notification.getAttempts() + 1);
+                notification.setNextAttemptAt(leaseUntil);
+                claimed.add(notification);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Remove notifications that were sent or given up on.
+     */
+    @Transactional
+    public void complete(List<Long> notificationIds) {
+        if (!notificationIds.isEmpty()) {
+            queuedNotificationRepository.deleteAllByIdInBatch(notificationIds);
+        }
+    }
+
+    @Transactional
+    public void reschedule(Long notificationId, LocalDateTime nextAttemptAt, String error) {
+        queuedNotificationRepository.findById(notificationId).ifPresent(stored -> {
+            stored.setNextAttemptAt(nextAttemptAt);
+            stored.setLastError(error == null || error.length() <= MAX_ERROR_LENGTH
+                ? error : error.substring(0, MAX_ERROR_LENGTH));
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.savings.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user token bucket for event-driven emails. A user can receive up to
+ * {@code notifications.rate-limit.capacity} of them in a burst, then
+ * {@code notifications.rate-limit.refill-per-hour}. Buckets are kept in memory per instance; an
+ * idle bucket is dropped once it would have refilled completely, which loses nothing.
+ */
+@Service
+public class NotificationRateLimiter {
+    private static final long NANOS_PER_HOUR = Duration.ofHours(1).toNanos();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.rate-limit.capacity:6}")
+    private int capacity;
+
+    @Value("${notifications.rate-limit.refill-per-hour:2}")
+    private double refillPerHour;
+
+    private long nanosPerToken;
+    private Cache<Long, TokenBucket> buckets;
+    private Counter limited;
+
+    @PostConstruct
+    public void init() {
+        nanosPerToken = (long) (NANOS_PER_HOUR / refillPerHour);
+        buckets = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofNanos(nanosPerToken * capacity))
+            .build();
+        limited = Counter.builder("notifications.rate.limited")
+            .description("Emails held back by the per-user notification rate limit")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Take a token from the user's bucket. Returns false if the user has had their share of
+     * emails for now.
+     */
+    public boolean tryAcquire(long userId) {
+        boolean acquired = buckets.get(userId, id -> new TokenBucket(System.nanoTime() - nanosPerToken * capacity))
+            .tryAcquire(System.nanoTime(), nanosPerToken, capacity);
+        if (!acquired) {
+            limited.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * Tokens are not stored; a bucket only holds the time at which it was last empty, so a token
+     * is available whenever that time is at least one refill interval in the past.
+     */
+    private static final class TokenBucket {
+        private final AtomicLong emptyAt;
+
+        private TokenBucket(long emptyAt) {
+            this.emptyAt = new AtomicLong(emptyAt);
+        }
+
+        private boolean tryAcquire(long now, long nanosPerToken, int capacity) {
+            while (true) {
+                long current = emptyAt.get();
+                // A bucket cannot hold more than capacity tokens however long it was idle
+                long start = Math.max(current, now - nanosPerToken * capacity);
+                long next = start + nanosPerToken;
+                if (next > now) {
+                    return false;
+                }
+                if (emptyAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
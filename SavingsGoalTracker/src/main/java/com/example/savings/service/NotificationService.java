@@ -1,5 +1,9 @@
 package com.example.savings.service;
 
+import com.example.savings.model.Money;
+import com.example.savings.model.NotificationDigestEntry;
+import com.example.savings.model.NotificationEvent;
+import com.example.savings.model.OutboxEvent;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.Transaction;
@@ -7,104 +11,131 @@ import com.example.savings.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-
-import java.text.DecimalFormat;
-import java.time.format.DateTimeFormatter;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which notifications to send and publishes them to every {@link NotificationChannel}:
+ * email, the in-app inbox and webhooks. Goal notifications go out at most once per goal and
+ * period, and the event-driven ones are also subject to the user's notification rate limit.
+ */
 @Service
 public class NotificationService {
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
-    private static final DecimalFormat MONEY_FORMAT = new DecimalFormat("$#,##0.00");
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM d, yyyy");
 
     @Autowired
-    private JavaMailSender emailSender;
+    private List<NotificationChannel> channels;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private NotificationDedupService notificationDedupService;
+
+    @Autowired
+    private NotificationRateLimiter notificationRateLimiter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     /**
-     * Send a notification when a savings rule is triggered
+     * Queue a notification for a rule-triggered transaction. It goes out through the outbox once
+     * the transfer has completed, and never if it fails or the current transaction rolls back.
      */
-    @Async
-    public void sendSavingsRuleTriggeredNotification(User user, SavingsRule rule, Transaction transaction) {
-        try {
-            if (user.getEmail() == null || user.getEmail().isEmpty()) {
-                logger.warn("Cannot send notification to user ID {} - no email address", user.getId());
-                return;
-            }
-
-            SavingsGoal goal = rule.getSavingsGoal();
-            double progressPercentage = (goal.getCurrentAmount() / goal.getTargetAmount()) * 100;
+    public void queueSavingsRuleTriggeredNotification(Transaction transaction) {
+        outboxService.enqueue(OutboxEvent.EventType.RULE_TRIGGERED_NOTIFICATION, transaction.getId());
+    }
 
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("Money saved toward your " + goal.getName() + " goal!");
+    /**
+     * Send a notification when a savings rule is triggered. Called by the outbox relay once the
+     * transfer has completed.
+     */
+    public void sendSavingsRuleTriggeredNotification(User user, SavingsRule rule, Transaction transaction) {
+        SavingsGoal goal = transaction.getSavingsGoal();
+        Map<String, Object> model = goalModel(user, goal);
+        model.put("ruleName", rule.getName());
+        model.put("amount", transaction.getAmount());
 
-            StringBuilder body = new StringBuilder();
-            body.append("Hello ").append(user.getFirstName()).append(",\n\n");
-            body.append("Great news! Your savings rule \"").append(rule.getName()).append("\" was triggered.\n\n");
-            body.append("Amount saved: ").append(MONEY_FORMAT.format(transaction.getAmount())).append("\n");
-            body.append("Goal: ").append(goal.getName()).append("\n");
-            body.append("Current progress: ").append(MONEY_FORMAT.format(goal.getCurrentAmount()))
-                .append(" of ").append(MONEY_FORMAT.format(goal.getTargetAmount()))
-                .append(" (").append(String.format("%.1f", progressPercentage)).append("%)\n\n");
+        publish(NotificationEvent.Type.RULE_TRIGGERED, user, goal.getId(), model);
+        logger.info("Queued rule triggered notification to user ID {}", user.getId());
+    }
 
-            if (goal.getTargetDate() != null) {
-                body.append("Target date: ").append(goal.getTargetDate().format(DATE_FORMATTER)).append("\n\n");
+    /**
+     * Send each user one notification listing their rule-triggered savings since their last digest, with
+     * the current progress of the goals involved.
+     */
+    public void sendSavingsDigests(List<User> users, Map<Long, List<NotificationDigestEntry>> entriesByUser,
+                                   Map<Long, SavingsGoal> goals) {
+        int queued = 0;
+        for (User user : users) {
+            List<NotificationDigestEntry> entries = entriesByUser.get(user.getId());
+            if (entries == null || entries.isEmpty()) {
+                continue;
             }
+            publish(NotificationEvent.Type.SAVINGS_DIGEST, user, null, digestModel(user, entries, goals));
+            queued++;
+        }
+        logger.info("Queued {} savings digests", queued);
+    }
 
-            body.append("Keep up the great work!\n\n");
-            body.append("The Savings Goal Tracker Team");
-
-            message.setText(body.toString());
-            emailSender.send(message);
+    private Map<String, Object> digestModel(User user, List<NotificationDigestEntry> entries,
+                                            Map<Long, SavingsGoal> goals) {
+        Money total = Money.ZERO;
+        Set<Long> goalIds = new LinkedHashSet<>();
+        List<Map<String, Object>> saved = new ArrayList<>(entries.size());
+        for (NotificationDigestEntry entry : entries) {
+            total = total.plus(entry.getAmount());
+            goalIds.add(entry.getGoalId());
+            saved.add(Map.of("ruleName", entry.getRuleName(), "amount", entry.getAmount(),
+                "goalName", entry.getGoalName()));
+        }
 
-            logger.info("Sent rule triggered notification to user ID {}", user.getId());
-        } catch (Exception e) {
-            logger.error("Failed to send rule triggered notification to user ID {}: {}",
-                    user.getId(), e.getMessage(), e);
+        List<Map<String, Object>> progress = new ArrayList<>();
+        for (Long goalId : goalIds) {
+            SavingsGoal goal = goals.get(goalId);
+            if (goal != null) {
+                progress.add(Map.of("name", goal.getName(), "currentAmount", goal.getCurrentAmount(),
+                    "targetAmount", goal.getTargetAmount(),
+                    "progress", goal.getCurrentAmount().percentOf(goal.getTargetAmount())));
+            }
         }
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("firstName", user.getFirstName());
+        model.put("count", entries.size());
+        model.put("single", entries.size() == 1);
+        model.put("entries", saved);
+        model.put("total", total);
+        model.put("hasGoals", !progress.isEmpty());
+        model.put("goals", progress);
+        return model;
     }
 
     /**
      * Send a notification when a goal is near completion
      */
-    @Async
     public void sendGoalNearCompletionNotification(User user, SavingsGoal goal, double progressPercentage) {
         try {
-            if (user.getEmail() == null || user.getEmail().isEmpty()) {
-                logger.warn("Cannot send notification to user ID {} - no email address", user.getId());
-                return;
-            }
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("You're almost there! Your " + goal.getName() + " goal is nearly complete!");
+            Map<String, Object> model = goalModel(user, goal);
+            model.put("progress", progressPercentage);
+            model.put("remaining", goal.getTargetAmount().minus(goal.getCurrentAmount()));
 
-            StringBuilder body = new StringBuilder();
-            body.append("Hello ").append(user.getFirstName()).append(",\n\n");
-            body.append("Congratulations! You're almost at your goal!\n\n");
-            body.append("Goal: ").append(goal.getName()).append("\n");
-            body.append("Current amount: ").append(MONEY_FORMAT.format(goal.getCurrentAmount())).append("\n");
-            body.append("Target amount: ").append(MONEY_FORMAT.format(goal.getTargetAmount())).append("\n");
-            body.append("Progress: ").append(String.format("%.1f", progressPercentage)).append("%\n\n");
-
-            double remaining = goal.getTargetAmount() - goal.getCurrentAmount();
-            body.append("You only need ").append(MONEY_FORMAT.format(remaining)).append(" more to reach your goal!\n\n");
-
-            if (goal.getTargetDate() != null) {
-                body.append("Target date: ").append(goal.getTargetDate().format(DATE_FORMATTER)).append("\n\n");
+            // Sent once per target amount, so raising the target re-arms it
+            if (queueOnce(user, goal, NotificationEvent.Type.GOAL_NEAR_COMPLETION, targetPeriod(goal), true, model)) {
+                logger.info("Queued goal near completion notification to user ID {}", user.getId());
             }
-
-            body.append("Keep up the great work!\n\n");
-            body.append("The Savings Goal Tracker Team");
-
-            message.setText(body.toString());
-            emailSender.send(message);
-
-            logger.info("Sent goal near completion notification to user ID {}", user.getId());
         } catch (Exception e) {
             logger.error("Failed to send goal near completion notification to user ID {}: {}",
                     user.getId(), e.getMessage(), e);
@@ -114,47 +145,14 @@ public class NotificationService {
     /**
      * Send a notification when a goal is completed
      */
-    @Async
     public void sendGoalCompletedNotification(User user, SavingsGoal goal) {
         try {
-            if (user.getEmail() == null || user.getEmail().isEmpty()) {
-                logger.warn("Cannot send notification to user ID {} - no email address", user.getId());
-                return;
-            }
+            Map<String, Object> model = goalModel(user, goal);
+            model.put("aheadOfSchedule", goal.getTargetDate() != null && goal.getTargetDate().isAfter(LocalDate.now()));
 
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("Congratulations! You've reached your " + goal.getName() + " goal!");
-
-            StringBuilder body = new StringBuilder();
-            body.append("Hello ").append(user.getFirstName()).append(",\n\n");
-            body.append("CONGRATULATIONS! You've reached your savings goal!\n\n");
-            body.append("Goal: ").append(goal.getName()).append("\n");
-            body.append("Amount saved: ").append(MONEY_FORMAT.format(goal.getCurrentAmount())).append("\n");
-
-            if (goal.getTargetDate() != null) {
-                if (goal.getTargetDate().isAfter(java.time.LocalDate.now())) {
-                    body.append("You reached your goal ahead of schedule! Your target date was ")
-                        .append(goal.getTargetDate().format(DATE_FORMATTER)).append(".\n\n");
-                } else {
-                    body.append("You reached your goal on time! Your target date was ")
-                        .append(goal.getTargetDate().format(DATE_FORMATTER)).append(".\n\n");
-                }
+            if (queueOnce(user, goal, NotificationEvent.Type.GOAL_COMPLETED, targetPeriod(goal), false, model)) {
+                logger.info("Queued goal completion notification to user ID {}", user.getId());
             }
-
-            body.append("This is a huge achievement! What would you like to do next?\n\n");
-            body.append("1. Create a new savings goal\n");
-            body.append("2. Increase your current goal amount\n");
-            body.append("3. Keep your money saved and continue earning interest\n\n");
-
-            body.append("Log in to your account to manage your completed goal.\n\n");
-            body.append("Congratulations again on this significant financial milestone!\n\n");
-            body.append("The Savings Goal Tracker Team");
-
-            message.setText(body.toString());
-            emailSender.send(message);
-
-            logger.info("Sent goal completion notification to user ID {}", user.getId());
         } catch (Exception e) {
             logger.error("Failed to send goal completion notification to user ID {}: {}",
                     user.getId(), e.getMessage(), e);
@@ -164,45 +162,77 @@ public class NotificationService {
     /**
      * Send a weekly progress report
      */
-    @Async
-    public void sendWeeklyProgressReport(User user, SavingsGoal goal, double weeklyAmount, double monthlyAmount) {
+    public void sendWeeklyProgressReport(User user, SavingsGoal goal, Money weeklyAmount, Money monthlyAmount) {
         try {
-            if (user.getEmail() == null || user.getEmail().isEmpty()) {
-                logger.warn("Cannot send weekly report to user ID {} - no email address", user.getId());
-                return;
+            Map<String, Object> model = goalModel(user, goal);
+            model.put("weeklyAmount", weeklyAmount);
+            model.put("monthlyAmount", monthlyAmount);
+
+            LocalDate today = LocalDate.now();
+            String week = today.get(IsoFields.WEEK_BASED_YEAR) + "-W" + today.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            if (queueOnce(user, goal, NotificationEvent.Type.WEEKLY_REPORT, week, false, model)) {
+                logger.info("Queued weekly progress report to user ID {}", user.getId());
             }
+        } catch (Exception e) {
+            logger.error("Failed to send weekly progress report to user ID {}: {}",
+                    user.getId(), e.getMessage(), e);
+        }
+    }
 
-            double progressPercentage = (goal.getCurrentAmount() / goal.getTargetAmount()) * 100;
-
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("Your Weekly Savings Progress Report");
-
-            StringBuilder body = new StringBuilder();
-            body.append("Hello ").append(user.getFirstName()).append(",\n\n");
-            body.append("Here's your weekly savings progress report:\n\n");
-            body.append("Goal: ").append(goal.getName()).append("\n");
-            body.append("Current progress: ").append(MONEY_FORMAT.format(goal.getCurrentAmount()))
-                .append(" of ").append(MONEY_FORMAT.format(goal.getTargetAmount()))
-                .append(" (").append(String.format("%.1f", progressPercentage)).append("%)\n\n");
+    /** The user and goal values shared by the single-goal templates. */
+    private static Map<String, Object> goalModel(User user, SavingsGoal goal) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("firstName", user.getFirstName());
+        model.put("goalName", goal.getName());
+        model.put("currentAmount", goal.getCurrentAmount());
+        model.put("targetAmount", goal.getTargetAmount());
+        model.put("progress", goal.getCurrentAmount().percentOf(goal.getTargetAmount()));
+        model.put("targetDate", goal.getTargetDate());
+        return model;
+    }
 
-            body.append("Amount saved this week: ").append(MONEY_FORMAT.format(weeklyAmount)).append("\n");
-            body.append("Amount saved this month: ").append(MONEY_FORMAT.format(monthlyAmount)).append("\n\n");
+    private static String targetPeriod(SavingsGoal goal) {
+        return "target-" + goal.getTargetAmount().getCents();
+    }
 
-            if (goal.getTargetDate() != null) {
-                body.append("Target date: ").append(goal.getTargetDate().format(DATE_FORMATTER)).append("\n\n");
+    /**
+     * Publish a goal notification unless it was already sent for {@code period} or, when
+     * {@code rateLimited}, the user has reached their notification rate limit. The dedup record
+     * and the channels' writes happen in one transaction of their own, so they commit even if a
+     * caller's transaction later rolls back. Returns whether it was published.
+     */
+    private boolean queueOnce(User user, SavingsGoal goal, NotificationEvent.Type type, String period,
+                              boolean rateLimited, Map<String, Object> model) {
+        if (notificationDedupService.wasSent(user.getId(), goal.getId(), type, period)) {
+            logger.debug("Skipping {} for goal ID {} - already sent for {}", type, goal.getId(), period);
+            return false;
+        }
+        if (rateLimited && !notificationRateLimiter.tryAcquire(user.getId())) {
+            // Not recorded as sent, so the next check tries again
+            logger.info("Deferring {} for goal ID {} - user ID {} is over the notification rate limit",
+                type, goal.getId(), user.getId());
+            return false;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Boolean queued = transactionTemplate.execute(status -> {
+            if (!notificationDedupService.markSent(user.getId(), goal.getId(), type, period)) {
+                return false;
             }
+            publish(type, user, goal.getId(), model);
+            return true;
+        });
+        return Boolean.TRUE.equals(queued);
+    }
 
-            body.append("Keep up the great work!\n\n");
-            body.append("The Savings Goal Tracker Team");
-
-            message.setText(body.toString());
-            emailSender.send(message);
-
-            logger.info("Sent weekly progress report to user ID {}", user.getId());
-        } catch (Exception e) {
-            logger.error("Failed to send weekly progress report to user ID {}: {}",
-                    user.getId(), e.getMessage(), e);
+    /**
+     * Hand the event to every channel. Channels only record or queue it, in the caller's
+     * transaction, so a failure in any of them rolls back the others too.
+     */
+    private void publish(NotificationEvent.Type type, User user, Long goalId, Map<String, Object> model) {
+        NotificationEvent event = new NotificationEvent(type, user, goalId, model, LocalDateTime.now());
+        for (NotificationChannel channel : channels) {
+            channel.publish(event);
         }
     }
 }
@@ -0,0 +1,334 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Money;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A notification template, parsed once into a tree of text, variables and sections and then
+ * rendered any number of times from any thread.
+ *
+ * Syntax is a small subset of Mustache:
+ * <ul>
+ *   <li>{@code {{name}}} - a value from the model. Money renders as {@code $1,234.56}, dates as
+ *       {@code March 5, 2025}, doubles with one decimal, anything else with toString(). HTML
+ *       templates escape the result.</li>
+ *   <li>{@code {{#name}}...{{/name}}} - rendered once per element if the value is a list, once if it
+ *       is any other value except null, false or an empty list. Inside, names are looked up in the
+ *       current element first when it is a map.</li>
+ *   <li>{@code {{^name}}...{{/name}}} - rendered only when {@code {{#name}}} would not be.</li>
+ * </ul>
+ * A section tag on a line of its own does not leave a blank line behind.
+ */
+final class NotificationTemplate {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM d, yyyy");
+    // Buffers that grew past this while rendering an unusually large message are not kept
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<RenderState> RENDER_STATE = ThreadLocal.withInitial(RenderState::new);
+
+    private final boolean html;
+    private final Node[] nodes;
+
+    private NotificationTemplate(boolean html, Node[] nodes) {
+        this.html = html;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Parse {@code source}. HTML templates escape every value they render.
+     *
+     * @throws IllegalArgumentException if the source has an unclosed tag or unbalanced sections
+     */
+    static NotificationTemplate compile(String name, String source, boolean html) {
+        return new NotificationTemplate(html, new Parser(name, source).parse(null));
+    }
+
+    String render(Map<String, ?> model) {
+        RenderState state = RENDER_STATE.get();
+        StringBuilder out = state.buffer;
+        out.setLength(0);
+        state.scopes.clear();
+        state.scopes.add(model);
+        try {
+            renderNodes(nodes, out, state.scopes);
+            return out.toString();
+        } finally {
+            state.scopes.clear();
+            if (out.capacity() > MAX_RETAINED_BUFFER) {
+                RENDER_STATE.remove();
+            }
+        }
+    }
+
+    private void renderNodes(Node[] nodes, StringBuilder out, List<Object> scopes) {
+        for (Node node : nodes) {
+            if (node instanceof Text) {
+                out.append(((Text) node).text);
+            } else if (node instanceof Variable) {
+                Object value = lookup(scopes, ((Variable) node).name);
+                if (value != null) {
+                    appendValue(out, value);
+                }
+            } else {
+                renderSection((Section) node, out, scopes);
+            }
+        }
+    }
+
+    private void renderSection(Section section, StringBuilder out, List<Object> scopes) {
+        Object value = lookup(scopes, section.name);
+        if (section.inverted) {
+            if (!isTruthy(value)) {
+                renderNodes(section.body, out, scopes);
+            }
+            return;
+        }
+        if (value instanceof Iterable) {
+            for (Object item : (Iterable<?>) value) {
+                scopes.add(item);
+                renderNodes(section.body, out, scopes);
+                scopes.remove(scopes.size() - 1);
+            }
+        } else if (isTruthy(value)) {
+            scopes.add(value);
+            renderNodes(section.body, out, scopes);
+            scopes.remove(scopes.size() - 1);
+        }
+    }
+
+    private static Object lookup(List<Object> scopes, String name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Object scope = scopes.get(i);
+            if (scope instanceof Map && ((Map<?, ?>) scope).containsKey(name)) {
+                return ((Map<?, ?>) scope).get(name);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value == null || Boolean.FALSE.equals(value)) {
+            return false;
+        }
+        return !(value instanceof Iterable) || ((Iterable<?>) value).iterator().hasNext();
+    }
+
+    private void appendValue(StringBuilder out, Object value) {
+        if (value instanceof Money) {
+            appendMoney(out, ((Money) value).getCents());
+        } else if (value instanceof Double || value instanceof Float) {
+            appendOneDecimal(out, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            out.append(((Number) value).longValue());
+        } else if (value instanceof TemporalAccessor) {
+            DATE_FORMATTER.formatTo((TemporalAccessor) value, out);
+        } else if (html) {
+            appendEscaped(out, value.toString());
+        } else {
+            out.append(value);
+        }
+    }
+
+    /** Same output as {@code new DecimalFormat("$#,##0.00")}, without the shared, unsafe formatter. */
+    static void appendMoney(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        out.append('$');
+        // Negate through unsigned arithmetic so Long.MIN_VALUE does not overflow
+        long magnitude = Math.abs(cents);
+        long dollars = Long.divideUnsigned(magnitude, 100);
+        long fraction = Long.remainderUnsigned(magnitude, 100);
+        appendGrouped(out, dollars);
+        out.append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static void appendGrouped(StringBuilder out, long value) {
+        if (value < 1000) {
+            out.append(value);
+            return;
+        }
+        appendGrouped(out, value / 1000);
+        long group = value % 1000;
+        out.append(',');
+        if (group < 100) {
+            out.append('0');
+        }
+        if (group < 10) {
+            out.append('0');
+        }
+        out.append(group);
+    }
+
+    /** Same output as {@code String.format("%.1f", value)} for finite values, rounding half up. */
+    static void appendOneDecimal(StringBuilder out, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(value);
+            return;
+        }
+        long tenths = Math.round(Math.abs(value) * 10);
+        if (value < 0 && tenths != 0) {
+            out.append('-');
+        }
+        out.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private static void appendEscaped(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&#39;");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static final class RenderState {
+        private final StringBuilder buffer = new StringBuilder(1024);
+        private final List<Object> scopes = new ArrayList<>();
+    }
+
+    private abstract static class Node {
+    }
+
+    private static final class Text extends Node {
+        private final String text;
+
+        private Text(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Variable extends Node {
+        private final String name;
+
+        private Variable(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Section extends Node {
+        private final String name;
+        private final boolean inverted;
+        private final Node[] body;
+
+        private Section(String name, boolean inverted, Node[] body) {
+            this.name = name;
+            this.inverted = inverted;
+            this.body = body;
+        }
+    }
+
+    private static final class Parser {
+        private final String templateName;
+        private final String source;
+        private int position;
+
+        private Parser(String templateName, String source) {
+            this.templateName = templateName;
+            this.source = source;
+        }
+
+        /** Parse until the closing tag of {@code section}, or to the end when it is null. */
+        private Node[] parse(String section) {
+            List<Node> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (position < source.length()) {
+                int open = source.indexOf("{{", position);
+                if (open < 0) {
+                    text.append(source, position, source.length());
+                    position = source.length();
+                    break;
+                }
+                int close = source.indexOf("}}", open + 2);
+                if (close < 0) {
+                    throw error("unclosed tag at offset " + open);
+                }
+                String tag = source.substring(open + 2, close).trim();
+                if (tag.isEmpty()) {
+                    throw error("empty tag at offset " + open);
+                }
+                char sigil = tag.charAt(0);
+                boolean sectionTag = sigil == '#' || sigil == '^' || sigil == '/';
+                int textEnd = open;
+                int next = close + 2;
+                if (sectionTag) {
+                    // A section tag alone on its line takes the whole line with it
+                    int lineStart = source.lastIndexOf('\n', open - 1) + 1;
+                    int lineEnd = source.indexOf('\n', next);
+                    if (lineEnd < 0) {
+                        lineEnd = source.length();
+                    }
+                    if (lineStart >= position && isBlank(lineStart, open) && isBlank(next, lineEnd)) {
+                        textEnd = lineStart;
+                        next = Math.min(lineEnd + 1, source.length());
+                    }
+                }
+                text.append(source, position, textEnd);
+                position = next;
+                flushText(nodes, text);
+
+                String tagName = sectionTag ? tag.substring(1).trim() : tag;
+                if (sigil == '/') {
+                    if (!tagName.equals(section)) {
+                        throw error("unexpected {{/" + tagName + "}}");
+                    }
+                    return nodes.toArray(new Node[0]);
+                } else if (sectionTag) {
+                    nodes.add(new Section(tagName, sigil == '^', parse(tagName)));
+                } else {
+                    nodes.add(new Variable(tagName));
+                }
+            }
+            if (section != null) {
+                throw error("section {{#" + section + "}} is never closed");
+            }
+            flushText(nodes, text);
+            return nodes.toArray(new Node[0]);
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                char c = source.charAt(i);
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void flushText(List<Node> nodes, StringBuilder text) {
+            if (text.length() > 0) {
+                nodes.add(new Text(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid notification template " + templateName + ": " + message);
+        }
+    }
+}
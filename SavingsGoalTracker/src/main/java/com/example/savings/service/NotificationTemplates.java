@@ -0,0 +1,112 @@
+package com.example.savings.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The email templates under {@code classpath:templates/notifications}, compiled once at startup.
+ *
+ * Each email {@code name} has a {@code name.txt} whose first line is the subject and whose
+ * remaining lines, after one blank line, are the plain-text body. An optional {@code name.html}
+ * is sent alongside it as the HTML version of the body.
+ */
+@Service
+public class NotificationTemplates {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationTemplates.class);
+    private static final String LOCATION = "classpath:templates/notifications/";
+
+    private final Map<String, CompiledEmail> emails = new HashMap<>();
+
+    @PostConstruct
+    public void load() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (Resource text : resolver.getResources(LOCATION + "*.txt")) {
+            String fileName = text.getFilename();
+            String name = fileName.substring(0, fileName.length() - ".txt".length());
+
+            String source = read(text);
+            int subjectEnd = source.indexOf('\n');
+            if (subjectEnd < 0 || !source.startsWith("\n", subjectEnd + 1)) {
+                throw new IllegalStateException("Notification template " + fileName
+                    + " must start with a subject line followed by a blank line");
+            }
+
+            Resource html = resolver.getResource(LOCATION + name + ".html");
+            emails.put(name, new CompiledEmail(
+                NotificationTemplate.compile(name + " subject", source.substring(0, subjectEnd).trim(), false),
+                NotificationTemplate.compile(fileName, source.substring(subjectEnd + 2), false),
+                html.exists() ? NotificationTemplate.compile(name + ".html", read(html), true) : null));
+        }
+        logger.info("Compiled {} notification templates", emails.size());
+    }
+
+    /**
+     * Render the email {@code name} from {@code model}.
+     *
+     * @throws IllegalArgumentException if there is no such template
+     */
+    RenderedEmail render(String name, Map<String, ?> model) {
+        CompiledEmail email = emails.get(name);
+        if (email == null) {
+            throw new IllegalArgumentException("No notification template named " + name);
+        }
+        return new RenderedEmail(email.subject.render(model), email.text.render(model),
+            email.html == null ? null : email.html.render(model));
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            // Normalize line endings so templates edited on Windows render the same, and drop the
+            // file's final line break so a body does not end with one
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            return source.endsWith("\n") ? source.substring(0, source.length() - 1) : source;
+        }
+    }
+
+    private static final class CompiledEmail {
+        private final NotificationTemplate subject;
+        private final NotificationTemplate text;
+        private final NotificationTemplate html;
+
+        private CompiledEmail(NotificationTemplate subject, NotificationTemplate text, NotificationTemplate html) {
+            this.subject = subject;
+            this.text = text;
+            this.html = html;
+        }
+    }
+
+    static final class RenderedEmail {
+        private final String subject;
+        private final String text;
+        private final String html;
+
+        private RenderedEmail(String subject, String text, String html) {
+            this.subject = subject;
+            this.text = text;
+            this.html = html;
+        }
+
+        String subject() {
+            return subject;
+        }
+
+        String text() {
+            return text;
+        }
+
+        /** The HTML body, or null for a plain-text only email. */
+        String html() {
+            return html;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.savings.service;
+
+import com.example.savings.model.OutboxEvent;
+import com.example.savings.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Delivers outbox events: sends bank transfers and rule-triggered notifications after the
+ * transactions that recorded them have committed. Delivery is at least once, so every handler is
+ * safe to repeat: transfers carry an idempotency key and settle only a PENDING transaction.
+ */
+@Service
+public class OutboxRelayService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelayService.class);
+    private static final long MAX_RETRY_DELAY_SECONDS = 3600;
+    private static final long PENDING_TRANSFER_RECHECK_SECONDS = 300;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BankApiService bankApiService;
+
+    @Autowired
+    private NotificationDigestService notificationDigestService;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.retry-base-seconds:5}")
+    private long retryBaseSeconds;
+
+    /**
+     * Deliver due outbox events in batches - runs every outbox.relay.interval-ms
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:1000}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxService.findDue(batchSize);
+            for (OutboxEvent event : batch) {
+                // Claimed one at a time, so events later in the batch are not leased while
+                // earlier ones wait on the bank
+                if (outboxService.claim(event)) {
+                    deliver(event);
+                }
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void deliver(OutboxEvent event) {
+        try {
+            switch (event.getEventType()) {
+                case BANK_TRANSFER:
+                    deliverTransfer(event);
+                    break;
+                case TRANSFER_RECONCILIATION:
+                    reconcileTransfer(event);
+                    break;
+                case RULE_TRIGGERED_NOTIFICATION:
+                    deliverRuleTriggeredNotification(event);
+                    break;
+                default:
+                    logger.warn("Dropping outbox event {} of unknown type {}", event.getId(), event.getEventType());
+                    outboxService.complete(event);
+            }
+        } catch (Exception e) {
+            handleFailure(event, e);
+        }
+    }
+
+    private void deliverTransfer(OutboxEvent event) {
+        Optional<Transaction> transactionOpt = transactionService.findForTransfer(event.getAggregateId());
+        if (transactionOpt.isEmpty() || transactionOpt.get().getStatus() != Transaction.TransactionStatus.PENDING) {
+            outboxService.complete(event);
+            return;
+        }
+
+        Transaction transaction = transactionOpt.get();
+        boolean transferSuccess = bankApiService.transferFunds(
+            transaction.getSourceAccount(),
+            transaction.getSavingsGoal().getDestinationAccount(),
+            transaction.getAmount(),
+            transferReference(transaction)
+        );
+        transactionService.settleTransfer(transaction.getId(), transferSuccess, event);
+    }
+
+    /**
+     * Settle a transfer whose sending kept failing without a definitive answer, from what the bank
+     * knows under its reference. A transfer the bank never received is marked FAILED: it is no
+     * longer being sent, so it cannot be executed later.
+     */
+    private void reconcileTransfer(OutboxEvent event) {
+        Optional<Transaction> transactionOpt = transactionService.findForTransfer(event.getAggregateId());
+        if (transactionOpt.isEmpty() || transactionOpt.get().getStatus() != Transaction.TransactionStatus.PENDING) {
+            outboxService.complete(event);
+            return;
+        }
+
+        Transaction transaction = transactionOpt.get();
+        BankApiService.TransferOutcome outcome = bankApiService.lookupTransfer(
+            transaction.getSourceAccount(), transferReference(transaction));
+        logger.info("Reconciled transfer for transaction {}: {}", transaction.getId(), outcome);
+        transactionService.settleTransfer(transaction.getId(), outcome == BankApiService.TransferOutcome.EXECUTED, event);
+    }
+
+    private void deliverRuleTriggeredNotification(OutboxEvent event) {
+        Optional<Transaction> transactionOpt = transactionService.findForNotification(event.getAggregateId());
+        if (transactionOpt.isEmpty() || transactionOpt.get().getStatus() == Transaction.TransactionStatus.FAILED) {
+            outboxService.complete(event);
+            return;
+        }
+
+        Transaction transaction = transactionOpt.get();
+        if (transaction.getStatus() == Transaction.TransactionStatus.PENDING) {
+            // Only announce money that has actually moved. A transfer can stay PENDING for hours in
+            // reconciliation, so waiting does not use up attempts; settleTransfer makes the event
+            // due again, and the recheck only covers a settlement that raced with this deferral.
+            outboxService.defer(event, LocalDateTime.now().plusSeconds(PENDING_TRANSFER_RECHECK_SECONDS));
+            return;
+        }
+
+        notificationDigestService.submit(transaction, event);
+    }
+
+    /**
+     * Retry with exponential backoff. Exceptions leave a transfer's outcome unknown (definitive
+     * rejections settle it as FAILED without one), so a transfer that keeps failing is never
+     * marked FAILED here: it is parked for reconciliation, which asks the bank by reference and
+     * is retried until the bank answers. A notification is dropped.
+     */
+    private void handleFailure(OutboxEvent event, Exception e) {
+        long delaySeconds = Math.min(retryBaseSeconds << Math.min(event.getAttempts() - 1, 20), MAX_RETRY_DELAY_SECONDS);
+        if (event.getAttempts() < maxAttempts) {
+            logger.warn("Outbox event {} ({}) failed on attempt {}, retrying in {}s: {}",
+                event.getId(), event.getEventType(), event.getAttempts(), delaySeconds, e.getMessage());
+            outboxService.reschedule(event, LocalDateTime.now().plusSeconds(delaySeconds), e.getMessage());
+            return;
+        }
+
+        try {
+            switch (event.getEventType()) {
+                case BANK_TRANSFER:
+                    logger.error("Transfer for transaction {} failed {} times without a definitive answer; " +
+                        "reconciling with the bank in {}s: {}", event.getAggregateId(), event.getAttempts(), delaySeconds, e.getMessage());
+                    // Delayed so the last attempt cannot still be in flight when the bank is asked
+                    outboxService.replace(event, OutboxEvent.EventType.TRANSFER_RECONCILIATION,
+                        LocalDateTime.now().plusSeconds(delaySeconds), e.getMessage());
+                    break;
+                case TRANSFER_RECONCILIATION:
+                    logger.error("Reconciling the transfer for transaction {} failed {} times, retrying in {}s: {}",
+                        event.getAggregateId(), event.getAttempts(), delaySeconds, e.getMessage());
+                    outboxService.reschedule(event, LocalDateTime.now().plusSeconds(delaySeconds), e.getMessage());
+                    break;
+                default:
+                    logger.error("Giving up on outbox event {} ({}) for id {} after {} attempts: {}",
+                        event.getId(), event.getEventType(), event.getAggregateId(), event.getAttempts(), e.getMessage(), e);
+                    outboxService.complete(event);
+            }
+        } catch (RuntimeException closeFailure) {
+            logger.error("Failed to close out outbox event {}: {}", event.getId(), closeFailure.getMessage(), closeFailure);
+        }
+    }
+
+    /**
+     * Reference the bank knows a transfer by; also its idempotency key, so it never changes between attempts.
+     */
+    private static String transferReference(Transaction transaction) {
+        return "transaction-" + transaction.getId();
+    }
+}
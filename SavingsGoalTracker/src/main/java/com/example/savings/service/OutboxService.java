@@ -0,0 +1,134 @@
+package com.example.savings.service;
+
+import com.example.savings.model.OutboxEvent;
+import com.example.savings.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Storage side of the transactional outbox. Events are written inside the caller's transaction, so
+ * they exist exactly when the change they describe was committed. {@link OutboxRelayService}
+ * delivers them.
+ */
+@Service
+public class OutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Value("${outbox.relay.lease-seconds:60}")
+    private long leaseSeconds;
+
+    /**
+     * Record an event as part of the current transaction. There must be one: an event written on
+     * its own could be delivered for a change that is later rolled back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(OutboxEvent.EventType eventType, Long aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        event.setAttempts(0);
+        return outboxEventRepository.save(event);
+    }
+
+    /**
+     * Up to {@code limit} due events, oldest first. They are not claimed yet: the relay claims
+     * each one with {@link #claim} just before delivering it.
+     */
+    public List<OutboxEvent> findDue(int limit) {
+        return outboxEventRepository.findDue(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Claim an event for one delivery. A claimed event is not offered again until its lease runs
+     * out, so an event whose relay died mid-delivery is retried later. The lease only has to
+     * cover this one delivery, so it must exceed the longest bank call.
+     *
+     * @return false if another relay claimed the event first
+     */
+    @Transactional
+    public boolean claim(OutboxEvent event) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+        if (outboxEventRepository.claim(event.getId(), event.getAttempts(), leaseUntil) != 1) {
+            return false;
+        }
+        event.setAttempts(event.getAttempts() + 1);
+        event.setNextAttemptAt(leaseUntil);
+        return true;
+    }
+
+    /**
+     * Remove a delivered event. Joins the caller's transaction when there is one, so the event
+     * disappears together with the changes its delivery made. Until that transaction ends, a
+     * relay that claims the event again waits for it.
+     *
+     * @return false if the caller no longer owns the event: its lease ran out and another relay
+     * claimed or completed the event since
+     */
+    @Transactional
+    public boolean complete(OutboxEvent event) {
+        return outboxEventRepository.deleteClaimed(event.getId(), event.getAttempts()) == 1;
+    }
+
+    /**
+     * Hand a claimed event back without using up the attempt, to be offered again at
+     * {@code nextAttemptAt}: for events that are waiting on something rather than failing.
+     */
+    @Transactional
+    public void defer(OutboxEvent event, LocalDateTime nextAttemptAt) {
+        if (outboxEventRepository.defer(event.getId(), event.getAttempts(), nextAttemptAt) == 1) {
+            logger.debug("Outbox event {} deferred until {}", event.getId(), nextAttemptAt);
+        }
+    }
+
+    /**
+     * Offer an aggregate's deferred events of one type right away, in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void makeDue(OutboxEvent.EventType eventType, Long aggregateId) {
+        outboxEventRepository.makeDue(eventType, aggregateId, LocalDateTime.now());
+    }
+
+    /**
+     * Replace an event with one of another type for the same aggregate, first offered at
+     * {@code nextAttemptAt}, in one transaction. Nothing is replaced if the caller no longer owns
+     * the event.
+     */
+    @Transactional
+    public void replace(OutboxEvent event, OutboxEvent.EventType eventType, LocalDateTime nextAttemptAt, String error) {
+        if (!complete(event)) {
+            return;
+        }
+        OutboxEvent replacement = enqueue(eventType, event.getAggregateId());
+        replacement.setNextAttemptAt(nextAttemptAt);
+        replacement.setLastError(truncate(error));
+    }
+
+    @Transactional
+    public void reschedule(OutboxEvent event, LocalDateTime nextAttemptAt, String error) {
+        outboxEventRepository.findById(event.getId()).ifPresent(stored -> {
+            stored.setNextAttemptAt(nextAttemptAt);
+            stored.setLastError(truncate(error));
+            logger.debug("Outbox event {} rescheduled for {}", event.getId(), nextAttemptAt);
+        });
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.savings.service;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.Transaction;
@@ -11,16 +12,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class SavingsAutomationService {
     private static final Logger logger = LoggerFactory.getLogger(SavingsAutomationService.class);
+    private static final long LARGE_DEPOSIT_CENTS = 100_00L;
 
     @Autowired
     private SavingsRuleRepository savingsRuleRepository;
@@ -29,16 +34,24 @@ public class SavingsAutomationService {
     private TransactionService transactionService;
 
     @Autowired
-    private BankAccountService bankAccountService;
+    private NotificationService notificationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private SavingsGoalService savingsGoalService;
+
+    @Autowired
+    private GoalRollupService goalRollupService;
+
+    @Autowired
+    private TransactionColumnStore transactionColumnStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     /**
      * Process daily savings rules - runs at 1:00 AM every day
      */
     @Scheduled(cron = "0 0 1 * * ?")
-    @Transactional
     public void processDailyRules() {
         logger.info("Processing daily savings rules");
         List<SavingsRule> dailyRules = savingsRuleRepository.findByRuleConditionAndIsActive("DAILY", true);
@@ -49,7 +62,6 @@ public class SavingsAutomationService {
      * Process weekly savings rules - runs at 2:00 AM every Monday
      */
     @Scheduled(cron = "0 0 2 * * MON")
-    @Transactional
     public void processWeeklyRules() {
         logger.info("Processing weekly savings rules");
         List<SavingsRule> weeklyRules = savingsRuleRepository.findByRuleConditionAndIsActive("WEEKLY", true);
@@ -60,7 +72,6 @@ public class SavingsAutomationService {
      * Process monthly savings rules - runs at 3:00 AM on the 1st day of each month
      */
     @Scheduled(cron = "0 0 3 1 * ?")
-    @Transactional
     public void processMonthlyRules() {
         logger.info("Processing monthly savings rules");
         List<SavingsRule> monthlyRules = savingsRuleRepository.findByRuleConditionAndIsActive("MONTHLY", true);
@@ -71,48 +82,44 @@ public class SavingsAutomationService {
      * Process payday savings rules - runs daily at 4:00 AM to check for payday deposits
      */
     @Scheduled(cron = "0 0 4 * * ?")
-    @Transactional
     public void processPaydayRules() {
         logger.info("Checking for payday deposits");
+        if (!transactionColumnStore.awaitLoaded()) {
+            logger.warn("Skipping payday rules: the transaction column store is not loaded");
+            return;
+        }
 
         // Get all active payday rules
         List<SavingsRule> paydayRules = savingsRuleRepository.findByRuleTypeAndIsActive(SavingsRule.RuleType.INCOME_PERCENTAGE, true);
 
-        for (SavingsRule rule : paydayRules) {
-            try {
+        for (SavingsRule paydayRule : paydayRules) {
+            processRule(paydayRule, "payday", rule -> {
                 // Check for recent large deposits in the source account
                 BankAccount sourceAccount = rule.getSourceAccount();
-                List<Transaction> recentDeposits = bankAccountService.getRecentLargeDeposits(
-                    sourceAccount,
+                long[] recentDepositCents = transactionColumnStore.forAccount(sourceAccount.getId()).amountsAtLeast(
                     LocalDateTime.now().minusDays(2),
-                    LocalDateTime.now()
+                    LocalDateTime.now(),
+                    LARGE_DEPOSIT_CENTS
                 );
 
-                if (!recentDeposits.isEmpty()) {
-                    // Process each deposit with the income percentage rule
-                    for (Transaction deposit : recentDeposits) {
-                        double savingsAmount = deposit.getAmount() * (rule.getAmount() / 100.0);
+                // Process each deposit with the income percentage rule
+                for (long depositCents : recentDepositCents) {
+                    Money deposit = Money.ofCents(depositCents);
+                    Money savingsAmount = rule.getAmount().percentageOf(deposit);
 
-                        // Create the savings transaction
-                        Transaction savingsTransaction = transactionService.createTransaction(
-                            rule.getSavingsGoal(),
-                            sourceAccount,
-                            rule,
-                            savingsAmount,
-                            "Automatic " + rule.getAmount() + "% from deposit of $" + deposit.getAmount()
-                        );
+                    // Create the savings transaction
+                    Transaction savingsTransaction = transactionService.createTransaction(
+                        rule.getSavingsGoal(),
+                        sourceAccount,
+                        rule,
+                        savingsAmount,
+                        "Automatic " + rule.getAmount() + "% from deposit of $" + deposit
+                    );
 
-                        // Notify the user
-                        notificationService.sendSavingsRuleTriggeredNotification(
-                            rule.getSavingsGoal().getUser(),
-                            rule,
-                            savingsTransaction
-                        );
-                    }
+                    // Notify the user once the transfer completes
+                    notificationService.queueSavingsRuleTriggeredNotification(savingsTransaction);
                 }
-            } catch (Exception e) {
-                logger.error("Error processing payday rule ID {}: {}", rule.getId(), e.getMessage(), e);
-            }
+            });
         }
     }
 
@@ -120,58 +127,44 @@ public class SavingsAutomationService {
      * Process round-up savings rules - runs at 5:00 AM daily
      */
     @Scheduled(cron = "0 0 5 * * ?")
-    @Transactional
     public void processRoundUpRules() {
         logger.info("Processing round-up rules");
+        if (!transactionColumnStore.awaitLoaded()) {
+            logger.warn("Skipping round-up rules: the transaction column store is not loaded");
+            return;
+        }
 
         // Get all active round-up rules
         List<SavingsRule> roundUpRules = savingsRuleRepository.findByRuleTypeAndIsActive(SavingsRule.RuleType.ROUND_UP, true);
 
-        for (SavingsRule rule : roundUpRules) {
-            try {
+        for (SavingsRule roundUpRule : roundUpRules) {
+            processRule(roundUpRule, "round-up", rule -> {
                 // Get yesterday's transactions from the source account
                 BankAccount sourceAccount = rule.getSourceAccount();
                 LocalDateTime startOfYesterday = LocalDateTime.now().minusDays(1).toLocalDate().atStartOfDay();
                 LocalDateTime endOfYesterday = LocalDateTime.now().minusDays(1).toLocalDate().atTime(23, 59, 59);
 
-                List<Transaction> yesterdayTransactions = bankAccountService.getAccountTransactions(
-                    sourceAccount,
-                    startOfYesterday,
-                    endOfYesterday
-                );
+                TransactionColumns accountTransactions = transactionColumnStore.forAccount(sourceAccount.getId());
+                int yesterdayCount = accountTransactions.count(startOfYesterday, endOfYesterday);
 
-                // Calculate total round-up amount
-                double totalRoundUp = 0.0;
-                for (Transaction transaction : yesterdayTransactions) {
-                    // Only consider purchase transactions (negative amounts)
-                    if (transaction.getAmount() < 0) {
-                        double transactionAmount = Math.abs(transaction.getAmount());
-                        double roundUpAmount = Math.ceil(transactionAmount) - transactionAmount;
-                        totalRoundUp += roundUpAmount;
-                    }
-                }
+                // Calculate total round-up amount in cents (purchases are negative amounts)
+                long totalRoundUpCents = accountTransactions.sumRoundUpCents(startOfYesterday, endOfYesterday);
 
                 // If we have round-ups to process
-                if (totalRoundUp > 0) {
+                if (totalRoundUpCents > 0) {
                     // Create the savings transaction
                     Transaction savingsTransaction = transactionService.createTransaction(
                         rule.getSavingsGoal(),
                         sourceAccount,
                         rule,
-                        totalRoundUp,
-                        "Round-up savings from " + yesterdayTransactions.size() + " transactions"
+                        Money.ofCents(totalRoundUpCents),
+                        "Round-up savings from " + yesterdayCount + " transactions"
                     );
 
-                    // Notify the user
-                    notificationService.sendSavingsRuleTriggeredNotification(
-                        rule.getSavingsGoal().getUser(),
-                        rule,
-                        savingsTransaction
-                    );
+                    // Notify the user once the transfer completes
+                    notificationService.queueSavingsRuleTriggeredNotification(savingsTransaction);
                 }
-            } catch (Exception e) {
-                logger.error("Error processing round-up rule ID {}: {}", rule.getId(), e.getMessage(), e);
-            }
+            });
         }
     }
 
@@ -179,15 +172,18 @@ public class SavingsAutomationService {
      * Process custom trigger rules - runs every hour
      */
     @Scheduled(cron = "0 0 * * * ?")
-    @Transactional
     public void processCustomTriggerRules() {
         logger.info("Processing custom trigger rules");
+        if (!transactionColumnStore.awaitLoaded()) {
+            logger.warn("Skipping custom trigger rules: the transaction column store is not loaded");
+            return;
+        }
 
         // Get all active custom trigger rules
         List<SavingsRule> customRules = savingsRuleRepository.findByRuleTypeAndIsActive(SavingsRule.RuleType.CUSTOM_TRIGGER, true);
 
-        for (SavingsRule rule : customRules) {
-            try {
+        for (SavingsRule customRule : customRules) {
+            processRule(customRule, "custom trigger", rule -> {
                 // Parse the rule condition - this would be more complex in a real app
                 // For this example, we'll use a simple format like "MERCHANT:Starbucks"
                 String condition = rule.getRuleCondition();
@@ -198,15 +194,11 @@ public class SavingsAutomationService {
                     BankAccount sourceAccount = rule.getSourceAccount();
                     LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
 
-                    List<Transaction> recentTransactions = bankAccountService.getTransactionsByMerchant(
-                        sourceAccount,
-                        merchant,
-                        oneHourAgo,
-                        LocalDateTime.now()
-                    );
+                    int recentPurchases = transactionColumnStore.forAccount(sourceAccount.getId())
+                        .countMerchant(oneHourAgo, LocalDateTime.now(), merchant);
 
                     // If we found matching transactions, trigger the rule
-                    if (!recentTransactions.isEmpty()) {
+                    if (recentPurchases > 0) {
                         // Create the savings transaction
                         Transaction savingsTransaction = transactionService.createTransaction(
                             rule.getSavingsGoal(),
@@ -216,24 +208,17 @@ public class SavingsAutomationService {
                             "Automatic savings triggered by purchase at " + merchant
                         );
 
-                        // Notify the user
-                        notificationService.sendSavingsRuleTriggeredNotification(
-                            rule.getSavingsGoal().getUser(),
-                            rule,
-                            savingsTransaction
-                        );
+                        // Notify the user once the transfer completes
+                        notificationService.queueSavingsRuleTriggeredNotification(savingsTransaction);
                     }
                 }
-            } catch (Exception e) {
-                logger.error("Error processing custom trigger rule ID {}: {}", rule.getId(), e.getMessage(), e);
-            }
+            });
         }
     }
 
     /**
      * Execute all automated savings rules - can be called manually or scduled
      */
-    @Transactional
     public void executeAutomatedSavings() {
       logger.info("Executing all automated savings rules");
 
@@ -251,34 +236,43 @@ public class SavingsAutomationService {
      * Helper method to process a list of rules
      */
     private void processRules(List<SavingsRule> rules, String frequency) {
-        for (SavingsRule rule : rules) {
-            try {
-                if (rule.getRuleType() == SavingsRule.RuleType.FIXED_AMOUNT) {
-                    SavingsGoal goal = rule.getSavingsGoal();
-                    BankAccount sourceAccount = rule.getSourceAccount();
+        for (SavingsRule fixedRule : rules) {
+            if (fixedRule.getRuleType() != SavingsRule.RuleType.FIXED_AMOUNT) {
+                continue;
+            }
+            processRule(fixedRule, frequency, rule -> {
+                SavingsGoal goal = rule.getSavingsGoal();
+                BankAccount sourceAccount = rule.getSourceAccount();
 
-                    // Create the transaction
-                    Transaction transaction = transactionService.createTransaction(
-                        goal,
-                        sourceAccount,
-                        rule,
-                        rule.getAmount(),
-                        "Automatic " + frequency + " savings of $" + rule.getAmount()
-                    );
+                // Create the transaction
+                Transaction transaction = transactionService.createTransaction(
+                    goal,
+                    sourceAccount,
+                    rule,
+                    rule.getAmount(),
+                    "Automatic " + frequency + " savings of $" + rule.getAmount()
+                );
 
-                    // Notify the user
-                    notificationService.sendSavingsRuleTriggeredNotification(
-                        goal.getUser(),
-                        rule,
-                        transaction
-                    );
+                // Notify the user once the transfer completes
+                notificationService.queueSavingsRuleTriggeredNotification(transaction);
 
-                    logger.info("Processed {} rule ID {}: ${} saved to goal '{}'",
-                        frequency, rule.getId(), rule.getAmount(), goal.getName());
-                }
-            } catch (Exception e) {
-                logger.error("Error processing {} rule ID {}: {}", frequency, rule.getId(), e.getMessage(), e);
-            }
+                logger.info("Processed {} rule ID {}: ${} saved to goal '{}'",
+                    frequency, rule.getId(), rule.getAmount(), goal.getName());
+            });
+        }
+    }
+
+    /**
+     * Runs one rule in a transaction of its own, so a rule that fails rolls back only its own
+     * transfer and the run goes on with the next. The rule is read again inside that transaction
+     * for its lazy goal and account.
+     */
+    private void processRule(SavingsRule rule, String kind, Consumer<SavingsRule> action) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                savingsRuleRepository.findById(rule.getId()).ifPresent(action));
+        } catch (Exception e) {
+            logger.error("Error processing {} rule ID {}: {}", kind, rule.getId(), e.getMessage(), e);
         }
     }
 
@@ -300,7 +294,7 @@ public void checkGoalProgress() {
 
     for (SavingsGoal goal : activeGoals) {
         try {
-            double progressPercentage = (goal.getCurrentAmount() / goal.getTargetAmount()) * 100;
+            double progressPercentage = goal.getCurrentAmount().percentOf(goal.getTargetAmount());
             if (progressPercentage >= 95) {
                 notificationService.sendGoalNearCompletionNotification(
                     goal.getUser(),
@@ -315,4 +309,25 @@ public void checkGoalProgress() {
     }
 }
 
+/**
+ * Send weekly progress reports - runs at 7:00 AM every Monday
+ */
+@Scheduled(cron = "0 0 7 * * MON")
+@Transactional
+public void sendWeeklyProgressReports() {
+    logger.info("Sending weekly progress reports");
+
+    for (SavingsGoal goal : savingsGoalService.getAllSavingsGoals()) {
+        try {
+            // Period totals come from the daily rollup, not from the goal's transactions
+            Money weeklyAmount = goalRollupService.getTotalForPeriod(goal, "week");
+            Money monthlyAmount = goalRollupService.getTotalForPeriod(goal, "month");
+
+            notificationService.sendWeeklyProgressReport(goal.getUser(), goal, weeklyAmount, monthlyAmount);
+        } catch (Exception e) {
+            logger.error("Error sending weekly report for goal ID {}: {}", goal.getId(), e.getMessage(), e);
+        }
+    }
+}
+
 }
@@ -1,11 +1,16 @@
 package com.example.savings.service;
 
+import com.example.savings.exception.ResourceNotFoundException;
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.SavingsGoalSummary;
 import com.example.savings.model.User;
 import com.example.savings.repository.SavingsGoalRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -32,43 +37,88 @@ public class SavingsGoalService {
         savingsGoal.setDestinationAccount(destinationAccount.get());
 
         // Set initial values
-        savingsGoal.setCurrentAmount(0.0);
+        savingsGoal.setCurrentAmount(Money.ZERO);
         savingsGoal.setStartDate(LocalDate.now());
 
         // Save and return
         return savingsGoalRepository.save(savingsGoal);
     }
 
+    @Transactional(readOnly = true)
     public List<SavingsGoal> getUserSavingsGoals(User user) {
         return savingsGoalRepository.findByUser(user);
     }
 
+    @Transactional(readOnly = true)
+    public List<SavingsGoalSummary> getUserGoalSummaries(User user) {
+        return savingsGoalRepository.findSummariesByUserId(user.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<SavingsGoalSummary> findUserGoalSummary(Long id, User user) {
+        return savingsGoalRepository.findSummaryByIdAndUserId(id, user.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getUserGoalIds(User user) {
+        return savingsGoalRepository.findIdsByUserId(user.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isOwnedBy(Long goalId, User user) {
+        return savingsGoalRepository.existsByIdAndUserId(goalId, user.getId());
+    }
+
+    public List<SavingsGoal> getAllSavingsGoals() {
+        return savingsGoalRepository.findAll();
+    }
+
     public Optional<SavingsGoal> findById(Long id) {
         return savingsGoalRepository.findById(id);
     }
 
+    /**
+     * Look up a goal for display only. May be served by a read replica, so the result
+     * must not be modified and saved.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SavingsGoal> findByIdReadOnly(Long id) {
+        return savingsGoalRepository.findById(id);
+    }
+
     public SavingsGoal updateSavingsGoal(SavingsGoal savingsGoal) {
         return savingsGoalRepository.save(savingsGoal);
     }
 
+    /**
+     * Add a settled transfer to the goal's current amount. Must run inside the transaction that
+     * settles the transfer; the goal's row stays locked until it commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addToCurrentAmount(Long goalId, Money amount) {
+        if (savingsGoalRepository.addToCurrentAmount(goalId, amount.getCents()) == 0) {
+            throw new ResourceNotFoundException("Savings goal not found with id: " + goalId);
+        }
+    }
+
     public void deleteSavingsGoal(Long id) {
         savingsGoalRepository.deleteById(id);
     }
 
     public double calculateProgress(SavingsGoal goal) {
-        return (goal.getCurrentAmount() / goal.getTargetAmount()) * 100;
+        return goal.getCurrentAmount().percentOf(goal.getTargetAmount());
     }
 
     public LocalDate estimateCompletionDate(SavingsGoal goal) {
         // This is a simple estimation based on current progress
-        if (goal.getCurrentAmount() <= 0) {
+        if (!goal.getCurrentAmount().isPositive()) {
             return goal.getTargetDate();
         }
 
-        double dailyAverage = goal.getCurrentAmount() /
+        double dailyAverage = (double) goal.getCurrentAmount().getCents() /
                               LocalDate.now().until(goal.getStartDate()).getDays();
 
-        double daysRemaining = (goal.getTargetAmount() - goal.getCurrentAmount()) / dailyAverage;
+        double daysRemaining = goal.getTargetAmount().minus(goal.getCurrentAmount()).getCents() / dailyAverage;
 
         return LocalDate.now().plusDays((long) daysRemaining);
     }
@@ -0,0 +1,378 @@
+package com.example.savings.service;
+
+import com.example.savings.model.LedgerEntry;
+import com.example.savings.model.Money;
+import com.example.savings.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only ledger of savings postings, kept next to the relational tables so goal balances have
+ * a history. Postings go to a memory-mapped {@link LedgerFile} and are flushed to disk in batches.
+ * Snapshots of every goal balance are written every {@code ledger.snapshot.interval-records}
+ * postings, so a balance at any point in time is one snapshot lookup plus a replay of at most that
+ * many records.
+ *
+ * The ledger is local to this instance. Postings lost in a crash before their flush, or whose
+ * append failed, are appended on the next startup: every completed transaction the ledger has no
+ * posting for is posted then, whatever order the transfers settled in.
+ */
+@Service
+public class SavingsLedgerService {
+    private static final Logger logger = LoggerFactory.getLogger(SavingsLedgerService.class);
+    private static final String LEDGER_FILE = "postings.ledger";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_HEADER_SIZE = 20;
+    private static final int SNAPSHOT_ENTRY_SIZE = 16;
+    private static final int RECOVERY_PAGE_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ledger.directory:./ledger}")
+    private String ledgerDirectory;
+
+    @Value("${ledger.fsync-batch-size:256}")
+    private long fsyncBatchSize;
+
+    @Value("${ledger.snapshot.interval-records:10000}")
+    private long snapshotIntervalRecords;
+
+    private LedgerFile ledger;
+    private final Map<Long, Long> balances = new ConcurrentHashMap<>();
+    // Snapshot sequence keyed by the posting time it covers; posting times never go backwards
+    private final ConcurrentSkipListMap<Long, Long> snapshotsByTime = new ConcurrentSkipListMap<>();
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path directory = Paths.get(ledgerDirectory);
+        Files.createDirectories(directory);
+        ledger = new LedgerFile(directory.resolve(LEDGER_FILE));
+        loadSnapshotIndex(directory);
+
+        long latest = latestSnapshotSequence();
+        Map<Long, Long> current = latest == 0 ? new TreeMap<>() : readSnapshot(latest);
+        replay(current, latest, ledger.size());
+        balances.putAll(current);
+
+        if (ledger.size() == 0) {
+            seedOpeningBalances();
+        }
+        appendMissedPostings();
+        ledger.force();
+        logger.info("Opened savings ledger with {} postings and {} snapshots", ledger.size(), snapshotsByTime.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        ledger.close();
+    }
+
+    /**
+     * Post a completed transaction once the surrounding database transaction commits, or straight
+     * away if there is none. Transactions that did not complete are not posted.
+     */
+    public void recordAfterCommit(Transaction transaction) {
+        if (transaction.getStatus() != Transaction.TransactionStatus.COMPLETED) {
+            return;
+        }
+        long goalId = transaction.getSavingsGoal().getId();
+        long transactionId = transaction.getId();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        long amountCents = transaction.getAmount().getCents();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        post(timestamp, goalId, transactionId, amountCents, LedgerEntry.EntryType.POSTING);
+                    } catch (RuntimeException e) {
+                        // The transaction is already committed; appendMissedPostings posts it on the next startup
+                        logger.error("Failed to post transaction {} to the savings ledger: {}", transactionId, e.getMessage(), e);
+                    }
+                }
+            });
+        } else {
+            post(timestamp, goalId, transactionId, amountCents, LedgerEntry.EntryType.POSTING);
+        }
+    }
+
+    public Money getBalance(Long goalId) {
+        return Money.ofCents(balances.getOrDefault(goalId, 0L));
+    }
+
+    /**
+     * Balance of a goal as of {@code at}, from the latest snapshot at or before that time plus the
+     * postings after it.
+     */
+    public Money getBalanceAt(Long goalId, LocalDateTime at) {
+        long atMillis = LedgerFile.toMillis(at);
+        Map.Entry<Long, Long> snapshot = snapshotsByTime.floorEntry(atMillis);
+        long sequence = snapshot == null ? 0 : snapshot.getValue();
+        long cents = sequence == 0 ? 0 : readSnapshotBalance(sequence, goalId);
+
+        long size = ledger.size();
+        for (long next = sequence + 1; next <= size && ledger.postedAtMillis(next) <= atMillis; next++) {
+            if (ledger.goalId(next) == goalId) {
+                cents += ledger.amountCents(next);
+            }
+        }
+        return Money.ofCents(cents);
+    }
+
+    /**
+     * Postings to a goal between {@code start} and {@code end}, inclusive, in the order they were
+     * written.
+     */
+    public List<LedgerEntry> getGoalEntries(Long goalId, LocalDateTime start, LocalDateTime end) {
+        long startMillis = LedgerFile.toMillis(start);
+        long endMillis = LedgerFile.toMillis(end);
+        Map.Entry<Long, Long> snapshot = snapshotsByTime.floorEntry(startMillis);
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        long size = ledger.size();
+        for (long next = snapshot == null ? 1 : snapshot.getValue() + 1; next <= size; next++) {
+            long postedAtMillis = ledger.postedAtMillis(next);
+            if (postedAtMillis > endMillis) {
+                break;
+            }
+            if (postedAtMillis >= startMillis && ledger.goalId(next) == goalId) {
+                entries.add(ledger.entry(next));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Flush postings to disk - runs every ledger.fsync-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${ledger.fsync-interval-ms:200}")
+    public void flush() {
+        ledger.force();
+    }
+
+    /**
+     * Write a balance snapshot once enough postings have built up - runs every minute
+     */
+    @Scheduled(fixedDelay = 60000)
+    public synchronized void takeSnapshotIfDue() {
+        long previous = latestSnapshotSequence();
+        long sequence = ledger.size();
+        if (sequence - previous < snapshotIntervalRecords) {
+            return;
+        }
+
+        Map<Long, Long> snapshotBalances = previous == 0 ? new TreeMap<>() : readSnapshot(previous);
+        replay(snapshotBalances, previous, sequence);
+        long postedAtMillis = ledger.postedAtMillis(sequence);
+        try {
+            writeSnapshot(sequence, postedAtMillis, snapshotBalances);
+        } catch (IOException e) {
+            logger.error("Failed to write savings ledger snapshot at {}: {}", sequence, e.getMessage(), e);
+            return;
+        }
+        snapshotsByTime.put(postedAtMillis, sequence);
+        logger.info("Wrote savings ledger snapshot of {} goals at posting {}", snapshotBalances.size(), sequence);
+    }
+
+    private void post(LocalDateTime postedAt, long goalId, long transactionId, long amountCents,
+                      LedgerEntry.EntryType type) {
+        try {
+            ledger.append(postedAt, goalId, transactionId, amountCents, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the savings ledger", e);
+        }
+        balances.merge(goalId, amountCents, Long::sum);
+        if (ledger.unforced() >= fsyncBatchSize) {
+            ledger.force();
+        }
+    }
+
+    /**
+     * Start a new ledger from the goals' current amounts. The opening entries carry a watermark
+     * below which every transfer had settled, and leave out the completed transfers above it:
+     * appendMissedPostings then posts those individually, like any transfer that settles later.
+     */
+    private void seedOpeningBalances() {
+        Long watermark = jdbcTemplate.queryForObject("SELECT COALESCE(MIN(id) - 1, " +
+            "(SELECT COALESCE(MAX(id), 0) FROM transactions)) FROM transactions WHERE status = 'PENDING'", Long.class);
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.query("SELECT g.id, g.current_amount_cents - COALESCE(SUM(t.amount_cents), 0) FROM savings_goals g " +
+                "LEFT JOIN transactions t ON t.savings_goal_id = g.id AND t.status = 'COMPLETED' AND t.id > ? " +
+                "GROUP BY g.id, g.current_amount_cents ORDER BY g.id", rs -> {
+            post(now, rs.getLong(1), watermark, rs.getLong(2), LedgerEntry.EntryType.OPENING);
+        }, watermark);
+        logger.info("Started savings ledger with {} opening balances", ledger.size());
+    }
+
+    /**
+     * Post the completed transactions above the opening watermark that the ledger has no posting
+     * for. Transfers settle out of id order (retries, reconciliation), so this is an anti-join
+     * against the posted transaction ids rather than a scan from the highest one. Ids are
+     * identity values, so the posted ones are kept as bits offset from the watermark.
+     */
+    private void appendMissedPostings() {
+        long size = ledger.size();
+        long watermark = 0;
+        for (long next = 1; next <= size; next++) {
+            if (ledger.type(next) == LedgerEntry.EntryType.OPENING) {
+                watermark = Math.max(watermark, ledger.transactionId(next));
+            }
+        }
+        BitSet posted = new BitSet();
+        for (long next = 1; next <= size; next++) {
+            long transactionId = ledger.transactionId(next);
+            if (ledger.type(next) == LedgerEntry.EntryType.POSTING && transactionId > watermark) {
+                posted.set(Math.toIntExact(transactionId - watermark - 1));
+            }
+        }
+
+        long[] after = {watermark};
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query("SELECT id, savings_goal_id, amount_cents, timestamp FROM transactions " +
+                    "WHERE status = 'COMPLETED' AND id > ? ORDER BY id LIMIT ?", rs -> {
+                long transactionId = rs.getLong(1);
+                rows[0]++;
+                after[0] = transactionId;
+                if (!posted.get(Math.toIntExact(transactionId - watermark - 1))) {
+                    post(rs.getTimestamp(4).toLocalDateTime(), rs.getLong(2), transactionId, rs.getLong(3),
+                        LedgerEntry.EntryType.POSTING);
+                }
+            }, after[0], RECOVERY_PAGE_SIZE);
+        } while (rows[0] == RECOVERY_PAGE_SIZE);
+
+        if (ledger.size() > size) {
+            logger.warn("Appended {} completed transactions missing from the savings ledger", ledger.size() - size);
+        }
+    }
+
+    private void replay(Map<Long, Long> into, long afterSequence, long toSequence) {
+        for (long next = afterSequence + 1; next <= toSequence; next++) {
+            into.merge(ledger.goalId(next), ledger.amountCents(next), Long::sum);
+        }
+    }
+
+    private long latestSnapshotSequence() {
+        Map.Entry<Long, Long> latest = snapshotsByTime.lastEntry();
+        return latest == null ? 0 : latest.getValue();
+    }
+
+    /**
+     * Index the snapshot files by time. Snapshots past the end of the ledger (its tail was lost in
+     * a crash) no longer match it and are deleted.
+     */
+    private void loadSnapshotIndex(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(SNAPSHOT_PREFIX) || !name.endsWith(SNAPSHOT_SUFFIX)) {
+                    continue;
+                }
+                long sequence = Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+                if (sequence > ledger.size()) {
+                    logger.warn("Deleting savings ledger snapshot {} beyond the end of the ledger", name);
+                    Files.delete(file);
+                    continue;
+                }
+                snapshotsByTime.merge(ledger.postedAtMillis(sequence), sequence, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Snapshot layout: sequence, posted-at millis, goal count, then (goal id, balance cents) pairs
+     * sorted by goal id.
+     */
+    private void writeSnapshot(long sequence, long postedAtMillis, Map<Long, Long> snapshotBalances) throws IOException {
+        Path target = snapshotFile(sequence);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + snapshotBalances.size() * SNAPSHOT_ENTRY_SIZE);
+        buffer.putLong(sequence).putLong(postedAtMillis).putInt(snapshotBalances.size());
+        new TreeMap<>(snapshotBalances).forEach((goalId, cents) -> buffer.putLong(goalId).putLong(cents));
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Map<Long, Long> readSnapshot(long sequence) {
+        MappedByteBuffer buffer = mapSnapshot(sequence);
+        int count = buffer.getInt(16);
+        Map<Long, Long> snapshotBalances = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            int offset = SNAPSHOT_HEADER_SIZE + i * SNAPSHOT_ENTRY_SIZE;
+            snapshotBalances.put(buffer.getLong(offset), buffer.getLong(offset + 8));
+        }
+        return snapshotBalances;
+    }
+
+    private long readSnapshotBalance(long sequence, long goalId) {
+        MappedByteBuffer buffer = mapSnapshot(sequence);
+        int low = 0;
+        int high = buffer.getInt(16) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = SNAPSHOT_HEADER_SIZE + mid * SNAPSHOT_ENTRY_SIZE;
+            long midGoalId = buffer.getLong(offset);
+            if (midGoalId < goalId) {
+                low = mid + 1;
+            } else if (midGoalId > goalId) {
+                high = mid - 1;
+            } else {
+                return buffer.getLong(offset + 8);
+            }
+        }
+        return 0L;
+    }
+
+    private MappedByteBuffer mapSnapshot(long sequence) {
+        try (FileChannel channel = FileChannel.open(snapshotFile(sequence), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read savings ledger snapshot " + sequence, e);
+        }
+    }
+
+    private Path snapshotFile(long sequence) {
+        return Paths.get(ledgerDirectory).resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+}
@@ -3,9 +3,12 @@ package com.example.savings.service;
 import com.example.savings.model.BankAccount;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
+import com.example.savings.model.SavingsRuleSummary;
+import com.example.savings.model.User;
 import com.example.savings.repository.SavingsRuleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -37,10 +40,21 @@ public class SavingsRuleService {
         return savingsRuleRepository.save(rule);
     }
 
+    @Transactional(readOnly = true)
     public List<SavingsRule> getGoalSavingsRules(SavingsGoal goal) {
         return savingsRuleRepository.findBySavingsGoal(goal);
     }
 
+    @Transactional(readOnly = true)
+    public List<SavingsRuleSummary> getGoalRuleSummaries(Long goalId) {
+        return savingsRuleRepository.findSummariesBySavingsGoalId(goalId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<SavingsRuleSummary> findUserRuleSummary(Long id, User user) {
+        return savingsRuleRepository.findSummaryByIdAndUserId(id, user.getId());
+    }
+
     public List<SavingsRule> getAllActiveRules() {
         return savingsRuleRepository.findByIsActiveTrue();
     }
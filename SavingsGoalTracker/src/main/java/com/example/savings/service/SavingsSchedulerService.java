@@ -1,6 +1,7 @@
 package com.example.savings.service;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.Transaction;
 import org.slf4j.Logger;
@@ -17,6 +18,8 @@ import java.util.Map;
 @Service
 public class SavingsSchedulerService {
     private static final Logger logger = LoggerFactory.getLogger(SavingsSchedulerService.class);
+    private static final long MINIMUM_TRANSFER_CENTS = 100L;
+    private static final long SAFE_BALANCE_BASIS_POINTS = 9_000L;
 
     @Autowired
     private SavingsRuleService savingsRuleService;
@@ -41,9 +44,9 @@ public class SavingsSchedulerService {
 
                 // Check if source account has sufficient balance
                 BankAccount sourceAccount = rule.getSourceAccount();
-                Double currentBalance = bankApiService.getAccountBalance(sourceAccount);
+                Money currentBalance = bankApiService.getAccountBalance(sourceAccount);
 
-                if (currentBalance <= 0) {
+                if (!currentBalance.isPositive()) {
                     logger.warn("Skipping rule {} due to insufficient balance in source account", rule.getId());
                     continue;
                 }
@@ -73,16 +76,16 @@ public class SavingsSchedulerService {
         logger.info("Completed automated savings processing");
     }
 
-    private void processFixedAmountRule(SavingsRule rule, Double currentBalance) {
-        Double amount = rule.getAmount();
+    private void processFixedAmountRule(SavingsRule rule, Money currentBalance) {
+        Money amount = rule.getAmount();
 
         // Ensure we don't overdraw the account
-        if (amount > currentBalance) {
+        if (amount.isGreaterThan(currentBalance)) {
             logger.warn("Reducing transfer amount for rule {} due to insufficient balance", rule.getId());
-            amount = currentBalance * 0.9; // Transfer 90% of available balance as a safety measure
+            amount = currentBalance.scaleByBasisPoints(SAFE_BALANCE_BASIS_POINTS); // Transfer 90% of available balance as a safety measure
 
             // If the adjusted amount is too small, skip the transfer
-            if (amount < 1.0) {
+            if (amount.getCents() < MINIMUM_TRANSFER_CENTS) {
                 logger.warn("Skipping transfer for rule {} as adjusted amount is too small", rule.getId());
                 return;
             }
@@ -107,24 +110,21 @@ public class SavingsSchedulerService {
         List<Map<String, Object>> recentTransactions =
             bankApiService.getTransactionsSince(rule.getSourceAccount(), yesterday);
 
-        double roundUpTotal = 0.0;
+        long roundUpTotalCents = 0L;
 
         for (Map<String, Object> transaction : recentTransactions) {
             // Only process debit transactions (money going out)
             if ("debit".equals(transaction.get("type"))) {
-                Double amount = (Double) transaction.get("amount");
+                long amountCents = amountCents(transaction);
 
                 // Calculate round-up amount (to next dollar)
-                double cents = amount % 1;
-                if (cents > 0) {
-                    double roundUpAmount = 1 - cents;
-                    roundUpTotal += roundUpAmount;
-                }
+                roundUpTotalCents += Money.roundUpCents(Math.abs(amountCents));
             }
         }
 
         // Only create a transaction if we have round-ups to process
-        if (roundUpTotal > 0) {
+        if (roundUpTotalCents > 0) {
+            Money roundUpTotal = Money.ofCents(roundUpTotalCents);
             logger.info("Processing round-up rule: transferring ${} for rule {}",
                       roundUpTotal, rule.getId());
 
@@ -148,32 +148,32 @@ public class SavingsSchedulerService {
         List<Map<String, Object>> recentTransactions =
             bankApiService.getTransactionsSince(rule.getSourceAccount(), lastMonth);
 
-        double totalIncome = 0.0;
+        long totalIncomeCents = 0L;
 
         // Identify income deposits (credits to the account)
         for (Map<String, Object> transaction : recentTransactions) {
             if ("credit".equals(transaction.get("type"))) {
                 // Check if this is likely an income deposit
                 String description = (String) transaction.get("description");
-                Double amount = (Double) transaction.get("amount");
 
                 // Look for common income-related keywords
                 if (description.toLowerCase().contains("salary") ||
                     description.toLowerCase().contains("payroll") ||
                     description.toLowerCase().contains("direct deposit")) {
 
-                    totalIncome += amount;
+                    totalIncomeCents += amountCents(transaction);
                 }
             }
         }
 
-        if (totalIncome > 0) {
+        if (totalIncomeCents > 0) {
             // Parse the percentage from rule condition
-            double percentage = Double.parseDouble(rule.getRuleCondition());
-            double savingsAmount = totalIncome * (percentage / 100);
+            Money totalIncome = Money.ofCents(totalIncomeCents);
+            Money percentage = Money.parse(rule.getRuleCondition());
+            Money savingsAmount = percentage.percentageOf(totalIncome);
 
             // Ensure minimum transfer amount
-            if (savingsAmount >= 1.0) {
+            if (savingsAmount.getCents() >= MINIMUM_TRANSFER_CENTS) {
                 logger.info("Processing income percentage rule: transferring ${} ({}% of ${}) for rule {}",
                           savingsAmount, percentage, totalIncome, rule.getId());
 
@@ -201,30 +201,30 @@ public class SavingsSchedulerService {
             bankApiService.getTransactionsSince(rule.getSourceAccount(), lastWeek);
 
         String targetCategory = rule.getRuleCondition().toLowerCase(); // e.g., "coffee", "dining", "shopping"
-        double categorySpending = 0.0;
+        long categorySpendingCents = 0L;
 
         // Calculate total spending in the target category
         for (Map<String, Object> transaction : recentTransactions) {
             if ("debit".equals(transaction.get("type"))) {
                 String category = (String) transaction.get("category");
                 String merchant = (String) transaction.get("merchant");
-                Double amount = (Double) transaction.get("amount");
 
                 // Check if transaction matches the target category
                 if ((category != null && category.toLowerCase().contains(targetCategory)) ||
                     (merchant != null && merchant.toLowerCase().contains(targetCategory))) {
-                    categorySpending += amount;
+                    categorySpendingCents += amountCents(transaction);
                 }
             }
         }
 
-        if (categorySpending > 0) {
+        if (categorySpendingCents > 0) {
             // Calculate savings amount based on rule amount (percentage of category spending)
-            double percentage = rule.getAmount();
-            double savingsAmount = categorySpending * (percentage / 100);
+            Money categorySpending = Money.ofCents(categorySpendingCents);
+            Money percentage = rule.getAmount();
+            Money savingsAmount = percentage.percentageOf(categorySpending);
 
             // Ensure minimum transfer amount
-            if (savingsAmount >= 1.0) {
+            if (savingsAmount.getCents() >= MINIMUM_TRANSFER_CENTS) {
                 logger.info("Processing category spending rule: transferring ${} ({}% of ${} spent on {}) for rule {}",
                           savingsAmount, percentage, categorySpending, targetCategory, rule.getId());
 
@@ -242,4 +242,11 @@ public class SavingsSchedulerService {
             logger.debug("No spending detected in category '{}' for rule {}", targetCategory, rule.getId());
         }
     }
+
+    /**
+     * Bank API payloads carry amounts as JSON numbers; convert them to cents once at the boundary.
+     */
+    private static long amountCents(Map<String, Object> transaction) {
+        return Money.toCents(((Number) transaction.get("amount")).doubleValue());
+    }
 }
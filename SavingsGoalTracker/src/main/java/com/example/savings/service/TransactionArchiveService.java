@@ -0,0 +1,199 @@
+package com.example.savings.service;
+
+import com.example.savings.model.ArchivedTransaction;
+import com.example.savings.model.Money;
+import com.example.savings.model.Transaction;
+import com.example.savings.util.CsvUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes monthly transaction archives: one gzip-compressed CSV file per month.
+ */
+@Service
+public class TransactionArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionArchiveService.class);
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String HEADER =
+        "id,amount_cents,timestamp,savings_goal_id,source_account_id,savings_rule_id,description,merchant_name,status";
+    private static final int ARCHIVE_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${transactions.archive.directory:./archive/transactions}")
+    private String archiveDirectory;
+
+    /**
+     * Write every row of {@code sourceTable} into the archive file for {@code month}. The file is
+     * written under a temporary name and moved into place only once complete.
+     *
+     * @return the number of rows archived
+     */
+    public long writeArchive(YearMonth month, String sourceTable) {
+        Path target = archiveFile(month);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] rows = {0L};
+
+        try {
+            Files.createDirectories(target.getParent());
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                writer.write(HEADER);
+                writer.write('\n');
+
+                StringBuilder line = new StringBuilder(256);
+                JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+                cursor.setFetchSize(ARCHIVE_FETCH_SIZE);
+                cursor.query("SELECT id, amount_cents, timestamp, savings_goal_id, source_account_id, savings_rule_id, " +
+                        "description, merchant_name, status FROM " + sourceTable + " ORDER BY timestamp, id", rs -> {
+                    line.setLength(0);
+                    line.append(rs.getLong(1)).append(',')
+                        .append(rs.getLong(2)).append(',')
+                        .append(rs.getTimestamp(3).toLocalDateTime()).append(',')
+                        .append(rs.getLong(4)).append(',')
+                        .append(rs.getLong(5)).append(',');
+                    long ruleId = rs.getLong(6);
+                    if (!rs.wasNull()) {
+                        line.append(ruleId);
+                    }
+                    line.append(',');
+                    CsvUtil.appendField(line, rs.getString(7));
+                    line.append(',');
+                    CsvUtil.appendField(line, rs.getString(8));
+                    line.append(',').append(rs.getString(9)).append('\n');
+                    try {
+                        writer.append(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                });
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort; a stale .tmp file is overwritten on the next attempt
+            }
+            throw new RuntimeException("Failed to archive " + sourceTable + ": " + e.getMessage(), e);
+        }
+
+        logger.info("Archived {} transactions from {} to {}", rows[0], sourceTable, target);
+        return rows[0];
+    }
+
+    /**
+     * Archived transactions of a goal between two timestamps, oldest first.
+     */
+    public List<ArchivedTransaction> findGoalTransactions(Long goalId, LocalDateTime start, LocalDateTime end) {
+        return findBetween(start, end, t -> goalId.equals(t.getSavingsGoalId()));
+    }
+
+    /**
+     * Archived transactions of a source account between two timestamps, oldest first.
+     */
+    public List<ArchivedTransaction> findAccountTransactions(Long accountId, LocalDateTime start, LocalDateTime end) {
+        return findBetween(start, end, t -> accountId.equals(t.getSourceAccountId()));
+    }
+
+    private List<ArchivedTransaction> findBetween(LocalDateTime start, LocalDateTime end,
+                                                  Predicate<ArchivedTransaction> filter) {
+        List<ArchivedTransaction> result = new ArrayList<>();
+        YearMonth last = YearMonth.from(end);
+
+        for (YearMonth month = YearMonth.from(start); !month.isAfter(last); month = month.plusMonths(1)) {
+            Path file = archiveFile(month);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                reader.readLine(); // header
+                String record;
+                while ((record = readRecord(reader)) != null) {
+                    ArchivedTransaction transaction = parse(record);
+                    if (!transaction.getTimestamp().isBefore(start) && !transaction.getTimestamp().isAfter(end)
+                            && filter.test(transaction)) {
+                        result.add(transaction);
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error reading transaction archive {}", file, e);
+                throw new RuntimeException("Failed to read transaction archive for " + month + ": " + e.getMessage(), e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read one CSV record, joining physical lines while a quoted field is still open.
+     */
+    private String readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        StringBuilder record = new StringBuilder(line);
+        while (countQuotes(record) % 2 != 0 && (line = reader.readLine()) != null) {
+            record.append('\n').append(line);
+        }
+        return record.toString();
+    }
+
+    private static int countQuotes(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private static ArchivedTransaction parse(String record) {
+        List<String> fields = CsvUtil.parseLine(record);
+        return new ArchivedTransaction(
+            Long.parseLong(fields.get(0)),
+            Money.ofCents(Long.parseLong(fields.get(1))),
+            LocalDateTime.parse(fields.get(2)),
+            Long.parseLong(fields.get(3)),
+            Long.parseLong(fields.get(4)),
+            fields.get(5) == null ? null : Long.parseLong(fields.get(5)),
+            fields.get(6),
+            fields.get(7),
+            Transaction.TransactionStatus.valueOf(fields.get(8))
+        );
+    }
+
+    private Path archiveFile(YearMonth month) {
+        return Paths.get(archiveDirectory).resolve("transactions_" + month.format(MONTH_SUFFIX) + ".csv.gz");
+    }
+}
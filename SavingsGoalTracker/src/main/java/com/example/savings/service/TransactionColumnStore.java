@@ -0,0 +1,231 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process columnar copy of the settled transactions, split per source account and per goal, for
+ * the rule engine and reports. Loaded once from the database after startup and then kept current
+ * from {@link TransactionService#settleTransfer} as settlements commit. PENDING transactions are
+ * left out, so each transaction is added exactly once, when it settles.
+ *
+ * Each instance only sees the transactions it committed itself after loading, so with several
+ * application instances the store lags rows written elsewhere until the next restart.
+ */
+@Service
+public class TransactionColumnStore {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionColumnStore.class);
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${transactions.column-store.load-timeout-seconds:300}")
+    private long loadTimeoutSeconds;
+
+    private final TransactionColumns.Dictionary merchants = new TransactionColumns.Dictionary();
+    private final Map<Long, TransactionColumns> byAccount = new ConcurrentHashMap<>();
+    private final Map<Long, TransactionColumns> byGoal = new ConcurrentHashMap<>();
+
+    // Rows committed while the initial load is running; applied once it finishes
+    private final List<Row> pending = new ArrayList<>();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private boolean loading = true;
+    private volatile boolean loadFailed;
+    private volatile boolean waitTimedOut;
+
+    /**
+     * Columns for a source account. Waits for the initial load if it is still running.
+     *
+     * @throws IllegalStateException if the store is not loaded, see {@link #awaitLoaded()}
+     */
+    public TransactionColumns forAccount(Long accountId) {
+        requireLoaded();
+        return byAccount.computeIfAbsent(accountId, id -> new TransactionColumns(merchants));
+    }
+
+    /**
+     * Columns for a savings goal. Waits for the initial load if it is still running.
+     *
+     * @throws IllegalStateException if the store is not loaded, see {@link #awaitLoaded()}
+     */
+    public TransactionColumns forGoal(Long goalId) {
+        requireLoaded();
+        return byGoal.computeIfAbsent(goalId, id -> new TransactionColumns(merchants));
+    }
+
+    /**
+     * Add a transaction once the surrounding database transaction commits, or straight away if
+     * there is none. Rolled back transactions are never added.
+     */
+    public void recordAfterCommit(Transaction transaction) {
+        Row row = new Row(transaction.getId(), transaction.getSourceAccount().getId(),
+                transaction.getSavingsGoal().getId(), transaction.getTimestamp(),
+                transaction.getAmount().getCents(), transaction.getMerchantName(), transaction.getStatus());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(row);
+                }
+            });
+        } else {
+            record(row);
+        }
+    }
+
+    /**
+     * Load every settled transaction from the database - runs once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        long[] rows = {0L};
+        // A settlement can commit after the cursor has read its row; draining pending skips those
+        Set<Long> loadedIds = new HashSet<>();
+        try {
+            JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+            cursor.setFetchSize(LOAD_FETCH_SIZE);
+            // A transaction is needed for PostgreSQL to stream with the fetch size
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> cursor.query(
+                    "SELECT id, source_account_id, savings_goal_id, timestamp, amount_cents, merchant_name, status " +
+                    "FROM transactions WHERE status <> 'PENDING' ORDER BY timestamp, id", rs -> {
+                        long id = rs.getLong(1);
+                        if (!pendingIds.contains(id)) {
+                            loadedIds.add(id);
+                            append(new Row(id, rs.getLong(2), rs.getLong(3), rs.getTimestamp(4).toLocalDateTime(),
+                                    rs.getLong(5), rs.getString(6),
+                                    Transaction.TransactionStatus.valueOf(rs.getString(7))));
+                            rows[0]++;
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            logger.error("Failed to load transaction column store, retrying later: {}", e.getMessage(), e);
+            byAccount.clear();
+            byGoal.clear();
+            loadFailed = true;
+            return;
+        }
+
+        synchronized (this) {
+            for (Row row : pending) {
+                if (!loadedIds.contains(row.id)) {
+                    append(row);
+                }
+            }
+            pending.clear();
+            pendingIds.clear();
+            loading = false;
+        }
+        loadFailed = false;
+        loaded.countDown();
+        logger.info("Loaded {} transactions into the column store in {} ms", rows[0],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Retry a failed initial load - runs every minute until it succeeds
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void retryFailedLoad() {
+        if (loadFailed) {
+            load();
+        }
+    }
+
+    private void record(Row row) {
+        synchronized (this) {
+            if (loading) {
+                pendingIds.add(row.id);
+                pending.add(row);
+                return;
+            }
+        }
+        append(row);
+    }
+
+    private void append(Row row) {
+        byAccount.computeIfAbsent(row.accountId, id -> new TransactionColumns(merchants))
+                .append(row.timestamp, row.amountCents, row.merchantName, row.status);
+        byGoal.computeIfAbsent(row.goalId, id -> new TransactionColumns(merchants))
+                .append(row.timestamp, row.amountCents, row.merchantName, row.status);
+    }
+
+    /**
+     * Whether the store can be queried, waiting for the initial load if it is still running. Only
+     * the first caller waits: once the load has failed or a wait has timed out, this returns false
+     * straight away until a load succeeds, rather than holding every rule query for the timeout.
+     */
+    public boolean awaitLoaded() {
+        if (loaded.getCount() == 0) {
+            return true;
+        }
+        if (loadFailed || waitTimedOut) {
+            return false;
+        }
+        try {
+            if (loaded.await(loadTimeoutSeconds, TimeUnit.SECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        waitTimedOut = true;
+        return false;
+    }
+
+    private void requireLoaded() {
+        if (!awaitLoaded()) {
+            throw new IllegalStateException("Transaction column store is not loaded");
+        }
+    }
+
+    private static final class Row {
+        private final long id;
+        private final long accountId;
+        private final long goalId;
+        private final LocalDateTime timestamp;
+        private final long amountCents;
+        private final String merchantName;
+        private final Transaction.TransactionStatus status;
+
+        private Row(long id, long accountId, long goalId, LocalDateTime timestamp, long amountCents,
+                    String merchantName, Transaction.TransactionStatus status) {
+            this.id = id;
+            this.accountId = accountId;
+            this.goalId = goalId;
+            this.timestamp = timestamp;
+            this.amountCents = amountCents;
+            this.merchantName = merchantName;
+            this.status = status;
+        }
+    }
+}
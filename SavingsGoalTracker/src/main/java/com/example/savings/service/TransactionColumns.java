@@ -0,0 +1,284 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Money;
+import com.example.savings.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of the transactions of one source account or one goal, kept sorted by
+ * timestamp. Each column is a primitive array, so range queries are a binary search followed by a
+ * tight loop with no entity loading or boxing. Obtained from {@link TransactionColumnStore}.
+ */
+public final class TransactionColumns {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_MERCHANT = -1;
+
+    private final Dictionary merchants;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] epochSeconds = new long[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] merchantIds = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    TransactionColumns(Dictionary merchants) {
+        this.merchants = merchants;
+    }
+
+    /**
+     * Add a row, keeping the timestamp column sorted. Rows almost always arrive in time order, in
+     * which case this is a plain append.
+     */
+    void append(LocalDateTime timestamp, long cents, String merchantName, Transaction.TransactionStatus status) {
+        long epochSecond = toEpochSecond(timestamp);
+        int merchantId = merchantName == null ? NO_MERCHANT : merchants.idOf(merchantName);
+
+        lock.writeLock().lock();
+        try {
+            if (size == epochSeconds.length) {
+                int capacity = size + (size >> 1);
+                epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+                merchantIds = Arrays.copyOf(merchantIds, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+            }
+            int position = size;
+            if (size > 0 && epochSeconds[size - 1] > epochSecond) {
+                position = upperBound(epochSecond);
+                int tail = size - position;
+                System.arraycopy(epochSeconds, position, epochSeconds, position + 1, tail);
+                System.arraycopy(amountCents, position, amountCents, position + 1, tail);
+                System.arraycopy(merchantIds, position, merchantIds, position + 1, tail);
+                System.arraycopy(statuses, position, statuses, position + 1, tail);
+            }
+            epochSeconds[position] = epochSecond;
+            amountCents[position] = cents;
+            merchantIds[position] = merchantId;
+            statuses[position] = (byte) status.ordinal();
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of transactions with a timestamp in [from, to].
+     */
+    public int count(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, upperBound(toEpochSecond(to)) - lowerBound(toEpochSecond(from)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of the amounts in [from, to] with the given status.
+     */
+    public long sumCents(LocalDateTime from, LocalDateTime to, Transaction.TransactionStatus status) {
+        byte wanted = (byte) status.ordinal();
+        lock.readLock().lock();
+        try {
+            long total = 0L;
+            for (int i = lowerBound(toEpochSecond(from)), end = upperBound(toEpochSecond(to)); i < end; i++) {
+                if (statuses[i] == wanted) {
+                    total += amountCents[i];
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Total needed to round every purchase (negative amount) in [from, to] up to the next dollar.
+     */
+    public long sumRoundUpCents(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            long total = 0L;
+            for (int i = lowerBound(toEpochSecond(from)), end = upperBound(toEpochSecond(to)); i < end; i++) {
+                if (amountCents[i] < 0) {
+                    total += Money.roundUpCents(-amountCents[i]);
+                }
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Amounts in [from, to] of at least {@code minCents}, oldest first.
+     */
+    public long[] amountsAtLeast(LocalDateTime from, LocalDateTime to, long minCents) {
+        lock.readLock().lock();
+        try {
+            int start = lowerBound(toEpochSecond(from));
+            int end = Math.max(start, upperBound(toEpochSecond(to)));
+            long[] matches = new long[end - start];
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                if (amountCents[i] >= minCents) {
+                    matches[found++] = amountCents[i];
+                }
+            }
+            return Arrays.copyOf(matches, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of transactions in [from, to] at the given merchant, ignoring case.
+     */
+    public int countMerchant(LocalDateTime from, LocalDateTime to, String merchantName) {
+        int merchantId = merchants.find(merchantName);
+        if (merchantId == NO_MERCHANT) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            int matches = 0;
+            for (int i = lowerBound(toEpochSecond(from)), end = upperBound(toEpochSecond(to)); i < end; i++) {
+                if (merchantIds[i] == merchantId) {
+                    matches++;
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of the amounts in [from, to] grouped by merchant, largest total first. Transactions without
+     * a merchant are left out.
+     */
+    public Map<String, Long> sumCentsByMerchant(LocalDateTime from, LocalDateTime to) {
+        long[] totals;
+        boolean[] seen;
+        lock.readLock().lock();
+        try {
+            int dictionarySize = merchants.size();
+            totals = new long[dictionarySize];
+            seen = new boolean[dictionarySize];
+            for (int i = lowerBound(toEpochSecond(from)), end = upperBound(toEpochSecond(to)); i < end; i++) {
+                int merchantId = merchantIds[i];
+                if (merchantId != NO_MERCHANT && merchantId < dictionarySize) {
+                    totals[merchantId] += amountCents[i];
+                    seen[merchantId] = true;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < seen.length; id++) {
+            if (seen[id]) {
+                ids.add(id);
+            }
+        }
+        ids.sort((a, b) -> Long.compare(totals[b], totals[a]));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int id : ids) {
+            result.put(merchants.nameOf(id), totals[id]);
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** First index with a timestamp at or after {@code epochSecond}. */
+    private int lowerBound(long epochSecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochSeconds[mid] < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First index with a timestamp after {@code epochSecond}. */
+    private int upperBound(long epochSecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochSeconds[mid] <= epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toEpochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Case-insensitive merchant name to id mapping shared by all columns of a store.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        int idOf(String name) {
+            String key = name.toLowerCase(Locale.ROOT);
+            Integer id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            synchronized (names) {
+                return ids.computeIfAbsent(key, k -> {
+                    names.add(name);
+                    return names.size() - 1;
+                });
+            }
+        }
+
+        int find(String name) {
+            return ids.getOrDefault(name.toLowerCase(Locale.ROOT), NO_MERCHANT);
+        }
+
+        String nameOf(int id) {
+            synchronized (names) {
+                return names.get(id);
+            }
+        }
+
+        int size() {
+            synchronized (names) {
+                return names.size();
+            }
+        }
+    }
+}
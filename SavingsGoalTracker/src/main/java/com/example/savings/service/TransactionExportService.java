@@ -0,0 +1,240 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Money;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionSummary;
+import com.example.savings.model.User;
+import com.example.savings.util.CsvUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a user's transaction history as CSV or NDJSON straight from a forward-only JDBC cursor,
+ * so memory use does not grow with the number of rows exported.
+ */
+@Service
+public class TransactionExportService {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+    private static final String CSV_HEADER =
+        "id,amount,timestamp,savings_goal_id,source_account_id,savings_rule_id,description,merchant_name,status";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    public enum ExportFormat {
+        CSV,
+        NDJSON
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SavingsGoalService savingsGoalService;
+
+    @Value("${transactions.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Write the user's transactions to {@code out}, grouped by goal and oldest first within a goal.
+     * Each goal is read along its (savings_goal_id, timestamp, id) index, so rows are sent as they are
+     * fetched instead of after a sort. Runs in a read-only transaction because PostgreSQL only honours
+     * the fetch size with auto-commit off.
+     *
+     * @param goalId optional goal to restrict the export to; must belong to the user
+     * @param start  optional inclusive lower bound on the timestamp
+     * @param end    optional inclusive upper bound on the timestamp
+     * @return the number of rows exported
+     */
+    @Transactional(readOnly = true)
+    public long writeExport(User user, Long goalId, LocalDateTime start, LocalDateTime end,
+                            ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        List<Long> goalIds = goalId != null ? List.of(goalId) : savingsGoalService.getUserGoalIds(user);
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, amount_cents, timestamp, savings_goal_id, source_account_id, savings_rule_id, " +
+            "description, merchant_name, status FROM transactions WHERE savings_goal_id = ?");
+        if (start != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(Timestamp.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND timestamp <= ?");
+            args.add(Timestamp.valueOf(end));
+        }
+        sql.append(" ORDER BY timestamp, id");
+
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(fetchSize);
+
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, WRITE_BUFFER_SIZE, true) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+            compressed != null ? compressed : out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        RowWriter rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        // Send the headers (and the CSV header line) before the first query runs
+        rowWriter.start();
+        writer.flush();
+
+        long rows = 0;
+        try {
+            for (Long id : goalIds) {
+                Object[] params = new Object[args.size() + 1];
+                params[0] = id;
+                for (int i = 0; i < args.size(); i++) {
+                    params[i + 1] = args.get(i);
+                }
+                CountingHandler handler = new CountingHandler(rowWriter);
+                cursor.query(sql.toString(), handler, params);
+                rows += handler.rows;
+            }
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            logger.warn("Transaction export for user {} aborted after {} rows: {}", user.getId(), rows, e.getMessage());
+            throw e.getCause();
+        }
+
+        rowWriter.finish();
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        logger.info("Exported {} transactions for user {} as {}", rows, user.getId(), format);
+        return rows;
+    }
+
+    private static final class CountingHandler implements RowCallbackHandler {
+        private final RowWriter rowWriter;
+        private long rows;
+
+        private CountingHandler(RowWriter rowWriter) {
+            this.rowWriter = rowWriter;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private final StringBuilder line = new StringBuilder(256);
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            line.setLength(0);
+            line.append(rs.getLong(1)).append(',')
+                .append(Money.ofCents(rs.getLong(2))).append(',')
+                .append(rs.getTimestamp(3).toLocalDateTime()).append(',')
+                .append(rs.getLong(4)).append(',')
+                .append(rs.getLong(5)).append(',');
+            long ruleId = rs.getLong(6);
+            if (!rs.wasNull()) {
+                line.append(ruleId);
+            }
+            line.append(',');
+            CsvUtil.appendField(line, rs.getString(7));
+            line.append(',');
+            CsvUtil.appendField(line, rs.getString(8));
+            line.append(',').append(rs.getString(9)).append('\n');
+            writer.append(line);
+        }
+
+        @Override
+        public void finish() {
+            // Every line is written straight to the writer
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private final ObjectWriter rowJson = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        private JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            generator = objectMapper.getFactory().createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            long ruleId = rs.getLong(6);
+            Long savingsRuleId = rs.wasNull() ? null : ruleId;
+            TransactionSummary row = new TransactionSummary(
+                rs.getLong(1),
+                Money.ofCents(rs.getLong(2)),
+                rs.getTimestamp(3).toLocalDateTime(),
+                rs.getLong(4),
+                rs.getLong(5),
+                savingsRuleId,
+                rs.getString(7),
+                rs.getString(8),
+                Transaction.TransactionStatus.valueOf(rs.getString(9)));
+            rowJson.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
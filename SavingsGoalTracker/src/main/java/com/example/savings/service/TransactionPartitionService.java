@@ -0,0 +1,178 @@
+package com.example.savings.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of the PostgreSQL transactions table: creates upcoming
+ * months ahead of time, moves rows that fell into the default partition into partitions for
+ * their months, and archives partitions older than the retention age.
+ */
+@Service
+@Profile("postgres")
+public class TransactionPartitionService {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionService.class);
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final String DEFAULT_PARTITION = "transactions_default";
+    private static final String COLUMNS = "id, amount_cents, timestamp, savings_goal_id, source_account_id, " +
+        "savings_rule_id, description, merchant_name, status";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Value("${transactions.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${transactions.archive.retention-months:24}")
+    private int retentionMonths;
+
+    /**
+     * Create upcoming partitions and archive cold ones - runs daily at 12:30 AM by default
+     */
+    @Scheduled(cron = "${transactions.partitions.cron:0 30 0 * * ?}")
+    public void maintainPartitions() {
+        YearMonth current = YearMonth.now();
+
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        // Months with rows in the default partition get a partition of their own, so the rows are
+        // archived with their month instead of staying in the default partition forever
+        for (YearMonth month : findDefaultPartitionMonths()) {
+            if (!months.contains(month)) {
+                months.add(month);
+            }
+        }
+        for (YearMonth month : months) {
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                logger.error("Error creating transactions partition for {}: {}", month, e.getMessage(), e);
+            }
+        }
+
+        YearMonth oldestRetained = current.minusMonths(retentionMonths);
+        for (YearMonth month : findPartitionMonths()) {
+            if (month.isBefore(oldestRetained)) {
+                try {
+                    archivePartition(month);
+                } catch (Exception e) {
+                    logger.error("Error archiving transactions partition for {}: {}", month, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the partition for {@code month} unless it exists. PostgreSQL refuses to create a
+     * partition while the default partition holds rows in its range, so those rows are moved into
+     * the new partition in the same database transaction, with the default partition detached
+     * meanwhile. A row inserted into the default partition between the check and the create makes
+     * the create fail; it is moved on the next run.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String create = "CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF transactions FOR VALUES FROM ('" +
+            month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition)) {
+                return;
+            }
+            Long misplaced = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + DEFAULT_PARTITION +
+                " WHERE timestamp >= ? AND timestamp < ?", Long.class, from, to);
+            if (misplaced == 0) {
+                jdbcTemplate.execute(create);
+                return;
+            }
+
+            logger.warn("{} transactions for {} were in {}; moving them to {}", misplaced, month, DEFAULT_PARTITION, partition);
+            jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute(create);
+            jdbcTemplate.update("INSERT INTO " + partition + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " +
+                DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE transactions ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        });
+    }
+
+    /**
+     * Export a partition while it is still attached, then detach and drop it in a second, short
+     * database transaction. DETACH locks the whole transactions table, so it is not held while the
+     * archive is written. If the partition no longer holds exactly the exported rows by then, the
+     * detach is rolled back and the month is archived again on the next run.
+     */
+    private void archivePartition(YearMonth month) {
+        String partition = partitionName(month);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        // A transaction is needed for PostgreSQL to stream the export with its fetch size
+        readOnly.setReadOnly(true);
+        Long rows = readOnly.execute(status -> transactionArchiveService.writeArchive(month, partition));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + partition);
+            Long remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+            if (!rows.equals(remaining)) {
+                throw new IllegalStateException("Partition " + partition + " changed during its export: " +
+                    rows + " rows archived, " + remaining + " now");
+            }
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        logger.info("Archived and dropped partition {} ({} rows)", partition, rows);
+    }
+
+    private List<YearMonth> findDefaultPartitionMonths() {
+        List<Timestamp> starts = jdbcTemplate.queryForList(
+            "SELECT DISTINCT date_trunc('month', timestamp) FROM " + DEFAULT_PARTITION, Timestamp.class);
+
+        List<YearMonth> months = new ArrayList<>();
+        for (Timestamp start : starts) {
+            months.add(YearMonth.from(start.toLocalDateTime()));
+        }
+        return months;
+    }
+
+    private List<YearMonth> findPartitionMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+            "SELECT child.relname FROM pg_inherits " +
+            "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent " +
+            "JOIN pg_class child ON child.oid = pg_inherits.inhrelid " +
+            "WHERE parent.relname = 'transactions'", String.class);
+
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            if (name.matches(PARTITION_PREFIX + "\\d{6}")) {
+                months.add(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            }
+        }
+        return months;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -1,29 +1,74 @@
 package com.example.savings.service;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.exception.ResourceNotFoundException;
+import com.example.savings.model.Money;
+import com.example.savings.model.OutboxEvent;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionPage;
+import com.example.savings.model.TransactionSummary;
+import com.example.savings.model.User;
 import com.example.savings.repository.TransactionRepository;
+import com.example.savings.util.PageTokenUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class TransactionService {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Open-ended history ranges, both representable in every supported database
+    private static final LocalDateTime START_OF_HISTORY = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime END_OF_HISTORY = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final Comparator<TransactionSummary> NEWEST_FIRST =
+            Comparator.comparing(TransactionSummary::getTimestamp)
+                    .thenComparing(TransactionSummary::getId)
+                    .reversed();
+
     @Autowired
     private TransactionRepository transactionRepository;
 
     @Autowired
-    private BankApiService bankApiService;
+    private OutboxService outboxService;
 
     @Autowired
     private SavingsGoalService savingsGoalService;
 
+    @Autowired
+    private GoalRollupService goalRollupService;
+
+    @Autowired
+    private TransactionColumnStore transactionColumnStore;
+
+    @Autowired
+    private SavingsLedgerService savingsLedgerService;
+
+    @Autowired
+    private TransactionStatusWatcher transactionStatusWatcher;
+
+    /**
+     * Record a savings transfer as PENDING. The bank transfer itself is sent by the outbox relay
+     * after this transaction commits, and {@link #settleTransfer} records its outcome.
+     */
+    @Transactional
     public Transaction createTransaction(SavingsGoal goal, BankAccount sourceAccount,
-                                        SavingsRule rule, Double amount, String description) {
+                                        SavingsRule rule, Money amount, String description) {
         Transaction transaction = new Transaction();
         transaction.setSavingsGoal(goal);
         transaction.setSourceAccount(sourceAccount);
@@ -33,35 +78,145 @@ public class TransactionService {
         transaction.setTimestamp(LocalDateTime.now());
         transaction.setStatus(Transaction.TransactionStatus.PENDING);
 
-        // Save the transaction first
         transaction = transactionRepository.save(transaction);
+        outboxService.enqueue(OutboxEvent.EventType.BANK_TRANSFER, transaction.getId());
+        return transaction;
+    }
 
-        // Attempt to transfer funds
-        boolean transferSuccess = bankApiService.transferFunds(
-            sourceAccount,
-            goal.getDestinationAccount(),
-            amount
-        );
+    /**
+     * A transaction with its source account and the goal's destination account loaded, ready for
+     * the bank call outside any database transaction.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findForTransfer(Long transactionId) {
+        return transactionRepository.findForTransfer(transactionId);
+    }
 
-        if (transferSuccess) {
-            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+    /**
+     * A transaction with its goal, the goal's owner and its rule loaded, ready for a notification.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findForNotification(Long transactionId) {
+        return transactionRepository.findForNotification(transactionId);
+    }
 
-            // Update the goal's current amount
-            goal.setCurrentAmount(goal.getCurrentAmount() + amount);
-            savingsGoalService.updateSavingsGoal(goal);
-        } else {
-            transaction.setStatus(Transaction.TransactionStatus.FAILED);
+    /**
+     * Record the outcome of a bank transfer and remove its outbox event in one transaction. The
+     * status changes only from PENDING, so when settlements overlap (a relay whose lease ran out
+     * mid-call, or a reconciliation racing a retried transfer) only the first credits the goal.
+     * Rule notifications waiting for the transfer are made due in the same transaction.
+     *
+     * @param outboxEvent the claimed event that delivered the transfer, or null
+     */
+    @Transactional
+    public void settleTransfer(Long transactionId, boolean transferSuccess, OutboxEvent outboxEvent) {
+        if (outboxEvent != null && !outboxService.complete(outboxEvent)) {
+            logger.info("Outbox event {} for transaction {} was claimed by another relay while its transfer ran",
+                outboxEvent.getId(), transactionId);
         }
 
-        // Update the transaction status
-        return transactionRepository.save(transaction);
+        Transaction.TransactionStatus status = transferSuccess
+            ? Transaction.TransactionStatus.COMPLETED : Transaction.TransactionStatus.FAILED;
+        if (transactionRepository.settle(transactionId, status) == 0) {
+            return;
+        }
+        Transaction transaction = transactionRepository.findById(transactionId)
+            .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with id: " + transactionId));
+
+        if (transferSuccess) {
+            // Update the goal's current amount; the goal itself is not loaded
+            SavingsGoal goal = transaction.getSavingsGoal();
+            savingsGoalService.addToCurrentAmount(goal.getId(), transaction.getAmount());
+            goalRollupService.recordSettlement(goal, transaction.getTimestamp().toLocalDate(), transaction.getAmount());
+        }
+        outboxService.makeDue(OutboxEvent.EventType.RULE_TRIGGERED_NOTIFICATION, transactionId);
+
+        transactionColumnStore.recordAfterCommit(transaction);
+        savingsLedgerService.recordAfterCommit(transaction);
+        transactionStatusWatcher.settledAfterCommit(transaction);
+    }
+
+    /**
+     * A transaction's current state, if it went into one of the user's goals. Not read-only, so
+     * it is read from the primary: clients poll right after creating a transfer, before a
+     * replica may have it.
+     */
+    @Transactional
+    public Optional<TransactionSummary> findUserTransactionSummary(Long id, Long userId) {
+        return transactionRepository.findSummaryByIdAndUserId(id, userId);
     }
 
+    @Transactional(readOnly = true)
     public List<Transaction> getGoalTransactions(SavingsGoal goal) {
         return transactionRepository.findBySavingsGoal(goal);
     }
 
+    /**
+     * One page of a goal's transaction history, newest first.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getGoalTransactionPage(Long goalId, LocalDateTime start, LocalDateTime end,
+                                                  Integer size, String pageToken) {
+        return getTransactionPage(List.of(goalId), start, end, size, pageToken);
+    }
+
+    /**
+     * One page of the transactions into any of the user's goals, newest first.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getUserTransactionPage(User user, LocalDateTime start, LocalDateTime end,
+                                                  Integer size, String pageToken) {
+        return getTransactionPage(savingsGoalService.getUserGoalIds(user), start, end, size, pageToken);
+    }
+
+    /**
+     * Total of all completed transfers into a goal, summed in the database.
+     */
+    @Transactional(readOnly = true)
+    public Money getCompletedTotal(SavingsGoal goal) {
+        return Money.ofCents(transactionRepository.sumCompletedCentsBySavingsGoalId(goal.getId()));
+    }
+
+    @Transactional(readOnly = true)
     public List<Transaction> getTransactionsBetweenDates(LocalDateTime start, LocalDateTime end) {
         return transactionRepository.findByTimestampBetween(start, end);
     }
+
+    /**
+     * Keyset pagination over (timestamp, id). Each goal is read from its own index range, at most
+     * one page plus one row past the cursor, and the per-goal pages are merged. The cost depends on
+     * the page size and number of goals, not on how far back the cursor is.
+     */
+    private TransactionPage getTransactionPage(List<Long> goalIds, LocalDateTime start, LocalDateTime end,
+                                               Integer size, String pageToken) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        LocalDateTime from = start == null ? START_OF_HISTORY : start;
+        LocalDateTime to = end == null ? END_OF_HISTORY : end;
+
+        LocalDateTime beforeTimestamp = to;
+        long beforeId = Long.MAX_VALUE;
+        if (pageToken != null && !pageToken.isEmpty()) {
+            PageTokenUtil.Cursor cursor = PageTokenUtil.decode(pageToken);
+            if (!cursor.getTimestamp().isAfter(to)) {
+                beforeTimestamp = cursor.getTimestamp();
+                beforeId = cursor.getId();
+            }
+        }
+
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<TransactionSummary> rows = new ArrayList<>();
+        for (Long goalId : goalIds) {
+            rows.addAll(transactionRepository.findGoalPageBefore(goalId, from, beforeTimestamp, beforeId, limit));
+        }
+        if (goalIds.size() > 1) {
+            rows.sort(NEWEST_FIRST);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new TransactionPage(rows, null);
+        }
+        List<TransactionSummary> page = new ArrayList<>(rows.subList(0, pageSize));
+        TransactionSummary last = page.get(pageSize - 1);
+        return new TransactionPage(page, PageTokenUtil.encode(last.getTimestamp(), last.getId()));
+    }
 }
@@ -0,0 +1,111 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionSummary;
+import com.example.savings.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets status requests wait for a PENDING transaction to settle without holding a thread.
+ * Transfers settled on this instance complete their waiters as soon as the settlement commits;
+ * those settled by another instance's outbox relay are picked up by a periodic check of the
+ * transactions still being waited for.
+ */
+@Service
+public class TransactionStatusWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionStatusWatcher.class);
+    private static final int CHECK_BATCH_SIZE = 500;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private final ConcurrentHashMap<Long, Waiters> waiting = new ConcurrentHashMap<>();
+
+    /**
+     * Completes with the transaction's summary once it is no longer PENDING. Register before
+     * reading the current status, so a settlement in between is not missed, and call
+     * {@link #release} once the request stops waiting, whether or not it was settled.
+     */
+    public CompletableFuture<TransactionSummary> awaitSettlement(Long transactionId) {
+        return waiting.compute(transactionId, (id, waiters) -> {
+            Waiters registered = waiters != null ? waiters : new Waiters();
+            registered.count++;
+            return registered;
+        }).settlement;
+    }
+
+    /**
+     * Deregister a waiter added by {@link #awaitSettlement}. The transaction is no longer checked
+     * once its last waiter is released.
+     */
+    public void release(Long transactionId, CompletableFuture<TransactionSummary> settlement) {
+        // A settled transaction's entry is gone already, and may have been replaced by a new one
+        waiting.computeIfPresent(transactionId, (id, waiters) ->
+            waiters.settlement != settlement || --waiters.count > 0 ? waiters : null);
+    }
+
+    /**
+     * Complete the waiters for a settled transaction once the caller's database transaction
+     * commits.
+     */
+    public void settledAfterCommit(Transaction transaction) {
+        TransactionSummary summary = TransactionSummary.from(transaction);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    settled(summary);
+                }
+            });
+        } else {
+            settled(summary);
+        }
+    }
+
+    /**
+     * Complete waiters whose transaction was settled elsewhere - runs every
+     * transactions.status.check-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${transactions.status.check-interval-ms:1000}")
+    public void checkWaiting() {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(waiting.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += CHECK_BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHECK_BATCH_SIZE));
+                transactionRepository.findSettledSummariesByIdIn(chunk).forEach(this::settled);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to check {} awaited transactions: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private void settled(TransactionSummary summary) {
+        Waiters waiters = waiting.remove(summary.getId());
+        if (waiters != null) {
+            waiters.settlement.complete(summary);
+        }
+    }
+
+    /**
+     * The settlement shared by every request waiting for one transaction, and how many of them
+     * are still waiting. Only changed inside the map's compute methods.
+     */
+    private static final class Waiters {
+        private final CompletableFuture<TransactionSummary> settlement = new CompletableFuture<>();
+        private int count;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.savings.service;
 
+import com.example.savings.config.VerifiedTokenCache;
+import com.example.savings.exception.ResourceNotFoundException;
 import com.example.savings.model.User;
 import com.example.savings.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +20,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     public List<User> findAllUsers() {
         return userRepository.findAll();
     }
@@ -26,6 +31,23 @@ public class UserService {
         return userRepository.findById(id);
     }
 
+    /**
+     * The user with this id, loaded from the database (or the second-level cache) right away.
+     */
+    public User getUser(Long id) {
+        return userRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+    }
+
+    /**
+     * A reference to the user for passing to services and associating with new entities. Nothing
+     * is loaded until a property other than the id is read, which must happen while the request's
+     * persistence context is still open; use {@link #getUser} when the user's fields are needed.
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
@@ -49,6 +71,9 @@ public class UserService {
     }
 
     public void deleteUser(Long id) {
+        Optional<User> user = userRepository.findById(id);
         userRepository.deleteById(id);
+        // Stop accepting the user's tokens on this instance right away
+        user.ifPresent(deleted -> verifiedTokenCache.evictUser(deleted.getUsername()));
     }
 }
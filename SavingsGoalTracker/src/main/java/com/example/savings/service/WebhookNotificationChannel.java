@@ -0,0 +1,375 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+import com.example.savings.model.WebhookEndpoint;
+import com.example.savings.repository.WebhookEndpointRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pushes events to the systems registered in webhook_endpoints.
+ *
+ * Publishing only serializes the event, once however many endpoints want it, and adds it to each
+ * endpoint's bounded in-memory queue after the caller's transaction commits. A scheduled flush
+ * sends each endpoint's queue as gzip-compressed JSON arrays of up to
+ * {@code notifications.webhook.batch-size} events through one shared asynchronous HTTP client,
+ * with at most the endpoint's max_concurrency batches in flight. Failed batches are retried with
+ * exponential backoff. Delivery is best effort: events still queued when the application stops,
+ * or that arrive while an endpoint's queue is full, are dropped and counted.
+ */
+@Service
+public class WebhookNotificationChannel implements NotificationChannel {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookNotificationChannel.class);
+    private static final byte[] COMMA = {','};
+
+    @Autowired
+    private WebhookEndpointRepository webhookEndpointRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notifications.webhook.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notifications.webhook.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.webhook.retry-base-ms:1000}")
+    private long retryBaseMillis;
+
+    @Value("${notifications.webhook.timeout-seconds:10}")
+    private long timeoutSeconds;
+
+    @Value("${notifications.webhook.client-threads:4}")
+    private int clientThreads;
+
+    private ExecutorService clientExecutor;
+    private HttpClient httpClient;
+    private final Map<Long, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "WebhookClient-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Only runs response callbacks; the number of open connections is bounded by the
+        // endpoints' concurrency caps
+        clientExecutor = Executors.newFixedThreadPool(clientThreads, threadFactory);
+        httpClient = HttpClient.newBuilder()
+            .executor(clientExecutor)
+            .connectTimeout(Duration.ofSeconds(timeoutSeconds))
+            .build();
+
+        Gauge.builder("notifications.webhook.pending", endpoints,
+                e -> e.values().stream().mapToInt(state -> state.pending.size()).sum())
+            .description("Events waiting to be sent to webhook endpoints")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        clientExecutor.shutdown();
+    }
+
+    /**
+     * Pick up added, changed and disabled endpoints - runs every
+     * notifications.webhook.refresh-interval-ms and once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${notifications.webhook.refresh-interval-ms:60000}",
+        initialDelayString = "${notifications.webhook.refresh-interval-ms:60000}")
+    public void refreshEndpoints() {
+        Map<Long, WebhookEndpoint> enabled = new HashMap<>();
+        for (WebhookEndpoint endpoint : webhookEndpointRepository.findByEnabledTrue()) {
+            enabled.put(endpoint.getId(), endpoint);
+        }
+
+        endpoints.keySet().removeIf(id -> !enabled.containsKey(id));
+        for (WebhookEndpoint endpoint : enabled.values()) {
+            EndpointState current = endpoints.get(endpoint.getId());
+            if (current == null || !current.sameSettings(endpoint)) {
+                EndpointState updated = new EndpointState(endpoint, queueCapacity);
+                if (current != null) {
+                    // Keep what was waiting for the old settings
+                    current.pending.drainTo(updated.pending);
+                    updated.retries.addAll(current.retries);
+                }
+                endpoints.put(endpoint.getId(), updated);
+            }
+        }
+        logger.debug("Sending events to {} webhook endpoints", endpoints.size());
+    }
+
+    @Override
+    public String getName() {
+        return "webhook";
+    }
+
+    @Override
+    public void publish(NotificationEvent event) {
+        if (endpoints.isEmpty()) {
+            return;
+        }
+        byte[] payload = serialize(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(event.getType(), payload);
+                }
+            });
+        } else {
+            offer(event.getType(), payload);
+        }
+    }
+
+    private void offer(NotificationEvent.Type type, byte[] payload) {
+        int dropped = 0;
+        for (EndpointState endpoint : endpoints.values()) {
+            if (endpoint.accepts(type) && !endpoint.pending.offer(payload)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            meterRegistry.counter("notifications.webhook.events", "outcome", "dropped").increment(dropped);
+            logger.warn("Dropped a {} event for {} webhook endpoints with full queues", type, dropped);
+        }
+    }
+
+    /**
+     * Send queued events to every endpoint that has a free delivery slot - runs every
+     * notifications.webhook.flush-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${notifications.webhook.flush-interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (EndpointState endpoint : endpoints.values()) {
+            while (endpoint.inFlight.tryAcquire()) {
+                Batch batch = nextBatch(endpoint, now);
+                if (batch == null) {
+                    endpoint.inFlight.release();
+                    break;
+                }
+                send(endpoint, batch);
+            }
+        }
+    }
+
+    private Batch nextBatch(EndpointState endpoint, long now) {
+        Batch retry = endpoint.retries.peek();
+        if (retry != null && retry.notBefore <= now && endpoint.retries.remove(retry)) {
+            return retry;
+        }
+
+        List<byte[]> events = new ArrayList<>(Math.min(batchSize, endpoint.pending.size()));
+        endpoint.pending.drainTo(events, batchSize);
+        if (events.isEmpty()) {
+            return null;
+        }
+        return new Batch(gzipJsonArray(events), events.size());
+    }
+
+    private void send(EndpointState endpoint, Batch batch) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint.uri)
+            .timeout(Duration.ofSeconds(timeoutSeconds))
+            .header("Content-Type", "application/json")
+            .header("Content-Encoding", "gzip")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(batch.body));
+        if (endpoint.secret != null) {
+            request.header("X-Webhook-Signature", "sha256=" + sign(endpoint.secret, batch.body));
+        }
+
+        try {
+            httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    endpoint.inFlight.release();
+                    if (error == null && response.statusCode() / 100 == 2) {
+                        meterRegistry.counter("notifications.webhook.events", "outcome", "sent").increment(batch.eventCount);
+                    } else {
+                        retry(endpoint, batch, error != null ? error.toString() : "HTTP " + response.statusCode());
+                    }
+                });
+        } catch (RuntimeException e) {
+            endpoint.inFlight.release();
+            retry(endpoint, batch, e.toString());
+        }
+    }
+
+    private void retry(EndpointState endpoint, Batch batch, String error) {
+        batch.attempts++;
+        if (batch.attempts >= maxAttempts) {
+            meterRegistry.counter("notifications.webhook.events", "outcome", "dropped").increment(batch.eventCount);
+            logger.error("Giving up on {} events for webhook endpoint {} after {} attempts: {}",
+                batch.eventCount, endpoint.id, batch.attempts, error);
+            return;
+        }
+        long delay = retryBaseMillis << Math.min(batch.attempts - 1, 20);
+        batch.notBefore = System.currentTimeMillis() + delay;
+        endpoint.retries.add(batch);
+        logger.warn("Webhook batch to endpoint {} failed on attempt {}, retrying in {}ms: {}",
+            endpoint.id, batch.attempts, delay, error);
+    }
+
+    private byte[] serialize(NotificationEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", event.getType());
+        payload.put("userId", event.getUser().getId());
+        payload.put("goalId", event.getGoalId());
+        payload.put("occurredAt", event.getOccurredAt());
+        payload.put("data", event.getData());
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getType() + " event", e);
+        }
+    }
+
+    private static byte[] gzipJsonArray(List<byte[]> events) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write('[');
+            for (int i = 0; i < events.size(); i++) {
+                if (i > 0) {
+                    gzip.write(COMMA);
+                }
+                gzip.write(events.get(i));
+            }
+            gzip.write(']');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String sign(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(body);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign webhook batch", e);
+        }
+    }
+
+    private static final class Batch {
+        private final byte[] body;
+        private final int eventCount;
+        private volatile int attempts;
+        private volatile long notBefore;
+
+        private Batch(byte[] body, int eventCount) {
+            this.body = body;
+            this.eventCount = eventCount;
+        }
+    }
+
+    private static final class EndpointState {
+        private final Long id;
+        private final String url;
+        private final URI uri;
+        private final String secret;
+        private final String eventTypes;
+        private final int maxConcurrency;
+        // Null means every type
+        private final Set<NotificationEvent.Type> types;
+        private final Semaphore inFlight;
+        private final ArrayBlockingQueue<byte[]> pending;
+        private final Queue<Batch> retries = new ConcurrentLinkedQueue<>();
+
+        private EndpointState(WebhookEndpoint endpoint, int queueCapacity) {
+            this.id = endpoint.getId();
+            this.url = endpoint.getUrl();
+            this.uri = URI.create(endpoint.getUrl());
+            this.secret = endpoint.getSecret();
+            this.eventTypes = endpoint.getEventTypes();
+            this.maxConcurrency = Math.max(1, endpoint.getMaxConcurrency());
+            this.types = parseTypes(endpoint.getEventTypes());
+            this.inFlight = new Semaphore(maxConcurrency);
+            this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private boolean accepts(NotificationEvent.Type type) {
+            return types == null || types.contains(type);
+        }
+
+        private boolean sameSettings(WebhookEndpoint endpoint) {
+            return url.equals(endpoint.getUrl()) && Objects.equals(secret, endpoint.getSecret())
+                && Objects.equals(eventTypes, endpoint.getEventTypes())
+                && maxConcurrency == Math.max(1, endpoint.getMaxConcurrency());
+        }
+
+        private static Set<NotificationEvent.Type> parseTypes(String eventTypes) {
+            if (eventTypes == null || eventTypes.isBlank()) {
+                return null;
+            }
+            Set<NotificationEvent.Type> types = EnumSet.noneOf(NotificationEvent.Type.class);
+            for (String name : eventTypes.split(",")) {
+                try {
+                    types.add(NotificationEvent.Type.valueOf(name.trim()));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring unknown webhook event type {}", name.trim());
+                }
+            }
+            return types;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.savings.ui;
 
 import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
 import com.example.savings.model.SavingsGoal;
 import com.example.savings.model.SavingsRule;
 import com.example.savings.model.User;
@@ -218,7 +219,7 @@ public class ConsoleUI implements CommandLineRunner {
         try {
             BankAccount account = new BankAccount();
             account.setAccountName(name);
-            account.setBalance(balance);
+            account.setBalance(Money.of(balance));
             account.setUser(currentUser);
 
             bankAccountService.saveBankAccount(account);
@@ -0,0 +1,70 @@
+package com.example.savings.util;
+
+import com.example.savings.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes keyset pagination cursors as opaque page tokens.
+ */
+public class PageTokenUtil {
+
+  private static final char SEPARATOR = '|';
+
+  /**
+   * Position of the last row returned on a page, ordered by (timestamp, id).
+   */
+  public static class Cursor {
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    public Cursor(LocalDateTime timestamp, long id) {
+      this.timestamp = timestamp;
+      this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() {
+      return timestamp;
+    }
+
+    public long getId() {
+      return id;
+    }
+  }
+
+  /**
+   * Builds the token that continues after the given row.
+   *
+   * @param timestamp the timestamp of the last row on the page
+   * @param id        the id of the last row on the page
+   * @return a URL-safe token
+   */
+  public static String encode(LocalDateTime timestamp, long id) {
+    String raw = timestamp.toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads a token produced by {@link #encode}.
+   *
+   * @param token the page token from the client
+   * @return the cursor it points at
+   * @throws BadRequestException if the token is malformed
+   */
+  public static Cursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = raw.lastIndexOf(SEPARATOR);
+      if (separator < 0) {
+        throw new BadRequestException("Invalid page token");
+      }
+      return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+          Long.parseLong(raw.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new BadRequestException("Invalid page token", e);
+    }
+  }
+}
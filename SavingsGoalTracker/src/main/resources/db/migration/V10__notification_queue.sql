@@ -0,0 +1,15 @@
+-- Outgoing emails, written in the same transaction as the change that caused them and sent
+-- in batches by the notification delivery workers. Rows are deleted once sent.
+
+CREATE TABLE notification_queue (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipient        VARCHAR(255) NOT NULL,
+    subject          VARCHAR(255) NOT NULL,
+    body             VARCHAR(100000) NOT NULL,
+    created_at       TIMESTAMP NOT NULL,
+    next_attempt_at  TIMESTAMP NOT NULL,
+    attempts         INTEGER NOT NULL,
+    last_error       VARCHAR(1000)
+);
+
+CREATE INDEX idx_notification_queue_next_attempt ON notification_queue (next_attempt_at, id);
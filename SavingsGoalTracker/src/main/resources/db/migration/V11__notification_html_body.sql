@@ -0,0 +1,3 @@
+-- HTML version of a queued email's body, sent alongside the plain-text body when present.
+
+ALTER TABLE notification_queue ADD COLUMN html_body VARCHAR(100000);
@@ -0,0 +1,15 @@
+-- Goal notifications already sent, one row per user, goal, notification type and period, so a
+-- scheduled check that finds the same goal again does not email about it twice.
+
+CREATE TABLE notification_dedup (
+    user_id            BIGINT NOT NULL,
+    goal_id            BIGINT NOT NULL,
+    notification_type  VARCHAR(40) NOT NULL,
+    period_key         VARCHAR(40) NOT NULL,
+    sent_at            TIMESTAMP NOT NULL,
+    CONSTRAINT pk_notification_dedup PRIMARY KEY (user_id, goal_id, notification_type, period_key),
+    CONSTRAINT fk_notification_dedup_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT fk_notification_dedup_goal FOREIGN KEY (goal_id) REFERENCES savings_goals (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_notification_dedup_sent_at ON notification_dedup (notification_type, sent_at);
@@ -0,0 +1,25 @@
+-- In-app inbox: one row per notification shown to the user in the app.
+CREATE TABLE inbox_messages (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id            BIGINT NOT NULL,
+    notification_type  VARCHAR(40) NOT NULL,
+    goal_id            BIGINT,
+    title              VARCHAR(255) NOT NULL,
+    body               VARCHAR(100000) NOT NULL,
+    created_at         TIMESTAMP NOT NULL,
+    read_at            TIMESTAMP,
+    CONSTRAINT fk_inbox_messages_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_inbox_messages_user ON inbox_messages (user_id, id);
+
+-- Systems subscribed to savings events over HTTP. event_types is a comma-separated list of
+-- notification types, or null for all of them.
+CREATE TABLE webhook_endpoints (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    url                VARCHAR(2000) NOT NULL,
+    secret             VARCHAR(255),
+    event_types        VARCHAR(255),
+    max_concurrency    INTEGER DEFAULT 2 NOT NULL,
+    enabled            BOOLEAN DEFAULT TRUE NOT NULL
+);
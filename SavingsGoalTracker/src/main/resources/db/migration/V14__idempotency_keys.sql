@@ -0,0 +1,19 @@
+-- Idempotency-Key values clients sent with money-moving requests, one row per user and key, with
+-- the response to replay when the same request is retried. A row is IN_PROGRESS while the first
+-- request runs and COMPLETED once its response is stored; rows are purged after expires_at.
+
+CREATE TABLE idempotency_keys (
+    user_id            BIGINT NOT NULL,
+    idempotency_key    VARCHAR(255) NOT NULL,
+    request_hash       VARCHAR(64) NOT NULL,
+    status             VARCHAR(20) NOT NULL,
+    response_status    INTEGER,
+    response_location  VARCHAR(2048),
+    response_body      VARCHAR(100000),
+    created_at         TIMESTAMP NOT NULL,
+    expires_at         TIMESTAMP NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (user_id, idempotency_key),
+    CONSTRAINT fk_idempotency_keys_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
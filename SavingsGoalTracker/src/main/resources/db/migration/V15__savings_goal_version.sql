@@ -0,0 +1,4 @@
+-- Optimistic lock version for savings goals, so an edit made from a stale copy of a goal
+-- cannot overwrite the balance added by a settlement in the meantime.
+
+ALTER TABLE savings_goals ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
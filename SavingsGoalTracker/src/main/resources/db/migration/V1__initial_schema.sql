@@ -0,0 +1,68 @@
+-- Initial schema, matching what ddl-auto=update produced for the JPA entities
+-- (with money stored as BIGINT cents). Written to run on both H2 and PostgreSQL.
+
+CREATE TABLE users (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255),
+    username    VARCHAR(255) NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE bank_accounts (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_name    VARCHAR(255) NOT NULL,
+    account_number  VARCHAR(255) NOT NULL,
+    bank_name       VARCHAR(255) NOT NULL,
+    account_type    VARCHAR(255) NOT NULL,
+    balance_cents   BIGINT NOT NULL,
+    access_token    VARCHAR(255) NOT NULL,
+    routing_number  VARCHAR(255),
+    user_id         BIGINT NOT NULL,
+    CONSTRAINT fk_bank_accounts_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE savings_goals (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                    VARCHAR(255) NOT NULL,
+    target_amount_cents     BIGINT NOT NULL,
+    current_amount_cents    BIGINT NOT NULL,
+    target_date             DATE NOT NULL,
+    start_date              DATE NOT NULL,
+    user_id                 BIGINT NOT NULL,
+    destination_account_id  BIGINT NOT NULL,
+    CONSTRAINT fk_savings_goals_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_savings_goals_destination_account FOREIGN KEY (destination_account_id) REFERENCES bank_accounts (id)
+);
+
+CREATE TABLE savings_rules (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                VARCHAR(255) NOT NULL,
+    description         VARCHAR(255) NOT NULL,
+    rule_type           VARCHAR(255) NOT NULL,
+    rule_condition      VARCHAR(255) NOT NULL,
+    amount_cents        BIGINT NOT NULL,
+    is_active           BOOLEAN NOT NULL,
+    savings_goal_id     BIGINT NOT NULL,
+    source_account_id   BIGINT NOT NULL,
+    CONSTRAINT fk_savings_rules_goal FOREIGN KEY (savings_goal_id) REFERENCES savings_goals (id),
+    CONSTRAINT fk_savings_rules_source_account FOREIGN KEY (source_account_id) REFERENCES bank_accounts (id)
+);
+
+CREATE TABLE transactions (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount_cents        BIGINT NOT NULL,
+    timestamp           TIMESTAMP NOT NULL,
+    savings_goal_id     BIGINT NOT NULL,
+    source_account_id   BIGINT NOT NULL,
+    savings_rule_id     BIGINT,
+    description         VARCHAR(255) NOT NULL,
+    merchant_name       VARCHAR(255),
+    status              VARCHAR(255) NOT NULL,
+    CONSTRAINT fk_transactions_goal FOREIGN KEY (savings_goal_id) REFERENCES savings_goals (id),
+    CONSTRAINT fk_transactions_source_account FOREIGN KEY (source_account_id) REFERENCES bank_accounts (id),
+    CONSTRAINT fk_transactions_rule FOREIGN KEY (savings_rule_id) REFERENCES savings_rules (id)
+);
@@ -0,0 +1,24 @@
+-- Secondary indexes matching the repository finders. Column order follows the
+-- query shape: equality columns first, then the range column.
+
+-- TransactionRepository.findBySourceAccountAndTimestampBetween
+CREATE INDEX idx_transactions_source_account_timestamp ON transactions (source_account_id, timestamp);
+
+-- TransactionRepository.findBySavingsGoal and goal history ordered by time
+CREATE INDEX idx_transactions_goal_timestamp ON transactions (savings_goal_id, timestamp);
+
+-- TransactionRepository.findByTimestampBetween
+CREATE INDEX idx_transactions_timestamp ON transactions (timestamp);
+
+-- SavingsRuleRepository.findByRuleTypeAndIsActive and findByIsActiveTrue use the leading columns
+CREATE INDEX idx_savings_rules_active_type_condition ON savings_rules (is_active, rule_type, rule_condition);
+
+-- SavingsRuleRepository.findByRuleConditionAndIsActive
+CREATE INDEX idx_savings_rules_condition_active ON savings_rules (rule_condition, is_active);
+
+-- SavingsRuleRepository.findBySavingsGoal
+CREATE INDEX idx_savings_rules_goal ON savings_rules (savings_goal_id);
+
+-- BankAccountRepository.findByUser and SavingsGoalRepository.findByUser
+CREATE INDEX idx_bank_accounts_user ON bank_accounts (user_id);
+CREATE INDEX idx_savings_goals_user ON savings_goals (user_id);
@@ -0,0 +1,17 @@
+-- Per-goal, per-day totals of completed savings transfers. Maintained in the same
+-- transaction that settles each transfer so period reports sum days, not transactions.
+
+CREATE TABLE goal_daily_totals (
+    savings_goal_id     BIGINT NOT NULL,
+    total_date          DATE NOT NULL,
+    amount_cents        BIGINT NOT NULL,
+    transaction_count   INTEGER NOT NULL,
+    CONSTRAINT pk_goal_daily_totals PRIMARY KEY (savings_goal_id, total_date),
+    CONSTRAINT fk_goal_daily_totals_goal FOREIGN KEY (savings_goal_id) REFERENCES savings_goals (id) ON DELETE CASCADE
+);
+
+INSERT INTO goal_daily_totals (savings_goal_id, total_date, amount_cents, transaction_count)
+SELECT savings_goal_id, CAST(timestamp AS DATE), SUM(amount_cents), COUNT(*)
+  FROM transactions
+ WHERE status = 'COMPLETED'
+ GROUP BY savings_goal_id, CAST(timestamp AS DATE);
@@ -0,0 +1,4 @@
+-- Keyset pagination walks a goal's history by (timestamp, id); include id so the
+-- tie-breaker is answered from the index instead of a sort.
+CREATE INDEX idx_transactions_goal_timestamp_id ON transactions (savings_goal_id, timestamp, id);
+DROP INDEX idx_transactions_goal_timestamp;
@@ -0,0 +1,14 @@
+-- Transactional outbox: side effects (bank transfers, emails) are recorded here in the
+-- same transaction as the rows they belong to and delivered afterwards by the relay.
+
+CREATE TABLE outbox_events (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type       VARCHAR(255) NOT NULL,
+    aggregate_id     BIGINT NOT NULL,
+    created_at       TIMESTAMP NOT NULL,
+    next_attempt_at  TIMESTAMP NOT NULL,
+    attempts         INTEGER NOT NULL,
+    last_error       VARCHAR(1000)
+);
+
+CREATE INDEX idx_outbox_events_next_attempt ON outbox_events (next_attempt_at, id);
@@ -0,0 +1,33 @@
+-- Account activity imported from the bank (purchases, deposits), one row per bank
+-- transaction. The bank's own transaction id makes re-imports idempotent.
+
+CREATE TABLE bank_transactions (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    source_account_id   BIGINT NOT NULL,
+    external_id         VARCHAR(255) NOT NULL,
+    amount_cents        BIGINT NOT NULL,
+    timestamp           TIMESTAMP NOT NULL,
+    description         VARCHAR(255),
+    merchant_name       VARCHAR(255),
+    category            VARCHAR(255),
+    CONSTRAINT fk_bank_transactions_account FOREIGN KEY (source_account_id) REFERENCES bank_accounts (id) ON DELETE CASCADE,
+    CONSTRAINT uk_bank_transactions_account_external_id UNIQUE (source_account_id, external_id)
+);
+
+CREATE INDEX idx_bank_transactions_account_timestamp ON bank_transactions (source_account_id, timestamp);
+
+-- Bulk imports load here first and are merged into bank_transactions in one statement.
+-- Rows of concurrent imports are kept apart by import_id.
+CREATE TABLE bank_transactions_staging (
+    import_id           VARCHAR(36) NOT NULL,
+    line_number         BIGINT NOT NULL,
+    source_account_id   BIGINT NOT NULL,
+    external_id         VARCHAR(255) NOT NULL,
+    amount_cents        BIGINT NOT NULL,
+    timestamp           TIMESTAMP NOT NULL,
+    description         VARCHAR(255),
+    merchant_name       VARCHAR(255),
+    category            VARCHAR(255)
+);
+
+CREATE INDEX idx_bank_transactions_staging_import ON bank_transactions_staging (import_id, external_id, line_number);
@@ -0,0 +1,18 @@
+-- How each user wants to hear about triggered savings rules: one email per transfer
+-- (IMMEDIATE), one combined email per digest window (DIGEST), or not at all (OFF).
+ALTER TABLE users ADD COLUMN rule_notification_mode VARCHAR(20) DEFAULT 'DIGEST' NOT NULL;
+
+-- Rule-triggered notifications waiting for their user's next digest email.
+CREATE TABLE notification_digest_entries (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id         BIGINT NOT NULL,
+    transaction_id  BIGINT NOT NULL,
+    rule_name       VARCHAR(255) NOT NULL,
+    goal_id         BIGINT NOT NULL,
+    goal_name       VARCHAR(255) NOT NULL,
+    amount_cents    BIGINT NOT NULL,
+    created_at      TIMESTAMP NOT NULL,
+    CONSTRAINT fk_notification_digest_entries_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_notification_digest_entries_user ON notification_digest_entries (user_id, created_at);
@@ -0,0 +1,47 @@
+-- One-off migration of money columns from DOUBLE PRECISION dollars to BIGINT cents.
+-- Run once against an existing PostgreSQL database before starting the version that
+-- maps amounts through com.example.savings.model.Money:
+--
+--   psql -d savingstracker -f money-minor-units.sql
+--
+-- Values are rounded half-even to the nearest cent, the same as Money.toCents. ROUND(numeric)
+-- rounds half away from zero, so ties are resolved by to_cents below. The old columns are
+-- dropped in the same transaction, so a failure leaves the schema untouched.
+
+BEGIN;
+
+CREATE FUNCTION pg_temp.to_cents(amount DOUBLE PRECISION) RETURNS BIGINT AS $$
+    SELECT CASE
+        WHEN ABS(scaled - TRUNC(scaled)) = 0.5
+            THEN (TRUNC(scaled) + CASE WHEN MOD(TRUNC(scaled), 2) = 0 THEN 0 ELSE SIGN(scaled) END)::BIGINT
+        ELSE ROUND(scaled)::BIGINT
+    END
+    FROM (SELECT CAST(amount AS NUMERIC) * 100 AS scaled) s
+$$ LANGUAGE SQL IMMUTABLE;
+
+ALTER TABLE bank_accounts ADD COLUMN balance_cents BIGINT;
+UPDATE bank_accounts SET balance_cents = pg_temp.to_cents(balance);
+ALTER TABLE bank_accounts ALTER COLUMN balance_cents SET NOT NULL;
+ALTER TABLE bank_accounts DROP COLUMN balance;
+
+ALTER TABLE savings_goals ADD COLUMN target_amount_cents BIGINT;
+ALTER TABLE savings_goals ADD COLUMN current_amount_cents BIGINT;
+UPDATE savings_goals
+   SET target_amount_cents = pg_temp.to_cents(target_amount),
+       current_amount_cents = pg_temp.to_cents(current_amount);
+ALTER TABLE savings_goals ALTER COLUMN target_amount_cents SET NOT NULL;
+ALTER TABLE savings_goals ALTER COLUMN current_amount_cents SET NOT NULL;
+ALTER TABLE savings_goals DROP COLUMN target_amount;
+ALTER TABLE savings_goals DROP COLUMN current_amount;
+
+ALTER TABLE savings_rules ADD COLUMN amount_cents BIGINT;
+UPDATE savings_rules SET amount_cents = pg_temp.to_cents(amount);
+ALTER TABLE savings_rules ALTER COLUMN amount_cents SET NOT NULL;
+ALTER TABLE savings_rules DROP COLUMN amount;
+
+ALTER TABLE transactions ADD COLUMN amount_cents BIGINT;
+UPDATE transactions SET amount_cents = pg_temp.to_cents(amount);
+ALTER TABLE transactions ALTER COLUMN amount_cents SET NOT NULL;
+ALTER TABLE transactions DROP COLUMN amount;
+
+COMMIT;
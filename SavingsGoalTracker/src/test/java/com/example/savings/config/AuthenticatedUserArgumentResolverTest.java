@@ -0,0 +1,73 @@
+package com.example.savings.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthenticatedUserArgumentResolverTest {
+    private static final AuthenticatedUser ALICE =
+        new AuthenticatedUser(7L, "alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private final AuthenticatedUserArgumentResolver resolver = new AuthenticatedUserArgumentResolver();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void onlyAuthenticatedUserParametersAreResolved() throws NoSuchMethodException {
+        assertTrue(resolver.supportsParameter(parameter(0)));
+        assertFalse(resolver.supportsParameter(parameter(1)));
+    }
+
+    @Test
+    void parameterIsThePrincipalTheFilterAuthenticated() throws NoSuchMethodException {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(ALICE, null, ALICE.getAuthorities()));
+
+        assertSame(ALICE, resolve());
+    }
+
+    @Test
+    void requestWithoutAJwtPrincipalIsAConfigurationError() {
+        assertThrows(IllegalStateException.class, this::resolve);
+
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+            "key", "anonymousUser", List.of(new SimpleGrantedAuthority("ROLE_ANONYMOUS"))));
+        assertThrows(IllegalStateException.class, this::resolve);
+
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("alice", null, ALICE.getAuthorities()));
+        assertThrows(IllegalStateException.class, this::resolve);
+    }
+
+    private Object resolve() throws NoSuchMethodException {
+        return resolver.resolveArgument(parameter(0), null,
+            new ServletWebRequest(new MockHttpServletRequest()), null);
+    }
+
+    private static MethodParameter parameter(int index) throws NoSuchMethodException {
+        return new MethodParameter(
+            Handler.class.getDeclaredMethod("handle", AuthenticatedUser.class, String.class), index);
+    }
+
+    private static final class Handler {
+        @SuppressWarnings("unused")
+        void handle(AuthenticatedUser currentUser, String pageToken) {
+        }
+    }
+}
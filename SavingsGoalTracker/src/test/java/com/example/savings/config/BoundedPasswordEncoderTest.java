@@ -0,0 +1,99 @@
+package com.example.savings.config;
+
+import com.example.savings.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void hashesBeyondTheCapAreRefusedWithoutWaiting() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new StuckEncoder(hashing, release), 2, meterRegistry);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> encoder.encode("first"));
+            Future<Boolean> second = executor.submit(() -> encoder.matches("second", "hash:second"));
+            assertTrue(hashing.await(10, TimeUnit.SECONDS));
+            assertEquals(2.0, meterRegistry.get("security.password.hash.active").gauge().value());
+
+            // Both permits are taken by hashes that will not finish until released
+            TooManyRequestsException refused = assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> assertThrows(TooManyRequestsException.class, () -> encoder.encode("third")));
+            assertEquals(1, refused.getRetryAfterSeconds());
+            assertEquals(1.0, meterRegistry.get("security.password.hash.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("hash:first", first.get(10, TimeUnit.SECONDS));
+            assertTrue(second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("hash:third", encoder.encode("third"));
+        assertEquals(0.0, meterRegistry.get("security.password.hash.active").gauge().value());
+    }
+
+    @Test
+    void failedHashesGiveTheirPermitBack() {
+        PasswordEncoder failing = new StuckEncoder(new CountDownLatch(0), new CountDownLatch(0)) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                throw new IllegalArgumentException("bad password");
+            }
+        };
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(failing, 1, new SimpleMeterRegistry());
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode("a"));
+        assertTrue(encoder.matches("b", "hash:b"));
+    }
+
+    /** Signals when a hash starts and does not finish it until released. */
+    private static class StuckEncoder implements PasswordEncoder {
+        private final CountDownLatch hashing;
+        private final CountDownLatch release;
+
+        StuckEncoder(CountDownLatch hashing, CountDownLatch release) {
+            this.hashing = hashing;
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            await();
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+
+        private void await() {
+            hashing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.savings.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+    private static final AuthenticatedUser ALICE =
+        new AuthenticatedUser(7L, "alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private final VerifiedTokenCache verifiedTokenCache = mock(VerifiedTokenCache.class);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+
+    @BeforeEach
+    void createFilter() {
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache", verifiedTokenCache);
+        when(verifiedTokenCache.resolve("valid-token")).thenReturn(ALICE);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void bearerTokenAuthenticatesTheRequestAsItsPrincipal() throws ServletException, IOException {
+        MockFilterChain chain = filter("Bearer valid-token");
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertSame(ALICE, authentication.getPrincipal());
+        assertEquals(ALICE.getAuthorities(), authentication.getAuthorities());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void rejectedTokenLeavesTheRequestAnonymous() throws ServletException, IOException {
+        MockFilterChain chain = filter("Bearer tampered-token");
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void failureToVerifyLeavesTheRequestAnonymous() throws ServletException, IOException {
+        when(verifiedTokenCache.resolve("broken-token")).thenThrow(new IllegalStateException("user lookup failed"));
+
+        MockFilterChain chain = filter("Bearer broken-token");
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void requestWithoutBearerTokenIsNotVerified() throws ServletException, IOException {
+        filter(null);
+        filter("Basic YWxpY2U6c2VjcmV0");
+        filter("Bearer ");
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(verifiedTokenCache, never()).resolve(anyString());
+    }
+
+    private MockFilterChain filter(String authorization) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/goals");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return chain;
+    }
+}
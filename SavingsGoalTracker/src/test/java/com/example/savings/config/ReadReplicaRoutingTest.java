@@ -0,0 +1,167 @@
+package com.example.savings.config;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankAccountSummary;
+import com.example.savings.model.Money;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.service.BankAccountService;
+import com.example.savings.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application against a primary and a replica that are separate H2 databases, so
+ * each query's result shows which one served it. The replica reports its lag from a table
+ * the test controls.
+ */
+@SpringBootTest(properties = {
+    "datasource.replicas.enabled=true",
+    "datasource.replicas.urls=" + ReadReplicaRoutingTest.REPLICA_URL,
+    "datasource.replicas.username=sa",
+    "datasource.replicas.password=",
+    "datasource.replicas.max-lag-seconds=5",
+    "datasource.replicas.lag-check-interval-ms=3600000",
+    "datasource.replicas.lag-query=SELECT lag_seconds FROM replica_lag"
+})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1";
+
+    private static JdbcTemplate replica;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    private User user;
+
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_seconds DOUBLE PRECISION)");
+    }
+
+    @BeforeEach
+    void createAccountOnBothDatabases() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user = userService.registerUser(user);
+
+        BankAccount account = new BankAccount();
+        account.setAccountName("Primary copy");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setAccessToken("token");
+        account.setBalance(Money.parse("100.00"));
+        account.setUser(user);
+        bankAccountRepository.save(account);
+
+        // The same user on the replica, with an account the primary does not have
+        replica.update("INSERT INTO users (id, name, username, password, email) VALUES (?, ?, ?, ?, ?)",
+            user.getId(), name, name, "password", name + "@example.com");
+        replica.update("INSERT INTO bank_accounts (account_name, account_number, bank_name, account_type, " +
+            "balance_cents, access_token, user_id) VALUES ('Replica copy', '0001', 'Bank', 'CHECKING', 10000, 'token', ?)",
+            user.getId());
+    }
+
+    @Test
+    void readOnlyTransactionsGoToHealthyReplica() {
+        setReplicaLag(0);
+
+        assertEquals(List.of("Replica copy"), accountNames());
+    }
+
+    @Test
+    void writesGoToPrimary() {
+        setReplicaLag(0);
+
+        BankAccount savings = new BankAccount();
+        savings.setAccountName("Savings");
+        savings.setAccountNumber("0002");
+        savings.setBankName("Bank");
+        savings.setAccountType("SAVINGS");
+        savings.setAccessToken("token");
+        savings.setBalance(Money.ZERO);
+        bankAccountService.addBankAccount(savings, user);
+
+        assertEquals(List.of("Primary copy", "Savings"),
+            bankAccountRepository.findSummariesByUserId(user.getId()).stream().map(BankAccountSummary::getAccountName).sorted().toList());
+        assertEquals(List.of("Replica copy"), replica.queryForList(
+            "SELECT account_name FROM bank_accounts WHERE user_id = ?", String.class, user.getId()));
+    }
+
+    @Test
+    void staleReplicaFallsBackToPrimary() {
+        setReplicaLag(60);
+
+        assertEquals(List.of("Primary copy"), accountNames());
+
+        setReplicaLag(1);
+
+        assertEquals(List.of("Replica copy"), accountNames());
+    }
+
+    @Test
+    void destroyingTheRoutingDataSourceClosesEveryPool() throws Exception {
+        HikariDataSource primary = new HikariDataSource();
+        primary.setJdbcUrl("jdbc:h2:mem:routing-close-primary");
+        HikariDataSource replicaPool = new HikariDataSource();
+        replicaPool.setJdbcUrl("jdbc:h2:mem:routing-close-replica");
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(Map.of("replica-0", replicaPool), "SELECT 0", 5);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(monitor);
+        routing.setTargetDataSources(Map.of(ReadWriteRoutingDataSource.PRIMARY, primary, "replica-0", replicaPool));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        routing.destroy();
+
+        assertTrue(primary.isClosed());
+        assertTrue(replicaPool.isClosed());
+    }
+
+    private List<String> accountNames() {
+        return bankAccountService.getUserAccountSummaries(user).stream().map(BankAccountSummary::getAccountName).toList();
+    }
+
+    private void setReplicaLag(double seconds) {
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag (lag_seconds) VALUES (?)", seconds);
+        replicaLagMonitor.checkReplicaLag();
+    }
+}
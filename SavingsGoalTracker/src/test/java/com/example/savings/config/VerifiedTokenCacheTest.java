@@ -0,0 +1,169 @@
+package com.example.savings.config;
+
+import com.example.savings.model.User;
+import com.example.savings.repository.UserRepository;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-test-secret-test";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void createCache() {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 3600000);
+
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(cache, "customUserDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(cache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxEntries", 1000L);
+        ReflectionTestUtils.setField(cache, "maxTtlSeconds", 300L);
+        cache.init();
+
+        when(userRepository.findById(7L)).thenReturn(Optional.of(new User()));
+    }
+
+    @Test
+    void repeatRequestsWithATokenAreServedFromTheCache() {
+        String token = token("alice", 7L, 3600);
+
+        AuthenticatedUser first = cache.resolve(token);
+        AuthenticatedUser second = cache.resolve(token);
+
+        assertEquals(7L, first.getId());
+        assertEquals("alice", first.getUsername());
+        assertEquals(List.of("ROLE_USER"), first.getAuthorities().stream().map(Object::toString).toList());
+        assertSame(first, second);
+        verify(userRepository, times(1)).findById(7L);
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceItExpires() throws InterruptedException {
+        // JWT expiry has whole-second precision
+        String token = token("alice", 7L, 2);
+        assertNotNull(cache.resolve(token));
+
+        Thread.sleep(2100);
+
+        assertNull(cache.resolve(token));
+    }
+
+    @Test
+    void tamperedTokenIsNotAnsweredFromTheCache() {
+        String token = token("alice", 7L, 3600);
+        String other = token("mallory", 8L, 3600);
+        assertNotNull(cache.resolve(token));
+
+        // The original's signature on another token's payload, and the original cut short
+        String[] parts = token.split("\\.");
+        String swappedPayload = parts[0] + "." + other.split("\\.")[1] + "." + parts[2];
+        assertNull(cache.resolve(swappedPayload));
+        assertNull(cache.resolve(token.substring(0, token.length() - 1)));
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        String forged = Jwts.builder().setSubject("alice").claim("uid", 7L)
+            .setExpiration(new Date(System.currentTimeMillis() + 3600_000))
+            .signWith(SignatureAlgorithm.HS512, "another-secret-another-secret-another-secret-another-secret-x")
+            .compact();
+
+        assertNull(cache.resolve(forged));
+    }
+
+    @Test
+    void evictedUserIsVerifiedAgain() {
+        String token = token("alice", 7L, 3600);
+        cache.resolve(token);
+
+        cache.evictUser("alice");
+        when(userRepository.findById(7L)).thenReturn(Optional.empty());
+
+        assertNull(cache.resolve(token));
+        verify(userRepository, times(2)).findById(7L);
+    }
+
+    @Test
+    void tokenWithoutUserIdIsResolvedThroughTheUserDetailsService() {
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(
+            new AuthenticatedUser(7L, "alice", "password-hash", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        String token = token("alice", null, 3600);
+
+        AuthenticatedUser principal = cache.resolve(token);
+        cache.resolve(token);
+
+        assertEquals(7L, principal.getId());
+        assertEquals("alice", principal.getUsername());
+        assertNull(principal.getPassword());
+        verify(userDetailsService, times(1)).loadUserByUsername("alice");
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void tokenForAnUnknownUserIdIsRejectedEveryTime() {
+        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        String token = token("ghost", 99L, 3600);
+
+        assertNull(cache.resolve(token));
+        assertNull(cache.resolve(token));
+        verify(userRepository, times(2)).findById(99L);
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void issuedTokenCarriesTheUserIdAndRoles() {
+        JwtTokenProvider tokenProvider = (JwtTokenProvider) ReflectionTestUtils.getField(cache, "tokenProvider");
+        AuthenticatedUser alice = new AuthenticatedUser(7L, "alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        String token = tokenProvider.generateToken(
+            new UsernamePasswordAuthenticationToken(alice, null, alice.getAuthorities()));
+
+        AuthenticatedUser principal = tokenProvider.getPrincipal(tokenProvider.parseClaims(token));
+
+        assertEquals(7L, principal.getId());
+        assertEquals("alice", principal.getUsername());
+        assertEquals(alice.getAuthorities(), principal.getAuthorities());
+    }
+
+    /** A token as JwtTokenProvider issues it, expiring {@code seconds} from now; no user id if {@code userId} is null. */
+    static String token(String username, Long userId, long seconds) {
+        JwtBuilder builder = Jwts.builder()
+            .setSubject(username)
+            .setIssuedAt(new Date())
+            .setExpiration(new Date(System.currentTimeMillis() + seconds * 1000))
+            .claim("roles", List.of("ROLE_USER"));
+        if (userId != null) {
+            builder.claim("uid", userId);
+        }
+        return builder.signWith(SignatureAlgorithm.HS512, SECRET).compact();
+    }
+}
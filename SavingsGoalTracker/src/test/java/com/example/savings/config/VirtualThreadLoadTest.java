@@ -0,0 +1,186 @@
+package com.example.savings.config;
+
+import com.example.savings.SavingsApplication;
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares request throughput with platform and with virtual request threads while every request
+ * waits {@value #BANK_LATENCY_MS} ms on a slow bank. Both runs start the application on a random
+ * port with a small Tomcat pool and send the same burst of concurrent bank syncs
+ * (POST /api/accounts/{id}/transactions/sync) to it; the bank is a local HTTP stand-in.
+ *
+ * With 10 request threads and 500 ms per bank call, platform threads top out at 20 requests per
+ * second. Virtual threads should get well past that, as long as nothing pins them to their
+ * carrier while they wait.
+ *
+ * Virtual threads need Java 21 at runtime, so the test is skipped on older JDKs. The build
+ * compiles for 17, so run it on a newer JVM with
+ * {@code mvn test -Dtest=VirtualThreadLoadTest -Djvm=<jdk 21>/bin/java}.
+ */
+class VirtualThreadLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+    private static final long BANK_LATENCY_MS = 500;
+    private static final int TOMCAT_THREADS = 10;
+    private static final int REQUESTS = 200;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static ExecutorService bankExecutor;
+    private static HttpServer bank;
+    private static ExecutorService clientExecutor;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startBank() throws IOException {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21 or later");
+
+        bankExecutor = Executors.newCachedThreadPool();
+        bank = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        bank.setExecutor(bankExecutor);
+        bank.createContext("/", exchange -> {
+            try {
+                Thread.sleep(BANK_LATENCY_MS);
+                byte[] body = "{\"transactions\":[]}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        bank.start();
+
+        clientExecutor = Executors.newCachedThreadPool();
+        client = HttpClient.newBuilder().executor(clientExecutor).version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterAll
+    static void stopBank() {
+        if (bank != null) {
+            bank.stop(0);
+            bankExecutor.shutdownNow();
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void virtualThreadsServeSlowBankCallsBeyondTheRequestPool() throws Exception {
+        double platform = requestsPerSecond(false);
+        double virtual = requestsPerSecond(true);
+        logger.info("{} bank syncs with {} ms bank latency: {} req/s on {} platform threads, {} req/s on virtual threads",
+            REQUESTS, BANK_LATENCY_MS, Math.round(platform), TOMCAT_THREADS, Math.round(virtual));
+
+        // Platform threads cannot beat one bank round trip per thread at a time
+        assertTrue(platform <= TOMCAT_THREADS * 1000.0 / BANK_LATENCY_MS * 1.1, "platform: " + platform);
+        // Virtual threads are limited only by CPU, which on a single core is not much more than
+        // twice the platform ceiling here; the margin grows with more cores
+        assertTrue(virtual > platform * 1.5, "platform: " + platform + ", virtual: " + virtual);
+    }
+
+    private double requestsPerSecond(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SavingsApplication.class)
+                .profiles("test")
+                // Arguments, since they override application-test.properties where defaults do not
+                .run("--server.port=0",
+                    "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                    "--app.threads.virtual=" + virtualThreads,
+                    "--banking.api.baseurl=http://localhost:" + bank.getAddress().getPort(),
+                    // Requests hold no connection while they wait on the bank
+                    "--spring.jpa.open-in-view=false",
+                    "--ledger.directory=target/test-ledger-load-" + mode,
+                    "--bank-import.id-filter.directory=target/test-id-filters-load-" + mode)) {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            Long accountId = createAccount(context);
+            String token = login(baseUrl);
+            URI sync = URI.create(baseUrl + "/api/accounts/" + accountId
+                + "/transactions/sync?since=2024-01-01T00:00:00");
+
+            // Warm up the request path before timing it
+            burst(sync, token, TOMCAT_THREADS);
+
+            long start = System.nanoTime();
+            burst(sync, token, REQUESTS);
+            return REQUESTS * 1e9 / (System.nanoTime() - start);
+        }
+    }
+
+    private void burst(URI sync, String token, int requests) throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(sync)
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get(60, TimeUnit.SECONDS).statusCode(), () -> response.join().body());
+        }
+    }
+
+    private Long createAccount(ConfigurableApplicationContext context) {
+        User user = new User();
+        user.setName("Load Test");
+        user.setUsername("loadtest");
+        user.setEmail("loadtest@example.com");
+        user.setPassword("password");
+        user = context.getBean(UserService.class).registerUser(user);
+
+        BankAccount account = new BankAccount();
+        account.setAccountName("Checking");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setAccessToken("token");
+        account.setBalance(Money.ZERO);
+        account.setUser(user);
+        return context.getBean(BankAccountRepository.class).save(account).getId();
+    }
+
+    private String login(String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"loadtest\",\"password\":\"password\"}"))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return (String) objectMapper.readValue(response.body(), Map.class).get("accessToken");
+    }
+}
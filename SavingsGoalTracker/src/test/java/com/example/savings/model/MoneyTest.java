@@ -0,0 +1,69 @@
+package com.example.savings.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void toCentsRoundsHalfEven() {
+        assertEquals(12L, Money.toCents(0.125));
+        assertEquals(14L, Money.toCents(0.135));
+        assertEquals(-12L, Money.toCents(-0.125));
+        assertEquals(-14L, Money.toCents(-0.135));
+        assertEquals(1000L, Money.toCents(10.005));
+        assertEquals(1999L, Money.toCents(19.99));
+        assertEquals(123456790L, Money.toCents(1234567.895));
+    }
+
+    @Test
+    void decimalAmountsRoundHalfEven() {
+        assertEquals(Money.ofCents(1002L), Money.of(new BigDecimal("10.025")));
+        assertEquals(Money.ofCents(1004L), Money.of(new BigDecimal("10.035")));
+        assertEquals(Money.ofCents(5000L), Money.parse(" 50 "));
+    }
+
+    @Test
+    void applyBasisPointsRoundsHalfUp() {
+        assertEquals(900L, Money.applyBasisPoints(1000L, 9000L));
+        // 0.5 cent rounds away from zero in both directions
+        assertEquals(1L, Money.applyBasisPoints(1L, 5000L));
+        assertEquals(-1L, Money.applyBasisPoints(-1L, 5000L));
+        assertEquals(0L, Money.applyBasisPoints(1L, 4999L));
+        assertEquals(333L, Money.applyBasisPoints(1000L, 3333L));
+    }
+
+    @Test
+    void applyBasisPointsRejectsOverflow() {
+        assertThrows(ArithmeticException.class, () -> Money.applyBasisPoints(Long.MAX_VALUE / 2, 10_000L));
+    }
+
+    @Test
+    void percentageOfTreatsAmountAsBasisPoints() {
+        assertEquals(Money.ofCents(1250L), Money.parse("12.50").percentageOf(Money.parse("100.00")));
+        assertEquals(Money.ofCents(5L), Money.parse("10.00").percentageOf(Money.ofCents(45L)));
+    }
+
+    @Test
+    void roundUpCentsToNextDollar() {
+        assertEquals(0L, Money.roundUpCents(500L));
+        assertEquals(1L, Money.roundUpCents(499L));
+        assertEquals(75L, Money.roundUpCents(1025L));
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money a = Money.parse("0.10");
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(a);
+        }
+        assertEquals(Money.parse("1.00"), total);
+        assertEquals("-0.05", Money.ofCents(-5L).toString());
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1L)));
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.savings.repository;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.SavingsRule;
+import com.example.savings.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on the SQL each repository finder generates and checks that the plan uses the
+ * index added for it. Subclasses supply the database. The tables are filled with enough rows for
+ * the planner to prefer the narrowest index, and the second-level cache is off so every finder
+ * call reaches the database.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.savings.repository.RecordingStatementInspector"
+})
+abstract class FinderIndexUsageTest {
+
+    private static final int USERS = 50;
+    private static final int TRANSACTIONS = 5000;
+    private static final LocalDateTime START = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+    private static final LocalDateTime END = START.plusDays(1);
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private SavingsRuleRepository savingsRuleRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    /** The plan of {@code sql} with {@code params} bound, one line per row. */
+    protected abstract List<String> explain(String sql, Object... params);
+
+    /** Refresh planner statistics after the test rows were inserted. May commit them. */
+    protected abstract void analyze();
+
+    /**
+     * Names under which {@code index} can show up in a plan. {@code leadingColumnOnly} is set for
+     * finders that only filter on the index's first column, which any index starting with that
+     * column serves just as well.
+     */
+    protected List<String> planNames(String index, boolean leadingColumnOnly) {
+        return List.of(index);
+    }
+
+    @BeforeEach
+    void insertRows() {
+        RecordingStatementInspector.clear();
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0) {
+            return;
+        }
+        for (int i = 1; i <= USERS; i++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, username, password, email) VALUES (?, ?, ?, ?, ?)",
+                i, "User " + i, "user" + i, "x", "user" + i + "@example.com");
+            jdbcTemplate.update("INSERT INTO bank_accounts (id, account_name, account_number, bank_name, account_type, "
+                + "balance_cents, access_token, user_id) VALUES (?, 'Checking', ?, 'Bank', 'CHECKING', 0, 'token', ?)",
+                i, "000" + i, i);
+            jdbcTemplate.update("INSERT INTO savings_goals (id, name, target_amount_cents, current_amount_cents, "
+                + "target_date, start_date, user_id, destination_account_id) VALUES (?, 'Goal', 100000, 0, ?, ?, ?, ?)",
+                i, START.plusYears(1).toLocalDate(), START.toLocalDate(), i, i);
+        }
+        // One rule in five is active, so the active-rule lookups are selective enough for an index
+        List<Object[]> rules = new ArrayList<>();
+        SavingsRule.RuleType[] types = SavingsRule.RuleType.values();
+        for (int i = 1; i <= USERS * 4; i++) {
+            int owner = (i - 1) % USERS + 1;
+            rules.add(new Object[]{i, types[i % types.length].name(), "MERCHANT:Shop" + (i % 100), i % 5 == 0, owner, owner});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO savings_rules (id, name, description, rule_type, rule_condition, "
+            + "amount_cents, is_active, savings_goal_id, source_account_id) VALUES (?, 'Rule', 'Rule', ?, ?, 100, ?, ?, ?)",
+            rules);
+        List<Object[]> transactions = new ArrayList<>();
+        for (int i = 1; i <= TRANSACTIONS; i++) {
+            transactions.add(new Object[]{i, timestamp(START.plusMinutes(i * 7L)), (i - 1) % USERS + 1, (i - 1) % USERS + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, amount_cents, timestamp, savings_goal_id, "
+            + "source_account_id, description, status) VALUES (?, 100, ?, ?, ?, 'Transfer', 'COMPLETED')", transactions);
+        analyze();
+    }
+
+    @Test
+    void transactionsBySourceAccountAndTimestamp() {
+        transactionRepository.findBySourceAccountAndTimestampBetween(reference(BankAccount.class, 7L), START, END);
+        assertUsesIndex("idx_transactions_source_account_timestamp", 7L, timestamp(START), timestamp(END));
+    }
+
+    @Test
+    void transactionsBySavingsGoal() {
+        transactionRepository.findBySavingsGoal(reference(SavingsGoal.class, 7L));
+        assertUsesLookupIndex("idx_transactions_goal_timestamp_id", 7L);
+    }
+
+    @Test
+    void transactionsByTimestamp() {
+        transactionRepository.findByTimestampBetween(START, END);
+        assertUsesIndex("idx_transactions_timestamp", timestamp(START), timestamp(END));
+    }
+
+    @Test
+    void transactionGoalPage() {
+        transactionRepository.findGoalPageBefore(7L, START, END, 100L, PageRequest.of(0, 50));
+        assertUsesIndex("idx_transactions_goal_timestamp_id",
+            7L, timestamp(START), timestamp(END), timestamp(END), 100L, 50);
+    }
+
+    @Test
+    void rulesByTypeAndActive() {
+        savingsRuleRepository.findByRuleTypeAndIsActive(SavingsRule.RuleType.ROUND_UP, true);
+        assertUsesIndex("idx_savings_rules_active_type_condition", SavingsRule.RuleType.ROUND_UP.name(), true);
+    }
+
+    @Test
+    void activeRules() {
+        savingsRuleRepository.findByIsActiveTrue();
+        assertUsesIndex("idx_savings_rules_active_type_condition");
+    }
+
+    @Test
+    void rulesByConditionAndActive() {
+        savingsRuleRepository.findByRuleConditionAndIsActive("MERCHANT:Shop7", true);
+        assertUsesIndex("idx_savings_rules_condition_active", "MERCHANT:Shop7", true);
+    }
+
+    @Test
+    void rulesBySavingsGoal() {
+        savingsRuleRepository.findBySavingsGoal(reference(SavingsGoal.class, 7L));
+        assertUsesLookupIndex("idx_savings_rules_goal", 7L);
+    }
+
+    @Test
+    void bankAccountsByUser() {
+        bankAccountRepository.findByUser(reference(User.class, 7L));
+        assertUsesLookupIndex("idx_bank_accounts_user", 7L);
+    }
+
+    @Test
+    void savingsGoalsByUser() {
+        savingsGoalRepository.findByUser(reference(User.class, 7L));
+        assertUsesLookupIndex("idx_savings_goals_user", 7L);
+    }
+
+    private void assertUsesIndex(String index, Object... params) {
+        assertPlanUses(index, false, params);
+    }
+
+    private void assertUsesLookupIndex(String index, Object... params) {
+        assertPlanUses(index, true, params);
+    }
+
+    private void assertPlanUses(String index, boolean leadingColumnOnly, Object... params) {
+        String sql = RecordingStatementInspector.first();
+        String plan = String.join("\n", explain(sql, params)).toLowerCase(Locale.ROOT);
+        assertTrue(planNames(index, leadingColumnOnly).stream().anyMatch(name -> plan.contains(name.toLowerCase(Locale.ROOT))),
+            () -> "Expected " + index + " in the plan of\n" + sql + "\n" + plan);
+    }
+
+    private <T> T reference(Class<T> type, long id) {
+        return entityManager.getEntityManager().getReference(type, id);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return Timestamp.valueOf(time);
+    }
+}
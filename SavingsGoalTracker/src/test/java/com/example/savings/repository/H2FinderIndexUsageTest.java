@@ -0,0 +1,31 @@
+package com.example.savings.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class H2FinderIndexUsageTest extends FinderIndexUsageTest {
+
+    @Override
+    protected List<String> explain(String sql, Object... params) {
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, params);
+    }
+
+    @Override
+    protected void analyze() {
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /** H2 gives every foreign key an index of its own, which serves lookups on the key column. */
+    @Override
+    protected List<String> planNames(String index, boolean leadingColumnOnly) {
+        List<String> names = new ArrayList<>(List.of(index));
+        if (leadingColumnOnly) {
+            names.addAll(jdbcTemplate.queryForList("SELECT other.INDEX_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS other "
+                + "JOIN INFORMATION_SCHEMA.INDEX_COLUMNS expected ON expected.TABLE_NAME = other.TABLE_NAME "
+                + "AND expected.COLUMN_NAME = other.COLUMN_NAME "
+                + "WHERE LOWER(expected.INDEX_NAME) = LOWER(?) AND expected.ORDINAL_POSITION = 1 "
+                + "AND other.ORDINAL_POSITION = 1", String.class, index));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.savings.repository;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs against PostgreSQL in a container, so it also covers the partitioned transactions table.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PostgresFinderIndexUsageTest extends FinderIndexUsageTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Override
+    protected List<String> explain(String sql, Object... params) {
+        // The test tables are small enough for a sequential scan to look cheaper than any index
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, params);
+    }
+
+    @Override
+    protected void analyze() {
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /** Indexes on the partitioned transactions table show up under each partition's own name. */
+    @Override
+    protected List<String> planNames(String index, boolean leadingColumnOnly) {
+        List<String> names = new ArrayList<>(List.of(index));
+        names.addAll(jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)", String.class, index));
+        return names;
+    }
+}
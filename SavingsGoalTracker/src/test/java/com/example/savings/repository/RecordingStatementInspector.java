@@ -0,0 +1,33 @@
+package com.example.savings.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the SQL Hibernate prepares on the current thread, so tests can look at what a
+ * repository method actually sends.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    static void clear() {
+        STATEMENTS.get().clear();
+    }
+
+    /** The first statement prepared since the last {@link #clear()}. */
+    static String first() {
+        List<String> statements = STATEMENTS.get();
+        if (statements.isEmpty()) {
+            throw new IllegalStateException("No SQL was prepared");
+        }
+        return statements.get(0);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.model.BankTransactionRecord;
+import com.example.savings.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BankTransactionImportParsingTest {
+
+    @Test
+    void csvColumnsAreMatchedByNameInAnyOrderAndCase() {
+        List<BankTransactionRecord> records = csv(
+            "Category,AMOUNT,Merchant_Name,Transaction_ID,Timestamp,Description\n"
+                + "Groceries,-12.34,Corner Shop,tx-1,2024-01-15T09:30,Milk\n");
+
+        assertEquals(List.of(new BankTransactionRecord("tx-1", LocalDateTime.of(2024, 1, 15, 9, 30),
+            Money.parse("-12.34"), "Milk", "Corner Shop", "Groceries")), records);
+    }
+
+    @Test
+    void csvHeaderMayStartWithByteOrderMark() {
+        List<BankTransactionRecord> records = csv("\uFEFFid,date,amount\ntx-1,2024-01-15,5.00\n");
+
+        assertEquals("tx-1", records.get(0).getExternalId());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 0, 0), records.get(0).getTimestamp());
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasAndQuotes() {
+        List<BankTransactionRecord> records = csv(
+            "id,date,amount,description,merchant\n"
+                + "tx-1,2024-01-15,-3.50,\"Coffee, large\",\"Joe's \"\"Beans\"\"\"\n");
+
+        assertEquals("Coffee, large", records.get(0).getDescription());
+        assertEquals("Joe's \"Beans\"", records.get(0).getMerchantName());
+    }
+
+    @Test
+    void csvBlankLinesAndEmptyOptionalFieldsAreSkipped() {
+        List<BankTransactionRecord> records = csv("id,date,amount,description\n\ntx-1,2024-01-15,1.00,  \n\ntx-2,2024-01-16,2.00,\n");
+
+        assertEquals(2, records.size());
+        assertNull(records.get(0).getDescription());
+        assertNull(records.get(1).getDescription());
+    }
+
+    @Test
+    void csvWithoutRequiredColumnIsRejected() {
+        assertThrows(BadRequestException.class, () -> csv("id,date,description\ntx-1,2024-01-15,Milk\n"));
+    }
+
+    @Test
+    void csvLineWithInvalidAmountIsRejectedWithItsLineNumber() {
+        BadRequestException error = assertThrows(BadRequestException.class,
+            () -> csv("id,date,amount\ntx-1,2024-01-15,1.00\ntx-2,2024-01-16,lots\n"));
+
+        assertTrue(error.getMessage().contains("line 3"), error.getMessage());
+    }
+
+    @Test
+    void ofxSgmlLeafElementsNeedNoEndTags() {
+        List<BankTransactionRecord> records = ofx(
+            "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\n\n"
+                + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20240115\n<TRNAMT>-42.10\n<FITID>A1\n<NAME>Fuel &amp; Go\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20240116120000\n<TRNAMT>100.00\n<FITID>A2\n<NAME>Payroll\n<MEMO>January\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n");
+
+        assertEquals(List.of(
+            new BankTransactionRecord("A1", LocalDateTime.of(2024, 1, 15, 0, 0), Money.parse("-42.10"),
+                "Fuel & Go", "Fuel & Go", null),
+            new BankTransactionRecord("A2", LocalDateTime.of(2024, 1, 16, 12, 0), Money.parse("100.00"),
+                "January", "Payroll", null)), records);
+    }
+
+    @Test
+    void ofxXmlLeafElementsHaveEndTags() {
+        List<BankTransactionRecord> records = ofx(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n"
+                + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>"
+                + "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20240115093000.000[-5:EST]</DTPOSTED>"
+                + "<TRNAMT>-7.25</TRNAMT><FITID>B1</FITID><NAME>Bakery</NAME></STMTTRN>"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>");
+
+        assertEquals(List.of(new BankTransactionRecord("B1", LocalDateTime.of(2024, 1, 15, 9, 30),
+            Money.parse("-7.25"), "Bakery", "Bakery", null)), records);
+    }
+
+    @Test
+    void ofxTransactionWithoutIdIsRejected() {
+        assertThrows(BadRequestException.class, () -> ofx(
+            "<OFX><STMTTRN><DTPOSTED>20240115<TRNAMT>-1.00<NAME>Shop</STMTTRN></OFX>"));
+    }
+
+    @Test
+    void ofxDatesAcceptTimeAndZoneSuffixes() {
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0),
+            BankTransactionImportService.OfxRecordIterator.parseOfxDate("20240229"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 23, 59, 58),
+            BankTransactionImportService.OfxRecordIterator.parseOfxDate("20240229235958"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 23, 59, 58),
+            BankTransactionImportService.OfxRecordIterator.parseOfxDate("20240229235958.123[+1:CET]"));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0),
+            BankTransactionImportService.OfxRecordIterator.parseOfxDate("20240229[0:GMT]"));
+        assertThrows(BadRequestException.class,
+            () -> BankTransactionImportService.OfxRecordIterator.parseOfxDate("20240230"));
+        assertThrows(BadRequestException.class,
+            () -> BankTransactionImportService.OfxRecordIterator.parseOfxDate("2024"));
+    }
+
+    @Test
+    void bankApiDebitsAreNegativeWhateverTheirReportedSign() {
+        assertEquals(Money.parse("-12.50"), BankTransactionImportService.fromBankApi(
+            Map.of("transaction_id", "t1", "date", "2024-01-15", "amount", 12.5, "type", "debit")).getAmount());
+        assertEquals(Money.parse("-12.50"), BankTransactionImportService.fromBankApi(
+            Map.of("transaction_id", "t2", "date", "2024-01-15", "amount", -12.5, "type", "debit")).getAmount());
+        assertEquals(Money.parse("12.50"), BankTransactionImportService.fromBankApi(
+            Map.of("id", "t3", "date", "2024-01-15T08:00", "amount", 12.5, "type", "credit")).getAmount());
+    }
+
+    @Test
+    void bankApiTransactionWithoutAmountIsRejected() {
+        assertThrows(BadRequestException.class,
+            () -> BankTransactionImportService.fromBankApi(Map.of("id", "t1", "date", "2024-01-15")));
+    }
+
+    private static List<BankTransactionRecord> csv(String content) {
+        return drain(new BankTransactionImportService.CsvRecordIterator(new BufferedReader(new StringReader(content))));
+    }
+
+    private static List<BankTransactionRecord> ofx(String content) {
+        return drain(new BankTransactionImportService.OfxRecordIterator(new StringReader(content)));
+    }
+
+    private static List<BankTransactionRecord> drain(Iterator<BankTransactionRecord> records) {
+        List<BankTransactionRecord> all = new ArrayList<>();
+        records.forEachRemaining(all::add);
+        return all;
+    }
+}
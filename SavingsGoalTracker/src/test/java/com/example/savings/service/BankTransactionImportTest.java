@@ -0,0 +1,151 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.BankImportResult;
+import com.example.savings.model.Money;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Imports CSV files through the full staging and merge path. Subclasses supply the database: the
+ * PostgreSQL run covers COPY and ON CONFLICT, the H2 run the JDBC batches and the portable merge.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+abstract class BankTransactionImportTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private BankTransactionImportService importService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private BankAccount account;
+
+    @BeforeEach
+    void createAccount() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user = userService.registerUser(user);
+
+        account = new BankAccount();
+        account.setAccountName("Checking");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setAccessToken("token");
+        account.setBalance(Money.parse("1000.00"));
+        account.setUser(user);
+        account = bankAccountRepository.save(account);
+    }
+
+    @Test
+    void firstOccurrenceOfARepeatedIdIsKept() {
+        BankImportResult result = importCsv("id,date,amount,description\n"
+            + "tx-1,2024-01-15,-1.00,First\n"
+            + "tx-2,2024-01-15,-2.00,Other\n"
+            + "tx-1,2024-01-16,-9.00,Repeat\n");
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(List.of("tx-1 -100 First", "tx-2 -200 Other"), storedRows());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bank_transactions_staging", Integer.class));
+    }
+
+    @Test
+    void reimportSkipsRowsTheAccountAlreadyHas() {
+        String file = csvOf(0, 2000);
+        importCsv(file);
+
+        // Every id is now in the account's filter, so each one is looked up as a possible duplicate
+        BankImportResult again = importCsv(file);
+        assertEquals(2000, again.getReceived());
+        assertEquals(0, again.getInserted());
+
+        BankImportResult overlapping = importCsv(csvOf(1500, 2500));
+        assertEquals(1000, overlapping.getReceived());
+        assertEquals(500, overlapping.getInserted());
+        assertEquals(500, overlapping.getDuplicates());
+
+        assertEquals(2500, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM bank_transactions WHERE source_account_id = ?", Integer.class, account.getId()));
+        assertEquals(List.of("tx-00000 -100 Purchase 0", "tx-02499 -2599 Purchase 2499"),
+            List.of(storedRows().get(0), storedRows().get(2499)));
+    }
+
+    @Test
+    void concurrentImportsOfTheSameFileStoreEachRowOnce() throws Exception {
+        String file = csvOf(0, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<BankImportResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit((Callable<BankImportResult>) () -> importCsv(file)));
+            }
+            long inserted = 0;
+            for (Future<BankImportResult> result : results) {
+                inserted += result.get().getInserted();
+            }
+            assertEquals(1000, inserted);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1000, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM bank_transactions WHERE source_account_id = ?", Integer.class, account.getId()));
+    }
+
+    private BankImportResult importCsv(String content) {
+        return importService.importCsv(account, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Rows {@code from} (inclusive) to {@code to} (exclusive), each with its own id and amount. */
+    private static String csvOf(int from, int to) {
+        StringBuilder file = new StringBuilder("id,date,amount,description\n");
+        for (int i = from; i < to; i++) {
+            file.append(String.format("tx-%05d,2024-01-15T10:00,-%d.%02d,Purchase %d\n", i, (100 + i) / 100, (100 + i) % 100, i));
+        }
+        return file.toString();
+    }
+
+    private List<String> storedRows() {
+        return jdbcTemplate.queryForList("SELECT external_id || ' ' || amount_cents || ' ' || description "
+            + "FROM bank_transactions WHERE source_account_id = ? ORDER BY external_id", String.class, account.getId());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.savings.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalIdBloomFilterTest {
+    private static final int IDS = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void neverMissesAnAddedId() {
+        ExternalIdBloomFilter filter = ExternalIdBloomFilter.create(1L, IDS, 0.01);
+        for (int i = 0; i < IDS; i++) {
+            filter.put(ExternalIdBloomFilter.hash(externalId(i)));
+        }
+
+        for (int i = 0; i < IDS; i++) {
+            assertTrue(filter.mightContain(ExternalIdBloomFilter.hash(externalId(i))), externalId(i));
+        }
+    }
+
+    @Test
+    void neverMissesIdsAddedConcurrently() throws Exception {
+        ExternalIdBloomFilter filter = ExternalIdBloomFilter.create(1L, IDS, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread;
+                adds.add(pool.submit(() -> {
+                    for (int i = first; i < IDS; i += 8) {
+                        filter.put(ExternalIdBloomFilter.hash(externalId(i)));
+                    }
+                }));
+            }
+            for (Future<?> add : adds) {
+                add.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < IDS; i++) {
+            assertTrue(filter.mightContain(ExternalIdBloomFilter.hash(externalId(i))), externalId(i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearTheTargetAtCapacity() {
+        ExternalIdBloomFilter filter = ExternalIdBloomFilter.create(1L, IDS, 0.01);
+        for (int i = 0; i < IDS; i++) {
+            filter.put(ExternalIdBloomFilter.hash(externalId(i)));
+        }
+        filter.addCount(IDS);
+
+        int falsePositives = 0;
+        for (int i = IDS; i < 2 * IDS; i++) {
+            if (filter.mightContain(ExternalIdBloomFilter.hash(externalId(i)))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < IDS * 0.02, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.002);
+    }
+
+    @Test
+    void writtenFilterReadsBackWithTheSameIds() throws IOException {
+        ExternalIdBloomFilter filter = ExternalIdBloomFilter.create(7L, 1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.put(ExternalIdBloomFilter.hash(externalId(i)));
+        }
+        filter.addCount(1_000);
+        Path file = directory.resolve("7.bloom");
+        filter.writeTo(file);
+        assertFalse(filter.isDirty());
+
+        ExternalIdBloomFilter read = ExternalIdBloomFilter.readFrom(file, 7L);
+
+        assertNotNull(read);
+        assertEquals(1_000L, read.count());
+        assertEquals(1_000L, read.capacity());
+        assertEquals(filter.memoryBytes(), read.memoryBytes());
+        for (int i = 0; i < 2_000; i++) {
+            long hash = ExternalIdBloomFilter.hash(externalId(i));
+            assertEquals(filter.mightContain(hash), read.mightContain(hash), externalId(i));
+        }
+    }
+
+    @Test
+    void rejectsFilesForOtherAccountsOrDamaged() throws IOException {
+        Path file = directory.resolve("7.bloom");
+        ExternalIdBloomFilter.create(7L, 1_000, 0.01).writeTo(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        assertNull(ExternalIdBloomFilter.readFrom(file, 8L));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+        assertNull(ExternalIdBloomFilter.readFrom(file, 7L));
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertNull(ExternalIdBloomFilter.readFrom(file, 7L));
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        Files.write(file, badMagic);
+        assertNull(ExternalIdBloomFilter.readFrom(file, 7L));
+    }
+
+    private static String externalId(int i) {
+        return "txn_" + Integer.toString(i, 36) + "_" + (i * 7919L % 100_003);
+    }
+}
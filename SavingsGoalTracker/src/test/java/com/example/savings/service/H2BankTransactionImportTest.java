@@ -0,0 +1,4 @@
+package com.example.savings.service;
+
+class H2BankTransactionImportTest extends BankTransactionImportTest {
+}
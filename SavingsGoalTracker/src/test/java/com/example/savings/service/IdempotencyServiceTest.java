@@ -0,0 +1,186 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.BadRequestException;
+import com.example.savings.exception.ConflictException;
+import com.example.savings.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+    private static final String OPERATION = "POST /api/transactions/manual";
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private long userId;
+    private String key;
+
+    @BeforeEach
+    void createUser() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        userId = userService.registerUser(user).getId();
+        key = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        ReflectionTestUtils.setField(idempotencyService, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "waitSeconds", 30L);
+    }
+
+    @Test
+    void repeatedRequestsReplayTheFirstResponse() {
+        ResponseEntity<?> first = execute(Map.of("amount", "10.00"));
+        ResponseEntity<?> retry = execute(Map.of("amount", "10.00"));
+
+        assertEquals(1, runs.get());
+        assertEquals(201, first.getStatusCodeValue());
+        assertNull(first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(201, retry.getStatusCodeValue());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(URI.create("/api/transactions/1"), retry.getHeaders().getLocation());
+        assertEquals("{\"id\":1}", retry.getBody());
+
+        // Another instance, or this one after the cache has dropped the key, replays from the table
+        forgetCompletedResponses();
+        ResponseEntity<?> stored = execute(Map.of("amount", "10.00"));
+        assertEquals(1, runs.get());
+        assertEquals("true", stored.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals("{\"id\":1}", stored.getBody());
+    }
+
+    @Test
+    void keysReusedForADifferentRequestAreRejected() {
+        execute(Map.of("amount", "10.00"));
+
+        assertThrows(BadRequestException.class, () -> execute(Map.of("amount", "99.00")));
+        assertThrows(BadRequestException.class, () -> idempotencyService.execute(userId, key,
+            "POST /api/transactions/rule/1", Map.of("amount", "10.00"), this::create));
+
+        forgetCompletedResponses();
+        assertThrows(BadRequestException.class, () -> execute(Map.of("amount", "99.00")));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestsReleaseTheirKey() {
+        assertEquals(400, idempotencyService.execute(userId, key, OPERATION, Map.of("amount", "10.00"),
+            () -> ResponseEntity.badRequest().build()).getStatusCodeValue());
+
+        execute(Map.of("amount", "10.00"));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void liveClaimsOnAnotherInstanceAreWaitedForNotTakenOver() {
+        ReflectionTestUtils.setField(idempotencyService, "waitSeconds", 1L);
+        insertClaim(Map.of("amount", "10.00"), LocalDateTime.now());
+
+        assertThrows(ConflictException.class, () -> execute(Map.of("amount", "10.00")));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void abandonedClaimsAreTakenOverOnlyAfterTheWait() {
+        ReflectionTestUtils.setField(idempotencyService, "waitSeconds", 1L);
+        insertClaim(Map.of("amount", "10.00"), LocalDateTime.now().minusMinutes(10));
+
+        long start = System.nanoTime();
+        ResponseEntity<?> response = execute(Map.of("amount", "10.00"));
+
+        assertEquals(201, response.getStatusCodeValue());
+        assertEquals(1, runs.get());
+        assertTrue(System.nanoTime() - start >= 1_000_000_000L);
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject("SELECT status FROM idempotency_keys "
+            + "WHERE user_id = ? AND idempotency_key = ?", String.class, userId, key));
+    }
+
+    @Test
+    void runningRequestsKeepRefreshingTheirClaim() {
+        ReflectionTestUtils.setField(idempotencyService, "leaseSeconds", 1L);
+        LocalDateTime[] claimedAt = new LocalDateTime[2];
+
+        idempotencyService.execute(userId, key, OPERATION, Map.of("amount", "10.00"), () -> {
+            claimedAt[0] = claimCreatedAt();
+            try {
+                Thread.sleep(1500);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            claimedAt[1] = claimCreatedAt();
+            return create();
+        });
+
+        // Refreshed every third of the lease while the request ran
+        assertTrue(claimedAt[1].isAfter(claimedAt[0].plusNanos(500_000_000L)), claimedAt[0] + " then " + claimedAt[1]);
+    }
+
+    private ResponseEntity<?> execute(Object request) {
+        return idempotencyService.execute(userId, key, OPERATION, request, this::create);
+    }
+
+    private ResponseEntity<?> create() {
+        runs.incrementAndGet();
+        return ResponseEntity.created(URI.create("/api/transactions/1")).body(Map.of("id", 1));
+    }
+
+    /** Claim the key as a request on another instance would, with that request's fingerprint. */
+    private void insertClaim(Object request, LocalDateTime createdAt) {
+        String requestHash = ReflectionTestUtils.invokeMethod(idempotencyService, "hash", OPERATION, request);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, status, "
+                + "created_at, expires_at) VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?)",
+            userId, key, requestHash, Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt.plusHours(24)));
+    }
+
+    private LocalDateTime claimCreatedAt() {
+        return jdbcTemplate.queryForObject("SELECT created_at FROM idempotency_keys WHERE user_id = ? "
+            + "AND idempotency_key = ?", Timestamp.class, userId, key).toLocalDateTime();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forgetCompletedResponses() {
+        ((Cache<String, ?>) ReflectionTestUtils.getField(idempotencyService, "completed")).invalidateAll();
+    }
+}
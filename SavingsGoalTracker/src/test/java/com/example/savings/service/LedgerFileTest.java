@@ -0,0 +1,111 @@
+package com.example.savings.service;
+
+import com.example.savings.model.LedgerEntry;
+import com.example.savings.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LedgerFileTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 9, 30, 15, 250_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsReadBackAsAppended() throws IOException {
+        try (LedgerFile ledger = new LedgerFile(directory.resolve("test.ledger"))) {
+            assertEquals(1L, ledger.append(START, 7L, 0L, 5000L, LedgerEntry.EntryType.OPENING));
+            assertEquals(2L, ledger.append(START.plusMinutes(1), 8L, 41L, -250L, LedgerEntry.EntryType.POSTING));
+
+            assertEquals(2L, ledger.size());
+            assertEquals(new LedgerEntry(1L, START, 7L, null, Money.ofCents(5000L), LedgerEntry.EntryType.OPENING),
+                ledger.entry(1));
+            assertEquals(new LedgerEntry(2L, START.plusMinutes(1), 8L, 41L, Money.ofCents(-250L), LedgerEntry.EntryType.POSTING),
+                ledger.entry(2));
+            assertEquals(41L, ledger.maxTransactionId());
+        }
+    }
+
+    @Test
+    void postingTimesNeverGoBackwards() throws IOException {
+        try (LedgerFile ledger = new LedgerFile(directory.resolve("test.ledger"))) {
+            ledger.append(START, 1L, 1L, 100L, LedgerEntry.EntryType.POSTING);
+            ledger.append(START.minusHours(1), 1L, 2L, 100L, LedgerEntry.EntryType.POSTING);
+
+            assertEquals(LedgerFile.toMillis(START), ledger.postedAtMillis(2));
+        }
+    }
+
+    @Test
+    void reopenReplaysEveryRecord() throws IOException {
+        Path path = directory.resolve("test.ledger");
+        try (LedgerFile ledger = new LedgerFile(path)) {
+            for (long i = 1; i <= 100; i++) {
+                ledger.append(START.plusSeconds(i), i % 3, i, i * 10, LedgerEntry.EntryType.POSTING);
+            }
+        }
+
+        try (LedgerFile ledger = new LedgerFile(path)) {
+            assertEquals(100L, ledger.size());
+            assertEquals(100L, ledger.maxTransactionId());
+            assertEquals(new LedgerEntry(57L, START.plusSeconds(57), 0L, 57L, Money.ofCents(570L), LedgerEntry.EntryType.POSTING),
+                ledger.entry(57));
+            assertEquals(101L, ledger.append(START, 1L, 101L, 1L, LedgerEntry.EntryType.POSTING));
+            // The appended record keeps the time order of the replayed ones
+            assertEquals(LedgerFile.toMillis(START.plusSeconds(100)), ledger.postedAtMillis(101));
+        }
+    }
+
+    @Test
+    void tornRecordAndEverythingAfterItAreDropped() throws IOException {
+        Path path = directory.resolve("test.ledger");
+        try (LedgerFile ledger = new LedgerFile(path)) {
+            for (long i = 1; i <= 5; i++) {
+                ledger.append(START.plusSeconds(i), 1L, i, 100L, LedgerEntry.EntryType.POSTING);
+            }
+        }
+        // Flip a byte inside the amount of record 3, so its checksum no longer matches
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1}), 2L * LedgerFile.RECORD_SIZE + 39);
+        }
+
+        try (LedgerFile ledger = new LedgerFile(path)) {
+            assertEquals(2L, ledger.size());
+            assertEquals(2L, ledger.maxTransactionId());
+            assertEquals(3L, ledger.append(START.plusSeconds(10), 2L, 10L, 300L, LedgerEntry.EntryType.POSTING));
+        }
+
+        // Records 4 and 5 were cleared, so they do not come back after the new record 3
+        try (LedgerFile ledger = new LedgerFile(path)) {
+            assertEquals(3L, ledger.size());
+            assertEquals(new LedgerEntry(3L, START.plusSeconds(10), 2L, 10L, Money.ofCents(300L), LedgerEntry.EntryType.POSTING),
+                ledger.entry(3));
+        }
+    }
+
+    @Test
+    void fileIsLockedWhileOpen() throws IOException {
+        Path path = directory.resolve("test.ledger");
+        try (LedgerFile ignored = new LedgerFile(path)) {
+            assertThrows(IllegalStateException.class, () -> new LedgerFile(path));
+        }
+    }
+
+    @Test
+    void emptyLedgerHasNoTransactions() throws IOException {
+        try (LedgerFile ledger = new LedgerFile(directory.resolve("test.ledger"))) {
+            assertEquals(0L, ledger.size());
+            assertEquals(0L, ledger.maxTransactionId());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.savings.service;
+
+import com.example.savings.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleServiceTest {
+    private static final String ADDRESS = "203.0.113.7";
+
+    private LoginThrottleService throttle;
+
+    @BeforeEach
+    void createThrottle() {
+        throttle = new LoginThrottleService();
+        ReflectionTestUtils.setField(throttle, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(throttle, "usernameFreeAttempts", 3);
+        ReflectionTestUtils.setField(throttle, "addressFreeAttempts", 10);
+        ReflectionTestUtils.setField(throttle, "backoffBaseSeconds", 60L);
+        ReflectionTestUtils.setField(throttle, "backoffMaxSeconds", 900L);
+        ReflectionTestUtils.setField(throttle, "failureWindowMinutes", 30L);
+        ReflectionTestUtils.setField(throttle, "trackedKeys", 1000L);
+        throttle.init();
+    }
+
+    @Test
+    void attemptsPastTheFreeOnesAreBackedOff() {
+        for (int i = 0; i < 4; i++) {
+            throttle.checkAllowed("alice", ADDRESS);
+        }
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class,
+            () -> throttle.checkAllowed("Alice ", ADDRESS));
+        assertEquals(60, refused.getRetryAfterSeconds());
+        // Another username from the same address is still allowed
+        assertDoesNotThrow(() -> throttle.checkAllowed("bob", ADDRESS));
+    }
+
+    @Test
+    void concurrentAttemptsCannotAllPassBeforeAnyHasFailed() throws Exception {
+        int attempts = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(attempts);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        throttle.checkAllowed("alice", "198.51.100." + Thread.currentThread().getId());
+                        return true;
+                    } catch (TooManyRequestsException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    allowed++;
+                }
+            }
+            // The three free attempts and the one that starts the back-off
+            assertEquals(4, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void successfulLoginsDoNotCountAsFailures() {
+        for (int i = 0; i < 10; i++) {
+            throttle.checkAllowed("alice", ADDRESS);
+            throttle.recordSuccess("alice", ADDRESS);
+        }
+        for (int i = 0; i < 10; i++) {
+            throttle.checkAllowed("user" + i, ADDRESS);
+        }
+        // The address has now failed ten times, its free attempts; the successes did not count
+        throttle.checkAllowed("user10", ADDRESS);
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed("user11", ADDRESS));
+    }
+
+    @Test
+    void cancelledAttemptsAreTakenBack() {
+        for (int i = 0; i < 10; i++) {
+            throttle.checkAllowed("alice", ADDRESS);
+            throttle.cancelAttempt("alice", ADDRESS);
+        }
+        for (int i = 0; i < 4; i++) {
+            throttle.checkAllowed("alice", ADDRESS);
+        }
+        assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed("alice", ADDRESS));
+    }
+
+    @Test
+    void attemptsRefusedForTheAddressDoNotCountAgainstTheUsername() {
+        for (int i = 0; i < 11; i++) {
+            throttle.checkAllowed("user" + i, ADDRESS);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed("alice", ADDRESS));
+        }
+        for (int i = 0; i < 4; i++) {
+            throttle.checkAllowed("alice", "198.51.100.1");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDedupServiceTest {
+    private static final NotificationEvent.Type TYPE = NotificationEvent.Type.GOAL_COMPLETED;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private NotificationDedupService dedup;
+
+    @BeforeEach
+    void createService() {
+        dedup = service(192);
+        when(jdbcTemplate.update(startsWith("INSERT"), eq(1L), eq(10L), eq(TYPE.name()), eq("once"), any()))
+            .thenReturn(1);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void repeatCheckAfterMarkingIsAnsweredFromMemory() {
+        assertTrue(dedup.markSent(1, 10, TYPE, "once"));
+
+        assertTrue(dedup.wasSent(1, 10, TYPE, "once"));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Integer.class), any(), any(), any(), any());
+    }
+
+    @Test
+    void keyCoversUserGoalTypeAndPeriod() {
+        dedup.markSent(1, 10, TYPE, "once");
+
+        assertFalse(dedup.wasSent(2, 10, TYPE, "once"));
+        assertFalse(dedup.wasSent(1, 11, TYPE, "once"));
+        assertFalse(dedup.wasSent(1, 10, NotificationEvent.Type.GOAL_NEAR_COMPLETION, "once"));
+        assertFalse(dedup.wasSent(1, 10, TYPE, "2024-W02"));
+    }
+
+    @Test
+    void markIsOnlyRememberedOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(dedup.markSent(1, 10, TYPE, "once"));
+
+        // Rolled back or not yet committed: the table, not memory, decides
+        assertFalse(dedup.wasSent(1, 10, TYPE, "once"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertTrue(dedup.wasSent(1, 10, TYPE, "once"));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Integer.class), any(), any(), any(), any());
+    }
+
+    @Test
+    void keyExpiredFromMemoryIsStillFoundInTheTable() {
+        dedup = service(0);
+        dedup.markSent(1, 10, TYPE, "once");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(1L), eq(10L), eq(TYPE.name()), eq("once")))
+            .thenReturn(1);
+
+        assertTrue(dedup.wasSent(1, 10, TYPE, "once"));
+        verify(jdbcTemplate).queryForObject(anyString(), eq(Integer.class), eq(1L), eq(10L), eq(TYPE.name()), eq("once"));
+    }
+
+    @Test
+    void markRecordedByAnotherInstanceIsReportedAsDuplicate() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq(1L), eq(10L), eq(TYPE.name()), eq("other"), any()))
+            .thenThrow(new DuplicateKeyException("unique_notification_dedup"));
+
+        assertFalse(dedup.markSent(1, 10, TYPE, "other"));
+        assertTrue(dedup.wasSent(1, 10, TYPE, "other"));
+    }
+
+    @Test
+    void purgeOnlyRemovesPeriodicRecordsPastRetention() {
+        LocalDateTime before = LocalDateTime.now();
+        dedup.purgeExpired();
+
+        ArgumentCaptor<Timestamp> cutoff = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(startsWith("DELETE"), eq(NotificationEvent.Type.WEEKLY_REPORT.name()), cutoff.capture());
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), eq(TYPE.name()), any());
+        assertFalse(cutoff.getValue().toLocalDateTime().isBefore(before.minusDays(35)));
+        assertFalse(cutoff.getValue().toLocalDateTime().isAfter(LocalDateTime.now().minusDays(35)));
+    }
+
+    private NotificationDedupService service(long cacheHours) {
+        NotificationDedupService service = new NotificationDedupService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "cacheHours", cacheHours);
+        ReflectionTestUtils.setField(service, "cacheSize", 1000L);
+        ReflectionTestUtils.setField(service, "retentionDays", 35L);
+        ReflectionTestUtils.setField(service, "postgres", false);
+        service.init();
+        return service;
+    }
+}
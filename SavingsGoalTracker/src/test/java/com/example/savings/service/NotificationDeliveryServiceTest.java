@@ -0,0 +1,154 @@
+package com.example.savings.service;
+
+import com.example.savings.model.QueuedNotification;
+import com.example.savings.repository.QueuedNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+/**
+ * Delivers claimed batches on the test thread, so each test sees the queue as the worker left it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class NotificationDeliveryServiceTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private NotificationDeliveryService deliveryService;
+
+    @Autowired
+    private NotificationQueueService queueService;
+
+    @Autowired
+    private QueuedNotificationRepository queuedNotificationRepository;
+
+    @Value("${notifications.delivery.retry-base-seconds}")
+    private long retryBaseSeconds;
+
+    @Value("${notifications.delivery.max-attempts}")
+    private int maxAttempts;
+
+    private final List<String> sentSubjects = new ArrayList<>();
+
+    @BeforeEach
+    void emptyQueue() {
+        queuedNotificationRepository.deleteAll();
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+    }
+
+    @Test
+    void batchIsSentInOneCallAndRemovedFromTheQueue() {
+        recordSends();
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        queueService.enqueue("b@example.com", "Second", "Body", "<p>Body</p>");
+
+        deliveryService.deliver(queueService.claimBatch(10));
+
+        assertEquals(List.of("First", "Second"), sentSubjects);
+        assertTrue(queuedNotificationRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void onlyTheMessagesTheServerRejectedAreRetried() {
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (MimeMessage message : (MimeMessage[]) invocation.getRawArguments()[0]) {
+                if ("Second".equals(message.getSubject())) {
+                    failed.put(message, new MessagingException("550 Mailbox unavailable"));
+                }
+            }
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(MimeMessage[].class));
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        queueService.enqueue("b@example.com", "Second", "Body", null);
+        queueService.enqueue("c@example.com", "Third", "Body", null);
+
+        deliveryService.deliver(queueService.claimBatch(10));
+
+        List<QueuedNotification> remaining = queuedNotificationRepository.findAll();
+        assertEquals(1, remaining.size());
+        assertEquals("Second", remaining.get(0).getSubject());
+        assertEquals("550 Mailbox unavailable", remaining.get(0).getLastError());
+    }
+
+    @Test
+    void failureWithoutPerMessageDetailRetriesTheWholeBatch() {
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        queueService.enqueue("b@example.com", "Second", "Body", null);
+
+        deliveryService.deliver(queueService.claimBatch(10));
+
+        List<QueuedNotification> remaining = queuedNotificationRepository.findAll();
+        assertEquals(2, remaining.size());
+        remaining.forEach(notification -> assertEquals("Connection refused", notification.getLastError()));
+    }
+
+    @Test
+    void retriesBackOffExponentiallyAndStopAtMaxAttempts() {
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+        queueService.enqueue("a@example.com", "First", "Body", null);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            deliveryService.deliver(queueService.claimBatch(10));
+            LocalDateTime after = LocalDateTime.now();
+
+            long delaySeconds = retryBaseSeconds << (attempt - 1);
+            QueuedNotification stored = queuedNotificationRepository.findAll().get(0);
+            assertEquals(attempt, stored.getAttempts());
+            assertFalse(stored.getNextAttemptAt().isBefore(before.plusSeconds(delaySeconds).minusSeconds(1)));
+            assertFalse(stored.getNextAttemptAt().isAfter(after.plusSeconds(delaySeconds).plusSeconds(1)));
+            makeDue(stored, attempt);
+        }
+
+        // The last attempt fails too: the notification is dropped instead of rescheduled
+        makeDue(queuedNotificationRepository.findAll().get(0), maxAttempts - 1);
+        deliveryService.deliver(queueService.claimBatch(10));
+        assertTrue(queuedNotificationRepository.findAll().isEmpty());
+    }
+
+    private void recordSends() {
+        doAnswer(invocation -> {
+            for (MimeMessage message : (MimeMessage[]) invocation.getRawArguments()[0]) {
+                sentSubjects.add(message.getSubject());
+            }
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+    }
+
+    private void makeDue(QueuedNotification notification, int attempts) {
+        notification.setAttempts(attempts);
+        notification.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        queuedNotificationRepository.save(notification);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.NotificationDigestEntry;
+import com.example.savings.model.QueuedNotification;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.repository.NotificationDigestEntryRepository;
+import com.example.savings.repository.QueuedNotificationRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Flushes digest entries written straight to the table, with a batch size small enough that a
+ * flush spans several batches.
+ */
+@SpringBootTest(properties = "notifications.digest.batch-size=2")
+@ActiveProfiles("test")
+class NotificationDigestServiceTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private NotificationDigestService digestService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    @Autowired
+    private NotificationDigestEntryRepository digestEntryRepository;
+
+    @Autowired
+    private QueuedNotificationRepository queuedNotificationRepository;
+
+    @Value("${notifications.digest.window-minutes}")
+    private long windowMinutes;
+
+    @BeforeEach
+    void emptyDigestsAndQueue() {
+        digestEntryRepository.deleteAll();
+        queuedNotificationRepository.deleteAll();
+    }
+
+    @Test
+    void digestWaitsUntilItsOldestEntryLeavesTheWindow() {
+        SavingsGoal goal = createGoal();
+        User user = goal.getUser();
+        addEntry(goal, "Round-up", windowMinutes - 1);
+
+        digestService.flushDueDigests();
+        assertEquals(1, digestEntryRepository.count());
+        assertTrue(emailsTo(user).isEmpty());
+
+        // Once the oldest entry is due, newer entries go out in the same digest
+        addEntry(goal, "Payday", windowMinutes + 1);
+        digestService.flushDueDigests();
+
+        assertEquals(0, digestEntryRepository.count());
+        List<QueuedNotification> emails = emailsTo(user);
+        assertEquals(1, emails.size());
+        assertTrue(emails.get(0).getBody().contains("Round-up"), emails.get(0).getBody());
+        assertTrue(emails.get(0).getBody().contains("Payday"), emails.get(0).getBody());
+    }
+
+    @Test
+    void everyDueUserIsFlushedAcrossSeveralBatches() {
+        List<SavingsGoal> due = List.of(createGoal(), createGoal(), createGoal(), createGoal(), createGoal());
+        for (SavingsGoal goal : due) {
+            addEntry(goal, "Weekly", windowMinutes + 5);
+            addEntry(goal, "Round-up", 1);
+        }
+        SavingsGoal waiting = createGoal();
+        addEntry(waiting, "Weekly", 1);
+
+        digestService.flushDueDigests();
+
+        for (SavingsGoal goal : due) {
+            assertEquals(1, emailsTo(goal.getUser()).size());
+        }
+        assertTrue(emailsTo(waiting.getUser()).isEmpty());
+        assertEquals(List.of(waiting.getUser().getId()),
+            digestEntryRepository.findAll().stream().map(NotificationDigestEntry::getUserId).collect(Collectors.toList()));
+    }
+
+    private void addEntry(SavingsGoal goal, String ruleName, long minutesAgo) {
+        NotificationDigestEntry entry = new NotificationDigestEntry();
+        entry.setUserId(goal.getUser().getId());
+        entry.setTransactionId(1L);
+        entry.setRuleName(ruleName);
+        entry.setGoalId(goal.getId());
+        entry.setGoalName(goal.getName());
+        entry.setAmount(Money.parse("2.50"));
+        entry.setCreatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+        digestEntryRepository.save(entry);
+    }
+
+    private List<QueuedNotification> emailsTo(User user) {
+        return queuedNotificationRepository.findAll().stream()
+            .filter(notification -> notification.getRecipient().equals(user.getEmail()))
+            .collect(Collectors.toList());
+    }
+
+    private SavingsGoal createGoal() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user = userService.registerUser(user);
+
+        BankAccount account = new BankAccount();
+        account.setAccountName("Checking");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setAccessToken("token");
+        account.setBalance(Money.parse("1000.00"));
+        account.setUser(user);
+        account = bankAccountRepository.save(account);
+
+        SavingsGoal goal = new SavingsGoal();
+        goal.setName("Holiday");
+        goal.setUser(user);
+        goal.setDestinationAccount(account);
+        goal.setTargetAmount(Money.parse("500.00"));
+        goal.setCurrentAmount(Money.ZERO);
+        goal.setStartDate(LocalDate.now());
+        goal.setTargetDate(LocalDate.now().plusYears(1));
+        return savingsGoalRepository.save(goal);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.savings.service;
+
+import com.example.savings.model.QueuedNotification;
+import com.example.savings.repository.QueuedNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NotificationQueueServiceTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private NotificationQueueService queueService;
+
+    @Autowired
+    private QueuedNotificationRepository queuedNotificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${notifications.delivery.lease-seconds}")
+    private long leaseSeconds;
+
+    @BeforeEach
+    void emptyQueue() {
+        queuedNotificationRepository.deleteAll();
+    }
+
+    @Test
+    void claimedNotificationsAreLeasedOldestFirst() {
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        queueService.enqueue("b@example.com", "Second", "Body", null);
+        queueService.enqueue("c@example.com", "Third", "Body", "<p>Body</p>");
+
+        LocalDateTime before = LocalDateTime.now();
+        List<QueuedNotification> first = queueService.claimBatch(2);
+        LocalDateTime after = LocalDateTime.now();
+
+        assertEquals(List.of("First", "Second"), subjects(first));
+        for (QueuedNotification claimed : first) {
+            QueuedNotification stored = queuedNotificationRepository.findById(claimed.getId()).orElseThrow();
+            assertEquals(1, stored.getAttempts());
+            assertFalse(stored.getNextAttemptAt().isBefore(before.plusSeconds(leaseSeconds).minusSeconds(1)));
+            assertFalse(stored.getNextAttemptAt().isAfter(after.plusSeconds(leaseSeconds).plusSeconds(1)));
+        }
+
+        // Leased notifications are not offered again while the lease lasts
+        assertEquals(List.of("Third"), subjects(queueService.claimBatch(2)));
+        assertTrue(queueService.claimBatch(2).isEmpty());
+    }
+
+    @Test
+    void notificationIsOfferedAgainOnceItsLeaseRunsOut() {
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        QueuedNotification claimed = queueService.claimBatch(10).get(0);
+
+        QueuedNotification stored = queuedNotificationRepository.findById(claimed.getId()).orElseThrow();
+        stored.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        queuedNotificationRepository.save(stored);
+
+        List<QueuedNotification> reclaimed = queueService.claimBatch(10);
+        assertEquals(List.of(claimed.getId()), reclaimed.stream().map(QueuedNotification::getId).collect(Collectors.toList()));
+        assertEquals(2, reclaimed.get(0).getAttempts());
+    }
+
+    @Test
+    void claimFromAStaleReadLosesToTheWorkerThatClaimedFirst() {
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        // Another instance reads the row, then this one claims it first
+        QueuedNotification staleRead = queuedNotificationRepository.findAll().get(0);
+        assertEquals(1, queueService.claimBatch(10).size());
+
+        Integer claimed = new TransactionTemplate(transactionManager).execute(status -> queuedNotificationRepository.claim(
+            staleRead.getId(), staleRead.getAttempts(), LocalDateTime.now().plusSeconds(leaseSeconds)));
+        assertEquals(0, claimed);
+        assertEquals(1, queuedNotificationRepository.findById(staleRead.getId()).orElseThrow().getAttempts());
+    }
+
+    @Test
+    void completeRemovesOnlyTheGivenNotifications() {
+        queueService.enqueue("a@example.com", "First", "Body", null);
+        queueService.enqueue("b@example.com", "Second", "Body", null);
+        List<QueuedNotification> claimed = queueService.claimBatch(10);
+
+        queueService.complete(List.of(claimed.get(0).getId()));
+        queueService.complete(List.of());
+
+        assertEquals(List.of("Second"), subjects(queuedNotificationRepository.findAll()));
+    }
+
+    private static List<String> subjects(List<QueuedNotification> notifications) {
+        return notifications.stream().map(QueuedNotification::getSubject).collect(Collectors.toList());
+    }
+}
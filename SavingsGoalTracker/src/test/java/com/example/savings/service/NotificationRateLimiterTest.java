@@ -0,0 +1,103 @@
+package com.example.savings.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationRateLimiterTest {
+    // One token every 200 ms, so refills can be waited for
+    private static final double FAST_REFILL_PER_HOUR = 18_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void burstUpToCapacityThenLimited() {
+        NotificationRateLimiter limiter = limiter(6, 2);
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limiter.tryAcquire(1L));
+        }
+        assertFalse(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+        assertEquals(2, meterRegistry.counter("notifications.rate.limited").count());
+
+        // Each user has their own bucket
+        assertTrue(limiter.tryAcquire(2L));
+    }
+
+    @Test
+    void tokenComesBackAfterTheRefillInterval() throws InterruptedException {
+        NotificationRateLimiter limiter = limiter(2, FAST_REFILL_PER_HOUR);
+        assertTrue(limiter.tryAcquire(1L));
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+
+        Thread.sleep(250);
+
+        assertTrue(limiter.tryAcquire(1L));
+        assertFalse(limiter.tryAcquire(1L));
+    }
+
+    @Test
+    void idleBucketRefillsOnlyUpToCapacity() throws InterruptedException {
+        NotificationRateLimiter limiter = limiter(3, FAST_REFILL_PER_HOUR);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(1L);
+        }
+
+        // Long enough for five tokens, but the bucket holds three
+        Thread.sleep(1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(1L));
+        }
+        assertFalse(limiter.tryAcquire(1L));
+    }
+
+    @Test
+    void concurrentRequestsCannotTakeMoreThanTheCapacity() throws Exception {
+        NotificationRateLimiter limiter = limiter(6, 2);
+        int requests = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return limiter.tryAcquire(1L);
+                }));
+            }
+            start.countDown();
+            int acquired = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    acquired++;
+                }
+            }
+            assertEquals(6, acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private NotificationRateLimiter limiter(int capacity, double refillPerHour) {
+        NotificationRateLimiter limiter = new NotificationRateLimiter();
+        ReflectionTestUtils.setField(limiter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(limiter, "capacity", capacity);
+        ReflectionTestUtils.setField(limiter, "refillPerHour", refillPerHour);
+        limiter.init();
+        return limiter;
+    }
+}
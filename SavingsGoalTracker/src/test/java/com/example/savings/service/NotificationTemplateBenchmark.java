@@ -0,0 +1,131 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the savings digest at digest scale - one user's batch of rule-triggered savings across a
+ * few goals - from the compiled templates, against the hand-built StringBuilder and DecimalFormat
+ * body it replaced. Runs on four threads, as the email workers do.
+ *
+ * Not run by the build. Run with
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test "-Dexec.args=-cp %classpath org.openjdk.jmh.Main NotificationTemplateBenchmark"}
+ * or {@link #main} from the IDE. Not through exec:java, whose forked benchmark JVMs get Maven's
+ * classpath instead of the project's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class NotificationTemplateBenchmark {
+    private static final int GOALS = 5;
+
+    @Param({"10", "100", "1000"})
+    private int entries;
+
+    private NotificationTemplates templates;
+    private Map<String, Object> model;
+    private List<Map<String, Object>> saved;
+    private List<Map<String, Object>> goals;
+    private Money total;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        templates = new NotificationTemplates();
+        templates.load();
+
+        saved = new ArrayList<>(entries);
+        total = Money.ZERO;
+        for (int i = 0; i < entries; i++) {
+            Money amount = Money.ofCents(100 + i * 37L % 5000);
+            total = total.plus(amount);
+            saved.add(Map.of("ruleName", "Round-up rule " + i % 7, "amount", amount, "goalName", "Goal " + i % GOALS));
+        }
+        goals = new ArrayList<>(GOALS);
+        for (int i = 0; i < GOALS; i++) {
+            Money current = Money.ofCents(123_456L * (i + 1));
+            Money target = Money.ofCents(1_000_000L * (i + 1));
+            goals.add(Map.of("name", "Goal " + i, "currentAmount", current, "targetAmount", target,
+                "progress", current.percentOf(target)));
+        }
+
+        model = new HashMap<>();
+        model.put("firstName", "Alex & <Sam>");
+        model.put("count", entries);
+        model.put("single", entries == 1);
+        model.put("entries", saved);
+        model.put("total", total);
+        model.put("hasGoals", true);
+        model.put("goals", goals);
+    }
+
+    @Benchmark
+    public void compiledTemplates(Blackhole blackhole) {
+        NotificationTemplates.RenderedEmail email = templates.render("savings-digest", model);
+        blackhole.consume(email.subject());
+        blackhole.consume(email.text());
+        blackhole.consume(email.html());
+    }
+
+    /** The plain-text body as it was built before the templates, for comparison. */
+    @Benchmark
+    public String handBuiltText(HandBuilt handBuilt) {
+        DecimalFormat money = handBuilt.moneyFormat;
+        StringBuilder body = new StringBuilder();
+        body.append("Hello ").append(model.get("firstName")).append(",\n\n");
+        body.append("Great news! Your savings rules were triggered ").append(entries)
+            .append(entries == 1 ? " time" : " times").append(" since your last update.\n\n");
+        for (Map<String, Object> entry : saved) {
+            body.append("- ").append(entry.get("ruleName")).append(": ")
+                .append(money.format(((Money) entry.get("amount")).toBigDecimal()))
+                .append(" toward ").append(entry.get("goalName")).append("\n");
+        }
+        body.append("\nTotal saved: ").append(money.format(total.toBigDecimal())).append("\n\n");
+        body.append("Current progress:\n");
+        for (Map<String, Object> goal : goals) {
+            body.append("- ").append(goal.get("name")).append(": ")
+                .append(money.format(((Money) goal.get("currentAmount")).toBigDecimal()))
+                .append(" of ").append(money.format(((Money) goal.get("targetAmount")).toBigDecimal()))
+                .append(" (").append(String.format("%.1f", (Double) goal.get("progress"))).append("%)\n");
+        }
+        body.append("\nKeep up the great work!\n\nThe Savings Goal Tracker Team");
+        return body.toString();
+    }
+
+    /** DecimalFormat is not thread-safe, so the hand-built body gets one per benchmark thread. */
+    @State(Scope.Thread)
+    public static class HandBuilt {
+        private final DecimalFormat moneyFormat = new DecimalFormat("$#,##0.00");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.OutboxEvent;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.repository.OutboxEventRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import com.example.savings.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OutboxRelayServiceTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private OutboxRelayService outboxRelayService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${outbox.relay.max-attempts}")
+    private int maxAttempts;
+
+    private Transaction transaction;
+    private String reference;
+
+    @BeforeEach
+    void createPendingTransfer() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user = userService.registerUser(user);
+
+        BankAccount account = new BankAccount();
+        account.setAccountName("Checking");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setAccessToken("token");
+        account.setBalance(Money.parse("1000.00"));
+        account.setUser(user);
+        account = bankAccountRepository.save(account);
+
+        SavingsGoal goal = new SavingsGoal();
+        goal.setName("Car");
+        goal.setUser(user);
+        goal.setDestinationAccount(account);
+        goal.setTargetAmount(Money.parse("500.00"));
+        goal.setCurrentAmount(Money.ZERO);
+        goal.setStartDate(LocalDate.now());
+        goal.setTargetDate(LocalDate.now().plusYears(1));
+        goal = savingsGoalRepository.save(goal);
+
+        transaction = transactionService.createTransaction(goal, account, null, Money.parse("20.00"), "Transfer");
+        reference = "transaction-" + transaction.getId();
+    }
+
+    @Test
+    void definitiveRejectionMarksTransferFailed() {
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference))).thenReturn(false);
+
+        outboxRelayService.relay();
+
+        assertEquals(Transaction.TransactionStatus.FAILED, status());
+        assertTrue(event().isEmpty());
+    }
+
+    @Test
+    void unknownOutcomeIsReconciledInsteadOfFailed() {
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference)))
+            .thenThrow(new RuntimeException("Failed to transfer funds: Read timed out"));
+        makeLastAttemptDue();
+
+        outboxRelayService.relay();
+
+        assertEquals(Transaction.TransactionStatus.PENDING, status());
+        OutboxEvent parked = event().orElseThrow();
+        assertEquals(OutboxEvent.EventType.TRANSFER_RECONCILIATION, parked.getEventType());
+        assertTrue(parked.getNextAttemptAt().isAfter(LocalDateTime.now()));
+
+        // The bank cannot be reached for the lookup either: the transfer stays parked
+        when(bankApiService.lookupTransfer(any(), eq(reference))).thenThrow(new RuntimeException("Connection refused"));
+        makeDue(parked);
+        outboxRelayService.relay();
+        assertEquals(Transaction.TransactionStatus.PENDING, status());
+        assertEquals(OutboxEvent.EventType.TRANSFER_RECONCILIATION, event().orElseThrow().getEventType());
+
+        when(bankApiService.lookupTransfer(any(), eq(reference))).thenReturn(BankApiService.TransferOutcome.EXECUTED);
+        makeDue(event().orElseThrow());
+        outboxRelayService.relay();
+
+        assertEquals(Transaction.TransactionStatus.COMPLETED, status());
+        assertEquals(Money.parse("20.00"), savingsGoalRepository.findById(transaction.getSavingsGoal().getId())
+            .orElseThrow().getCurrentAmount());
+        assertTrue(event().isEmpty());
+    }
+
+    @Test
+    void transferTheBankNeverReceivedIsMarkedFailed() {
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference)))
+            .thenThrow(new RuntimeException("Failed to transfer funds: Connection reset"));
+        makeLastAttemptDue();
+        outboxRelayService.relay();
+
+        when(bankApiService.lookupTransfer(any(), eq(reference))).thenReturn(BankApiService.TransferOutcome.NOT_FOUND);
+        makeDue(event().orElseThrow());
+        outboxRelayService.relay();
+
+        assertEquals(Transaction.TransactionStatus.FAILED, status());
+        assertTrue(event().isEmpty());
+    }
+
+    @Test
+    void settledTransferIsNotLookedUp() {
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference))).thenThrow(new RuntimeException("Read timed out"));
+        makeLastAttemptDue();
+        outboxRelayService.relay();
+
+        // Settled by some other path while parked, leaving the reconciliation event behind
+        transactionService.settleTransfer(transaction.getId(), true, null);
+        makeDue(event().orElseThrow());
+        outboxRelayService.relay();
+
+        verify(bankApiService, never()).lookupTransfer(any(), any());
+        assertEquals(Transaction.TransactionStatus.COMPLETED, status());
+        assertTrue(event().isEmpty());
+    }
+
+    @Test
+    void eventsAreLeasedOnlyWhenTheirDeliveryStarts() {
+        Transaction next = transactionService.createTransaction(transaction.getSavingsGoal(), transaction.getSourceAccount(),
+            null, Money.parse("5.00"), "Transfer");
+        List<Integer> nextAttemptsDuringFirstCall = new ArrayList<>();
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference))).thenAnswer(invocation -> {
+            nextAttemptsDuringFirstCall.add(eventFor(next).orElseThrow().getAttempts());
+            return true;
+        });
+        when(bankApiService.transferFunds(any(), any(), any(), eq("transaction-" + next.getId()))).thenReturn(true);
+
+        outboxRelayService.relay();
+
+        assertEquals(List.of(0), nextAttemptsDuringFirstCall);
+        assertEquals(Transaction.TransactionStatus.COMPLETED, status());
+        assertEquals(Transaction.TransactionStatus.COMPLETED, transactionRepository.findById(next.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void completeReportsAnEventAnotherRelayClaimedSince() {
+        OutboxEvent mine = event().orElseThrow();
+        assertTrue(outboxService.claim(mine));
+
+        // This relay's lease runs out and another relay claims the event
+        OutboxEvent theirs = event().orElseThrow();
+        assertTrue(outboxService.claim(theirs));
+
+        assertFalse(outboxService.complete(mine));
+        assertTrue(event().isPresent());
+        assertTrue(outboxService.complete(theirs));
+        assertTrue(event().isEmpty());
+    }
+
+    @Test
+    void notificationWaitsForAPendingTransferWithoutUsingAttempts() {
+        when(bankApiService.transferFunds(any(), any(), any(), eq(reference))).thenThrow(new RuntimeException("Read timed out"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            outboxService.enqueue(OutboxEvent.EventType.RULE_TRIGGERED_NOTIFICATION, transaction.getId()));
+
+        for (int i = 0; i < maxAttempts + 2; i++) {
+            makeDue(notification());
+            outboxRelayService.relay();
+            assertEquals(0, notification().getAttempts());
+            assertTrue(notification().getNextAttemptAt().isAfter(LocalDateTime.now()));
+        }
+
+        transactionService.settleTransfer(transaction.getId(), true, null);
+
+        OutboxEvent due = notification();
+        assertEquals(0, due.getAttempts());
+        assertFalse(due.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    private OutboxEvent notification() {
+        return outboxEventRepository.findAll().stream()
+            .filter(event -> event.getEventType() == OutboxEvent.EventType.RULE_TRIGGERED_NOTIFICATION
+                && event.getAggregateId().equals(transaction.getId()))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private void makeLastAttemptDue() {
+        OutboxEvent event = event().orElseThrow();
+        event.setAttempts(maxAttempts - 1);
+        makeDue(event);
+    }
+
+    private void makeDue(OutboxEvent event) {
+        event.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxEventRepository.save(event);
+    }
+
+    private Optional<OutboxEvent> event() {
+        return eventFor(transaction);
+    }
+
+    private Optional<OutboxEvent> eventFor(Transaction transaction) {
+        return outboxEventRepository.findAll().stream()
+            .filter(event -> event.getAggregateId().equals(transaction.getId()))
+            .findFirst();
+    }
+
+    private Transaction.TransactionStatus status() {
+        return transactionRepository.findById(transaction.getId()).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.savings.service;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the imports against PostgreSQL in a container, staging with COPY. Skipped when Docker is
+ * not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresBankTransactionImportTest extends BankTransactionImportTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        // As in application-postgres.properties: transactions is a partitioned table
+        registry.add("spring.jpa.properties.hibernate.hbm2ddl.extra_physical_table_types", () -> "PARTITIONED TABLE");
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.SavingsRule;
+import com.example.savings.model.Transaction;
+import com.example.savings.repository.SavingsRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SavingsAutomationServiceTest {
+    private final SavingsRuleRepository savingsRuleRepository = mock(SavingsRuleRepository.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SavingsAutomationService service = new SavingsAutomationService();
+
+    @BeforeEach
+    void createService() {
+        ReflectionTestUtils.setField(service, "savingsRuleRepository", savingsRuleRepository);
+        ReflectionTestUtils.setField(service, "transactionService", transactionService);
+        ReflectionTestUtils.setField(service, "notificationService", notificationService);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @Test
+    void failingRuleRollsBackOnlyItsOwnTransaction() {
+        SavingsRule failing = rule(1L);
+        SavingsRule working = rule(2L);
+        when(savingsRuleRepository.findByRuleConditionAndIsActive("DAILY", true)).thenReturn(List.of(failing, working));
+        when(transactionService.createTransaction(eq(failing.getSavingsGoal()), any(), eq(failing), any(), anyString()))
+            .thenThrow(new IllegalStateException("bank transfer failed"));
+        Transaction transfer = new Transaction();
+        when(transactionService.createTransaction(eq(working.getSavingsGoal()), any(), eq(working), any(), anyString()))
+            .thenReturn(transfer);
+
+        service.processDailyRules();
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(notificationService).queueSavingsRuleTriggeredNotification(transfer);
+    }
+
+    @Test
+    void ruleDeletedSinceTheRunStartedIsSkipped() {
+        SavingsRule deleted = rule(3L);
+        when(savingsRuleRepository.findByRuleConditionAndIsActive("WEEKLY", true)).thenReturn(List.of(deleted));
+        when(savingsRuleRepository.findById(3L)).thenReturn(Optional.empty());
+
+        service.processWeeklyRules();
+
+        verify(transactionService, never()).createTransaction(any(), any(), any(), any(), anyString());
+        verify(transactionManager).commit(any());
+    }
+
+    private SavingsRule rule(long id) {
+        SavingsGoal goal = new SavingsGoal();
+        goal.setId(id * 10);
+        goal.setName("Goal " + id);
+        SavingsRule rule = new SavingsRule();
+        rule.setId(id);
+        rule.setRuleType(SavingsRule.RuleType.FIXED_AMOUNT);
+        rule.setAmount(Money.ofCents(25_00));
+        rule.setSavingsGoal(goal);
+        rule.setSourceAccount(new BankAccount());
+        when(savingsRuleRepository.findById(id)).thenReturn(Optional.of(rule));
+        return rule;
+    }
+}
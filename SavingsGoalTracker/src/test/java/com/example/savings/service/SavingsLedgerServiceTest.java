@@ -0,0 +1,187 @@
+package com.example.savings.service;
+
+import com.example.savings.model.LedgerEntry;
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SavingsLedgerServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private SavingsLedgerService ledger;
+    private long nextTransactionId = 1;
+
+    @BeforeEach
+    void openEmptyLedger() throws IOException {
+        // No goals or transactions in the database, so the ledger starts empty
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        ledger = open();
+    }
+
+    @AfterEach
+    void closeLedger() throws IOException {
+        ledger.close();
+    }
+
+    @Test
+    void balanceAtReplaysPostingsAfterTheSnapshot() throws IOException {
+        post(1L, START, 100L);
+        post(2L, START.plusMinutes(1), 1000L);
+        post(1L, START.plusMinutes(2), 200L);
+        ledger.takeSnapshotIfDue();
+        post(1L, START.plusMinutes(3), 400L);
+        post(2L, START.plusMinutes(4), 2000L);
+
+        assertEquals(1, snapshotCount());
+        assertEquals(Money.ofCents(0L), ledger.getBalanceAt(1L, START.minusSeconds(1)));
+        assertEquals(Money.ofCents(100L), ledger.getBalanceAt(1L, START.plusSeconds(30)));
+        assertEquals(Money.ofCents(300L), ledger.getBalanceAt(1L, START.plusMinutes(2)));
+        assertEquals(Money.ofCents(700L), ledger.getBalanceAt(1L, START.plusMinutes(3)));
+        assertEquals(Money.ofCents(1000L), ledger.getBalanceAt(2L, START.plusMinutes(3)));
+        assertEquals(Money.ofCents(3000L), ledger.getBalanceAt(2L, START.plusHours(1)));
+        assertEquals(Money.ofCents(0L), ledger.getBalanceAt(3L, START.plusHours(1)));
+        assertEquals(3, ledger.getGoalEntries(1L, START, START.plusHours(1)).size());
+    }
+
+    @Test
+    void snapshotsAreWrittenOnlyOnceTheIntervalIsReached() throws IOException {
+        post(1L, START, 100L);
+        post(1L, START.plusMinutes(1), 100L);
+        ledger.takeSnapshotIfDue();
+        assertEquals(0, snapshotCount());
+
+        post(1L, START.plusMinutes(2), 100L);
+        ledger.takeSnapshotIfDue();
+        ledger.takeSnapshotIfDue();
+        assertEquals(1, snapshotCount());
+
+        for (int i = 3; i < 6; i++) {
+            post(1L, START.plusMinutes(i), 100L);
+        }
+        ledger.takeSnapshotIfDue();
+        assertEquals(2, snapshotCount());
+        assertEquals(Money.ofCents(600L), ledger.getBalanceAt(1L, START.plusHours(1)));
+    }
+
+    @Test
+    void reopenRestoresBalancesFromSnapshotAndReplay() throws IOException {
+        for (int i = 0; i < 7; i++) {
+            post(i % 2 == 0 ? 1L : 2L, START.plusMinutes(i), 100L * (i + 1));
+            ledger.takeSnapshotIfDue();
+        }
+        ledger.close();
+
+        // The last posting is already in the ledger, so nothing is appended from the database
+        ledger = open();
+
+        assertEquals(2, snapshotCount());
+        assertEquals(Money.ofCents(100L + 300L + 500L + 700L), ledger.getBalance(1L));
+        assertEquals(Money.ofCents(200L + 400L + 600L), ledger.getBalance(2L));
+        assertEquals(Money.ofCents(100L + 300L), ledger.getBalanceAt(1L, START.plusMinutes(3)));
+    }
+
+    @Test
+    void transferSettledBelowAPostedIdIsAppendedOnReopen() throws IOException {
+        post(1L, START, 100L);
+        nextTransactionId = 3;
+        post(1L, START.plusMinutes(2), 300L);
+        ledger.close();
+
+        // Transaction 2 completed after 3 had been posted, and its posting was lost in a crash
+        List<Object[]> completed = List.of(
+            new Object[]{1L, 1L, 100L, START},
+            new Object[]{2L, 1L, 200L, START.plusMinutes(1)},
+            new Object[]{3L, 1L, 300L, START.plusMinutes(2)});
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            long after = invocation.getArgument(2);
+            for (Object[] row : completed) {
+                if ((Long) row[0] > after) {
+                    handler.processRow(row(row));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("status = 'COMPLETED'"), any(RowCallbackHandler.class), anyLong(), anyInt());
+
+        ledger = open();
+
+        assertEquals(Money.ofCents(600L), ledger.getBalance(1L));
+        List<LedgerEntry> entries = ledger.getGoalEntries(1L, START, START.plusHours(1));
+        assertEquals(List.of(1L, 3L, 2L), entries.stream().map(LedgerEntry::getTransactionId).collect(Collectors.toList()));
+
+        ledger.close();
+        ledger = open();
+        assertEquals(Money.ofCents(600L), ledger.getBalance(1L));
+        assertEquals(3, ledger.getGoalEntries(1L, START, START.plusHours(1)).size());
+    }
+
+    private SavingsLedgerService open() throws IOException {
+        SavingsLedgerService service = new SavingsLedgerService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "ledgerDirectory", directory.toString());
+        ReflectionTestUtils.setField(service, "fsyncBatchSize", 256L);
+        ReflectionTestUtils.setField(service, "snapshotIntervalRecords", 3L);
+        service.open();
+        return service;
+    }
+
+    private void post(Long goalId, LocalDateTime timestamp, long cents) {
+        SavingsGoal goal = new SavingsGoal();
+        goal.setId(goalId);
+        Transaction transaction = new Transaction();
+        transaction.setId(nextTransactionId++);
+        transaction.setSavingsGoal(goal);
+        transaction.setTimestamp(timestamp);
+        transaction.setAmount(Money.ofCents(cents));
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        ledger.recordAfterCommit(transaction);
+    }
+
+    private static ResultSet row(Object[] values) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn((Long) values[0]);
+        when(rs.getLong(2)).thenReturn((Long) values[1]);
+        when(rs.getLong(3)).thenReturn((Long) values[2]);
+        when(rs.getTimestamp(4)).thenReturn(Timestamp.valueOf((LocalDateTime) values[3]));
+        return rs;
+    }
+
+    private long snapshotCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).count();
+        }
+    }
+}
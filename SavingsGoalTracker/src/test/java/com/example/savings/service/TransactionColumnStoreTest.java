@@ -0,0 +1,103 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionColumnStoreTest {
+
+    @Test
+    void onlyTheFirstCallerWaitsForALoadThatNeverFinishes() {
+        TransactionColumnStore store = store(1);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(store.awaitLoaded()));
+        assertTimeoutPreemptively(Duration.ofMillis(100), () -> assertFalse(store.awaitLoaded()));
+        assertTimeoutPreemptively(Duration.ofMillis(100), () ->
+            assertThrows(IllegalStateException.class, () -> store.forAccount(1L)));
+    }
+
+    @Test
+    void failedLoadFailsQueriesWithoutWaiting() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        TransactionColumnStore store = store(300);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+
+        store.load();
+
+        assertTimeoutPreemptively(Duration.ofMillis(100), () -> assertFalse(store.awaitLoaded()));
+        assertTimeoutPreemptively(Duration.ofMillis(100), () ->
+            assertThrows(IllegalStateException.class, () -> store.forGoal(1L)));
+    }
+
+    @Test
+    void settlementCommittedAfterTheLoadReadItIsAddedOnce() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:column-store-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, source_account_id BIGINT, " +
+            "savings_goal_id BIGINT, timestamp TIMESTAMP, amount_cents BIGINT, merchant_name VARCHAR(255), status VARCHAR(20))");
+        LocalDateTime settledAt = LocalDateTime.of(2024, 3, 1, 12, 0);
+        jdbcTemplate.update("INSERT INTO transactions VALUES (1, 10, 20, ?, 500, NULL, 'COMPLETED')", settledAt);
+
+        TransactionColumnStore store = store(300);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        ReflectionTestUtils.setField(store, "transactionManager", transactionManager);
+        // The settlement's afterCommit arrives once the cursor has already read its row
+        doAnswer(invocation -> {
+            store.recordAfterCommit(settled(1L, settledAt));
+            return null;
+        }).when(transactionManager).commit(any());
+
+        store.load();
+
+        assertEquals(1, store.forAccount(10L).count(settledAt.minusDays(1), settledAt.plusDays(1)));
+        assertEquals(1, store.forGoal(20L).count(settledAt.minusDays(1), settledAt.plusDays(1)));
+    }
+
+    private static Transaction settled(Long id, LocalDateTime timestamp) {
+        BankAccount account = new BankAccount();
+        account.setId(10L);
+        SavingsGoal goal = new SavingsGoal();
+        goal.setId(20L);
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setSourceAccount(account);
+        transaction.setSavingsGoal(goal);
+        transaction.setTimestamp(timestamp);
+        transaction.setAmount(Money.ofCents(500));
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        return transaction;
+    }
+
+    private static TransactionColumnStore store(long loadTimeoutSeconds) {
+        TransactionColumnStore store = new TransactionColumnStore();
+        ReflectionTestUtils.setField(store, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(store, "loadTimeoutSeconds", loadTimeoutSeconds);
+        return store;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.savings.service;
+
+import com.example.savings.model.Transaction.TransactionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionColumnsTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private final TransactionColumns columns = new TransactionColumns(new TransactionColumns.Dictionary());
+
+    @Test
+    void outOfOrderAppendsStaySortedByTimestamp() {
+        columns.append(DAY.plusHours(3), 300L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(1), 100L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(4), 400L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(2), 200L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY, 50L, null, TransactionStatus.COMPLETED);
+
+        assertArrayEquals(new long[] {50L, 100L, 200L, 300L, 400L}, columns.amountsAtLeast(DAY, DAY.plusDays(1), 0L));
+        assertArrayEquals(new long[] {100L, 200L}, columns.amountsAtLeast(DAY.plusHours(1), DAY.plusHours(2), 0L));
+    }
+
+    @Test
+    void rangesIncludeBothEnds() {
+        columns.append(DAY, 1L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(1), 2L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(1), 4L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusHours(2), 8L, null, TransactionStatus.COMPLETED);
+
+        assertEquals(4, columns.count(DAY, DAY.plusHours(2)));
+        assertEquals(2, columns.count(DAY.plusHours(1), DAY.plusHours(1)));
+        assertEquals(6L, columns.sumCents(DAY.plusHours(1), DAY.plusHours(1), TransactionStatus.COMPLETED));
+        assertEquals(0, columns.count(DAY.plusSeconds(1), DAY.plusHours(1).minusSeconds(1)));
+        assertEquals(0, columns.count(DAY.minusDays(1), DAY.minusSeconds(1)));
+        assertEquals(0, columns.count(DAY.plusHours(2).plusSeconds(1), DAY.plusDays(1)));
+        assertEquals(0, columns.count(DAY.plusHours(2), DAY));
+        assertArrayEquals(new long[0], columns.amountsAtLeast(DAY.plusHours(2), DAY, 0L));
+    }
+
+    @Test
+    void emptyColumnsAnswerZero() {
+        assertEquals(0, columns.count(DAY, DAY.plusDays(1)));
+        assertEquals(0L, columns.sumRoundUpCents(DAY, DAY.plusDays(1)));
+        assertArrayEquals(new long[0], columns.amountsAtLeast(DAY, DAY.plusDays(1), 0L));
+        assertEquals(Map.of(), columns.sumCentsByMerchant(DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        long expected = 0L;
+        for (int i = 99; i >= 0; i--) {
+            columns.append(DAY.plusMinutes(i), i, null, TransactionStatus.COMPLETED);
+            expected += i;
+        }
+
+        assertEquals(100, columns.size());
+        assertEquals(expected, columns.sumCents(DAY, DAY.plusMinutes(99), TransactionStatus.COMPLETED));
+        assertArrayEquals(new long[] {97L, 98L, 99L}, columns.amountsAtLeast(DAY, DAY.plusDays(1), 97L));
+    }
+
+    @Test
+    void sumsFilterByStatusAndSign() {
+        columns.append(DAY, 1000L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusMinutes(1), 500L, null, TransactionStatus.FAILED);
+        columns.append(DAY.plusMinutes(2), -1025L, null, TransactionStatus.COMPLETED);
+        columns.append(DAY.plusMinutes(3), -300L, null, TransactionStatus.COMPLETED);
+
+        assertEquals(-325L, columns.sumCents(DAY, DAY.plusDays(1), TransactionStatus.COMPLETED));
+        assertEquals(500L, columns.sumCents(DAY, DAY.plusDays(1), TransactionStatus.FAILED));
+        assertEquals(75L, columns.sumRoundUpCents(DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void merchantsMatchIgnoringCase() {
+        columns.append(DAY, -100L, "Coffee Shop", TransactionStatus.COMPLETED);
+        columns.append(DAY.plusMinutes(1), -900L, "Grocer", TransactionStatus.COMPLETED);
+        columns.append(DAY.plusMinutes(2), -250L, "COFFEE SHOP", TransactionStatus.COMPLETED);
+        columns.append(DAY.plusMinutes(3), -50L, null, TransactionStatus.COMPLETED);
+
+        assertEquals(2, columns.countMerchant(DAY, DAY.plusDays(1), "coffee shop"));
+        assertEquals(0, columns.countMerchant(DAY, DAY.plusDays(1), "Bakery"));
+        Map<String, Long> byMerchant = columns.sumCentsByMerchant(DAY, DAY.plusDays(1));
+        assertEquals(List.of("Coffee Shop", "Grocer"), List.copyOf(byMerchant.keySet()));
+        assertEquals(-350L, byMerchant.get("Coffee Shop"));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionSummary;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import com.example.savings.service.TransactionExportService.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports through a real cursor with a fetch size far below the number of rows, so every export
+ * spans several fetch batches.
+ */
+@SpringBootTest(properties = "transactions.export.fetch-size=7")
+@ActiveProfiles("test")
+class TransactionExportServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+    private BankAccount account;
+    private SavingsGoal holiday;
+    private SavingsGoal car;
+    private final List<TransactionSummary> holidayRows = new ArrayList<>();
+    private final List<TransactionSummary> carRows = new ArrayList<>();
+
+    @BeforeEach
+    void createTransactions() {
+        user = createUser();
+        account = createAccount(user);
+        holiday = createGoal(user, account, "Holiday");
+        car = createGoal(user, account, "Car");
+
+        // Inserted newest first, so id order is the reverse of the export order
+        for (int i = 24; i >= 0; i--) {
+            holidayRows.add(0, insert(holiday, i));
+        }
+        for (int i = 9; i >= 0; i--) {
+            carRows.add(0, insert(car, i));
+        }
+
+        User other = createUser();
+        SavingsGoal othersGoal = createGoal(other, createAccount(other), "Other");
+        for (int i = 0; i < 5; i++) {
+            insert(othersGoal, i);
+        }
+    }
+
+    @Test
+    void csvExportOfAGoalIsOrderedByTimestampAndEscapesText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.writeExport(user, holiday.getId(), null, null, ExportFormat.CSV, false, out);
+
+        StringBuilder expected = new StringBuilder(
+            "id,amount,timestamp,savings_goal_id,source_account_id,savings_rule_id,description,merchant_name,status\n");
+        for (int i = 0; i < holidayRows.size(); i++) {
+            TransactionSummary row = holidayRows.get(i);
+            expected.append(row.getId()).append(',').append(row.getAmount()).append(',')
+                .append(row.getTimestamp()).append(',').append(holiday.getId()).append(',')
+                .append(account.getId()).append(",,").append(csvDescription(i)).append(',')
+                .append(i % 3 == 0 ? "" : "Shop " + i).append(",COMPLETED\n");
+        }
+        assertEquals(25, rows);
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonExportCoversOnlyTheCallersGoals() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.writeExport(user, null, null, null, ExportFormat.NDJSON, false, out);
+
+        List<String> holidayLines = jsonLines(holidayRows);
+        List<String> carLines = jsonLines(carRows);
+        List<String> exported = List.of(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(35, rows);
+        // Goals come in no particular order, but each goal's rows are in timestamp order
+        assertEquals(35, exported.size());
+        assertEquals(holidayLines, exported.stream().filter(holidayLines::contains).toList());
+        assertEquals(carLines, exported.stream().filter(carLines::contains).toList());
+    }
+
+    @Test
+    void gzippedExportKeepsOnlyRowsInsideTheWindow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.writeExport(user, holiday.getId(), START.plusHours(3), START.plusHours(20),
+            ExportFormat.NDJSON, true, out);
+
+        byte[] content = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes();
+        assertEquals(18, rows);
+        assertEquals(String.join("", jsonLines(holidayRows.subList(3, 21)).stream().map(line -> line + "\n").toList()),
+            new String(content, StandardCharsets.UTF_8));
+    }
+
+    /** Row {@code i} of a goal: one hour after the previous one, with text that needs CSV quoting in turn. */
+    private TransactionSummary insert(SavingsGoal goal, int i) {
+        LocalDateTime timestamp = START.plusHours(i);
+        Money amount = Money.ofCents(100 + i);
+        String description = description(i);
+        String merchant = i % 3 == 0 ? null : "Shop " + i;
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("INSERT INTO transactions (amount_cents, timestamp, "
+                + "savings_goal_id, source_account_id, description, merchant_name, status) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'COMPLETED')", new String[] {"id"});
+            ps.setLong(1, amount.getCents());
+            ps.setTimestamp(2, Timestamp.valueOf(timestamp));
+            ps.setLong(3, goal.getId());
+            ps.setLong(4, goal.getDestinationAccount().getId());
+            ps.setString(5, description);
+            ps.setString(6, merchant);
+            return ps;
+        }, keyHolder);
+
+        return new TransactionSummary(keyHolder.getKey().longValue(), amount, timestamp, goal.getId(),
+            goal.getDestinationAccount().getId(), null, description, merchant, Transaction.TransactionStatus.COMPLETED);
+    }
+
+    private static String description(int i) {
+        switch (i % 4) {
+            case 0: return "Transfer " + i + ", weekly";
+            case 1: return "Transfer \"" + i + "\"";
+            case 2: return "Transfer\n" + i;
+            default: return "Transfer " + i;
+        }
+    }
+
+    private static String csvDescription(int i) {
+        switch (i % 4) {
+            case 0: return "\"Transfer " + i + ", weekly\"";
+            case 1: return "\"Transfer \"\"" + i + "\"\"\"";
+            case 2: return "\"Transfer\n" + i + "\"";
+            default: return "Transfer " + i;
+        }
+    }
+
+    private List<String> jsonLines(List<TransactionSummary> rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (TransactionSummary row : rows) {
+            lines.add(objectMapper.writeValueAsString(row));
+        }
+        return lines;
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User created = new User();
+        created.setName(name);
+        created.setUsername(name);
+        created.setEmail(name + "@example.com");
+        created.setPassword("password");
+        return userService.registerUser(created);
+    }
+
+    private BankAccount createAccount(User owner) {
+        BankAccount created = new BankAccount();
+        created.setAccountName("Checking");
+        created.setAccountNumber("0001");
+        created.setBankName("Bank");
+        created.setAccountType("CHECKING");
+        created.setAccessToken("token");
+        created.setBalance(Money.parse("1000.00"));
+        created.setUser(owner);
+        return bankAccountRepository.save(created);
+    }
+
+    private SavingsGoal createGoal(User owner, BankAccount destination, String name) {
+        SavingsGoal created = new SavingsGoal();
+        created.setName(name);
+        created.setUser(owner);
+        created.setDestinationAccount(destination);
+        created.setTargetAmount(Money.parse("5000.00"));
+        created.setCurrentAmount(Money.ZERO);
+        created.setStartDate(LocalDate.now());
+        created.setTargetDate(LocalDate.now().plusYears(1));
+        return savingsGoalRepository.save(created);
+    }
+}
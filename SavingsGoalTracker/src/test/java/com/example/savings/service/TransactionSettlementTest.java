@@ -0,0 +1,167 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.OutboxEvent;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.User;
+import com.example.savings.repository.BankAccountRepository;
+import com.example.savings.repository.OutboxEventRepository;
+import com.example.savings.repository.SavingsGoalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionSettlementTest {
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @MockBean
+    private BankApiService bankApiService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SavingsGoalService savingsGoalService;
+
+    @Autowired
+    private GoalRollupService goalRollupService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private SavingsGoalRepository savingsGoalRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private BankAccount account;
+    private SavingsGoal goal;
+
+    @BeforeEach
+    void createGoal() {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setName(name);
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user = userService.registerUser(user);
+
+        account = new BankAccount();
+        account.setAccountName("Checking");
+        account.setAccountNumber("0001");
+        account.setBankName("Bank");
+        account.setAccountType("CHECKING");
+        account.setRoutingNumber("110000000");
+        account.setAccessToken("token");
+        account.setBalance(Money.parse("10000.00"));
+        account.setUser(user);
+        account = bankAccountRepository.save(account);
+
+        goal = new SavingsGoal();
+        goal.setName("Holiday");
+        goal.setUser(user);
+        goal.setDestinationAccount(account);
+        goal.setTargetAmount(Money.parse("5000.00"));
+        goal.setCurrentAmount(Money.ZERO);
+        goal.setStartDate(LocalDate.now());
+        goal.setTargetDate(LocalDate.now().plusYears(1));
+        goal = savingsGoalRepository.save(goal);
+    }
+
+    @Test
+    void concurrentSettlementsAllReachTheGoal() throws Exception {
+        List<Transaction> pending = new ArrayList<>();
+        long expectedCents = 0;
+        for (int i = 1; i <= 24; i++) {
+            pending.add(transactionService.createTransaction(goal, account, null, Money.ofCents(100 + i), "Transfer " + i));
+            expectedCents += 100 + i;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> settled = new ArrayList<>();
+            for (Transaction transaction : pending) {
+                settled.add(pool.submit(() -> transactionService.settleTransfer(transaction.getId(), true, eventFor(transaction))));
+            }
+            for (Future<?> future : settled) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        SavingsGoal stored = savingsGoalRepository.findById(goal.getId()).orElseThrow();
+        assertEquals(expectedCents, stored.getCurrentAmount().getCents());
+        assertEquals(expectedCents, transactionService.getCompletedTotal(stored).getCents());
+        assertEquals(expectedCents, goalRollupService.getTotalBetween(stored, LocalDate.now(), LocalDate.now()).getCents());
+    }
+
+    @Test
+    void editFromStaleCopyDoesNotOverwriteSettlement() {
+        SavingsGoal stale = savingsGoalService.findById(goal.getId()).orElseThrow();
+
+        Transaction transaction = transactionService.createTransaction(goal, account, null, Money.parse("25.00"), "Transfer");
+        transactionService.settleTransfer(transaction.getId(), true, eventFor(transaction));
+
+        stale.setName("Renamed");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> savingsGoalService.updateSavingsGoal(stale));
+        assertEquals(Money.parse("25.00"), savingsGoalRepository.findById(goal.getId()).orElseThrow().getCurrentAmount());
+    }
+
+    @Test
+    void overlappingSettlementsOfOneTransferCreditTheGoalOnce() throws Exception {
+        Transaction transaction = transactionService.createTransaction(goal, account, null, Money.parse("40.00"), "Transfer");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> settled = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                settled.add(pool.submit(() -> transactionService.settleTransfer(transaction.getId(), true, null)));
+            }
+            for (Future<?> future : settled) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        SavingsGoal stored = savingsGoalRepository.findById(goal.getId()).orElseThrow();
+        assertEquals(Money.parse("40.00"), stored.getCurrentAmount());
+        assertEquals(Money.parse("40.00"), goalRollupService.getTotalBetween(stored, LocalDate.now(), LocalDate.now()));
+    }
+
+    private OutboxEvent eventFor(Transaction transaction) {
+        return outboxEventRepository.findAll().stream()
+            .filter(event -> event.getEventType() == OutboxEvent.EventType.BANK_TRANSFER
+                && event.getAggregateId().equals(transaction.getId()))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.savings.service;
+
+import com.example.savings.model.BankAccount;
+import com.example.savings.model.Money;
+import com.example.savings.model.SavingsGoal;
+import com.example.savings.model.Transaction;
+import com.example.savings.model.TransactionSummary;
+import com.example.savings.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionStatusWatcherTest {
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final TransactionStatusWatcher watcher = new TransactionStatusWatcher();
+
+    @BeforeEach
+    void createWatcher() {
+        ReflectionTestUtils.setField(watcher, "transactionRepository", transactionRepository);
+    }
+
+    @Test
+    void settledElsewhereWakesEveryWaiter() {
+        CompletableFuture<TransactionSummary> first = watcher.awaitSettlement(1L);
+        CompletableFuture<TransactionSummary> second = watcher.awaitSettlement(1L);
+        TransactionSummary completed = summary(1L);
+        when(transactionRepository.findSettledSummariesByIdIn(List.of(1L))).thenReturn(List.of(completed));
+
+        // Nothing is attached to the settlement yet, as between registering and thenAccept
+        watcher.checkWaiting();
+
+        assertSame(completed, first.getNow(null));
+        assertSame(completed, second.getNow(null));
+    }
+
+    @Test
+    void settlementOnThisInstanceWakesTheWaiter() {
+        CompletableFuture<TransactionSummary> settlement = watcher.awaitSettlement(1L);
+        Transaction transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setSavingsGoal(new SavingsGoal());
+        transaction.setSourceAccount(new BankAccount());
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+
+        watcher.settledAfterCommit(transaction);
+
+        assertSame(Transaction.TransactionStatus.COMPLETED, settlement.getNow(null).getStatus());
+        watcher.checkWaiting();
+        verify(transactionRepository, never()).findSettledSummariesByIdIn(any());
+    }
+
+    @Test
+    void timedOutWaiterIsNoLongerChecked() {
+        CompletableFuture<TransactionSummary> settlement = watcher.awaitSettlement(1L);
+
+        watcher.release(1L, settlement);
+        watcher.checkWaiting();
+
+        verify(transactionRepository, never()).findSettledSummariesByIdIn(any());
+        assertFalse(settlement.isDone());
+    }
+
+    @Test
+    void transactionIsCheckedUntilItsLastWaiterIsReleased() {
+        CompletableFuture<TransactionSummary> first = watcher.awaitSettlement(1L);
+        CompletableFuture<TransactionSummary> second = watcher.awaitSettlement(1L);
+
+        watcher.release(1L, first);
+        watcher.checkWaiting();
+
+        verify(transactionRepository).findSettledSummariesByIdIn(List.of(1L));
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    void releaseAfterSettlementLeavesNewWaitersAlone() {
+        CompletableFuture<TransactionSummary> settled = watcher.awaitSettlement(1L);
+        when(transactionRepository.findSettledSummariesByIdIn(List.of(1L))).thenReturn(List.of(summary(1L)));
+        watcher.checkWaiting();
+        CompletableFuture<TransactionSummary> next = watcher.awaitSettlement(1L);
+        assertNotSame(settled, next);
+
+        // The first request's completion callback runs after the next one registered
+        watcher.release(1L, settled);
+        when(transactionRepository.findSettledSummariesByIdIn(List.of(1L))).thenReturn(List.of());
+        watcher.checkWaiting();
+
+        verify(transactionRepository, times(2)).findSettledSummariesByIdIn(List.of(1L));
+    }
+
+    private static TransactionSummary summary(Long id) {
+        return new TransactionSummary(id, Money.ofCents(10_00), LocalDateTime.now(), 10L, 20L, null,
+            "Transfer", null, Transaction.TransactionStatus.COMPLETED);
+    }
+}
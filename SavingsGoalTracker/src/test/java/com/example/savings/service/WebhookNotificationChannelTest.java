@@ -0,0 +1,262 @@
+package com.example.savings.service;
+
+import com.example.savings.model.NotificationEvent;
+import com.example.savings.model.User;
+import com.example.savings.model.WebhookEndpoint;
+import com.example.savings.repository.WebhookEndpointRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sends events to a local HTTP server standing in for the subscribers, which records every
+ * batch it receives.
+ */
+class WebhookNotificationChannelTest {
+    private static final String SECRET = "s3cret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final WebhookEndpointRepository webhookEndpointRepository = mock(WebhookEndpointRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Queue<Received> received = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private WebhookNotificationChannel channel;
+    private User user;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        channel = new WebhookNotificationChannel();
+        ReflectionTestUtils.setField(channel, "webhookEndpointRepository", webhookEndpointRepository);
+        ReflectionTestUtils.setField(channel, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(channel, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(channel, "batchSize", 100);
+        ReflectionTestUtils.setField(channel, "queueCapacity", 10_000);
+        ReflectionTestUtils.setField(channel, "maxAttempts", 5);
+        ReflectionTestUtils.setField(channel, "retryBaseMillis", 10L);
+        ReflectionTestUtils.setField(channel, "timeoutSeconds", 10L);
+        ReflectionTestUtils.setField(channel, "clientThreads", 2);
+        channel.start();
+
+        user = new User();
+        user.setId(42L);
+    }
+
+    @AfterEach
+    void stopServer() {
+        channel.stop();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void eventsAreBatchedCompressedAndSignedPerEndpoint() {
+        respond("/all", exchange -> 200);
+        respond("/completed", exchange -> 200);
+        useEndpoints(endpoint(1L, "/all", SECRET, null, 2),
+            endpoint(2L, "/completed", null, "GOAL_COMPLETED", 1));
+
+        for (int i = 0; i < 250; i++) {
+            channel.publish(event(NotificationEvent.Type.RULE_TRIGGERED));
+        }
+        for (int i = 0; i < 5; i++) {
+            channel.publish(event(NotificationEvent.Type.GOAL_COMPLETED));
+        }
+        flushUntil(() -> sent() == 260.0);
+        assertEquals(255, eventsReceived("/all"));
+        assertEquals(5, eventsReceived("/completed"));
+
+        for (Received batch : batches("/all")) {
+            assertEquals("gzip", batch.contentEncoding);
+            assertEquals("sha256=" + hmac(batch.body), batch.signature);
+            assertTrue(batch.events.size() <= 100);
+        }
+        assertEquals(3, batches("/all").size());
+
+        for (Received batch : batches("/completed")) {
+            assertNull(batch.signature);
+            for (Map<String, Object> event : batch.events) {
+                assertEquals("GOAL_COMPLETED", event.get("type"));
+                assertEquals(42, event.get("userId"));
+                assertEquals(Map.of("goalName", "Holiday"), event.get("data"));
+            }
+        }
+    }
+
+    @Test
+    void slowEndpointsNeitherBlockPublishingNorExceedTheirConcurrencyCap() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        respond("/slow", exchange -> {
+            release.await();
+            return 200;
+        });
+        useEndpoints(endpoint(1L, "/slow", null, null, 2));
+        ReflectionTestUtils.setField(channel, "batchSize", 10);
+
+        for (int i = 0; i < 50; i++) {
+            channel.publish(event(NotificationEvent.Type.RULE_TRIGGERED));
+        }
+        flushUntil(() -> inFlight.get() == 2);
+        // Every slot is taken, so further flushes send nothing
+        for (int i = 0; i < 5; i++) {
+            channel.flush();
+        }
+        Thread.sleep(100);
+        assertEquals(2, inFlight.get());
+
+        // Publishing only queues, so it does not wait for the stuck deliveries
+        for (int i = 0; i < 50; i++) {
+            channel.publish(event(NotificationEvent.Type.RULE_TRIGGERED));
+        }
+
+        release.countDown();
+        flushUntil(() -> eventsReceived("/slow") == 100);
+        assertEquals(2, maxInFlight.get());
+        assertEquals(10, batches("/slow").size());
+    }
+
+    @Test
+    void failedBatchesAreRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        respond("/flaky", exchange -> attempts.incrementAndGet() == 1 ? 500 : 200);
+        useEndpoints(endpoint(1L, "/flaky", null, null, 1));
+
+        for (int i = 0; i < 3; i++) {
+            channel.publish(event(NotificationEvent.Type.RULE_TRIGGERED));
+        }
+        flushUntil(() -> sent() == 3.0);
+
+        assertEquals(2, attempts.get());
+        assertEquals(List.of(3, 3), batches("/flaky").stream().map(batch -> batch.events.size()).toList());
+    }
+
+    private void respond(String path, StatusCode statusCode) {
+        server.createContext(path, exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                received.add(read(path, exchange));
+                int status = statusCode.of(exchange);
+                exchange.sendResponseHeaders(status, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+    }
+
+    private Received read(String path, HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        List<Map<String, Object>> events;
+        try (InputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            events = objectMapper.readValue(json, new TypeReference<>() { });
+        }
+        return new Received(path, exchange.getRequestHeaders().getFirst("Content-Encoding"),
+            exchange.getRequestHeaders().getFirst("X-Webhook-Signature"), body, events);
+    }
+
+    private void useEndpoints(WebhookEndpoint... endpoints) {
+        when(webhookEndpointRepository.findByEnabledTrue()).thenReturn(List.of(endpoints));
+        channel.refreshEndpoints();
+    }
+
+    private WebhookEndpoint endpoint(Long id, String path, String secret, String eventTypes, int maxConcurrency) {
+        WebhookEndpoint endpoint = new WebhookEndpoint();
+        endpoint.setId(id);
+        endpoint.setUrl("http://localhost:" + server.getAddress().getPort() + path);
+        endpoint.setSecret(secret);
+        endpoint.setEventTypes(eventTypes);
+        endpoint.setMaxConcurrency(maxConcurrency);
+        endpoint.setEnabled(true);
+        return endpoint;
+    }
+
+    private NotificationEvent event(NotificationEvent.Type type) {
+        return new NotificationEvent(type, user, 7L, Map.of("goalName", "Holiday"), LocalDateTime.now());
+    }
+
+    private void flushUntil(BooleanSupplier done) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!done.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for webhook deliveries");
+            channel.flush();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private List<Received> batches(String path) {
+        return received.stream().filter(batch -> batch.path.equals(path)).toList();
+    }
+
+    private int eventsReceived(String path) {
+        return batches(path).stream().mapToInt(batch -> batch.events.size()).sum();
+    }
+
+    private double sent() {
+        return meterRegistry.counter("notifications.webhook.events", "outcome", "sent").count();
+    }
+
+    private static String hmac(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface StatusCode {
+        int of(HttpExchange exchange) throws InterruptedException;
+    }
+
+    private record Received(String path, String contentEncoding, String signature, byte[] body,
+                            List<Map<String, Object>> events) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.savings.util;
+
+import com.example.savings.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageTokenUtilTest {
+
+    @Test
+    void decodeReturnsEncodedCursor() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789);
+
+        PageTokenUtil.Cursor cursor = PageTokenUtil.decode(PageTokenUtil.encode(timestamp, 42L));
+
+        assertEquals(timestamp, cursor.getTimestamp());
+        assertEquals(42L, cursor.getId());
+    }
+
+    @Test
+    void roundTripKeepsWholeSecondsAndLargeIds() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        PageTokenUtil.Cursor cursor = PageTokenUtil.decode(PageTokenUtil.encode(timestamp, Long.MAX_VALUE));
+
+        assertEquals(timestamp, cursor.getTimestamp());
+        assertEquals(Long.MAX_VALUE, cursor.getId());
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        String token = PageTokenUtil.encode(LocalDateTime.of(2024, 3, 15, 10, 30, 5, 999_000_000), 1234567L);
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="), token);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode("not base64!"));
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode(token("2024-01-01T00:00")));
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode(token("yesterday|42")));
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode(token("2024-01-01T00:00|forty-two")));
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode(token("2024-01-01T00:00|")));
+        assertThrows(BadRequestException.class, () -> PageTokenUtil.decode(""));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}